@@ -0,0 +1,64 @@
+package com.example.smartcleaner.data.ml
+
+import android.content.Context
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.smartcleaner.data.ml.FixtureCorpus
+import com.smartcleaner.data.ml.JunkClassifier
+import com.smartcleaner.data.ml.ModelVariant
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Device benchmark of rule-based vs float vs int8 classification
+ * Reports go to logcat under the "ClassifierBenchmark" tag
+ */
+@RunWith(AndroidJUnit4::class)
+class JunkClassifierBenchmarkTest {
+
+    private lateinit var classifier: JunkClassifier
+
+    @Before
+    fun setup() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        classifier = JunkClassifier(context)
+    }
+
+    @After
+    fun tearDown() {
+        classifier.release()
+    }
+
+    @Test
+    fun benchmarkBundledVariants() {
+        val reports = classifier.benchmark(corpus = FixtureCorpus.standard(size = 5000))
+        reports.forEach { Log.i("ClassifierBenchmark", it.toString()) }
+
+        // Rules need no model, so they are always there. The corpus is
+        // labeled by the rules, so this only checks the features reach them
+        val rules = reports.first { it.name == ModelVariant.RULES.name }
+        assertEquals(1f, rules.ruleAgreement, 0.001f)
+        reports.forEach { report ->
+            assertEquals(5000, report.files)
+            assertTrue(report.p50Micros <= report.p99Micros)
+            assertTrue(report.filesPerSecond > 0)
+        }
+    }
+
+    @Test
+    fun variantsSwapAtRuntime() {
+        classifier.initialize()
+        val features = FixtureCorpus.standard(size = 7).features
+
+        ModelVariant.values().forEach { variant ->
+            if (classifier.load(variant).isFailure) return@forEach // Model not bundled
+            assertEquals(variant, classifier.variant)
+            assertEquals(variant.version, classifier.modelVersion)
+            assertEquals(7, classifier.classifyMatrix(features, 7).size)
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smartcleaner.data.util
+
+import android.system.Os
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.smartcleaner.data.util.FileIdentity
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import java.io.File
+
+/**
+ * Instrumented tests for FileIdentity
+ * Tests FileIdentity.of against real lstat() results
+ */
+@RunWith(AndroidJUnit4::class)
+class FileIdentityTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    @Test
+    fun `hard links share a key`() {
+        val original = tempFolder.newFile("photo.jpg").apply { writeText("pixels") }
+        val link = File(tempFolder.root, "photo_copy.jpg")
+        Os.link(original.absolutePath, link.absolutePath)
+        val copy = tempFolder.newFile("photo_other.jpg").apply { writeText("pixels") }
+
+        val originalId = FileIdentity.of(original)!!
+        val linkId = FileIdentity.of(link)!!
+
+        assertEquals(originalId.key, linkId.key)
+        assertEquals(2L, linkId.linkCount)
+        assertNotEquals(originalId.key, FileIdentity.of(copy)!!.key)
+    }
+
+    @Test
+    fun `last modified keeps milliseconds like File`() {
+        val file = tempFolder.newFile("report.pdf")
+        assertTrue(file.setLastModified(1_700_000_000_123L))
+
+        assertEquals(file.lastModified(), FileIdentity.of(file)!!.lastModified)
+    }
+
+    @Test
+    fun `missing files have no identity`() {
+        assertNull(FileIdentity.of(File(tempFolder.root, "gone.jpg")))
+    }
+}
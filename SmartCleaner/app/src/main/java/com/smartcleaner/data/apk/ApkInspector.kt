@@ -0,0 +1,106 @@
+package com.smartcleaner.data.apk
+
+import android.content.Context
+import android.content.pm.PackageManager
+import androidx.core.content.pm.PackageInfoCompat
+import com.smartcleaner.domain.model.ApkState
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Package and version of APK files, read in parallel and cached on disk
+ *
+ * Each APK's manifest is read by [ApkManifestReader] at most once per
+ * (path, size, mtime); results survive restarts in files/[CACHE_FILE].
+ */
+@Singleton
+class ApkInspector @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+
+    /**
+     * An APK as already seen by a scan, so it isn't stat'ed again
+     */
+    data class Target(val path: String, val size: Long, val lastModified: Long)
+
+    companion object {
+        private const val CACHE_FILE = "apk_manifests.cache"
+        private const val PARALLELISM = 4
+        private val MAX_UNUSED_MS = TimeUnit.DAYS.toMillis(30)
+    }
+
+    private val mutex = Mutex()
+    private var cache: ApkManifestCache? = null
+
+    /**
+     * @return Package and version by path, for the APKs that could be read
+     */
+    suspend fun inspect(targets: List<Target>): Map<String, ApkInfo> = mutex.withLock {
+        withContext(Dispatchers.IO) {
+            val cacheFile = File(context.filesDir, CACHE_FILE)
+            val manifests = cache ?: ApkManifestCache.read(cacheFile, MAX_UNUSED_MS).also { cache = it }
+            val now = System.currentTimeMillis()
+
+            val result = HashMap<String, ApkInfo>()
+            val misses = ArrayList<Target>()
+            targets.forEach { target ->
+                val hit = manifests.get(target.path, target.size, target.lastModified, now)
+                if (hit == null) misses.add(target) else hit.info?.let { result[target.path] = it }
+            }
+
+            if (misses.isNotEmpty()) {
+                val permits = Semaphore(PARALLELISM)
+                val read = coroutineScope {
+                    misses.map { target ->
+                        async { permits.withPermit { target to ApkManifestReader.read(File(target.path)) } }
+                    }.awaitAll()
+                }
+                read.forEach { (target, info) ->
+                    manifests.put(target.path, target.size, target.lastModified, info, now)
+                    info?.let { result[target.path] = it }
+                }
+            }
+
+            if (manifests.changed) {
+                try {
+                    manifests.write(cacheFile, now)
+                } catch (e: Exception) {
+                    // Kept in memory; next miss retries the write
+                }
+            }
+            result
+        }
+    }
+
+    suspend fun inspectFiles(files: List<File>): Map<String, ApkInfo> =
+        inspect(files.map { Target(it.absolutePath, it.length(), it.lastModified()) })
+
+    /**
+     * Compare an APK with the installed app of the same package
+     */
+    fun stateOf(info: ApkInfo): ApkState {
+        val installed = try {
+            context.packageManager.getPackageInfo(info.packageName, 0)
+        } catch (e: PackageManager.NameNotFoundException) {
+            return ApkState.NOT_INSTALLED
+        }
+        val installedVersion = PackageInfoCompat.getLongVersionCode(installed)
+        return when {
+            installedVersion == info.versionCode -> ApkState.INSTALLED
+            installedVersion > info.versionCode -> ApkState.OLDER_VERSION
+            else -> ApkState.NEWER_VERSION
+        }
+    }
+}
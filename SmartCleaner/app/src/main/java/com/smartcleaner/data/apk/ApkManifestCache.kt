@@ -0,0 +1,100 @@
+package com.smartcleaner.data.apk
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * Manifest results by (path, size, mtime), kept across scans
+ *
+ * A hit needs the same size and mtime, so a replaced or re-downloaded APK
+ * is read again. Unreadable APKs are cached too (as a null [ApkInfo]) so a
+ * broken download isn't reopened on every scan. Entries not looked up for
+ * [maxUnusedMs] are dropped on [write].
+ */
+class ApkManifestCache(private val maxUnusedMs: Long) {
+
+    private class Entry(
+        val size: Long,
+        val lastModified: Long,
+        val info: ApkInfo?,
+        var lastUsed: Long
+    )
+
+    companion object {
+        private const val FORMAT = 1
+
+        /**
+         * @return The cache, or an empty one if missing, unreadable or of another format
+         */
+        fun read(file: File, maxUnusedMs: Long): ApkManifestCache {
+            val cache = ApkManifestCache(maxUnusedMs)
+            if (!file.isFile) return cache
+            try {
+                DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                    if (input.readInt() != FORMAT) return cache
+                    repeat(input.readInt()) {
+                        val path = input.readUTF()
+                        val size = input.readLong()
+                        val lastModified = input.readLong()
+                        val lastUsed = input.readLong()
+                        val info = if (input.readBoolean()) ApkInfo(input.readUTF(), input.readLong()) else null
+                        cache.entries[path] = Entry(size, lastModified, info, lastUsed)
+                    }
+                }
+            } catch (e: Exception) {
+                cache.entries.clear()
+            }
+            return cache
+        }
+    }
+
+    private val entries = HashMap<String, Entry>()
+
+    var changed = false
+        private set
+
+    /**
+     * A cached result; [info] is null for an unreadable APK
+     */
+    class Hit(val info: ApkInfo?)
+
+    /**
+     * @return The cached result, or null on a miss
+     */
+    fun get(path: String, size: Long, lastModified: Long, now: Long): Hit? {
+        val entry = entries[path]
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) return null
+        entry.lastUsed = now
+        return Hit(entry.info)
+    }
+
+    fun put(path: String, size: Long, lastModified: Long, info: ApkInfo?, now: Long) {
+        entries[path] = Entry(size, lastModified, info, now)
+        changed = true
+    }
+
+    fun write(file: File, now: Long) {
+        entries.values.removeAll { now - it.lastUsed > maxUnusedMs }
+        val temp = File(file.path + ".tmp")
+        DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+            output.writeInt(FORMAT)
+            output.writeInt(entries.size)
+            for ((path, entry) in entries) {
+                output.writeUTF(path)
+                output.writeLong(entry.size)
+                output.writeLong(entry.lastModified)
+                output.writeLong(entry.lastUsed)
+                output.writeBoolean(entry.info != null)
+                entry.info?.let {
+                    output.writeUTF(it.packageName)
+                    output.writeLong(it.versionCode)
+                }
+            }
+        }
+        temp.renameTo(file)
+        changed = false
+    }
+}
@@ -0,0 +1,266 @@
+package com.smartcleaner.data.apk
+
+import java.io.File
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.zip.Inflater
+
+/**
+ * Package name and version of an APK
+ */
+data class ApkInfo(val packageName: String, val versionCode: Long)
+
+/**
+ * Reads package and versionCode straight from an APK's binary manifest
+ *
+ * PackageManager.getPackageArchiveInfo opens and verifies the whole archive.
+ * Here only the ZIP end record, the central directory and the compressed
+ * AndroidManifest.xml are read with random access, then the first element
+ * of the binary XML (the `<manifest>` tag) is decoded.
+ */
+object ApkManifestReader {
+
+    private const val MANIFEST = "AndroidManifest.xml"
+
+    private const val END_SIGNATURE = 0x06054b50
+    private const val END_RECORD_SIZE = 22
+    private const val MAX_COMMENT_SIZE = 0xffff
+    private const val CENTRAL_SIGNATURE = 0x02014b50
+    private const val CENTRAL_HEADER_SIZE = 46
+    private const val LOCAL_SIGNATURE = 0x04034b50
+    private const val LOCAL_HEADER_SIZE = 30
+    private const val METHOD_STORED = 0
+    private const val METHOD_DEFLATED = 8
+    // Manifests are tens of KB; anything bigger is not worth reading
+    private const val MAX_MANIFEST_SIZE = 4 * 1024 * 1024
+
+    // Binary XML chunk types
+    private const val CHUNK_STRING_POOL = 0x0001
+    private const val CHUNK_XML = 0x0003
+    private const val CHUNK_RESOURCE_MAP = 0x0180
+    private const val CHUNK_START_ELEMENT = 0x0102
+    private const val UTF8_FLAG = 0x100
+
+    private const val TYPE_STRING = 0x03
+    private const val TYPE_INT_DEC = 0x10
+    private const val TYPE_INT_HEX = 0x11
+
+    private const val ATTR_VERSION_CODE = 0x0101021b
+    private const val ATTR_VERSION_CODE_MAJOR = 0x01010576
+
+    /**
+     * @return The APK's package and version, or null if it isn't a readable APK
+     */
+    fun read(file: File): ApkInfo? {
+        return try {
+            RandomAccessFile(file, "r").use { archive ->
+                val manifest = readManifest(archive) ?: return null
+                parseManifest(ByteBuffer.wrap(manifest).order(ByteOrder.LITTLE_ENDIAN))
+            }
+        } catch (e: Exception) {
+            null
+        }
+    }
+
+    private fun readManifest(archive: RandomAccessFile): ByteArray? {
+        val length = archive.length()
+        if (length < END_RECORD_SIZE) return null
+
+        // The end record sits before an optional comment of up to 64 KB
+        val tailSize = minOf(length, (END_RECORD_SIZE + MAX_COMMENT_SIZE).toLong()).toInt()
+        val tail = readAt(archive, length - tailSize, tailSize)
+        var end = tailSize - END_RECORD_SIZE
+        while (end >= 0 && tail.getInt(end) != END_SIGNATURE) end--
+        if (end < 0) return null
+
+        val directorySize = tail.getInt(end + 12).toLong() and 0xffffffffL
+        val directoryOffset = tail.getInt(end + 16).toLong() and 0xffffffffL
+        if (directoryOffset + directorySize > length) return null  // ZIP64 or broken
+        val directory = readAt(archive, directoryOffset, directorySize.toInt())
+
+        var position = 0
+        while (position + CENTRAL_HEADER_SIZE <= directory.limit()) {
+            if (directory.getInt(position) != CENTRAL_SIGNATURE) return null
+            val method = directory.getShort(position + 10).toInt() and 0xffff
+            val compressedSize = directory.getInt(position + 20).toLong() and 0xffffffffL
+            val size = directory.getInt(position + 24).toLong() and 0xffffffffL
+            val nameLength = directory.getShort(position + 28).toInt() and 0xffff
+            val extraLength = directory.getShort(position + 30).toInt() and 0xffff
+            val commentLength = directory.getShort(position + 32).toInt() and 0xffff
+            val localOffset = directory.getInt(position + 42).toLong() and 0xffffffffL
+
+            val name = ByteArray(nameLength)
+            directory.position(position + CENTRAL_HEADER_SIZE)
+            directory.get(name)
+            if (String(name, Charsets.UTF_8) == MANIFEST) {
+                if (size > MAX_MANIFEST_SIZE || compressedSize > MAX_MANIFEST_SIZE) return null
+                return readEntry(archive, localOffset, method, compressedSize.toInt(), size.toInt())
+            }
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength
+        }
+        return null
+    }
+
+    private fun readEntry(
+        archive: RandomAccessFile,
+        localOffset: Long,
+        method: Int,
+        compressedSize: Int,
+        size: Int
+    ): ByteArray? {
+        val header = readAt(archive, localOffset, LOCAL_HEADER_SIZE)
+        if (header.getInt(0) != LOCAL_SIGNATURE) return null
+        // The local extra field may differ from the central one
+        val dataOffset = localOffset + LOCAL_HEADER_SIZE +
+            (header.getShort(26).toInt() and 0xffff) + (header.getShort(28).toInt() and 0xffff)
+        val data = ByteArray(compressedSize)
+        archive.seek(dataOffset)
+        archive.readFully(data)
+
+        return when (method) {
+            METHOD_STORED -> data
+            METHOD_DEFLATED -> {
+                val inflater = Inflater(true)
+                try {
+                    inflater.setInput(data)
+                    val output = ByteArray(size)
+                    var inflated = 0
+                    while (inflated < size && !inflater.finished()) {
+                        val count = inflater.inflate(output, inflated, size - inflated)
+                        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break
+                        inflated += count
+                    }
+                    if (inflated == size) output else null
+                } finally {
+                    inflater.end()
+                }
+            }
+            else -> null
+        }
+    }
+
+    private fun readAt(archive: RandomAccessFile, offset: Long, size: Int): ByteBuffer {
+        val bytes = ByteArray(size)
+        archive.seek(offset)
+        archive.readFully(bytes)
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+    }
+
+    /**
+     * Decode the `<manifest>` element's package and version attributes
+     */
+    internal fun parseManifest(xml: ByteBuffer): ApkInfo? {
+        if (xml.limit() < 8 || (xml.getShort(0).toInt() and 0xffff) != CHUNK_XML) return null
+
+        var strings: StringPool? = null
+        var resourceIds = IntArray(0)
+        var position = xml.getShort(2).toInt() and 0xffff
+        while (position + 8 <= xml.limit()) {
+            val type = xml.getShort(position).toInt() and 0xffff
+            val headerSize = xml.getShort(position + 2).toInt() and 0xffff
+            val chunkSize = xml.getInt(position + 4)
+            if (chunkSize < 8 || position + chunkSize > xml.limit()) return null
+
+            when (type) {
+                CHUNK_STRING_POOL -> strings = StringPool(xml, position)
+                CHUNK_RESOURCE_MAP -> resourceIds = IntArray((chunkSize - headerSize) / 4) {
+                    xml.getInt(position + headerSize + it * 4)
+                }
+                CHUNK_START_ELEMENT -> {
+                    // The first element is <manifest>
+                    return readManifestElement(xml, position, headerSize, strings ?: return null, resourceIds)
+                }
+            }
+            position += chunkSize
+        }
+        return null
+    }
+
+    private fun readManifestElement(
+        xml: ByteBuffer,
+        position: Int,
+        headerSize: Int,
+        strings: StringPool,
+        resourceIds: IntArray
+    ): ApkInfo? {
+        val extension = position + headerSize
+        val attributeStart = xml.getShort(extension + 8).toInt() and 0xffff
+        val attributeSize = xml.getShort(extension + 10).toInt() and 0xffff
+        val attributeCount = xml.getShort(extension + 12).toInt() and 0xffff
+
+        var packageName: String? = null
+        var versionCode = 0L
+        var versionCodeMajor = 0L
+        for (i in 0 until attributeCount) {
+            val attribute = extension + attributeStart + i * attributeSize
+            val nameIndex = xml.getInt(attribute + 4)
+            val rawValue = xml.getInt(attribute + 8)
+            val dataType = xml.get(attribute + 15).toInt() and 0xff
+            val data = xml.getInt(attribute + 16)
+
+            // Framework attributes are identified by resource ID, not by name
+            val resourceId = if (nameIndex in resourceIds.indices) resourceIds[nameIndex] else 0
+            when {
+                resourceId == ATTR_VERSION_CODE && isInt(dataType) -> versionCode = data.toLong() and 0xffffffffL
+                resourceId == ATTR_VERSION_CODE_MAJOR && isInt(dataType) -> versionCodeMajor = data.toLong()
+                resourceId == 0 && strings.get(nameIndex) == "package" -> {
+                    packageName = if (dataType == TYPE_STRING) strings.get(data) else strings.get(rawValue)
+                }
+            }
+        }
+        return packageName?.takeIf { it.isNotEmpty() }?.let {
+            ApkInfo(it, (versionCodeMajor shl 32) or versionCode)
+        }
+    }
+
+    private fun isInt(dataType: Int) = dataType == TYPE_INT_DEC || dataType == TYPE_INT_HEX
+
+    /**
+     * Strings of a binary XML string pool, decoded on demand
+     */
+    private class StringPool(private val xml: ByteBuffer, private val position: Int) {
+        private val count = xml.getInt(position + 8)
+        private val utf8 = xml.getInt(position + 16) and UTF8_FLAG != 0
+        private val stringsStart = position + xml.getInt(position + 20)
+        private val headerSize = xml.getShort(position + 2).toInt() and 0xffff
+
+        fun get(index: Int): String? {
+            if (index < 0 || index >= count) return null
+            val start = stringsStart + xml.getInt(position + headerSize + index * 4)
+            return if (utf8) utf8At(start) else utf16At(start)
+        }
+
+        private fun utf8At(start: Int): String {
+            // UTF-16 length, then UTF-8 length, each one or two bytes
+            var offset = start + lengthSize8(start)
+            val length = length8(offset)
+            offset += lengthSize8(offset)
+            val bytes = ByteArray(length)
+            for (i in 0 until length) bytes[i] = xml.get(offset + i)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        private fun utf16At(start: Int): String {
+            var length = xml.getShort(start).toInt() and 0xffff
+            var offset = start + 2
+            if (length and 0x8000 != 0) {
+                length = ((length and 0x7fff) shl 16) or (xml.getShort(offset).toInt() and 0xffff)
+                offset += 2
+            }
+            val chars = CharArray(length) { xml.getChar(offset + it * 2) }
+            return String(chars)
+        }
+
+        private fun lengthSize8(offset: Int) = if (xml.get(offset).toInt() and 0x80 != 0) 2 else 1
+
+        private fun length8(offset: Int): Int {
+            val first = xml.get(offset).toInt() and 0xff
+            return if (first and 0x80 != 0) {
+                ((first and 0x7f) shl 8) or (xml.get(offset + 1).toInt() and 0xff)
+            } else {
+                first
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartcleaner.data.dedup
+
+import android.media.ExifInterface
+import com.smartcleaner.data.util.HashUtil
+import java.io.File
+import java.text.SimpleDateFormat
+import java.util.Locale
+
+/**
+ * Clusters burst and near-identical camera shots and picks the best frame
+ *
+ * Shots are bucketed by camera and sorted by EXIF capture time; a run of
+ * shots each taken within [windowMs] of the previous one is a burst
+ * candidate. Only pairs inside the window are confirmed by pHash, so the
+ * pass is linear in practice instead of comparing every image pair.
+ * EXIF is read first: [candidatePaths] finds the runs from capture times
+ * alone, and only those shots need decoding and hashing.
+ *
+ * The best shot maximizes 0.7 * relative sharpness + 0.3 * exposure, both
+ * measured from the hashing decode (see [HashUtil.analyzeImage]). Sharpness
+ * is normalized within the burst because Laplacian variance depends on the scene.
+ *
+ * @param windowMs Maximum gap between consecutive shots of one burst
+ * @param similarityThreshold Minimum pHash similarity of two frames
+ */
+class BurstDetector(
+    private val windowMs: Long = 2_000L,
+    private val similarityThreshold: Float = 0.85f
+) {
+
+    data class Shot(
+        val path: String,
+        val captureTime: Long,   // Epoch millis (device local time)
+        val camera: String,
+        val pHash: String,
+        val sharpness: Double,
+        val exposure: Float
+    )
+
+    data class Burst(
+        val paths: List<String>,        // In capture order
+        val bestPath: String,
+        val scores: Map<String, Float>  // path -> quality, 0.0 to 1.0
+    )
+
+    data class CaptureInfo(val captureTime: Long, val camera: String)
+
+    companion object {
+        private const val SHARPNESS_WEIGHT = 0.7f
+        private const val EXPOSURE_WEIGHT = 0.3f
+
+        private val EXIF_DATE = ThreadLocal.withInitial {
+            SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US)
+        }
+
+        /**
+         * Read capture time and camera from EXIF (header only)
+         * @return null when the image carries no original capture time
+         */
+        fun readCaptureInfo(file: File): CaptureInfo? {
+            return try {
+                val exif = ExifInterface(file.absolutePath)
+                val dateTime = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL) ?: return null
+                val millis = EXIF_DATE.get()!!.parse(dateTime)?.time ?: return null
+                // Burst frames usually share the same second
+                val subSec = exif.getAttribute(ExifInterface.TAG_SUBSEC_TIME_ORIGINAL)
+                    ?.take(3)?.padEnd(3, '0')?.toIntOrNull() ?: 0
+                val camera = listOfNotNull(
+                    exif.getAttribute(ExifInterface.TAG_MAKE),
+                    exif.getAttribute(ExifInterface.TAG_MODEL)
+                ).joinToString(" ").trim()
+                CaptureInfo(millis + subSec, camera)
+            } catch (e: Exception) {
+                null
+            }
+        }
+    }
+
+    private val shots = ArrayList<Shot>()
+
+    fun add(shot: Shot) {
+        shots.add(shot)
+    }
+
+    /**
+     * Paths that share a capture window with another shot of their camera
+     * Shots outside every window can't be in a burst, so they need no pHash
+     * or sharpness for burst detection.
+     *
+     * @param captures path -> EXIF capture info
+     */
+    fun candidatePaths(captures: Map<String, CaptureInfo>): Set<String> {
+        val candidates = HashSet<String>()
+        captures.entries.groupBy { it.value.camera }.values.forEach { cameraShots ->
+            forEachRun(cameraShots.sortedBy { it.value.captureTime }, { it.value.captureTime }) { run ->
+                run.mapTo(candidates) { it.key }
+            }
+        }
+        return candidates
+    }
+
+    /**
+     * @return Bursts of at least two confirmed frames
+     */
+    fun findBursts(): List<Burst> {
+        val bursts = mutableListOf<Burst>()
+        shots.groupBy { it.camera }.values.forEach { cameraShots ->
+            forEachRun(cameraShots.sortedBy { it.captureTime }, { it.captureTime }) { run ->
+                clusterRun(run, bursts)
+            }
+        }
+        return bursts
+    }
+
+    /**
+     * Call [action] on every run of two or more [sorted] items each within
+     * the window of the previous one
+     */
+    private inline fun <T> forEachRun(sorted: List<T>, time: (T) -> Long, action: (List<T>) -> Unit) {
+        var runStart = 0
+        for (i in 1..sorted.size) {
+            val runEnds = i == sorted.size || time(sorted[i]) - time(sorted[i - 1]) > windowMs
+            if (runEnds) {
+                if (i - runStart > 1) {
+                    action(sorted.subList(runStart, i))
+                }
+                runStart = i
+            }
+        }
+    }
+
+    private fun clusterRun(run: List<Shot>, output: MutableList<Burst>) {
+        val sets = UnionFind(run.size)
+        for (i in run.indices) {
+            for (j in i + 1 until run.size) {
+                if (run[j].captureTime - run[i].captureTime > windowMs) break
+                if (!sets.connected(i, j) &&
+                    HashUtil.calculateSimilarity(run[i].pHash, run[j].pHash) >= similarityThreshold
+                ) {
+                    sets.union(i, j)
+                }
+            }
+        }
+
+        run.indices.groupBy { sets.find(it) }.values
+            .filter { it.size > 1 }
+            .forEach { members -> output.add(score(members.map { run[it] })) }
+    }
+
+    private fun score(frames: List<Shot>): Burst {
+        val maxSharpness = frames.maxOf { it.sharpness }
+        val scores = frames.associate { shot ->
+            val relativeSharpness = if (maxSharpness > 0) (shot.sharpness / maxSharpness).toFloat() else 0f
+            shot.path to (SHARPNESS_WEIGHT * relativeSharpness + EXPOSURE_WEIGHT * shot.exposure)
+        }
+        return Burst(
+            paths = frames.map { it.path },
+            bestPath = frames.maxBy { scores.getValue(it.path) }.path,
+            scores = scores
+        )
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartcleaner.data.dedup
+
+import com.smartcleaner.data.util.FileIdentity
+import com.smartcleaner.data.util.HashUtil
+import java.io.File
+import java.io.RandomAccessFile
+import java.security.MessageDigest
+
+/**
+ * Finds byte-identical files while reading as little as possible
+ *
+ * 1. Size prefilter - a file without a same-size twin is never opened
+ * 2. Partial hash   - MD5 of the size plus the first and last [sampleBytes]
+ * 3. Full hash      - only for partial matches larger than the two samples
+ *
+ * Hard links to one inode are collapsed to a single path, since deleting
+ * one of them frees nothing.
+ *
+ * @param identityOf Inode key of a file, null when unknown
+ */
+class ContentHashIndex(
+    private val sampleBytes: Int = 64 * 1024,
+    private val identityOf: (File) -> String? = { FileIdentity.of(it)?.key }
+) {
+
+    private val pathsBySize = HashMap<Long, MutableList<String>>()
+
+    /**
+     * Files opened so far by [findDuplicates]
+     */
+    var filesRead = 0
+        private set
+
+    fun add(path: String, size: Long) {
+        if (size <= 0) return
+        pathsBySize.getOrPut(size) { ArrayList(1) }.add(path)
+    }
+
+    fun hasSize(size: Long): Boolean = pathsBySize.containsKey(size)
+
+    /**
+     * @return Groups of paths with identical content, each with at least two entries
+     */
+    fun findDuplicates(): List<List<String>> {
+        val result = mutableListOf<List<String>>()
+        for ((size, paths) in pathsBySize) {
+            if (paths.size < 2) continue
+
+            val distinct = paths.distinctBy { identityOf(File(it)) ?: it }
+            if (distinct.size < 2) continue
+
+            val byPartial = distinct.groupBy { partialHash(File(it), size) }
+            for ((partial, candidates) in byPartial) {
+                if (partial == null || candidates.size < 2) continue
+
+                if (size <= 2L * sampleBytes) {
+                    // The two samples already covered every byte
+                    result.add(candidates)
+                } else {
+                    candidates.groupBy { fullHash(File(it)) }
+                        .filter { (full, group) -> full != null && group.size > 1 }
+                        .values
+                        .forEach { result.add(it) }
+                }
+            }
+        }
+        return result
+    }
+
+    private fun partialHash(file: File, size: Long): String? {
+        return try {
+            filesRead++
+            val digest = MessageDigest.getInstance("MD5")
+            digest.update(size.toString().toByteArray())
+            RandomAccessFile(file, "r").use { raf ->
+                val head = ByteArray(minOf(size, sampleBytes.toLong()).toInt())
+                raf.readFully(head)
+                digest.update(head)
+                if (size > sampleBytes) {
+                    val tailLength = minOf(size - sampleBytes, sampleBytes.toLong()).toInt()
+                    val tail = ByteArray(tailLength)
+                    raf.seek(size - tailLength)
+                    raf.readFully(tail)
+                    digest.update(tail)
+                }
+            }
+            digest.digest().joinToString("") { "%02x".format(it) }
+        } catch (e: Exception) {
+            null
+        }
+    }
+
+    private fun fullHash(file: File): String? {
+        return try {
+            HashUtil.calculateMD5(file)
+        } catch (e: Exception) {
+            null
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.smartcleaner.data.dedup
+
+import com.smartcleaner.data.util.HashUtil
+import java.io.File
+import java.security.MessageDigest
+
+/**
+ * Merkle digests of directories for identical-folder detection
+ *
+ * The crawl records each directory as a [Node]. After file hashing, digests
+ * are computed bottom-up: a directory's digest is the MD5 of its entries
+ * sorted by name, each entry being the child's name plus its content hash
+ * (file) or digest (subdirectory). The directory's own name is not part of
+ * its digest, so "DCIM" and "DCIM (backup)" match.
+ *
+ * A directory is only digested when every file below it has a content hash.
+ * Files skipped by the scan filters are hashed here if small; a large
+ * unhashed file (or an excluded subdirectory) leaves the tree above it
+ * without a digest, so a match is always a byte-identical tree.
+ *
+ * @param minFiles Minimum files in a directory for it to be reported
+ * @param smallFileLimit Largest unhashed file that is hashed for the digest
+ */
+class DirectoryMerkleIndex(
+    private val minFiles: Int = 2,
+    private val smallFileLimit: Long = 64 * 1024
+) {
+
+    class Node(val directory: File) {
+        val files = ArrayList<File>()
+        val children = ArrayList<Node>()
+        var complete = true  // false when part of the subtree was not crawled
+    }
+
+    data class DirectoryDigest(
+        val path: String,
+        val digest: String,
+        val fileCount: Int,
+        val totalBytes: Long,
+        val lastModified: Long
+    )
+
+    private val roots = ArrayList<Node>()
+
+    /**
+     * Start recording a crawl root
+     */
+    fun addRoot(directory: File): Node = Node(directory).also { roots.add(it) }
+
+    /**
+     * Digest every recorded tree and group identical directories
+     *
+     * Only maximal matches are returned: when the members of a group map
+     * one-to-one onto the members of an already matched group, each sitting
+     * directly inside a different one of them, the group is implied by its
+     * parents and dropped. Identical siblings inside one matched folder are
+     * not implied, so their group is kept.
+     *
+     * @param hashOf Content hash computed by the scan, or null if not hashed
+     * @return Groups of at least two identical directories, shallowest first
+     */
+    fun findIdenticalDirectories(hashOf: (File) -> String?): List<List<DirectoryDigest>> {
+        val byDigest = HashMap<String, MutableList<DirectoryDigest>>()
+        roots.forEach { digest(it, hashOf, byDigest) }
+
+        val candidates = byDigest.values
+            .filter { it.size > 1 }
+            .sortedBy { group -> group.minOf { depthOf(it.path) } }
+
+        // Matched directory path -> its group
+        val matched = HashMap<String, List<DirectoryDigest>>()
+        val result = mutableListOf<List<DirectoryDigest>>()
+        for (group in candidates) {
+            if (!isImpliedByParents(group, matched)) result.add(group)
+            group.forEach { matched[it.path] = group }
+        }
+        return result
+    }
+
+    private fun isImpliedByParents(
+        group: List<DirectoryDigest>,
+        matched: Map<String, List<DirectoryDigest>>
+    ): Boolean {
+        val parents = group.map { File(it.path).parent }
+        val parentGroup = matched[parents.first()] ?: return false
+        return parentGroup.size == group.size &&
+            parents.all { matched[it] === parentGroup } &&
+            parents.toSet().size == parents.size
+    }
+
+    private class Summary(val digest: String, val fileCount: Int, val totalBytes: Long)
+
+    private fun digest(
+        node: Node,
+        hashOf: (File) -> String?,
+        output: MutableMap<String, MutableList<DirectoryDigest>>
+    ): Summary? {
+        val entries = ArrayList<String>(node.files.size + node.children.size)
+        var complete = node.complete
+        var fileCount = 0
+        var totalBytes = 0L
+
+        for (child in node.children) {
+            val summary = digest(child, hashOf, output)
+            if (summary == null) {
+                complete = false
+            } else {
+                entries.add("d:${child.directory.name}:${summary.digest}")
+                fileCount += summary.fileCount
+                totalBytes += summary.totalBytes
+            }
+        }
+        if (!complete) return null
+
+        for (file in node.files) {
+            val size = file.length()
+            val hash = hashOf(file) ?: if (size <= smallFileLimit) {
+                runCatching { HashUtil.calculateMD5(file) }.getOrNull()
+            } else {
+                null
+            }
+            if (hash == null) return null
+            entries.add("f:${file.name}:$hash")
+            fileCount++
+            totalBytes += size
+        }
+
+        entries.sort()
+        val md = MessageDigest.getInstance("MD5")
+        entries.forEach { md.update(it.toByteArray()); md.update('\n'.code.toByte()) }
+        val digest = md.digest().joinToString("") { "%02x".format(it) }
+
+        if (fileCount >= minFiles) {
+            output.getOrPut(digest) { ArrayList(2) }.add(
+                DirectoryDigest(
+                    path = node.directory.absolutePath,
+                    digest = digest,
+                    fileCount = fileCount,
+                    totalBytes = totalBytes,
+                    lastModified = node.directory.lastModified()
+                )
+            )
+        }
+        return Summary(digest, fileCount, totalBytes)
+    }
+
+    private fun depthOf(path: String): Int = path.count { it == '/' }
+}
@@ -0,0 +1,151 @@
+package com.smartcleaner.data.dedup
+
+import java.io.File
+
+/**
+ * MinHash/LSH index over word shingles for SIMILAR_CONTENT detection
+ *
+ * Each document's text is streamed through [DocumentTextExtractor] into a
+ * rolling window of [SHINGLE_WORDS] word hashes; every window position is
+ * folded straight into a MinHash signature. Only the 64-slot signature is
+ * kept per document, so memory does not grow with document length.
+ *
+ * Signatures are split into 16 bands of 4 rows. Two documents at 0.8
+ * similarity share a band with ~99.9% probability, at 0.3 with ~12%.
+ * Candidates are then confirmed against [similarityThreshold].
+ *
+ * Bucket keys ignore the file format, so a .docx and its PDF export match.
+ * Entries are identified by a caller-chosen key; indexing one file per
+ * content hash avoids extracting byte-identical copies more than once.
+ *
+ * @param similarityThreshold Minimum estimated Jaccard similarity of shingle sets
+ */
+class DocumentSimilarityIndex(
+    private val similarityThreshold: Float = 0.8f
+) {
+
+    companion object {
+        private const val NUM_HASHES = 64
+        private const val BAND_ROWS = 4
+        private const val NUM_BANDS = NUM_HASHES / BAND_ROWS
+        private const val SHINGLE_WORDS = 5
+
+        // Too little text to tell documents apart (scanned PDFs, empty templates)
+        private const val MIN_SHINGLES = 20
+
+        private const val MAX_BUCKET_SIZE = 256
+
+        private val SEEDS = MinHash.seeds(NUM_HASHES)
+    }
+
+    private class Entry(
+        val key: String,
+        val signature: IntArray
+    )
+
+    private val entries = ArrayList<Entry>()
+    private val buckets = HashMap<Long, MutableList<Int>>()
+
+    val size: Int
+        get() = entries.size
+
+    /**
+     * Extract, shingle and index one document under [key]
+     * @return false if the file is unsupported, unreadable or has too little text
+     */
+    fun add(key: String, file: File): Boolean {
+        if (!DocumentTextExtractor.isSupported(file.extension)) return false
+
+        val shingler = Shingler()
+        if (!DocumentTextExtractor.extract(file, shingler)) return false
+        shingler.finish()
+        if (shingler.shingleCount < MIN_SHINGLES) return false
+
+        val index = entries.size
+        entries.add(Entry(key, shingler.signature))
+        for (band in 0 until NUM_BANDS) {
+            val bucketKey = MinHash.bandKey(shingler.signature, band, BAND_ROWS)
+            buckets.getOrPut(bucketKey) { ArrayList(2) }.add(index)
+        }
+        return true
+    }
+
+    /**
+     * Cluster documents with similar text
+     * @return Clusters of keys, each with at least two entries
+     */
+    fun findClusters(): List<List<String>> {
+        val sets = UnionFind(entries.size)
+
+        for (members in buckets.values) {
+            if (members.size < 2 || members.size > MAX_BUCKET_SIZE) continue
+            for (i in members.indices) {
+                for (j in i + 1 until members.size) {
+                    val a = members[i]
+                    val b = members[j]
+                    if (!sets.connected(a, b) &&
+                        MinHash.similarity(entries[a].signature, entries[b].signature) >= similarityThreshold
+                    ) {
+                        sets.union(a, b)
+                    }
+                }
+            }
+        }
+
+        val clusters = HashMap<Int, MutableList<String>>()
+        for (i in entries.indices) {
+            clusters.getOrPut(sets.find(i)) { ArrayList(2) }.add(entries[i].key)
+        }
+        return clusters.values.filter { it.size > 1 }
+    }
+
+    /**
+     * Turns a char stream into word shingles folded into a MinHash signature.
+     * Words are case-folded runs of letters and digits; hashing is FNV-1a so
+     * no strings are allocated.
+     */
+    private class Shingler : DocumentTextExtractor.Sink {
+        val signature = MinHash.newSignature(NUM_HASHES)
+        var shingleCount = 0
+            private set
+
+        private val window = LongArray(SHINGLE_WORDS)
+        private var wordCount = 0
+        private var wordHash = FNV_OFFSET
+        private var inWord = false
+
+        override fun append(c: Char) {
+            if (c.isLetterOrDigit()) {
+                wordHash = (wordHash xor c.lowercaseChar().code.toLong()) * FNV_PRIME
+                inWord = true
+            } else if (inWord) {
+                endWord()
+            }
+        }
+
+        fun finish() {
+            if (inWord) endWord()
+        }
+
+        private fun endWord() {
+            window[wordCount % SHINGLE_WORDS] = wordHash
+            wordCount++
+            wordHash = FNV_OFFSET
+            inWord = false
+
+            if (wordCount >= SHINGLE_WORDS) {
+                var shingle = 0L
+                for (i in 0 until SHINGLE_WORDS) {
+                    shingle = MinHash.mix(shingle xor window[(wordCount + i) % SHINGLE_WORDS])
+                }
+                MinHash.update(signature, SEEDS, shingle)
+                shingleCount++
+            }
+        }
+
+        private companion object {
+            const val FNV_OFFSET = -0x340d631b7bdddcdbL
+            const val FNV_PRIME = 0x100000001b3L
+        }
+    }
+}
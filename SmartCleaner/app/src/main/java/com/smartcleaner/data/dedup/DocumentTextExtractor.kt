@@ -0,0 +1,339 @@
+package com.smartcleaner.data.dedup
+
+import java.io.BufferedInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.InputStream
+import java.io.Reader
+import java.util.zip.DataFormatException
+import java.util.zip.Inflater
+import java.util.zip.ZipFile
+
+/**
+ * Streams the plain text of a document into a [Sink], one char at a time
+ *
+ * Nothing is materialized: txt files are decoded through a reader, Office
+ * Open XML parts are read from the zip with markup skipped, and PDF content
+ * streams are inflated chunk by chunk with only the string operands of the
+ * text operators (Tj, TJ, ', ") forwarded. Every format stops after
+ * [MAX_TEXT_CHARS] chars, so per-document work and memory stay bounded.
+ *
+ * PDFs whose text is only in hex strings (CID fonts) or images yield little
+ * or no text; callers should ignore documents with too few shingles.
+ */
+object DocumentTextExtractor {
+
+    const val MAX_TEXT_CHARS = 512 * 1024
+
+    // Raw PDF bytes scanned, and largest single stream buffered for inflation
+    private const val MAX_PDF_BYTES = 32L * 1024 * 1024
+    private const val MAX_STREAM_BYTES = 4 * 1024 * 1024
+
+    // Dictionary bytes kept before a "stream" keyword to inspect its filters
+    private const val DICT_WINDOW = 512
+
+    private val TEXT_EXTENSIONS = setOf("txt", "md", "csv", "log")
+    private val OOXML_PARTS = mapOf(
+        "docx" to listOf("word/document.xml"),
+        "pptx" to listOf("ppt/slides/"),
+        "xlsx" to listOf("xl/sharedStrings.xml")
+    )
+    private val SKIPPED_STREAMS = listOf("/Image", "/FontFile", "/Length1", "/ObjStm", "/XRef", "/Metadata")
+
+    private val STREAM = "stream".toByteArray()
+    private val END_STREAM = "endstream".toByteArray()
+
+    fun interface Sink {
+        fun append(c: Char)
+    }
+
+    fun isSupported(extension: String): Boolean {
+        val ext = extension.lowercase()
+        return ext in TEXT_EXTENSIONS || ext in OOXML_PARTS || ext == "pdf"
+    }
+
+    /**
+     * Extract text from [file] into [sink]
+     * @return false if the format is unsupported or the file is unreadable
+     */
+    fun extract(file: File, sink: Sink): Boolean {
+        val ext = file.extension.lowercase()
+        val limited = LimitedSink(sink)
+        return try {
+            when {
+                ext in TEXT_EXTENSIONS -> extractPlainText(file, limited)
+                ext in OOXML_PARTS -> extractOoxml(file, OOXML_PARTS.getValue(ext), limited)
+                ext == "pdf" -> extractPdf(file, limited)
+                else -> return false
+            }
+            true
+        } catch (e: Exception) {
+            false
+        }
+    }
+
+    private class LimitedSink(private val delegate: Sink) : Sink {
+        var count = 0
+            private set
+
+        val full: Boolean
+            get() = count >= MAX_TEXT_CHARS
+
+        override fun append(c: Char) {
+            if (count < MAX_TEXT_CHARS) {
+                delegate.append(c)
+                count++
+            }
+        }
+    }
+
+    private fun extractPlainText(file: File, sink: LimitedSink) {
+        file.bufferedReader().use { reader ->
+            val buffer = CharArray(8192)
+            while (!sink.full) {
+                val read = reader.read(buffer)
+                if (read < 0) break
+                for (i in 0 until read) sink.append(buffer[i])
+            }
+        }
+    }
+
+    private fun extractOoxml(file: File, partPrefixes: List<String>, sink: LimitedSink) {
+        ZipFile(file).use { zip ->
+            val parts = zip.entries().asSequence()
+                .filter { entry -> !entry.isDirectory && partPrefixes.any { entry.name.startsWith(it) } }
+                .sortedBy { it.name }
+                .toList()
+            for (part in parts) {
+                if (sink.full) break
+                zip.getInputStream(part).use { stripMarkup(it.bufferedReader(), sink) }
+                sink.append(' ')
+            }
+        }
+    }
+
+    /**
+     * Forward character data outside of tags. Tags are not word breaks because
+     * Word splits runs mid-word ("<w:t>Hel</w:t>...<w:t>lo</w:t>").
+     */
+    private fun stripMarkup(reader: Reader, sink: LimitedSink) {
+        val buffer = CharArray(8192)
+        var inTag = false
+        while (!sink.full) {
+            val read = reader.read(buffer)
+            if (read < 0) break
+            for (i in 0 until read) {
+                val c = buffer[i]
+                when {
+                    c == '<' -> inTag = true
+                    c == '>' -> inTag = false
+                    !inTag -> sink.append(c)
+                }
+            }
+        }
+    }
+
+    private fun extractPdf(file: File, sink: LimitedSink) {
+        BufferedInputStream(FileInputStream(file), 64 * 1024).use { input ->
+            val dict = ByteRing(DICT_WINDOW)
+            var matched = 0
+            var consumed = 0L
+            while (!sink.full && consumed < MAX_PDF_BYTES) {
+                val b = input.read()
+                if (b < 0) break
+                consumed++
+                dict.add(b)
+
+                matched = if (b == STREAM[matched].toInt()) matched + 1 else if (b == STREAM[0].toInt()) 1 else 0
+                if (matched < STREAM.size) continue
+                matched = 0
+
+                // "endstream" also ends with "stream"; a real stream keyword is followed by EOL
+                if (dict.endsWith(END_STREAM)) continue
+                var next = input.read()
+                if (next == '\r'.code) next = input.read()
+                if (next != '\n'.code) continue
+
+                val header = dict.asString()
+                val isTextStream = header.contains("/FlateDecode") && SKIPPED_STREAMS.none { header.contains(it) }
+                val data = readStream(input, if (isTextStream) MAX_STREAM_BYTES else 0)
+                consumed += data.second
+                dict.clear()
+                if (isTextStream && data.first != null) {
+                    inflateContent(data.first!!, sink)
+                }
+            }
+        }
+    }
+
+    /**
+     * Read up to "endstream"
+     * @return Stream bytes (null if larger than [limit]) and total bytes consumed
+     */
+    private fun readStream(input: InputStream, limit: Int): Pair<ByteArray?, Long> {
+        val out = if (limit > 0) ByteArrayOutputStream() else null
+        var overflow = limit <= 0
+        var matched = 0
+        var consumed = 0L
+        while (true) {
+            val b = input.read()
+            if (b < 0) break
+            consumed++
+            if (!overflow) {
+                out!!.write(b)
+                if (out.size() > limit + END_STREAM.size) overflow = true
+            }
+            matched = if (b == END_STREAM[matched].toInt()) matched + 1 else if (b == END_STREAM[0].toInt()) 1 else 0
+            if (matched == END_STREAM.size) break
+            if (consumed > MAX_PDF_BYTES) break
+        }
+        if (overflow || out == null) return null to consumed
+        val bytes = out.toByteArray()
+        return bytes.copyOf(maxOf(0, bytes.size - END_STREAM.size)) to consumed
+    }
+
+    private fun inflateContent(compressed: ByteArray, sink: LimitedSink) {
+        val inflater = Inflater()
+        val parser = ContentStreamParser(sink)
+        try {
+            inflater.setInput(compressed)
+            val buffer = ByteArray(16 * 1024)
+            while (!inflater.finished() && !sink.full) {
+                val count = inflater.inflate(buffer)
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break
+                for (i in 0 until count) parser.accept(buffer[i].toInt() and 0xFF)
+            }
+            parser.flush()
+        } catch (e: DataFormatException) {
+            // Corrupt or non-deflate stream, keep what was decoded
+        } finally {
+            inflater.end()
+        }
+    }
+
+    /**
+     * Pulls literal strings out of a PDF content stream and emits those
+     * followed by a text-showing operator. Kerning offsets inside TJ arrays
+     * larger than a typical space width become word breaks.
+     */
+    private class ContentStreamParser(private val sink: LimitedSink) {
+        private val pending = StringBuilder()
+        private var depth = 0
+        private var escape = false
+        private var inArray = false
+        private val number = StringBuilder()
+        private val operator = StringBuilder()
+
+        fun accept(b: Int) {
+            val c = b.toChar()
+            if (depth > 0) {
+                acceptString(c)
+                return
+            }
+            when {
+                c == '(' -> {
+                    operator.setLength(0)
+                    depth = 1
+                }
+                c == '[' -> {
+                    inArray = true
+                    pending.setLength(0)
+                }
+                c == ']' -> inArray = false
+                inArray && (c.isDigit() || c == '-' || c == '.') -> number.append(c)
+                c.isLetter() || c == '\'' || c == '"' -> operator.append(c)
+                else -> {
+                    endNumber()
+                    endOperator()
+                }
+            }
+        }
+
+        fun flush() {
+            endOperator()
+        }
+
+        private fun acceptString(c: Char) {
+            if (escape) {
+                escape = false
+                pending.append(
+                    when (c) {
+                        'n', 'r', 't' -> ' '
+                        else -> c
+                    }
+                )
+                return
+            }
+            when (c) {
+                '\\' -> escape = true
+                '(' -> {
+                    depth++
+                    pending.append(c)
+                }
+                ')' -> {
+                    depth--
+                    if (depth > 0) pending.append(c)
+                }
+                else -> pending.append(c)
+            }
+        }
+
+        private fun endNumber() {
+            if (number.isEmpty()) return
+            val offset = number.toString().toFloatOrNull()
+            if (offset != null && offset < -200f) pending.append(' ')
+            number.setLength(0)
+        }
+
+        private fun endOperator() {
+            if (operator.isEmpty()) return
+            val op = operator.toString()
+            operator.setLength(0)
+            if (inArray) return
+            if (op == "Tj" || op == "TJ" || op == "'" || op == "\"") {
+                for (i in pending.indices) sink.append(pending[i])
+                sink.append(' ')
+            }
+            pending.setLength(0)
+        }
+    }
+
+    /**
+     * Fixed-size window over the most recent bytes read
+     */
+    private class ByteRing(private val capacity: Int) {
+        private val bytes = ByteArray(capacity)
+        private var start = 0
+        private var size = 0
+
+        fun add(b: Int) {
+            if (size < capacity) {
+                bytes[(start + size) % capacity] = b.toByte()
+                size++
+            } else {
+                bytes[start] = b.toByte()
+                start = (start + 1) % capacity
+            }
+        }
+
+        fun endsWith(suffix: ByteArray): Boolean {
+            if (size < suffix.size) return false
+            val offset = size - suffix.size
+            for (i in suffix.indices) {
+                if (bytes[(start + offset + i) % capacity] != suffix[i]) return false
+            }
+            return true
+        }
+
+        fun asString(): String {
+            val out = ByteArray(size) { bytes[(start + it) % capacity] }
+            return String(out, Charsets.ISO_8859_1)
+        }
+
+        fun clear() {
+            start = 0
+            size = 0
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.smartcleaner.data.dedup
+
+/**
+ * Trigram MinHash index over file names for SIMILAR_NAME detection
+ *
+ * Pairwise edit distance over every file name is O(n²). Instead each name is
+ * reduced to a MinHash signature of its character trigrams and split into
+ * LSH bands; only names sharing a band bucket are compared, which keeps the
+ * whole pass near-linear.
+ *
+ * Before hashing, names are canonicalized: lower-cased, extension removed and
+ * copy markers stripped ("IMG_1234 (1)", "IMG_1234-copy", "Copy of Report").
+ * Bucket keys also include the extension and the digits of the name, so
+ * "IMG_1234.jpg" never meets "IMG_1235.jpg" even though their trigrams overlap.
+ * A bucket too big to compare pairwise is sorted by size and each member is
+ * compared with its next few neighbours only, since matches need close sizes.
+ *
+ * @param similarityThreshold Minimum estimated Jaccard similarity of trigram sets
+ * @param sizeTolerance Maximum relative size difference between two matches
+ */
+class FileNameIndex(
+    private val similarityThreshold: Float = 0.8f,
+    private val sizeTolerance: Float = 0.1f
+) {
+
+    companion object {
+        private const val NUM_HASHES = 16
+        private const val BAND_ROWS = 2
+        private const val NUM_BANDS = NUM_HASHES / BAND_ROWS
+
+        // Larger buckets would make the pass quadratic; they are compared by size window
+        private const val MAX_BUCKET_SIZE = 256
+        private const val MAX_NEIGHBOURS = 32
+
+        private val COPY_SUFFIX = Regex(
+            """(\s*\(\d+\)|[\s_-]*(copy|copia|kopie|copie)(\s*\(?\d+\)?)?)$""",
+            RegexOption.IGNORE_CASE
+        )
+        private val COPY_PREFIX = Regex("""^(copy of|copia de)\s+""", RegexOption.IGNORE_CASE)
+        private val NON_DIGITS = Regex("""\D+""")
+
+        private val SEEDS = MinHash.seeds(NUM_HASHES)
+
+        /**
+         * Strip extension and copy markers: "IMG_1234 (1).jpg" -> "img_1234"
+         */
+        fun canonicalName(fileName: String): String {
+            var stem = fileName.substringBeforeLast('.', fileName).trim()
+            stem = COPY_PREFIX.replace(stem, "")
+            repeat(3) {
+                val stripped = COPY_SUFFIX.replace(stem, "").trim()
+                if (stripped == stem || stripped.isEmpty()) return stem.lowercase()
+                stem = stripped
+            }
+            return stem.lowercase()
+        }
+    }
+
+    private class Entry(
+        val path: String,
+        val size: Long,
+        val signature: IntArray
+    )
+
+    private val entries = ArrayList<Entry>()
+    private val buckets = HashMap<Long, MutableList<Int>>()
+
+    val size: Int
+        get() = entries.size
+
+    /**
+     * Index one file. Call during the directory crawl.
+     */
+    fun add(path: String, fileName: String, size: Long) {
+        val canonical = canonicalName(fileName)
+        if (canonical.isEmpty()) return
+
+        val extension = fileName.substringAfterLast('.', "").lowercase()
+        val digits = NON_DIGITS.replace(canonical, "")
+        val signature = signatureOf(canonical)
+
+        val index = entries.size
+        entries.add(Entry(path, size, signature))
+
+        val keyBase = (extension.hashCode().toLong() shl 32) xor digits.hashCode().toLong()
+        for (band in 0 until NUM_BANDS) {
+            val key = MinHash.bandKey(signature, band, BAND_ROWS, keyBase)
+            buckets.getOrPut(key) { ArrayList(2) }.add(index)
+        }
+    }
+
+    /**
+     * Cluster indexed files with similar names and sizes
+     * @return Clusters of file paths, each with at least two entries
+     */
+    fun findClusters(): List<List<String>> {
+        val sets = UnionFind(entries.size)
+
+        for (members in buckets.values) {
+            if (members.size < 2) continue
+            if (members.size > MAX_BUCKET_SIZE) {
+                compareBySize(members, sets)
+                continue
+            }
+            for (i in members.indices) {
+                for (j in i + 1 until members.size) {
+                    tryUnion(sets, members[i], members[j])
+                }
+            }
+        }
+
+        val clusters = HashMap<Int, MutableList<String>>()
+        for (i in entries.indices) {
+            clusters.getOrPut(sets.find(i)) { ArrayList(2) }.add(entries[i].path)
+        }
+        return clusters.values.filter { it.size > 1 }
+    }
+
+    /**
+     * Compare each member with at most [MAX_NEIGHBOURS] next larger ones;
+     * chains of matches still join a whole series into one cluster
+     */
+    private fun compareBySize(members: List<Int>, sets: UnionFind) {
+        val bySize = members.sortedBy { entries[it].size }
+        for (i in bySize.indices) {
+            val last = minOf(bySize.size - 1, i + MAX_NEIGHBOURS)
+            for (j in i + 1..last) {
+                if (!isSizeMatch(entries[bySize[i]], entries[bySize[j]])) break
+                tryUnion(sets, bySize[i], bySize[j])
+            }
+        }
+    }
+
+    private fun tryUnion(sets: UnionFind, a: Int, b: Int) {
+        if (!sets.connected(a, b) && isMatch(entries[a], entries[b])) {
+            sets.union(a, b)
+        }
+    }
+
+    private fun isMatch(a: Entry, b: Entry): Boolean =
+        isSizeMatch(a, b) && MinHash.similarity(a.signature, b.signature) >= similarityThreshold
+
+    private fun isSizeMatch(a: Entry, b: Entry): Boolean {
+        val larger = maxOf(a.size, b.size)
+        return larger == 0L || (larger - minOf(a.size, b.size)).toFloat() / larger <= sizeTolerance
+    }
+
+    private fun signatureOf(name: String): IntArray {
+        val signature = MinHash.newSignature(NUM_HASHES)
+        val padded = "^$name$"
+        for (start in 0..padded.length - 3) {
+            val trigram = (padded[start].code.toLong() shl 32) or
+                (padded[start + 1].code.toLong() shl 16) or
+                padded[start + 2].code.toLong()
+            MinHash.update(signature, SEEDS, trigram)
+        }
+        return signature
+    }
+}
@@ -0,0 +1,252 @@
+package com.smartcleaner.data.dedup
+
+import android.content.Context
+import com.smartcleaner.data.util.FileIdentity
+import com.smartcleaner.data.util.HashUtil
+import com.smartcleaner.data.util.ShellPaths
+import com.smartcleaner.domain.model.LinkResult
+import com.smartcleaner.domain.model.RootStatus
+import com.smartcleaner.domain.repository.RootRepository
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardCopyOption
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Replaces byte-identical copies with hard links to a single kept file
+ *
+ * Every path stays in place, only the extra copies' blocks are released.
+ * Shared storage (/storage/emulated/N) goes through FUSE, which does not
+ * support link(2), so those paths are rewritten to /data/media/N and linked
+ * through the root shell. Other paths are linked in-process.
+ *
+ * Each batch is journaled (write-ahead):
+ * 1. PREPARE - temp links "<target>.sclink" are created next to each target
+ * 2. COMMIT  - marker written once every temp link exists
+ * 3. APPLY   - each temp link is renamed over its target (atomic per file)
+ *
+ * A failure before COMMIT removes the temp links, leaving every target
+ * untouched. After COMMIT each rename stands on its own: targets whose
+ * rename failed keep their data and lose their temp link. The journal is
+ * only deleted once no temp link can be left behind; if the shell dies
+ * mid-batch it stays, and the batch is rolled forward on the next run,
+ * which is safe because targets were byte-confirmed against the kept file.
+ */
+@Singleton
+class HardLinkDeduplicator(
+    private val journalDir: File,
+    private val rootRepository: RootRepository,
+    private val identityOf: (File) -> FileIdentity? = FileIdentity::of,
+    private val contentEquals: (File, File) -> Boolean = HashUtil::contentEquals
+) {
+
+    @Inject
+    constructor(
+        @ApplicationContext context: Context,
+        rootRepository: RootRepository
+    ) : this(context.filesDir, rootRepository)
+
+    companion object {
+        private const val BATCH_SIZE = 64
+        private const val TEMP_SUFFIX = ".sclink"
+        private const val JOURNAL_FILE = "hardlink.journal"
+        private const val MODE_ROOT = "mode=root"
+        private const val MODE_LOCAL = "mode=local"
+        private const val COMMIT = "commit"
+        // Last line of a rename script that ran to the end
+        private const val APPLIED = "sclink-applied"
+    }
+
+    private data class LinkOp(val path: String, val target: String, val temp: String)
+
+    private val journalFile: File
+        get() = File(journalDir, JOURNAL_FILE)
+
+    private val mutex = Mutex()
+
+    /**
+     * Replace [targets] with hard links to [keepPath]
+     * Targets that are not byte-identical, already linked or on another
+     * filesystem are skipped.
+     */
+    suspend fun link(keepPath: String, targets: List<String>): LinkResult = withContext(Dispatchers.IO) {
+        mutex.withLock {
+            // An unsettled batch must not have its journal overwritten
+            if (!settleJournal()) return@withLock LinkResult(0, 0, targets.size, 0)
+
+            val keeper = File(keepPath)
+            val keeperId = identityOf(keeper)
+                ?: return@withLock LinkResult(0, 0, targets.size, 0)
+
+            // Byte confirmation before anything is touched
+            val confirmed = mutableListOf<Pair<String, FileIdentity>>()
+            var skipped = 0
+            for (path in targets.distinct()) {
+                if (path == keepPath) continue
+                val targetId = identityOf(File(path))
+                val linkable = targetId != null &&
+                    targetId.key != keeperId.key &&
+                    targetId.device == keeperId.device &&
+                    runCatching { contentEquals(keeper, File(path)) }.getOrDefault(false)
+                if (linkable) {
+                    confirmed.add(path to targetId!!)
+                } else {
+                    skipped++
+                }
+            }
+
+            val useRoot = ShellPaths.isEmulatedStorage(keepPath) &&
+                rootRepository.checkRootAccess() == RootStatus.ROOTED_GRANTED
+
+            val linkedPaths = HashSet<String>()
+            var freedBytes = 0L
+            confirmed.chunked(BATCH_SIZE).forEach { batch ->
+                val linked = runBatch(keepPath, batch.map { it.first }, useRoot)
+                linkedPaths.addAll(linked)
+                // The old inode is only released if this path was its last link
+                freedBytes += batch.sumOf { (path, id) ->
+                    if (path in linked && id.linkCount <= 1) id.allocatedBytes else 0L
+                }
+            }
+
+            LinkResult(
+                linkedCount = linkedPaths.size,
+                skippedCount = skipped,
+                failedCount = confirmed.size - linkedPaths.size,
+                freedBytes = freedBytes,
+                linkedPaths = linkedPaths
+            )
+        }
+    }
+
+    /**
+     * Finish or undo a batch interrupted by a crash
+     * @return Whether no batch is left unsettled
+     */
+    suspend fun recover(): Boolean = withContext(Dispatchers.IO) {
+        mutex.withLock { settleJournal() }
+    }
+
+    /**
+     * @return Paths of [targets] now linked to the kept file
+     */
+    private suspend fun runBatch(keepPath: String, targets: List<String>, useRoot: Boolean): Set<String> {
+        val keeper = if (useRoot) ShellPaths.toDataMediaPath(keepPath) else keepPath
+        val ops = targets.map { path ->
+            val resolved = if (useRoot) ShellPaths.toDataMediaPath(path) else path
+            LinkOp(path = path, target = resolved, temp = resolved + TEMP_SUFFIX)
+        }
+
+        writeJournal(useRoot, ops)
+
+        // PREPARE
+        val prepared = if (useRoot) {
+            rootRepository.executeCommand(
+                ops.joinToString(" && ") { "ln ${ShellPaths.quote(keeper)} ${ShellPaths.quote(it.temp)}" }
+            ).success
+        } else {
+            try {
+                ops.forEach { Files.createLink(Paths.get(it.temp), Paths.get(keeper)) }
+                true
+            } catch (e: IOException) {
+                false
+            }
+        }
+
+        if (!prepared) {
+            if (removeTemps(useRoot, ops)) journalFile.delete()
+            return emptySet()
+        }
+
+        // COMMIT
+        journalFile.appendText("$COMMIT\n")
+
+        // APPLY; without an answer from the shell the journal stays for recover()
+        val failed = applyRenames(useRoot, ops) ?: return emptySet()
+        if (failed.isEmpty() || removeTemps(useRoot, failed)) journalFile.delete()
+        return ops.filterNot { it in failed }.mapTo(HashSet()) { it.path }
+    }
+
+    /**
+     * Rename each temp link over its target, each on its own
+     * @return Ops whose rename failed, or null if the shell gave no answer
+     */
+    private suspend fun applyRenames(useRoot: Boolean, ops: List<LinkOp>): List<LinkOp>? {
+        if (!useRoot) {
+            return ops.filter { op ->
+                try {
+                    Files.move(Paths.get(op.temp), Paths.get(op.target), StandardCopyOption.ATOMIC_MOVE)
+                    false
+                } catch (e: IOException) {
+                    true
+                }
+            }
+        }
+
+        val script = ops.joinToString("; ") {
+            val temp = ShellPaths.quote(it.temp)
+            "mv -f $temp ${ShellPaths.quote(it.target)} || echo $temp"
+        } + "; echo $APPLIED"
+        val output = rootRepository.executeCommand(script).output?.lines() ?: return null
+        if (APPLIED !in output) return null
+        val failedTemps = output.toHashSet()
+        return ops.filter { it.temp in failedTemps }
+    }
+
+    /**
+     * @return Whether every temp link is gone
+     */
+    private suspend fun removeTemps(useRoot: Boolean, ops: List<LinkOp>): Boolean {
+        return if (useRoot) {
+            rootRepository.executeCommand("rm -f " + ops.joinToString(" ") { ShellPaths.quote(it.temp) }).success
+        } else {
+            ops.forEach { File(it.temp).delete() }
+            ops.none { File(it.temp).exists() }
+        }
+    }
+
+    /**
+     * Roll a committed batch forward, or an uncommitted one back
+     * @return Whether the journal is gone
+     */
+    private suspend fun settleJournal(): Boolean {
+        val journal = journalFile
+        if (!journal.exists()) return true
+
+        val lines = journal.readLines().filter { it.isNotBlank() }
+        val useRoot = lines.firstOrNull() == MODE_ROOT
+        val committed = lines.lastOrNull() == COMMIT
+        val ops = lines.drop(1)
+            .filter { it != COMMIT }
+            .mapNotNull { line ->
+                val parts = line.split('\t')
+                if (parts.size == 2) LinkOp(path = parts[1], target = parts[1], temp = parts[0]) else null
+            }
+
+        val settled = if (committed) {
+            // Roll forward: temp links are byte-identical to their targets.
+            // Renames done before the crash fail here for want of a temp link.
+            val failed = applyRenames(useRoot, ops)
+            failed != null && (failed.isEmpty() || removeTemps(useRoot, failed))
+        } else {
+            removeTemps(useRoot, ops)
+        }
+        if (settled) journal.delete()
+        return settled
+    }
+
+    private fun writeJournal(useRoot: Boolean, ops: List<LinkOp>) {
+        journalFile.writeText(buildString {
+            append(if (useRoot) MODE_ROOT else MODE_LOCAL).append('\n')
+            ops.forEach { append(it.temp).append('\t').append(it.target).append('\n') }
+        })
+    }
+}
@@ -0,0 +1,85 @@
+package com.smartcleaner.data.dedup
+
+/**
+ * pHash neighbour graph, built once per scan, for instant re-clustering
+ *
+ * Every pair of hashes within [minSimilarity] is recorded with its Hamming
+ * distance (64-bit XOR + popcount). Clustering at any threshold at or
+ * above [minSimilarity] then only walks these edges, so moving the
+ * similarity slider never re-reads or re-hashes a file.
+ *
+ * Clusters are seeded in insertion order: an unassigned hash collects every
+ * later unassigned neighbour within the threshold (same grouping as the
+ * original pairwise scan).
+ */
+class ImageNeighborIndex(
+    hashes: List<String>,
+    val minSimilarity: Float = MIN_SIMILARITY
+) {
+
+    companion object {
+        // Lowest threshold the duplicate screen's slider offers
+        const val MIN_SIMILARITY = 0.7f
+        private const val HASH_BITS = 64
+
+        fun maxDistance(similarity: Float): Int =
+            ((1f - similarity) * HASH_BITS + 1e-4f).toInt().coerceIn(0, HASH_BITS)
+    }
+
+    private val keys = hashes.toList()
+
+    // Forward edges only (j > i), ascending j, with their distances
+    private val neighbors: Array<IntArray>
+    private val distances: Array<IntArray>
+
+    init {
+        val values = LongArray(keys.size) { java.lang.Long.parseUnsignedLong(keys[it], 16) }
+        val limit = maxDistance(minSimilarity)
+        val edgeTargets = Array(keys.size) { ArrayList<Int>() }
+        val edgeDistances = Array(keys.size) { ArrayList<Int>() }
+        for (i in values.indices) {
+            val a = values[i]
+            for (j in i + 1 until values.size) {
+                val distance = java.lang.Long.bitCount(a xor values[j])
+                if (distance <= limit) {
+                    edgeTargets[i].add(j)
+                    edgeDistances[i].add(distance)
+                }
+            }
+        }
+        neighbors = Array(keys.size) { edgeTargets[it].toIntArray() }
+        distances = Array(keys.size) { edgeDistances[it].toIntArray() }
+    }
+
+    val size: Int
+        get() = keys.size
+
+    /**
+     * Cluster hashes at [similarity]; values below [minSimilarity] are clamped
+     * @return Clusters of pHash keys, each with at least two entries
+     */
+    fun cluster(similarity: Float): List<List<String>> {
+        val limit = maxDistance(maxOf(similarity, minSimilarity))
+        val assigned = BooleanArray(keys.size)
+        val clusters = mutableListOf<List<String>>()
+
+        for (i in keys.indices) {
+            if (assigned[i]) continue
+            assigned[i] = true
+
+            var members: MutableList<String>? = null
+            val targets = neighbors[i]
+            val targetDistances = distances[i]
+            for (n in targets.indices) {
+                val j = targets[n]
+                if (!assigned[j] && targetDistances[n] <= limit) {
+                    assigned[j] = true
+                    if (members == null) members = mutableListOf(keys[i])
+                    members.add(keys[j])
+                }
+            }
+            if (members != null) clusters.add(members)
+        }
+        return clusters
+    }
+}
@@ -0,0 +1,84 @@
+package com.smartcleaner.data.dedup
+
+/**
+ * MinHash / LSH primitives shared by the similarity indexes
+ *
+ * A signature keeps, for each of n seeded hash functions, the minimum hash
+ * over a set of features. The fraction of equal slots between two signatures
+ * estimates the Jaccard similarity of the underlying sets.
+ */
+internal object MinHash {
+
+    fun seeds(count: Int): LongArray = LongArray(count) { mix(-0x61c8864680b583ebL * (it + 1)) }
+
+    fun newSignature(count: Int): IntArray = IntArray(count) { Int.MAX_VALUE }
+
+    /**
+     * Fold one hashed feature into [signature]
+     */
+    fun update(signature: IntArray, seeds: LongArray, feature: Long) {
+        for (h in signature.indices) {
+            val value = mix(feature xor seeds[h]).toInt()
+            if (value < signature[h]) signature[h] = value
+        }
+    }
+
+    /**
+     * Estimated Jaccard similarity of two signatures
+     */
+    fun similarity(a: IntArray, b: IntArray): Float {
+        var equal = 0
+        for (i in a.indices) {
+            if (a[i] == b[i]) equal++
+        }
+        return equal.toFloat() / a.size
+    }
+
+    /**
+     * LSH bucket key of one band; [salt] partitions buckets (e.g. by extension)
+     */
+    fun bandKey(signature: IntArray, band: Int, rows: Int, salt: Long = 0L): Long {
+        var key = mix(salt + band)
+        for (row in 0 until rows) {
+            key = mix(key xor signature[band * rows + row].toLong())
+        }
+        return key
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    fun mix(value: Long): Long {
+        var z = value
+        z = (z xor (z ushr 30)) * -0x40a7b892e31b1a47L
+        z = (z xor (z ushr 27)) * -0x6b2fb644ecceee15L
+        return z xor (z ushr 31)
+    }
+}
+
+/**
+ * Disjoint-set forest with path compression, used to merge matched pairs into clusters
+ */
+internal class UnionFind(size: Int) {
+    private val parent = IntArray(size) { it }
+
+    fun find(x: Int): Int {
+        var root = x
+        while (parent[root] != root) root = parent[root]
+        var node = x
+        while (parent[node] != root) {
+            val next = parent[node]
+            parent[node] = root
+            node = next
+        }
+        return root
+    }
+
+    fun union(a: Int, b: Int) {
+        val rootA = find(a)
+        val rootB = find(b)
+        if (rootA != rootB) parent[rootB] = rootA
+    }
+
+    fun connected(a: Int, b: Int): Boolean = find(a) == find(b)
+}
@@ -0,0 +1,196 @@
+package com.smartcleaner.data.delete
+
+import com.smartcleaner.data.trash.TrashBin
+import com.smartcleaner.data.util.ShellPaths
+import com.smartcleaner.domain.model.RootStatus
+import com.smartcleaner.domain.repository.PreferencesRepository
+import com.smartcleaner.domain.repository.RootRepository
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Outcome of deleting one path
+ *
+ * @param trashedBytes Size of a path moved to the trash; it frees nothing
+ *                     until the trash is purged
+ */
+data class DeleteOutcome(
+    val path: String,
+    val deleted: Boolean,
+    val freedBytes: Long,
+    val trashedBytes: Long = 0L
+)
+
+data class DeleteSummary(
+    val deletedPaths: List<String>,
+    val failedCount: Int,
+    val freedBytes: Long,
+    val trashedBytes: Long = 0L
+) {
+    val deletedCount: Int
+        get() = deletedPaths.size
+}
+
+/**
+ * Deletes large batches of paths and streams a [DeleteOutcome] per path
+ *
+ * Local mode groups paths by parent directory and runs up to [PARALLELISM]
+ * directories at once, each directory's unlinks in sequence. Unlinks in
+ * one directory serialize on its lock (in the FUSE daemon for shared
+ * storage) anyway, so spreading work over directories is what scales.
+ *
+ * With the trash enabled, items are first moved into [TrashBin] with one
+ * rename each; only what can't be trashed is deleted right away. Trashed
+ * items report their size as trashed, not freed, bytes; a trashed
+ * directory reports 0: its size is not walked.
+ *
+ * With root mode enabled and granted, paths are removed through the root
+ * shell instead: one `rm -f` per chunk of arguments of at most
+ * [MAX_COMMAND_CHARS], with shared storage addressed via /data/media to
+ * bypass FUSE. Each path is then checked to report its own outcome.
+ */
+@Singleton
+class BatchDeleter @Inject constructor(
+    private val rootRepository: RootRepository,
+    private val preferencesRepository: PreferencesRepository,
+    private val trashBin: TrashBin
+) {
+
+    companion object {
+        private const val PARALLELISM = 4
+        // Well under the kernel's ARG_MAX, like xargs' default
+        private const val MAX_COMMAND_CHARS = 64 * 1024
+    }
+
+    /**
+     * @param recursive Delete directories with their contents; otherwise
+     *                  only files and empty directories are removed
+     * @param permanent Bypass the trash, for when the space is needed now
+     */
+    fun delete(
+        paths: List<String>,
+        recursive: Boolean = false,
+        permanent: Boolean = false
+    ): Flow<DeleteOutcome> = channelFlow {
+        var targets = paths.filter { it.isNotEmpty() }.distinct()
+        if (targets.isEmpty()) return@channelFlow
+
+        if (!permanent && useTrash()) {
+            val trashed = try {
+                trashBin.moveToTrash(targets, recursive)
+            } catch (e: Exception) {
+                emptyMap()
+            }
+            trashed.forEach { (path, entry) ->
+                send(DeleteOutcome(path, true, 0L, trashedBytes = entry.size.coerceAtLeast(0L)))
+            }
+            targets = targets.filter { it !in trashed }
+            if (targets.isEmpty()) return@channelFlow
+        }
+
+        if (useRootShell()) {
+            deleteWithRoot(targets, recursive).forEach { send(it) }
+            return@channelFlow
+        }
+
+        val permits = Semaphore(PARALLELISM)
+        targets.groupBy { File(it).parent.orEmpty() }.values.forEach { directory ->
+            launch {
+                permits.withPermit {
+                    directory.forEach { path -> send(deleteLocal(path, recursive)) }
+                }
+            }
+        }
+    }.flowOn(Dispatchers.IO)
+
+    suspend fun deleteAll(
+        paths: List<String>,
+        recursive: Boolean = false,
+        permanent: Boolean = false
+    ): DeleteSummary {
+        val deleted = mutableListOf<String>()
+        var failed = 0
+        var freed = 0L
+        var trashed = 0L
+        delete(paths, recursive, permanent).collect { outcome ->
+            if (outcome.deleted) {
+                deleted.add(outcome.path)
+                freed += outcome.freedBytes
+                trashed += outcome.trashedBytes
+            } else {
+                failed++
+            }
+        }
+        return DeleteSummary(deleted, failed, freed, trashed)
+    }
+
+    private fun deleteLocal(path: String, recursive: Boolean): DeleteOutcome {
+        val file = File(path)
+        val size = sizeOf(file, recursive)
+        val deleted = try {
+            file.exists() && (if (recursive && file.isDirectory) file.deleteRecursively() else file.delete())
+        } catch (e: SecurityException) {
+            false
+        }
+        return DeleteOutcome(path, deleted, if (deleted) size else 0L)
+    }
+
+    private suspend fun deleteWithRoot(paths: List<String>, recursive: Boolean): List<DeleteOutcome> {
+        // Missing paths fail like they do locally; they are not passed to rm
+        val sizes = paths.filter { File(it).exists() }.associateWith { sizeOf(File(it), recursive) }
+        val command = if (recursive) "rm -rf" else "rm -f"
+
+        var chunk = StringBuilder(command)
+        suspend fun flush() {
+            if (chunk.length > command.length) rootRepository.executeCommand(chunk.toString())
+            chunk = StringBuilder(command)
+        }
+        for (path in sizes.keys) {
+            val argument = " " + ShellPaths.quote(ShellPaths.toDataMediaPath(path))
+            if (chunk.length + argument.length > MAX_COMMAND_CHARS) flush()
+            chunk.append(argument)
+        }
+        flush()
+
+        // rm -f reports nothing useful per path, so look at what is left
+        return paths.map { path ->
+            val size = sizes[path]
+            val deleted = size != null && !File(path).exists()
+            DeleteOutcome(path, deleted, if (deleted && size != null) size else 0L)
+        }
+    }
+
+    private suspend fun useTrash(): Boolean {
+        return try {
+            preferencesRepository.getPreferences().first().useTrash
+        } catch (e: Exception) {
+            false
+        }
+    }
+
+    private suspend fun useRootShell(): Boolean {
+        return try {
+            preferencesRepository.getPreferences().first().rootModeEnabled &&
+                rootRepository.checkRootAccess() == RootStatus.ROOTED_GRANTED
+        } catch (e: Exception) {
+            false
+        }
+    }
+
+    private fun sizeOf(file: File, recursive: Boolean): Long {
+        return if (recursive && file.isDirectory) {
+            file.walkTopDown().filter { it.isFile }.sumOf { it.length() }
+        } else {
+            file.length()
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.smartcleaner.data.junk
+
+import com.smartcleaner.domain.model.JunkType
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import java.io.File
+
+/**
+ * Paths an app is known to fill with disposable data
+ *
+ * [paths] are globs relative to shared storage, with the same syntax as
+ * [JunkRule.paths]; every file they match is junk of [type], attributed to
+ * [packageName]. Without a package name the owner is taken from the
+ * Android/{data,media,obb}/<package> directory the file is in.
+ */
+@Serializable
+data class AppCacheSignature(
+    val packageName: String? = null,
+    val paths: List<String>,
+    val type: JunkType = JunkType.APP_CACHE
+)
+
+/**
+ * Versioned list of [AppCacheSignature]s
+ *
+ * Works like [JunkRuleSet]: built-in signatures ship as [DEFAULT] and a
+ * newer database dropped into files/[FILE_NAME] replaces them. When several
+ * signatures match a file, the first one listed wins, so app-specific
+ * signatures come before generic ones.
+ */
+@Serializable
+data class AppCacheSignatureDb(
+    val version: Int,
+    val signatures: List<AppCacheSignature>
+) {
+
+    companion object {
+        const val FILE_NAME = "app_cache_signatures.json"
+
+        private val json = Json { ignoreUnknownKeys = true }
+
+        val DEFAULT = AppCacheSignatureDb(
+            version = 1,
+            signatures = listOf(
+                AppCacheSignature(
+                    packageName = "com.whatsapp",
+                    paths = listOf(
+                        "Android/media/com.whatsapp/WhatsApp/.Shared/**",
+                        "Android/media/com.whatsapp/WhatsApp/.StickerThumbs/**",
+                        "Android/media/com.whatsapp/WhatsApp/.Thumbs/**",
+                        "WhatsApp/.Shared/**",
+                        "WhatsApp/.Thumbs/**"
+                    )
+                ),
+                AppCacheSignature(
+                    packageName = "com.whatsapp.w4b",
+                    paths = listOf(
+                        "Android/media/com.whatsapp.w4b/WhatsApp Business/.Shared/**",
+                        "Android/media/com.whatsapp.w4b/WhatsApp Business/.StickerThumbs/**",
+                        "Android/media/com.whatsapp.w4b/WhatsApp Business/.Thumbs/**"
+                    )
+                ),
+                AppCacheSignature(
+                    packageName = "com.android.providers.media",
+                    paths = listOf(
+                        "DCIM/.thumbnails/**",
+                        "Pictures/.thumbnails/**",
+                        "Movies/.thumbnails/**",
+                        "Music/.thumbnails/**"
+                    ),
+                    type = JunkType.THUMBNAIL_CACHE
+                ),
+                // Android/data/<package>/cache is left out: StorageStats
+                // already counts it as the app's cache
+                AppCacheSignature(
+                    paths = listOf(
+                        "Android/media/*/cache/**",
+                        "Android/media/*/.cache/**"
+                    )
+                )
+            )
+        )
+
+        fun parse(text: String): AppCacheSignatureDb = json.decodeFromString(serializer(), text)
+
+        /**
+         * Signatures from [file] if it parses and is newer than [DEFAULT], else [DEFAULT]
+         */
+        fun loadOrDefault(file: File): AppCacheSignatureDb {
+            if (!file.isFile) return DEFAULT
+            return try {
+                parse(file.readText()).takeIf { it.version > DEFAULT.version } ?: DEFAULT
+            } catch (e: Exception) {
+                DEFAULT
+            }
+        }
+    }
+}
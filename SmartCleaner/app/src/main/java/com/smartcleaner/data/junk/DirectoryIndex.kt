@@ -0,0 +1,83 @@
+package com.smartcleaner.data.junk
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * What a junk scan saw in each directory, for skipping unchanged ones next time
+ *
+ * Creating, deleting or renaming an entry updates its directory's mtime, so
+ * a directory whose mtime is unchanged still has the same children. Only
+ * files that could be junk are kept (they matched, or may match once
+ * older); the rest are known not to be junk by name, location or size.
+ *
+ * @param fingerprint Rules and threshold the index was built with
+ */
+class DirectoryIndex(val fingerprint: Int, val createdAt: Long) {
+
+    class FileEntry(val name: String, val size: Long, val lastModified: Long)
+
+    class Entry(
+        val lastModified: Long,
+        val subdirectories: List<String>,
+        val files: List<FileEntry>
+    )
+
+    companion object {
+        private const val FORMAT = 1
+
+        /**
+         * @return The index, or null if missing, unreadable or of another format
+         */
+        fun read(file: File): DirectoryIndex? {
+            if (!file.isFile) return null
+            return try {
+                DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                    if (input.readInt() != FORMAT) return null
+                    val index = DirectoryIndex(input.readInt(), input.readLong())
+                    repeat(input.readInt()) {
+                        val path = input.readUTF()
+                        val lastModified = input.readLong()
+                        val subdirectories = List(input.readInt()) { input.readUTF() }
+                        val files = List(input.readInt()) {
+                            FileEntry(input.readUTF(), input.readLong(), input.readLong())
+                        }
+                        index.entries[path] = Entry(lastModified, subdirectories, files)
+                    }
+                    index
+                }
+            } catch (e: Exception) {
+                null
+            }
+        }
+    }
+
+    val entries = HashMap<String, Entry>()
+
+    fun write(file: File) {
+        val temp = File(file.path + ".tmp")
+        DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+            output.writeInt(FORMAT)
+            output.writeInt(fingerprint)
+            output.writeLong(createdAt)
+            output.writeInt(entries.size)
+            for ((path, entry) in entries) {
+                output.writeUTF(path)
+                output.writeLong(entry.lastModified)
+                output.writeInt(entry.subdirectories.size)
+                entry.subdirectories.forEach { output.writeUTF(it) }
+                output.writeInt(entry.files.size)
+                entry.files.forEach {
+                    output.writeUTF(it.name)
+                    output.writeLong(it.size)
+                    output.writeLong(it.lastModified)
+                }
+            }
+        }
+        // Readers never see a half-written index
+        temp.renameTo(file)
+    }
+}
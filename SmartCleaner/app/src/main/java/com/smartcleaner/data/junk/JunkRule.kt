@@ -0,0 +1,82 @@
+package com.smartcleaner.data.junk
+
+import com.smartcleaner.domain.model.JunkType
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import java.io.File
+
+/**
+ * Declarative description of one junk category
+ *
+ * Every non-empty condition must hold for a file to match:
+ * - [suffixes] - file name ends with one of them (case-insensitive)
+ * - [paths]    - path relative to shared storage matches one of the globs;
+ *                segments are literal, `*` (one segment) or `**` (any number).
+ *                Rules with paths never match outside shared storage.
+ * - [packages] - file lives under Android/{data,media,obb}/<package>
+ * - [minAgeDays], [minSizeBytes] - lower bounds, 0 disables them
+ */
+@Serializable
+data class JunkRule(
+    val type: JunkType,
+    val suffixes: List<String> = emptyList(),
+    val paths: List<String> = emptyList(),
+    val packages: List<String> = emptyList(),
+    val minAgeDays: Int = 0,
+    val minSizeBytes: Long = 0
+)
+
+/**
+ * Versioned list of [JunkRule]s
+ *
+ * Built-in rules ship as [DEFAULT]; a newer set dropped into
+ * files/[FILE_NAME] replaces them without an app update. [skipPaths]
+ * are directories relative to shared storage that the scan never enters.
+ */
+@Serializable
+data class JunkRuleSet(
+    val version: Int,
+    val rules: List<JunkRule>,
+    val skipPaths: List<String> = DEFAULT_SKIP_PATHS
+) {
+
+    companion object {
+        const val FILE_NAME = "junk_rules.json"
+
+        /**
+         * Known-clean trees, relative to shared storage, that are never walked.
+         * Android/obb holds expansion files that installed apps need.
+         */
+        val DEFAULT_SKIP_PATHS = listOf("Android/obb")
+
+        private val json = Json { ignoreUnknownKeys = true }
+
+        val DEFAULT = JunkRuleSet(
+            version = 1,
+            rules = listOf(
+                JunkRule(JunkType.TEMP_FILES, suffixes = listOf(".tmp", ".temp")),
+                JunkRule(JunkType.LOG_FILES, suffixes = listOf(".log")),
+                JunkRule(JunkType.BACKUP_FILES, suffixes = listOf(".bak", ".backup", ".old")),
+                JunkRule(JunkType.APK_FILES, suffixes = listOf(".apk"), paths = listOf("Download/*")),
+                JunkRule(JunkType.THUMBNAIL_CACHE, paths = listOf(".thumbnails/**"))
+            )
+        )
+
+        fun parse(text: String): JunkRuleSet = json.decodeFromString(serializer(), text)
+
+        /**
+         * Rules from [file] if it parses and is newer than [DEFAULT], else [DEFAULT]
+         * One matcher slot is left for the scan's own large-file rule.
+         */
+        fun loadOrDefault(file: File): JunkRuleSet {
+            if (!file.isFile) return DEFAULT
+            return try {
+                parse(file.readText())
+                    .takeIf { it.version > DEFAULT.version && it.rules.size < JunkRuleMatcher.MAX_RULES }
+                    ?: DEFAULT
+            } catch (e: Exception) {
+                DEFAULT
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.smartcleaner.data.junk
+
+import com.smartcleaner.domain.model.JunkType
+import java.util.concurrent.TimeUnit
+
+/**
+ * [JunkRule]s compiled for a single traversal
+ *
+ * - Suffixes go into one trie over reversed, lower-cased file names, so all
+ *   suffix rules are tested in a single backwards pass over the name.
+ * - Path globs go into a trie over path segments. The traversal carries a
+ *   [DirState] (set of live trie nodes) down the tree, so a file only costs
+ *   one step for its own name.
+ *
+ * Each trie node holds a bitmask of the rules that end there; a file's
+ * candidate rules are the intersection of the suffix and path masks, after
+ * which only the cheap age, size and package checks remain.
+ *
+ * [AppCacheSignature] paths share the path trie; a node records the first
+ * signature ending there, so attributing a file to an app costs no more
+ * than the step already taken for its name.
+ */
+class JunkRuleMatcher(rules: List<JunkRule>, signatures: List<AppCacheSignature> = emptyList()) {
+
+    companion object {
+        const val MAX_RULES = 64
+        private val OWNER_ROOTS = setOf("data", "media", "obb")
+    }
+
+    private val rules = rules.toList()
+    private val signatures = signatures.toList()
+
+    init {
+        require(this.rules.size <= MAX_RULES) { "At most $MAX_RULES junk rules are supported" }
+    }
+
+    private class SuffixNode {
+        var keys = CharArray(0)
+        var children = arrayOf<SuffixNode>()
+        var mask = 0L
+
+        fun child(c: Char): SuffixNode? {
+            for (i in keys.indices) if (keys[i] == c) return children[i]
+            return null
+        }
+
+        fun getOrAdd(c: Char): SuffixNode {
+            child(c)?.let { return it }
+            val node = SuffixNode()
+            keys += c
+            children += node
+            return node
+        }
+    }
+
+    internal class PathNode {
+        val literals = HashMap<String, PathNode>()
+        var star: PathNode? = null
+        var globstar: PathNode? = null
+        var isGlobstar = false
+        var mask = 0L
+        var signature = -1
+        // Some signature ends at or below this node
+        var leadsToSignature = false
+    }
+
+    /**
+     * Live path-trie nodes for a directory plus its owning package
+     *
+     * [depth] is -1 outside shared storage. [ownerPath] is true while the
+     * path so far is "Android" or "Android/{data,media,obb}".
+     */
+    class DirState internal constructor(
+        internal val nodes: List<PathNode>,
+        internal val depth: Int,
+        internal val ownerPath: Boolean,
+        val owner: String?
+    )
+
+    private val suffixRoot = SuffixNode()
+    private val pathRoot = PathNode()
+
+    // Rules that place no constraint of the given kind
+    private var anySuffix = 0L
+    private var anyPath = 0L
+
+    // Rules a non-matching file can grow into just by getting older
+    private var agedRules = 0L
+
+    init {
+        this.rules.forEachIndexed { index, rule ->
+            val bit = 1L shl index
+            if (rule.minAgeDays > 0) agedRules = agedRules or bit
+            if (rule.suffixes.isEmpty()) anySuffix = anySuffix or bit
+            rule.suffixes.forEach { suffix ->
+                var node = suffixRoot
+                for (i in suffix.indices.reversed()) node = node.getOrAdd(suffix[i].lowercaseChar())
+                node.mask = node.mask or bit
+            }
+
+            if (rule.paths.isEmpty()) anyPath = anyPath or bit
+            rule.paths.forEach { glob ->
+                val node = addPath(glob) {}
+                node.mask = node.mask or bit
+            }
+        }
+
+        this.signatures.forEachIndexed { index, signature ->
+            signature.paths.forEach { glob ->
+                val node = addPath(glob) { it.leadsToSignature = true }
+                if (node.signature < 0) node.signature = index
+            }
+        }
+    }
+
+    private fun addPath(glob: String, visit: (PathNode) -> Unit): PathNode {
+        var node = pathRoot
+        visit(node)
+        glob.split('/').filter { it.isNotEmpty() }.forEach { segment ->
+            val parent = node
+            node = when (segment) {
+                "**" -> parent.globstar ?: PathNode().also { it.isGlobstar = true; parent.globstar = it }
+                "*" -> parent.star ?: PathNode().also { parent.star = it }
+                else -> parent.literals.getOrPut(segment.lowercase()) { PathNode() }
+            }
+            visit(node)
+        }
+        return node
+    }
+
+    /**
+     * State for the shared storage root; path globs are relative to it
+     */
+    fun storageRoot(): DirState = DirState(closure(listOf(pathRoot)), 0, false, null)
+
+    /**
+     * State for roots outside shared storage, where only path-free rules apply
+     */
+    fun otherRoot(): DirState = DirState(emptyList(), -1, false, null)
+
+    fun enter(state: DirState, directoryName: String): DirState {
+        // Outside shared storage only path-free rules apply, nothing to track
+        if (state.depth < 0) return state
+
+        val segment = directoryName.lowercase()
+        val nodes = if (state.nodes.isEmpty()) emptyList() else closure(step(state.nodes, segment))
+        val ownerPath = when (state.depth) {
+            0 -> segment == "android"
+            1 -> state.ownerPath && segment in OWNER_ROOTS
+            else -> false
+        }
+        val owner = state.owner ?: if (state.depth == 2 && state.ownerPath) directoryName else null
+        return DirState(nodes, state.depth + 1, ownerPath, owner)
+    }
+
+    /**
+     * True when no rule can match anything below [state]
+     */
+    fun canPrune(state: DirState): Boolean = state.nodes.isEmpty() && anyPath == 0L
+
+    /**
+     * Rules the file matches by name and location alone; 0 rejects it
+     * without looking at its size or age
+     */
+    fun candidates(state: DirState, fileName: String): Long {
+        val suffixes = suffixMask(fileName) or anySuffix
+        if (suffixes == 0L) return 0L
+        return suffixes and (pathMask(state, fileName) or anyPath)
+    }
+
+    /**
+     * The first signature whose paths match the file, or null
+     */
+    fun signatureOf(state: DirState, fileName: String): AppCacheSignature? {
+        if (state.nodes.none { it.leadsToSignature }) return null
+        var first = -1
+        closure(step(state.nodes, fileName.lowercase())).forEach { node ->
+            if (node.signature >= 0 && (first < 0 || node.signature < first)) first = node.signature
+        }
+        return if (first < 0) null else signatures[first]
+    }
+
+    /**
+     * True if a candidate rejected now may match once it is older
+     */
+    fun mayMatchLater(candidates: Long): Boolean = candidates and agedRules != 0L
+
+    /**
+     * Every junk type the file matches, empty if none
+     */
+    fun classify(
+        state: DirState,
+        fileName: String,
+        size: Long,
+        lastModified: Long,
+        now: Long
+    ): List<JunkType> = classifyCandidates(state, candidates(state, fileName), size, lastModified, now)
+
+    fun classifyCandidates(
+        state: DirState,
+        mask: Long,
+        size: Long,
+        lastModified: Long,
+        now: Long
+    ): List<JunkType> {
+        if (mask == 0L) return emptyList()
+
+        val types = ArrayList<JunkType>(1)
+        var remaining = mask
+        while (remaining != 0L) {
+            val index = java.lang.Long.numberOfTrailingZeros(remaining)
+            remaining = remaining and (remaining - 1)
+            val rule = rules[index]
+            if (size < rule.minSizeBytes) continue
+            if (rule.minAgeDays > 0 && now - lastModified < TimeUnit.DAYS.toMillis(rule.minAgeDays.toLong())) continue
+            if (rule.packages.isNotEmpty() && state.owner !in rule.packages) continue
+            if (rule.type !in types) types.add(rule.type)
+        }
+        return types
+    }
+
+    private fun suffixMask(fileName: String): Long {
+        var mask = 0L
+        var node = suffixRoot
+        for (i in fileName.indices.reversed()) {
+            node = node.child(fileName[i].lowercaseChar()) ?: break
+            mask = mask or node.mask
+        }
+        return mask
+    }
+
+    private fun pathMask(state: DirState, fileName: String): Long {
+        if (state.nodes.isEmpty()) return 0L
+        var mask = 0L
+        closure(step(state.nodes, fileName.lowercase())).forEach { mask = mask or it.mask }
+        return mask
+    }
+
+    private fun step(nodes: List<PathNode>, segment: String): List<PathNode> {
+        val next = ArrayList<PathNode>(2)
+        for (node in nodes) {
+            node.literals[segment]?.let { next.add(it) }
+            node.star?.let { next.add(it) }
+            if (node.isGlobstar) next.add(node)
+        }
+        return next
+    }
+
+    // A ** may also match zero segments
+    private fun closure(nodes: List<PathNode>): List<PathNode> {
+        if (nodes.isEmpty()) return emptyList()
+        val result = ArrayList<PathNode>(nodes.size)
+        val pending = ArrayDeque(nodes)
+        while (pending.isNotEmpty()) {
+            val node = pending.removeFirst()
+            if (result.any { it === node }) continue
+            result.add(node)
+            node.globstar?.let { pending.addLast(it) }
+        }
+        return result
+    }
+}
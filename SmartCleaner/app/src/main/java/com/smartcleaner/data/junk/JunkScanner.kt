@@ -0,0 +1,212 @@
+package com.smartcleaner.data.junk
+
+import com.smartcleaner.domain.model.JunkFile
+import com.smartcleaner.domain.model.JunkType
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+
+/**
+ * Full-depth junk walk that pays for depth with pruning
+ *
+ * - One lstat per entry gives type, size and mtime together; symlinks are
+ *   never followed, so loops can't occur.
+ * - A file is first checked by name and location; size and age are only
+ *   looked at for candidates. Files on an app's signature paths are junk
+ *   of that app whatever their name.
+ * - Any file of at least [largeFileBytes] is also LARGE_FILES junk. That
+ *   check stays out of the rules, as a rule matching every path would keep
+ *   every directory in the walk.
+ * - Subtrees no rule can match, and [skipDirectories], are not entered.
+ *   Below [fullDepthRoots] nothing is pruned but the skipped directories,
+ *   for where large files have to be found by the walk alone.
+ * - A directory whose mtime equals the one in [previous] is not listed
+ *   again: its subdirectories and candidate files come from the index.
+ *   In-place writes that change a file but not its directory are picked
+ *   up once the index expires.
+ *
+ * The index for the next scan is built in [index] as the walk goes. Pass
+ * the previous index's creation time as indexCreatedAt to keep expiry
+ * counting from the last full walk.
+ */
+class JunkScanner(
+    private val matcher: JunkRuleMatcher,
+    private val skipDirectories: Set<String>,
+    private val previous: DirectoryIndex?,
+    fingerprint: Int,
+    private val now: Long = System.currentTimeMillis(),
+    indexCreatedAt: Long = now,
+    private val largeFileBytes: Long = Long.MAX_VALUE,
+    private val fullDepthRoots: Collection<String> = emptyList()
+) {
+
+    val index = DirectoryIndex(fingerprint, indexCreatedAt)
+
+    var directoriesListed = 0
+        private set
+    var directoriesReused = 0
+        private set
+
+    private class Pending(val path: Path, val state: JunkRuleMatcher.DirState, val lastModified: Long)
+
+    // Subdirectory mtimes seen while listing, taken when the parent's children are pushed
+    private val childTimes = HashMap<Path, Long>()
+
+    fun scan(root: File, state: JunkRuleMatcher.DirState, output: MutableList<JunkFile>) {
+        val rootPath = root.toPath()
+        val rootAttributes = attributesOf(rootPath) ?: return
+        if (!rootAttributes.isDirectory || canPrune(rootPath, state)) return
+
+        val stack = ArrayDeque<Pending>()
+        stack.addLast(Pending(rootPath, state, rootAttributes.lastModifiedTime().toMillis()))
+        while (stack.isNotEmpty()) {
+            val directory = stack.removeLast()
+            val key = directory.path.toString()
+            if (key in index.entries) continue  // reached through another root
+
+            val cached = previous?.entries?.get(key)
+            val entry = if (cached != null && cached.lastModified == directory.lastModified) {
+                directoriesReused++
+                reuse(directory, cached, output)
+            } else {
+                directoriesListed++
+                list(directory, output) ?: continue
+            }
+            index.entries[key] = entry
+
+            for (name in entry.subdirectories) {
+                val child = directory.path.resolve(name)
+                val listedTime = childTimes.remove(child)
+                if (child.toString() in skipDirectories) continue
+                val childState = matcher.enter(directory.state, name)
+                if (canPrune(child, childState)) continue
+                // Children of a reused directory were not listed, so stat them
+                val lastModified = listedTime
+                    ?: attributesOf(child)?.takeIf { it.isDirectory }?.lastModifiedTime()?.toMillis()
+                    ?: continue
+                stack.addLast(Pending(child, childState, lastModified))
+            }
+        }
+    }
+
+    private fun list(directory: Pending, output: MutableList<JunkFile>): DirectoryIndex.Entry? {
+        val subdirectories = ArrayList<String>()
+        val files = ArrayList<DirectoryIndex.FileEntry>()
+        try {
+            Files.newDirectoryStream(directory.path).use { stream ->
+                for (child in stream) {
+                    val attributes = attributesOf(child) ?: continue
+                    val name = child.fileName.toString()
+                    if (attributes.isDirectory) {
+                        subdirectories.add(name)
+                        childTimes[child] = attributes.lastModifiedTime().toMillis()
+                        continue
+                    }
+                    if (!attributes.isRegularFile) continue
+
+                    val candidates = matcher.candidates(directory.state, name)
+                    val signature = matcher.signatureOf(directory.state, name)
+                    if (candidates == 0L && signature == null && attributes.size() < largeFileBytes) continue
+
+                    val file = DirectoryIndex.FileEntry(
+                        name,
+                        attributes.size(),
+                        attributes.lastModifiedTime().toMillis()
+                    )
+                    if (emit(directory, file, candidates, signature, output) || matcher.mayMatchLater(candidates)) {
+                        files.add(file)
+                    }
+                }
+            }
+        } catch (e: IOException) {
+            // Skip directories with permission issues
+            return null
+        } catch (e: SecurityException) {
+            return null
+        }
+        return DirectoryIndex.Entry(directory.lastModified, subdirectories, files)
+    }
+
+    private fun reuse(
+        directory: Pending,
+        cached: DirectoryIndex.Entry,
+        output: MutableList<JunkFile>
+    ): DirectoryIndex.Entry {
+        cached.files.forEach { file ->
+            emit(
+                directory,
+                file,
+                matcher.candidates(directory.state, file.name),
+                matcher.signatureOf(directory.state, file.name),
+                output
+            )
+        }
+        return cached
+    }
+
+    private fun emit(
+        directory: Pending,
+        file: DirectoryIndex.FileEntry,
+        candidates: Long,
+        signature: AppCacheSignature?,
+        output: MutableList<JunkFile>
+    ): Boolean {
+        val matched = matcher.classifyCandidates(directory.state, candidates, file.size, file.lastModified, now)
+        val types = if (file.size >= largeFileBytes && JunkType.LARGE_FILES !in matched) {
+            matched + JunkType.LARGE_FILES
+        } else {
+            matched
+        }
+        if (types.isEmpty() && signature == null) return false
+        val path = directory.path.resolve(file.name).toString()
+        if (signature != null) {
+            output.add(
+                JunkFile(
+                    path = path,
+                    name = file.name,
+                    size = file.size,
+                    lastModified = file.lastModified,
+                    type = signature.type,
+                    packageName = signature.packageName ?: directory.state.owner
+                )
+            )
+        }
+        types.forEach { type ->
+            // Already listed, with its app, by the signature
+            if (type == signature?.type) return@forEach
+            output.add(
+                JunkFile(
+                    path = path,
+                    name = file.name,
+                    size = file.size,
+                    lastModified = file.lastModified,
+                    type = type
+                )
+            )
+        }
+        return true
+    }
+
+    private fun canPrune(path: Path, state: JunkRuleMatcher.DirState): Boolean {
+        if (!matcher.canPrune(state)) return false
+        if (fullDepthRoots.isEmpty()) return true
+        // Inside a full-depth root, or on the way to one
+        val key = path.toString()
+        return fullDepthRoots.none { root ->
+            key == root || key.startsWith("$root/") || root.startsWith("$key/")
+        }
+    }
+
+    private fun attributesOf(path: Path): BasicFileAttributes? {
+        return try {
+            Files.readAttributes(path, BasicFileAttributes::class.java, LinkOption.NOFOLLOW_LINKS)
+        } catch (e: IOException) {
+            null
+        } catch (e: SecurityException) {
+            null
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.smartcleaner.data.junk
+
+import com.smartcleaner.domain.model.JunkDelta
+import com.smartcleaner.domain.model.JunkDiffReport
+import com.smartcleaner.domain.model.JunkFile
+import com.smartcleaner.domain.model.JunkGrowthSample
+import com.smartcleaner.domain.model.JunkType
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * A junk scan result kept for comparing with the next one
+ *
+ * Entries are sorted by (key, type), so two snapshots are compared by
+ * merge-joining them in one linear pass, without a rescan or a hash of
+ * either side. The growth history rides along in [samples], oldest first.
+ */
+class JunkSnapshot(
+    val scannedAt: Long,
+    entries: List<Entry>,
+    val samples: List<JunkGrowthSample> = emptyList()
+) {
+
+    /**
+     * @param key The file's path, or "package:<name>" for an app's cache total
+     */
+    class Entry(val key: String, val type: JunkType, val packageName: String?, val size: Long)
+
+    val entries: List<Entry> = entries.sortedWith(ORDER)
+
+    companion object {
+        private const val FORMAT = 1
+        const val MAX_SAMPLES = 30
+
+        private val ORDER = compareBy<Entry>({ it.key }, { it.type.ordinal })
+
+        fun of(files: List<JunkFile>, scannedAt: Long, samples: List<JunkGrowthSample> = emptyList()) =
+            JunkSnapshot(
+                scannedAt,
+                files.map { file ->
+                    val key = file.path.ifEmpty { "package:${file.packageName.orEmpty()}" }
+                    Entry(key, file.type, file.packageName, file.size)
+                },
+                samples
+            )
+
+        /**
+         * @return The snapshot, or null if missing, unreadable or of another format
+         */
+        fun read(file: File): JunkSnapshot? {
+            if (!file.isFile) return null
+            return try {
+                DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                    if (input.readInt() != FORMAT) return null
+                    val scannedAt = input.readLong()
+                    val samples = List(input.readInt()) {
+                        JunkGrowthSample(input.readLong(), input.readLong(), input.readLong(), input.readLong())
+                    }
+                    val entries = List(input.readInt()) {
+                        val key = input.readUTF()
+                        val type = JunkType.valueOf(input.readUTF())
+                        val packageName = if (input.readBoolean()) input.readUTF() else null
+                        Entry(key, type, packageName, input.readLong())
+                    }
+                    JunkSnapshot(scannedAt, entries, samples)
+                }
+            } catch (e: Exception) {
+                null
+            }
+        }
+
+        /**
+         * What was added, removed and grown from [previous] to [current],
+         * overall, per type and per package
+         *
+         * The total counts each file once, however many types it is junk of;
+         * per type and per package every entry counts.
+         */
+        fun diff(previous: JunkSnapshot, current: JunkSnapshot): JunkDiffReport {
+            val total = DeltaCounter()
+            val byType = HashMap<JunkType, DeltaCounter>()
+            val byPackage = HashMap<String, DeltaCounter>()
+
+            fun count(entry: Entry, record: DeltaCounter.(Long) -> Unit, bytes: Long) {
+                byType.getOrPut(entry.type) { DeltaCounter() }.record(bytes)
+                entry.packageName?.let { byPackage.getOrPut(it) { DeltaCounter() }.record(bytes) }
+            }
+
+            // Entries of one key are adjacent in the merge; -1 is "not on that side"
+            var key: String? = null
+            var oldSize = -1L
+            var newSize = -1L
+            fun countTotal() {
+                when {
+                    key == null -> Unit
+                    oldSize < 0 -> total.added(newSize)
+                    newSize < 0 -> total.removed(oldSize)
+                    newSize > oldSize -> total.grown(newSize - oldSize)
+                }
+            }
+            fun see(entry: Entry, isNew: Boolean) {
+                if (entry.key != key) {
+                    countTotal()
+                    key = entry.key
+                    oldSize = -1L
+                    newSize = -1L
+                }
+                if (isNew) newSize = entry.size else oldSize = entry.size
+            }
+
+            val old = previous.entries
+            val new = current.entries
+            var i = 0
+            var j = 0
+            while (i < old.size || j < new.size) {
+                val order = when {
+                    i == old.size -> 1
+                    j == new.size -> -1
+                    else -> ORDER.compare(old[i], new[j])
+                }
+                when {
+                    order < 0 -> {
+                        see(old[i], isNew = false)
+                        count(old[i], DeltaCounter::removed, old[i].size)
+                        i++
+                    }
+                    order > 0 -> {
+                        see(new[j], isNew = true)
+                        count(new[j], DeltaCounter::added, new[j].size)
+                        j++
+                    }
+                    else -> {
+                        see(old[i], isNew = false)
+                        see(new[j], isNew = true)
+                        val growth = new[j].size - old[i].size
+                        if (growth > 0) count(new[j], DeltaCounter::grown, growth)
+                        i++
+                        j++
+                    }
+                }
+            }
+            countTotal()
+
+            return JunkDiffReport(
+                previousScanAt = previous.scannedAt,
+                scannedAt = current.scannedAt,
+                total = total.toDelta(),
+                byType = byType.mapValues { it.value.toDelta() },
+                byPackage = byPackage.mapValues { it.value.toDelta() }
+            )
+        }
+    }
+
+    /**
+     * This snapshot as if junk of [type] had been cleaned
+     */
+    fun without(type: JunkType): JunkSnapshot = JunkSnapshot(scannedAt, entries.filter { it.type != type }, samples)
+
+    fun write(file: File) {
+        val temp = File(file.path + ".tmp")
+        DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+            output.writeInt(FORMAT)
+            output.writeLong(scannedAt)
+            output.writeInt(samples.size)
+            samples.forEach {
+                output.writeLong(it.scannedAt)
+                output.writeLong(it.intervalMs)
+                output.writeLong(it.totalBytes)
+                output.writeLong(it.newBytes)
+            }
+            output.writeInt(entries.size)
+            entries.forEach {
+                output.writeUTF(it.key)
+                output.writeUTF(it.type.name)
+                output.writeBoolean(it.packageName != null)
+                it.packageName?.let(output::writeUTF)
+                output.writeLong(it.size)
+            }
+        }
+        temp.renameTo(file)
+    }
+
+    private class DeltaCounter {
+        var addedCount = 0
+        var addedBytes = 0L
+        var removedCount = 0
+        var removedBytes = 0L
+        var grownCount = 0
+        var grownBytes = 0L
+
+        fun added(bytes: Long) {
+            addedCount++
+            addedBytes += bytes
+        }
+
+        fun removed(bytes: Long) {
+            removedCount++
+            removedBytes += bytes
+        }
+
+        fun grown(bytes: Long) {
+            grownCount++
+            grownBytes += bytes
+        }
+
+        fun toDelta() = JunkDelta(addedCount, addedBytes, removedCount, removedBytes, grownCount, grownBytes)
+    }
+}
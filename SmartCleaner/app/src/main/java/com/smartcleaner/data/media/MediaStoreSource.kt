@@ -0,0 +1,284 @@
+package com.smartcleaner.data.media
+
+import android.content.ContentResolver
+import android.content.Context
+import android.os.Build
+import android.os.Bundle
+import android.os.Environment
+import android.provider.MediaStore
+import android.provider.MediaStore.Files.FileColumns
+import com.smartcleaner.domain.repository.PreferencesRepository
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.withContext
+import java.io.File
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * A file as listed by MediaStore or by a fallback walk
+ */
+data class MediaEntry(
+    val path: String,
+    val size: Long,
+    val lastModified: Long,
+    val mimeType: String?
+)
+
+/**
+ * Files MediaStore holds below a directory
+ *
+ * @param unindexed Subdirectories MediaStore doesn't index, hidden ones
+ *   included, for the caller to walk
+ */
+class MediaListing(val files: List<MediaEntry>, val unindexed: List<File>)
+
+data class MimeTypeTotal(val mimeType: String?, val fileCount: Int, val totalBytes: Long)
+
+/**
+ * Lists shared storage from MediaStore instead of walking it
+ *
+ * Since Android 11 the FUSE daemon in front of shared storage is
+ * MediaProvider itself, and every file created there is in MediaStore.Files,
+ * media or not. A directory tree is then a few paged queries on its database
+ * instead of a FUSE round trip per directory and file.
+ *
+ * Android/data, Android/obb and hidden (dot-prefixed) directories are not
+ * indexed; they come back as [MediaListing.unindexed]. Finding the hidden
+ * ones costs one directory read per indexed directory, still no stat per
+ * file. A hidden or unindexed root, other volumes, older releases and a
+ * disabled fast scan get no listing at all (null), and the caller walks
+ * as before.
+ */
+@Singleton
+class MediaStoreSource @Inject constructor(
+    @ApplicationContext private val context: Context,
+    private val preferencesRepository: PreferencesRepository
+) {
+
+    companion object {
+        private const val PAGE_SIZE = 2000
+        // Directories are rows too, with the MTP "association" format
+        private const val COLUMN_FORMAT = "format"
+        private const val FORMAT_ASSOCIATION = 0x3001
+
+        private val UNINDEXED = listOf("Android/data", "Android/obb")
+
+        private val PROJECTION = arrayOf(
+            FileColumns._ID,
+            FileColumns.DATA,
+            FileColumns.RELATIVE_PATH,
+            FileColumns.DISPLAY_NAME,
+            FileColumns.SIZE,
+            FileColumns.DATE_MODIFIED,
+            FileColumns.MIME_TYPE,
+            COLUMN_FORMAT
+        )
+
+        /**
+         * Subdirectories of [directory] that MediaStore doesn't index
+         *
+         * @return null when [directory] itself isn't fully indexed: outside
+         *         [volume], hidden, or inside an unindexed directory
+         */
+        internal fun unindexedIn(volume: File, directory: File): List<File>? {
+            val root = volume.absolutePath.trimEnd('/')
+            val path = directory.absolutePath.trimEnd('/')
+            if (path != root && !path.startsWith("$root/")) return null
+
+            val relative = path.removePrefix(root).trimStart('/')
+            if (relative.split('/').any { it.startsWith(".") }) return null
+
+            val unindexed = mutableListOf<File>()
+            for (name in UNINDEXED) {
+                when {
+                    relative == name || relative.startsWith("$name/") -> return null
+                    relative.isEmpty() || name.startsWith("$relative/") -> unindexed.add(File(root, name))
+                }
+            }
+            return unindexed
+        }
+
+        /**
+         * Hidden subdirectories of [directories], which MediaStore doesn't index
+         *
+         * @param excludePaths Path prefixes to leave out, as for [list]
+         */
+        internal fun hiddenIn(
+            directories: Collection<String>,
+            excludePaths: List<String>,
+            childrenOf: (File) -> Array<File>? = { it.listFiles() }
+        ): List<File> {
+            val hidden = ArrayList<File>()
+            for (directory in directories) {
+                val children = try {
+                    childrenOf(File(directory))
+                } catch (e: SecurityException) {
+                    null
+                } ?: continue
+                for (child in children) {
+                    if (!child.name.startsWith(".") || !child.isDirectory) continue
+                    val path = child.absolutePath
+                    if (excludePaths.any { path.startsWith(it) || "$path/".startsWith(it) }) continue
+                    hidden.add(child)
+                }
+            }
+            return hidden
+        }
+
+        // [relative] starts with '/' below the listed directory
+        private fun isHidden(relative: String): Boolean = "/." in relative
+
+        private fun escapeLike(value: String): String =
+            value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+    }
+
+    /**
+     * Every file below [directory] with a size in [minSize]..[maxSize]
+     *
+     * Paths are absolute and start with the directory's absolute path.
+     *
+     * @param excludePaths Path prefixes left out of the listing
+     * @return The listing, or null when the caller has to walk [directory]
+     */
+    suspend fun list(
+        directory: File,
+        minSize: Long = 0,
+        maxSize: Long = Long.MAX_VALUE,
+        excludePaths: List<String> = emptyList()
+    ): MediaListing? = withContext(Dispatchers.IO) {
+        if (!isEnabled()) return@withContext null
+        val volume = Environment.getExternalStorageDirectory()
+        val unindexed = unindexedIn(volume, directory) ?: return@withContext null
+
+        val prefix = directory.absolutePath.trimEnd('/') + "/"
+        val (selection, args) = selectionFor(directory, minSize, maxSize, excludePaths, withDirectories = true)
+        val files = ArrayList<MediaEntry>()
+        // Indexed directories, to look for hidden subdirectories in; a
+        // directory is only added after its ancestors
+        val directories = hashSetOf(prefix.trimEnd('/'))
+        fun addDirectory(path: String) {
+            var current = path
+            while (current.length >= prefix.length && directories.add(current)) {
+                current = current.substringBeforeLast('/')
+            }
+        }
+        try {
+            // Keyset paging: each page starts after the last _id seen
+            var lastId = 0L
+            do {
+                val queryArgs = Bundle().apply {
+                    putString(ContentResolver.QUERY_ARG_SQL_SELECTION, "$selection AND ${FileColumns._ID} > ?")
+                    putStringArray(
+                        ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS,
+                        (args + lastId.toString()).toTypedArray()
+                    )
+                    putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, "${FileColumns._ID} ASC")
+                    putInt(ContentResolver.QUERY_ARG_LIMIT, PAGE_SIZE)
+                }
+                val cursor = context.contentResolver.query(filesUri(), PROJECTION, queryArgs, null)
+                    ?: return@withContext null
+                val rows = cursor.use {
+                    while (it.moveToNext()) {
+                        lastId = it.getLong(0)
+                        val path = it.getString(1)
+                            ?: File(volume, it.getString(2).orEmpty() + it.getString(3).orEmpty()).absolutePath
+                        // LIKE ignores case; the listing promises the exact prefix
+                        if (!path.startsWith(prefix)) continue
+                        val isDirectory = !it.isNull(7) && it.getInt(7) == FORMAT_ASSOCIATION
+                        val directoryPath = if (isDirectory) path.trimEnd('/') else path.substringBeforeLast('/')
+                        // Hidden directories are walked by the caller, whatever MediaStore has of them
+                        if (isHidden(directoryPath.removePrefix(prefix.trimEnd('/')))) continue
+                        addDirectory(directoryPath)
+                        if (isDirectory) continue
+                        files.add(
+                            MediaEntry(
+                                path = path,
+                                size = it.getLong(4),
+                                lastModified = it.getLong(5) * 1000,
+                                mimeType = it.getString(6)
+                            )
+                        )
+                    }
+                    it.count
+                }
+            } while (rows == PAGE_SIZE)
+        } catch (e: Exception) {
+            // Provider refused the query: walk instead
+            return@withContext null
+        }
+        MediaListing(files, unindexed + hiddenIn(directories, excludePaths))
+    }
+
+    /**
+     * File count and bytes per MIME type below [directory], aggregated by
+     * MediaProvider with GROUP BY
+     *
+     * Unindexed subdirectories are not included; see [list].
+     *
+     * @return The totals, or null when the caller has to count itself
+     */
+    suspend fun sizeByMimeType(
+        directory: File,
+        excludePaths: List<String> = emptyList()
+    ): List<MimeTypeTotal>? = withContext(Dispatchers.IO) {
+        if (!isEnabled()) return@withContext null
+        unindexedIn(Environment.getExternalStorageDirectory(), directory) ?: return@withContext null
+
+        val (selection, args) = selectionFor(directory, 0, Long.MAX_VALUE, excludePaths)
+        val queryArgs = Bundle().apply {
+            putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection)
+            putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, args.toTypedArray())
+            putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY, FileColumns.MIME_TYPE)
+        }
+        val projection = arrayOf(FileColumns.MIME_TYPE, "COUNT(*)", "SUM(${FileColumns.SIZE})")
+        try {
+            context.contentResolver.query(filesUri(), projection, queryArgs, null)?.use { cursor ->
+                val totals = ArrayList<MimeTypeTotal>(cursor.count)
+                while (cursor.moveToNext()) {
+                    totals.add(MimeTypeTotal(cursor.getString(0), cursor.getInt(1), cursor.getLong(2)))
+                }
+                totals
+            }
+        } catch (e: Exception) {
+            null
+        }
+    }
+
+    private suspend fun isEnabled(): Boolean {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return false
+        return try {
+            preferencesRepository.getPreferences().first().fastScanEnabled
+        } catch (e: Exception) {
+            false
+        }
+    }
+
+    private fun filesUri() = MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY)
+
+    private fun selectionFor(
+        directory: File,
+        minSize: Long,
+        maxSize: Long,
+        excludePaths: List<String>,
+        withDirectories: Boolean = false
+    ): Pair<String, List<String>> {
+        val isFile = "($COLUMN_FORMAT IS NULL OR $COLUMN_FORMAT != $FORMAT_ASSOCIATION)"
+        var sized = "${FileColumns.SIZE} >= ?"
+        val args = mutableListOf(escapeLike(directory.absolutePath.trimEnd('/')) + "/%", minSize.toString())
+        if (maxSize < Long.MAX_VALUE) {
+            sized += " AND ${FileColumns.SIZE} <= ?"
+            args.add(maxSize.toString())
+        }
+        val clauses = mutableListOf(
+            "${FileColumns.DATA} LIKE ? ESCAPE '\\'",
+            if (withDirectories) "($COLUMN_FORMAT = $FORMAT_ASSOCIATION OR ($isFile AND $sized))" else "$isFile AND $sized"
+        )
+        excludePaths.forEach { path ->
+            clauses.add("${FileColumns.DATA} NOT LIKE ? ESCAPE '\\'")
+            args.add(escapeLike(path) + "%")
+        }
+        return clauses.joinToString(" AND ") to args
+    }
+}
@@ -0,0 +1,84 @@
+package com.smartcleaner.data.ml
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Picks an inference batch size from measured batch times
+ *
+ * Starts at [minSize] and doubles while the time per item keeps dropping
+ * by at least [MIN_GAIN]; once doubling stops paying, it goes back to the
+ * last size that did and stays there. A batch slower than
+ * [latencyBudgetNanos] halves the size and caps it, so progress keeps
+ * coming at a steady pace even when bigger batches would be cheaper.
+ *
+ * Only full batches of the current size are measured, and the first one at
+ * each size is skipped, since it pays for resizing the tensors.
+ */
+class BatchSizeTuner(
+    private val minSize: Int = 16,
+    private val maxSize: Int = 512,
+    private val latencyBudgetNanos: Long = TimeUnit.MILLISECONDS.toNanos(50)
+) {
+
+    companion object {
+        // Doubling must cut the time per item to 90% or less
+        private const val MIN_GAIN = 0.9
+        private const val SMOOTHING = 0.3
+        private const val WARMUP_BATCHES = 3
+    }
+
+    private class Stats {
+        var batches = 0
+        var nanosPerItem = 0.0
+    }
+
+    private val stats = HashMap<Int, Stats>()
+    private var ceiling = maxSize
+
+    @Volatile
+    var batchSize = minSize
+        private set
+
+    @Synchronized
+    fun record(size: Int, elapsedNanos: Long) {
+        if (size != batchSize) return
+        val current = stats.getOrPut(size) { Stats() }
+        current.batches++
+        if (current.batches == 1) return
+
+        val perItem = elapsedNanos.toDouble() / size
+        current.nanosPerItem = if (current.batches == 2) {
+            perItem
+        } else {
+            current.nanosPerItem * (1 - SMOOTHING) + perItem * SMOOTHING
+        }
+
+        if (elapsedNanos > latencyBudgetNanos && size > minSize) {
+            settle(size / 2)
+            return
+        }
+        if (current.batches < WARMUP_BATCHES || size >= ceiling) return
+
+        val smaller = stats[size / 2]
+        if (size > minSize && smaller != null && current.nanosPerItem > smaller.nanosPerItem * MIN_GAIN) {
+            settle(size / 2)
+            return
+        }
+        batchSize = minOf(size * 2, ceiling)
+    }
+
+    /**
+     * Start over, for when batch costs change, as with another model
+     */
+    @Synchronized
+    fun reset() {
+        stats.clear()
+        ceiling = maxSize
+        batchSize = minSize
+    }
+
+    private fun settle(size: Int) {
+        ceiling = maxOf(size, minSize)
+        batchSize = ceiling
+    }
+}
@@ -0,0 +1,120 @@
+package com.smartcleaner.data.ml
+
+import com.smartcleaner.domain.model.JunkCategory
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+
+/**
+ * Classifications by (path, size, mtime) for one model version, kept across runs
+ *
+ * The file holds the [modelVersion] it was built with; read with another
+ * version, it comes back empty, so installing a new model reclassifies
+ * everything. The age of a file is one of its features, so a result is
+ * only reused for [maxAgeMs] after it was computed. Entries not marked
+ * used by [touch] for [maxUnusedMs] are dropped on [write].
+ *
+ * Not synchronized: [get] only reads, so any number of threads may look
+ * up at once while nothing else touches the cache; everything else is for
+ * one thread at a time.
+ */
+class ClassificationCache(
+    val modelVersion: String,
+    private val maxAgeMs: Long,
+    private val maxUnusedMs: Long
+) {
+
+    private class Entry(
+        val size: Long,
+        val lastModified: Long,
+        val category: JunkCategory,
+        val confidence: Float,
+        val classifiedAt: Long,
+        var lastUsed: Long
+    )
+
+    companion object {
+        private const val FORMAT = 1
+
+        /**
+         * @return The cache, or an empty one if missing, unreadable, of another
+         *   format or of another model version
+         */
+        fun read(file: File, modelVersion: String, maxAgeMs: Long, maxUnusedMs: Long): ClassificationCache {
+            val cache = ClassificationCache(modelVersion, maxAgeMs, maxUnusedMs)
+            if (!file.isFile) return cache
+            try {
+                DataInputStream(BufferedInputStream(file.inputStream())).use { input ->
+                    if (input.readInt() != FORMAT) return cache
+                    if (input.readUTF() != modelVersion) return cache
+                    repeat(input.readInt()) {
+                        val path = input.readUTF()
+                        cache.entries[path] = Entry(
+                            size = input.readLong(),
+                            lastModified = input.readLong(),
+                            category = JunkCategory.valueOf(input.readUTF()),
+                            confidence = input.readFloat(),
+                            classifiedAt = input.readLong(),
+                            lastUsed = input.readLong()
+                        )
+                    }
+                }
+            } catch (e: Exception) {
+                cache.entries.clear()
+            }
+            return cache
+        }
+    }
+
+    private val entries = HashMap<String, Entry>()
+
+    val size: Int get() = entries.size
+
+    var changed = false
+        private set
+
+    /**
+     * @return The cached category and confidence, or null on a miss
+     */
+    fun get(path: String, size: Long, lastModified: Long, now: Long): Pair<JunkCategory, Float>? {
+        val entry = entries[path]
+        if (entry == null || entry.size != size || entry.lastModified != lastModified) return null
+        if (now - entry.classifiedAt > maxAgeMs) return null
+        return entry.category to entry.confidence
+    }
+
+    /**
+     * Mark a hit as used, keeping it past the next [write]
+     */
+    fun touch(path: String, now: Long) {
+        entries[path]?.lastUsed = now
+    }
+
+    fun put(path: String, size: Long, lastModified: Long, result: Pair<JunkCategory, Float>, now: Long) {
+        entries[path] = Entry(size, lastModified, result.first, result.second, now, now)
+        changed = true
+    }
+
+    fun write(file: File, now: Long) {
+        entries.values.removeAll { now - it.lastUsed > maxUnusedMs }
+        val temp = File(file.path + ".tmp")
+        DataOutputStream(BufferedOutputStream(temp.outputStream())).use { output ->
+            output.writeInt(FORMAT)
+            output.writeUTF(modelVersion)
+            output.writeInt(entries.size)
+            for ((path, entry) in entries) {
+                output.writeUTF(path)
+                output.writeLong(entry.size)
+                output.writeLong(entry.lastModified)
+                output.writeUTF(entry.category.name)
+                output.writeFloat(entry.confidence)
+                output.writeLong(entry.classifiedAt)
+                output.writeLong(entry.lastUsed)
+            }
+        }
+        temp.renameTo(file)
+        changed = false
+    }
+}
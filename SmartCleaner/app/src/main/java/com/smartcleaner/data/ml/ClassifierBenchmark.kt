@@ -0,0 +1,191 @@
+package com.smartcleaner.data.ml
+
+import com.smartcleaner.domain.model.JunkCategory
+import java.util.concurrent.TimeUnit
+import kotlin.math.ceil
+import kotlin.random.Random
+
+/**
+ * Synthetic files for comparing classifiers
+ *
+ * Built from fixed templates and a fixed seed, so every run and every
+ * device sees the same records. Features are extracted once, up front,
+ * against a fixed clock and directory size; benchmarks time inference only.
+ *
+ * Each template is labeled with the category the rule-based classifier
+ * gives it ([ruleLabels]). That is not ground truth: it tells how far a
+ * model agrees with the rules, not how often either is right.
+ */
+class FixtureCorpus(
+    val records: List<FileRecord>,
+    val ruleLabels: List<JunkCategory>,
+    now: Long
+) {
+
+    private class Template(
+        val path: String,
+        val minSize: Long,
+        val maxSize: Long,
+        val minAgeDays: Int,
+        val maxAgeDays: Int,
+        val category: JunkCategory
+    )
+
+    companion object {
+        const val NOW = 1_700_000_000_000L
+        private const val ROOT = "/storage/emulated/0"
+        private const val KB = 1024L
+        private const val MB = 1024L * 1024L
+        private const val CHILDREN_PER_DIRECTORY = 40
+
+        private val TEMPLATES = listOf(
+            Template("$ROOT/Android/media/com.example.app/cache/img_%d.cache", KB, 2 * MB, 0, 30, JunkCategory.CACHE_FILE),
+            Template("$ROOT/Download/tmp/upload_%d.tmp", KB, 10 * MB, 0, 60, JunkCategory.TEMP_FILE),
+            Template("$ROOT/Android/media/com.example.app/logs/session_%d.log", KB, MB, 0, 90, JunkCategory.LOG_FILE),
+            Template("$ROOT/Documents/report_%d.pdf", 10 * KB, 5 * MB, 0, 90, JunkCategory.SAFE_DOCUMENT),
+            Template("$ROOT/DCIM/Camera/IMG_%d.jpg", MB, 8 * MB, 0, 150, JunkCategory.SAFE_MEDIA),
+            Template("$ROOT/Backups/contacts_backup_%d.zip", 10 * KB, MB, 200, 700, JunkCategory.BACKUP_FILE),
+            Template("$ROOT/Movies/Archive/recording_%d.mp4", 500 * MB, 4096 * MB, 200, 700, JunkCategory.LARGE_UNUSED)
+        )
+
+        fun standard(size: Int = 2000, seed: Long = 42L): FixtureCorpus {
+            val random = Random(seed)
+            val day = TimeUnit.DAYS.toMillis(1)
+            val records = ArrayList<FileRecord>(size)
+            val ruleLabels = ArrayList<JunkCategory>(size)
+            repeat(size) { i ->
+                val template = TEMPLATES[i % TEMPLATES.size]
+                val ageDays = random.nextInt(template.minAgeDays, template.maxAgeDays + 1)
+                records.add(
+                    FileRecord(
+                        path = template.path.format(i),
+                        size = random.nextLong(template.minSize, template.maxSize + 1),
+                        lastModified = NOW - ageDays * day
+                    )
+                )
+                ruleLabels.add(template.category)
+            }
+            return FixtureCorpus(records, ruleLabels, NOW)
+        }
+    }
+
+    val size: Int get() = records.size
+
+    /**
+     * One row of [FeatureExtractor.FEATURE_COUNT] features per record
+     */
+    val features: FloatArray = FloatArray(records.size * FeatureExtractor.FEATURE_COUNT).also { matrix ->
+        val extractor = FeatureExtractor(now) { CHILDREN_PER_DIRECTORY }
+        records.forEachIndexed { row, record ->
+            extractor.extract(record, matrix, row * FeatureExtractor.FEATURE_COUNT)
+        }
+    }
+}
+
+/**
+ * How one classifier did on a [FixtureCorpus]
+ *
+ * @param p50Micros Median time to classify one file on its own
+ * @param p99Micros 99th percentile of the same
+ * @param filesPerSecond Files classified per second in batches
+ * @param peakMemoryBytes Highest memory use seen, above what was used before
+ *   the classifier was set up
+ * @param ruleAgreement Share of files given the category the rules give
+ *   them; not accuracy, see [FixtureCorpus]
+ */
+data class BenchmarkReport(
+    val name: String,
+    val files: Int,
+    val p50Micros: Double,
+    val p99Micros: Double,
+    val filesPerSecond: Double,
+    val peakMemoryBytes: Long,
+    val ruleAgreement: Float
+) {
+    override fun toString() =
+        "%s: p50 %.1f µs, p99 %.1f µs, %.0f files/s, peak +%d KB, agreement with rules %.1f%% (%d files)"
+            .format(name, p50Micros, p99Micros, filesPerSecond, peakMemoryBytes / 1024, ruleAgreement * 100, files)
+}
+
+/**
+ * Latency, throughput, memory and agreement with rules of a classify function
+ *
+ * After one untimed warm-up pass, every file is classified on its own for
+ * the latency percentiles, then the corpus is classified in batches of
+ * batchSize for throughput and agreement. Only classify calls are timed;
+ * memory is sampled between calls.
+ */
+object ClassifierBenchmark {
+
+    private const val MEMORY_SAMPLE_INTERVAL = 64
+
+    fun jvmHeapUsed(): Long = Runtime.getRuntime().let { it.totalMemory() - it.freeMemory() }
+
+    fun run(
+        name: String,
+        corpus: FixtureCorpus,
+        batchSize: Int,
+        classify: (features: FloatArray, rows: Int) -> List<Pair<JunkCategory, Float>>,
+        memoryUsed: () -> Long = ::jvmHeapUsed,
+        memoryBaseline: Long = memoryUsed()
+    ): BenchmarkReport {
+        val width = FeatureExtractor.FEATURE_COUNT
+        val features = corpus.features
+        val count = corpus.size
+        val batch = FloatArray(batchSize * width)
+        var peak = memoryUsed()
+
+        fun copyRows(start: Int, rows: Int) = features.copyInto(batch, 0, start * width, (start + rows) * width)
+
+        // Warm-up: tensor allocation, JIT and caches
+        var start = 0
+        while (start < count) {
+            val rows = minOf(batchSize, count - start)
+            copyRows(start, rows)
+            classify(batch, rows)
+            start += rows
+        }
+
+        val latencies = LongArray(count)
+        for (i in 0 until count) {
+            copyRows(i, 1)
+            val began = System.nanoTime()
+            classify(batch, 1)
+            latencies[i] = System.nanoTime() - began
+            if (i % MEMORY_SAMPLE_INTERVAL == 0) peak = maxOf(peak, memoryUsed())
+        }
+
+        var elapsed = 0L
+        var agreed = 0
+        start = 0
+        while (start < count) {
+            val rows = minOf(batchSize, count - start)
+            copyRows(start, rows)
+            val began = System.nanoTime()
+            val results = classify(batch, rows)
+            elapsed += System.nanoTime() - began
+            results.forEachIndexed { row, (category, _) ->
+                if (category == corpus.ruleLabels[start + row]) agreed++
+            }
+            peak = maxOf(peak, memoryUsed())
+            start += rows
+        }
+
+        latencies.sort()
+        return BenchmarkReport(
+            name = name,
+            files = count,
+            p50Micros = percentile(latencies, 0.5) / 1000.0,
+            p99Micros = percentile(latencies, 0.99) / 1000.0,
+            filesPerSecond = if (elapsed > 0) count * 1e9 / elapsed else 0.0,
+            peakMemoryBytes = (peak - memoryBaseline).coerceAtLeast(0L),
+            ruleAgreement = if (count > 0) agreed.toFloat() / count else 0f
+        )
+    }
+
+    private fun percentile(sorted: LongArray, quantile: Double): Long {
+        if (sorted.isEmpty()) return 0L
+        val rank = ceil(quantile * sorted.size).toInt().coerceIn(1, sorted.size)
+        return sorted[rank - 1]
+    }
+}
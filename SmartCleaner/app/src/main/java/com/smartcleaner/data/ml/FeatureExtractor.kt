@@ -0,0 +1,150 @@
+package com.smartcleaner.data.ml
+
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.attribute.BasicFileAttributes
+import java.util.concurrent.TimeUnit
+
+/**
+ * A file as a crawler saw it; features are computed from this alone
+ */
+class FileRecord(val path: String, val size: Long, val lastModified: Long) {
+
+    companion object {
+        /**
+         * Record for a file no crawler has seen, from a single stat
+         */
+        fun of(file: File): FileRecord {
+            val path = file.absolutePath
+            return try {
+                val attributes = Files.readAttributes(file.toPath(), BasicFileAttributes::class.java)
+                FileRecord(path, attributes.size(), attributes.lastModifiedTime().toMillis())
+            } catch (e: IOException) {
+                FileRecord(path, 0L, 0L)
+            } catch (e: SecurityException) {
+                FileRecord(path, 0L, 0L)
+            }
+        }
+    }
+}
+
+/**
+ * Fills [JunkClassifier] feature vectors from [FileRecord]s
+ *
+ * Nothing is read from disk per file. What depends only on the directory
+ * (path flags, child count) is worked out once per directory and kept for
+ * the extractor's lifetime, so one extractor should serve one run, from
+ * one thread.
+ * Crawlers usually hand out a directory's files together, so the last
+ * directory is checked first without building the parent path.
+ *
+ * @param childCountOf Entries in a directory; a crawler that listed it can
+ *   answer without listing it again
+ */
+class FeatureExtractor(
+    private val now: Long = System.currentTimeMillis(),
+    private val childCountOf: (String) -> Int = { File(it).list()?.size ?: 0 }
+) {
+
+    companion object {
+        const val FEATURE_COUNT = 20
+
+        // Extension categories
+        private val DOC_EXTENSIONS = setOf("pdf", "doc", "docx", "txt", "xlsx", "pptx")
+        private val MEDIA_EXTENSIONS = setOf("jpg", "jpeg", "png", "mp4", "mp3", "gif", "webp")
+        private val CACHE_EXTENSIONS = setOf("cache", "cached")
+        private val TEMP_EXTENSIONS = setOf("tmp", "temp", "bak", "backup", "old")
+        private val LOG_EXTENSIONS = setOf("log", "logs")
+
+        private val TIMESTAMP = Regex("\\d{8}")
+        private val DAY_MS = TimeUnit.DAYS.toMillis(1)
+    }
+
+    private class Directory(
+        val hasCache: Boolean,
+        val hasTemp: Boolean,
+        val hasDownload: Boolean,
+        val childScore: Float
+    )
+
+    private val directories = HashMap<String, Directory>()
+    private var lastPath: String? = null
+    private var last: Directory? = null
+
+    fun extract(record: FileRecord, features: FloatArray, offset: Int) {
+        val path = record.path
+        val slash = path.lastIndexOf('/')
+        val directory = directoryOf(path, slash)
+        val name = path.substring(slash + 1).lowercase()
+        val extension = name.substringAfterLast('.', "")
+
+        features.fill(0f, offset, offset + FEATURE_COUNT)
+
+        // [0-4]: Extension category (one-hot)
+        when {
+            extension in DOC_EXTENSIONS -> features[offset + 0] = 1f
+            extension in MEDIA_EXTENSIONS -> features[offset + 1] = 1f
+            extension in CACHE_EXTENSIONS -> features[offset + 2] = 1f
+            extension in TEMP_EXTENSIONS -> features[offset + 3] = 1f
+            else -> features[offset + 4] = 1f
+        }
+
+        // [5]: Size score (log scale, normalized 0-1)
+        val sizeInMB = record.size / (1024.0 * 1024.0)
+        features[offset + 5] = (Math.log10(sizeInMB + 1.0) / 3.0).toFloat().coerceIn(0f, 1f)
+
+        // [6]: Age score (normalized, 0-365 days); [16] is the same, as
+        // Android doesn't expose last access time
+        val ageScore = ((now - record.lastModified) / DAY_MS / 365f).coerceIn(0f, 1f)
+        features[offset + 6] = ageScore
+        features[offset + 16] = ageScore
+
+        // [7-9]: Location flags; no pattern spans a '/', so the path has
+        // one if its directory or its name has it
+        val nameHasCache = name.contains("cache")
+        val nameHasTemp = name.contains("temp")
+        features[offset + 7] = flag(directory.hasCache || nameHasCache)
+        features[offset + 8] = flag(directory.hasTemp || nameHasTemp || name.contains("tmp"))
+        features[offset + 9] = flag(directory.hasDownload || name.contains("download"))
+
+        // [10-11]: Extension patterns
+        features[offset + 10] = flag(extension in TEMP_EXTENSIONS)
+        features[offset + 11] = flag(extension in LOG_EXTENSIONS)
+
+        // [12-15]: Name patterns
+        features[offset + 12] = flag(nameHasCache)
+        features[offset + 13] = flag(nameHasTemp)
+        features[offset + 14] = flag(name.contains("backup") || name.contains("bak"))
+        features[offset + 15] = flag(TIMESTAMP.containsMatchIn(name))
+
+        // [17]: Is hidden
+        features[offset + 17] = flag(name.startsWith("."))
+
+        // [18]: Parent folder is cache
+        features[offset + 18] = flag(directory.hasCache)
+
+        // [19]: File count in same folder (normalized)
+        features[offset + 19] = directory.childScore
+    }
+
+    private fun directoryOf(path: String, slash: Int): Directory {
+        val lastPath = lastPath
+        if (lastPath != null && slash == lastPath.length && path.startsWith(lastPath)) return last!!
+        val parent = path.substring(0, maxOf(slash, 0))
+        val directory = directories.getOrPut(parent) {
+            val lower = parent.lowercase()
+            Directory(
+                hasCache = lower.contains("cache"),
+                hasTemp = lower.contains("temp") || lower.contains("tmp"),
+                hasDownload = lower.contains("download"),
+                childScore = (childCountOf(parent.ifEmpty { "/" }) / 100f).coerceIn(0f, 1f)
+            )
+        }
+        this.lastPath = parent
+        last = directory
+        return directory
+    }
+
+    private fun flag(value: Boolean) = if (value) 1f else 0f
+}
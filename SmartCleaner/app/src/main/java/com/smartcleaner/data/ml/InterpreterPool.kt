@@ -0,0 +1,158 @@
+package com.smartcleaner.data.ml
+
+import org.tensorflow.lite.DataType
+import org.tensorflow.lite.Interpreter
+import org.tensorflow.lite.Tensor
+import java.io.Closeable
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.FloatBuffer
+import java.util.concurrent.ArrayBlockingQueue
+
+/**
+ * Interpreters over one model buffer, each lent to one caller at a time
+ *
+ * All interpreters read the same (memory-mapped) model, so extra ones only
+ * cost their tensors. Each has [threadsPerInterpreter] threads and the
+ * XNNPACK delegate, falling back to the built-in kernels where the
+ * delegate can't take the model. A caller waits while all are busy.
+ *
+ * Every interpreter keeps its own direct buffers; they only ever grow, and
+ * each batch runs on a view of exactly its size, since the interpreter
+ * wants buffers the size of the tensor. Float and int8-quantized models
+ * are both taken: callers always pass and read floats, which are
+ * quantized on the way in and dequantized on the way out as the model's
+ * tensors need.
+ *
+ * @param onBatch Rows and nanoseconds of each run, waiting excluded
+ */
+class InterpreterPool(
+    model: ByteBuffer,
+    poolSize: Int,
+    threadsPerInterpreter: Int,
+    private val inputSize: Int,
+    private val outputSize: Int,
+    private val onBatch: (rows: Int, nanos: Long) -> Unit = { _, _ -> }
+) : Closeable {
+
+    /**
+     * How one end of the model is laid out: float, or 8-bit integers with
+     * scale and zero point as full-integer quantized models have
+     */
+    private class Port(tensor: Tensor) {
+        val type: DataType = tensor.dataType()
+        val scale = tensor.quantizationParams().scale
+        val zeroPoint = tensor.quantizationParams().zeroPoint
+        val bytes = when (type) {
+            DataType.FLOAT32 -> 4
+            DataType.INT8, DataType.UINT8 -> 1
+            else -> throw IllegalArgumentException("Unsupported tensor type $type")
+        }
+        val min = if (type == DataType.UINT8) 0 else -128
+        val max = if (type == DataType.UINT8) 255 else 127
+    }
+
+    private inner class Slot(val interpreter: Interpreter) {
+        private val input = Port(interpreter.getInputTensor(0))
+        private val output = Port(interpreter.getOutputTensor(0))
+        private var inputBuffer: ByteBuffer? = null
+        private var outputBuffer: ByteBuffer? = null
+        private var inputView: ByteBuffer? = null
+        private var outputView: ByteBuffer? = null
+        // Dequantized output of integer models
+        private var scores = FloatBuffer.allocate(0)
+        private var viewRows = 0
+        private var tensorRows = 0
+
+        fun run(features: FloatArray, rows: Int): FloatBuffer {
+            if (rows != tensorRows) {
+                interpreter.resizeInput(0, intArrayOf(rows, inputSize))
+                interpreter.allocateTensors()
+                tensorRows = rows
+            }
+            if (rows != viewRows) makeViews(rows)
+            val inputView = inputView!!
+            val outputView = outputView!!
+            inputView.clear()
+            val count = rows * inputSize
+            if (input.type == DataType.FLOAT32) {
+                inputView.asFloatBuffer().put(features, 0, count)
+            } else {
+                for (i in 0 until count) {
+                    val q = Math.round(features[i] / input.scale) + input.zeroPoint
+                    inputView.put(i, q.coerceIn(input.min, input.max).toByte())
+                }
+            }
+            outputView.clear()
+
+            interpreter.run(inputView, outputView)
+            outputView.rewind()
+
+            if (output.type == DataType.FLOAT32) return outputView.asFloatBuffer()
+            val scoreCount = rows * outputSize
+            if (scores.capacity() < scoreCount) scores = FloatBuffer.allocate(scoreCount)
+            scores.clear()
+            for (i in 0 until scoreCount) {
+                val q = outputView.get(i).toInt().let { if (output.type == DataType.UINT8) it and 0xFF else it }
+                scores.put(i, (q - output.zeroPoint) * output.scale)
+            }
+            scores.limit(scoreCount)
+            return scores
+        }
+
+        private fun makeViews(rows: Int) {
+            val inputBytes = rows * inputSize * input.bytes
+            val outputBytes = rows * outputSize * output.bytes
+            val inputs = inputBuffer?.takeIf { it.capacity() >= inputBytes }
+                ?: directBytes(inputBytes).also { inputBuffer = it }
+            val outputs = outputBuffer?.takeIf { it.capacity() >= outputBytes }
+                ?: directBytes(outputBytes).also { outputBuffer = it }
+            inputs.clear()
+            inputs.limit(inputBytes)
+            inputView = inputs.slice().order(ByteOrder.nativeOrder())
+            outputs.clear()
+            outputs.limit(outputBytes)
+            outputView = outputs.slice().order(ByteOrder.nativeOrder())
+            viewRows = rows
+        }
+    }
+
+    private val slots = List(poolSize) { Slot(createInterpreter(model, threadsPerInterpreter)) }
+    private val idle = ArrayBlockingQueue(poolSize, false, slots)
+
+    val size: Int get() = slots.size
+
+    /**
+     * Run [rows] rows of [features] on the next free interpreter
+     *
+     * @param read Reads the output before the interpreter goes back to the
+     *   pool; the buffer must not be kept
+     */
+    fun <T> run(features: FloatArray, rows: Int, read: (FloatBuffer) -> T): T {
+        val slot = idle.take()
+        try {
+            val start = System.nanoTime()
+            val output = slot.run(features, rows)
+            onBatch(rows, System.nanoTime() - start)
+            return read(output)
+        } finally {
+            idle.put(slot)
+        }
+    }
+
+    override fun close() {
+        slots.forEach { it.interpreter.close() }
+    }
+
+    private fun createInterpreter(model: ByteBuffer, threads: Int): Interpreter {
+        return try {
+            Interpreter(model, Interpreter.Options().setNumThreads(threads).setUseXNNPACK(true))
+        } catch (e: IllegalArgumentException) {
+            // The delegate rejected the model
+            Interpreter(model, Interpreter.Options().setNumThreads(threads).setUseXNNPACK(false))
+        }
+    }
+
+    private fun directBytes(count: Int): ByteBuffer =
+        ByteBuffer.allocateDirect(count).order(ByteOrder.nativeOrder())
+}
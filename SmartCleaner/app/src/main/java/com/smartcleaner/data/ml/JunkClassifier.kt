@@ -1,14 +1,15 @@
 package com.smartcleaner.data.ml
 
 import android.content.Context
+import android.os.Debug
 import android.os.Environment
 import com.smartcleaner.domain.model.JunkCategory
-import org.tensorflow.lite.Interpreter
 import org.tensorflow.lite.support.common.FileUtil
 import java.io.File
-import java.nio.ByteBuffer
-import java.nio.ByteOrder
-import java.util.concurrent.TimeUnit
+import java.io.IOException
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
 import javax.inject.Inject
 import javax.inject.Singleton
 import dagger.hilt.android.qualifiers.ApplicationContext
@@ -42,24 +43,52 @@ import dagger.hilt.android.qualifiers.ApplicationContext
  * [17]: Is hidden file
  * [18]: Parent folder is cache
  * [19]: File count in same folder
+ *
+ * Features are computed by [FeatureExtractor]. Which model runs, float,
+ * int8 or none (rules), is a [ModelVariant] that [load] swaps at runtime.
  */
 @Singleton
 class JunkClassifier @Inject constructor(
     @ApplicationContext private val context: Context
 ) {
-    private var interpreter: Interpreter? = null
-    private val inputSize = 20
+    private val inputSize = FeatureExtractor.FEATURE_COUNT
     private val outputSize = 10
     
+    // Swapping models and releasing wait for calls in progress
+    private val lock = ReentrantReadWriteLock()
+    private var pool: InterpreterPool? = null
+    private var loadedVariant = ModelVariant.RULES
+    
+    private val cores = Runtime.getRuntime().availableProcessors()
+    private val threadsPerInterpreter = minOf(INTERPRETER_THREADS, cores)
+    
+    private val batchTuner = BatchSizeTuner()
+    
+    /**
+     * Files per inference batch, tuned from how long batches take
+     */
+    val batchSize: Int get() = batchTuner.batchSize
+    
+    /**
+     * What classifies now: a bundled model, or the rules when none is loaded
+     */
+    val variant: ModelVariant get() = lock.read { loadedVariant }
+    
+    /**
+     * Version of [variant], which keys cached results
+     */
+    val modelVersion: String get() = variant.version
+    
+    /**
+     * Inference calls that can run at once
+     */
+    val parallelism: Int get() = lock.read { pool?.size ?: 1 }
+    
     companion object {
-        private const val MODEL_FILE = "junk_classifier.tflite"
-        
-        // Extension categories
-        private val DOC_EXTENSIONS = setOf("pdf", "doc", "docx", "txt", "xlsx", "pptx")
-        private val MEDIA_EXTENSIONS = setOf("jpg", "jpeg", "png", "mp4", "mp3", "gif", "webp")
-        private val CACHE_EXTENSIONS = setOf("cache", "cached")
-        private val TEMP_EXTENSIONS = setOf("tmp", "temp", "bak", "backup", "old")
-        private val LOG_EXTENSIONS = setOf("log", "logs")
+        private val DEFAULT_VARIANT = ModelVariant.FLOAT
+        // Threads per interpreter; the pool has one interpreter per this many cores
+        private const val INTERPRETER_THREADS = 2
+        private const val BENCHMARK_BATCH_SIZE = 64
         
         // Category mapping (must match model training)
         private val CATEGORY_MAP = mapOf(
@@ -77,139 +106,172 @@ class JunkClassifier @Inject constructor(
     }
     
     /**
-     * Initialize TensorFlow Lite interpreter
+     * Initialize TensorFlow Lite interpreters
+     *
+     * Loads the default model variant unless a model is loaded already.
+     * Without a bundled model, classification is rule-based.
      */
     fun initialize(): Result<Unit> {
-        return try {
-            // For now, we'll create a mock model since we don't have the actual .tflite file
-            // In production, uncomment this:
-            // val modelBuffer = FileUtil.loadMappedFile(context, MODEL_FILE)
-            // interpreter = Interpreter(modelBuffer)
-            
-            // Mock initialization
-            interpreter = null // Will use rule-based classification as fallback
-            
-            Result.success(Unit)
+        if (lock.read { pool != null }) return Result.success(Unit)
+        val result = load(DEFAULT_VARIANT)
+        return if (result.exceptionOrNull() is IOException) Result.success(Unit) else result
+    }
+    
+    /**
+     * Switch to [variant] at runtime
+     *
+     * The model is memory-mapped once and shared by a pool sized to the
+     * CPU cores. Calls in progress finish on the old interpreters, which
+     * are closed once they are done.
+     *
+     * @return Failure (IOException if the model isn't bundled) leaves the
+     *   current variant in place
+     */
+    fun load(variant: ModelVariant): Result<Unit> {
+        val next = try {
+            createPool(variant, maxOf(1, cores / threadsPerInterpreter), batchTuner::record)
         } catch (e: Exception) {
-            Result.failure(e)
+            return Result.failure(e)
         }
+        val previous = lock.write {
+            pool.also {
+                pool = next
+                loadedVariant = variant
+                // Batch costs of the old model no longer apply
+                batchTuner.reset()
+            }
+        }
+        previous?.close()
+        return Result.success(Unit)
+    }
+    
+    private fun createPool(
+        variant: ModelVariant,
+        poolSize: Int,
+        onBatch: (rows: Int, nanos: Long) -> Unit
+    ): InterpreterPool? {
+        val asset = variant.assetName ?: return null
+        val model = FileUtil.loadMappedFile(context, asset)
+        return InterpreterPool(
+            model = model,
+            poolSize = poolSize,
+            threadsPerInterpreter = threadsPerInterpreter,
+            inputSize = inputSize,
+            outputSize = outputSize,
+            onBatch = onBatch
+        )
     }
     
     /**
      * Extract features from a file
+     *
+     * For many files, [classifyRecords] with one [FeatureExtractor] avoids
+     * statting each file and listing its directory again.
      */
     fun extractFeatures(file: File): FloatArray {
-        val features = FloatArray(inputSize)
-        
-        val extension = file.extension.lowercase()
-        val currentTime = System.currentTimeMillis()
-        val ageInDays = TimeUnit.MILLISECONDS.toDays(currentTime - file.lastModified())
-        val sizeInMB = file.length() / (1024.0 * 1024.0)
-        
-        // [0-4]: Extension category (one-hot)
-        when {
-            extension in DOC_EXTENSIONS -> features[0] = 1f
-            extension in MEDIA_EXTENSIONS -> features[1] = 1f
-            extension in CACHE_EXTENSIONS -> features[2] = 1f
-            extension in TEMP_EXTENSIONS -> features[3] = 1f
-            else -> features[4] = 1f
-        }
-        
-        // [5]: Size score (log scale, normalized 0-1)
-        features[5] = (Math.log10(sizeInMB + 1.0) / 3.0).toFloat().coerceIn(0f, 1f)
-        
-        // [6]: Age score (normalized, 0-365 days)
-        features[6] = (ageInDays / 365f).coerceIn(0f, 1f)
-        
-        // [7-9]: Location flags
-        val path = file.absolutePath.lowercase()
-        features[7] = if (path.contains("cache")) 1f else 0f
-        features[8] = if (path.contains("temp") || path.contains("tmp")) 1f else 0f
-        features[9] = if (path.contains("download")) 1f else 0f
-        
-        // [10-11]: Extension patterns
-        features[10] = if (extension in TEMP_EXTENSIONS) 1f else 0f
-        features[11] = if (extension in LOG_EXTENSIONS) 1f else 0f
-        
-        // [12-15]: Name patterns
-        val name = file.name.lowercase()
-        features[12] = if (name.contains("cache")) 1f else 0f
-        features[13] = if (name.contains("temp")) 1f else 0f
-        features[14] = if (name.contains("backup") || name.contains("bak")) 1f else 0f
-        features[15] = if (name.matches(Regex(".*\\d{8,}.*"))) 1f else 0f // timestamp pattern
-        
-        // [16]: Access time (if available)
-        try {
-            val accessTime = file.lastModified() // Android doesn't expose last access time easily
-            val accessAgeInDays = TimeUnit.MILLISECONDS.toDays(currentTime - accessTime)
-            features[16] = (accessAgeInDays / 365f).coerceIn(0f, 1f)
-        } catch (e: Exception) {
-            features[16] = 0f
-        }
-        
-        // [17]: Is hidden
-        features[17] = if (file.isHidden || name.startsWith(".")) 1f else 0f
-        
-        // [18]: Parent folder is cache
-        features[18] = if (file.parent?.lowercase()?.contains("cache") == true) 1f else 0f
-        
-        // [19]: File count in same folder (normalized)
-        val siblingCount = file.parentFile?.listFiles()?.size ?: 0
-        features[19] = (siblingCount / 100f).coerceIn(0f, 1f)
-        
-        return features
+        return FloatArray(inputSize).also { FeatureExtractor().extract(FileRecord.of(file), it, 0) }
     }
     
     /**
      * Run inference on features
      */
     fun classify(features: FloatArray): Pair<JunkCategory, Float> {
+        return classifyMatrix(features, 1)[0]
+    }
+    
+    /**
+     * Run inference on [rows] feature vectors stored one after another in
+     * [features], with one interpreter call for all of them
+     *
+     * Safe to call from several threads; calls run in parallel up to
+     * [parallelism].
+     */
+    fun classifyMatrix(features: FloatArray, rows: Int): List<Pair<JunkCategory, Float>> {
+        require(rows > 0 && features.size >= rows * inputSize) { "Need $rows rows of $inputSize features" }
+        
+        lock.read {
+            pool?.let { return classifyWith(it, features, rows) }
+        }
+        return classifyWith(null, features, rows)
+    }
+    
+    private fun classifyWith(
+        pool: InterpreterPool?,
+        features: FloatArray,
+        rows: Int
+    ): List<Pair<JunkCategory, Float>> {
         // If model is loaded, use TensorFlow Lite
-        interpreter?.let { interp ->
-            val inputBuffer = ByteBuffer.allocateDirect(inputSize * 4).apply {
-                order(ByteOrder.nativeOrder())
-                features.forEach { putFloat(it) }
-            }
-            
-            val outputBuffer = ByteBuffer.allocateDirect(outputSize * 4).apply {
-                order(ByteOrder.nativeOrder())
+        pool?.let {
+            return it.run(features, rows) { output ->
+                List(rows) { row ->
+                    val offset = row * outputSize
+                    var maxIndex = 0
+                    for (i in 1 until outputSize) {
+                        if (output.get(offset + i) > output.get(offset + maxIndex)) maxIndex = i
+                    }
+                    val category = CATEGORY_MAP[maxIndex] ?: JunkCategory.UNKNOWN
+                    category to output.get(offset + maxIndex)
+                }
             }
-            
-            interp.run(inputBuffer, outputBuffer)
-            
-            outputBuffer.rewind()
-            val probabilities = FloatArray(outputSize) { outputBuffer.float }
-            
-            val maxIndex = probabilities.indices.maxByOrNull { probabilities[it] } ?: 0
-            val confidence = probabilities[maxIndex]
-            val category = CATEGORY_MAP[maxIndex] ?: JunkCategory.UNKNOWN
-            
-            return category to confidence
         }
         
         // Fallback: Rule-based classification
-        return ruleBasedClassification(features)
+        return List(rows) { row -> ruleBasedClassification(features, row * inputSize) }
     }
     
+    /**
+     * Benchmark [variants] on [corpus] with [ClassifierBenchmark]
+     *
+     * Each variant gets its own single interpreter, so the loaded one keeps
+     * serving and the numbers are per interpreter. Variants whose model
+     * isn't bundled are left out. Memory counts the Java and native heaps;
+     * the mapped model itself is not included.
+     */
+    fun benchmark(
+        variants: List<ModelVariant> = ModelVariant.values().toList(),
+        corpus: FixtureCorpus = FixtureCorpus.standard()
+    ): List<BenchmarkReport> = variants.mapNotNull { variant ->
+        val baseline = memoryUsed()
+        val pool = try {
+            createPool(variant, poolSize = 1) { _, _ -> }
+        } catch (e: IOException) {
+            return@mapNotNull null
+        }
+        try {
+            ClassifierBenchmark.run(
+                name = variant.name,
+                corpus = corpus,
+                batchSize = BENCHMARK_BATCH_SIZE,
+                classify = { features, rows -> classifyWith(pool, features, rows) },
+                memoryUsed = ::memoryUsed,
+                memoryBaseline = baseline
+            )
+        } finally {
+            pool?.close()
+        }
+    }
+    
+    private fun memoryUsed(): Long = ClassifierBenchmark.jvmHeapUsed() + Debug.getNativeHeapAllocatedSize()
+    
     /**
      * Rule-based classification (fallback when model not available)
      */
-    private fun ruleBasedClassification(features: FloatArray): Pair<JunkCategory, Float> {
-        val isDoc = features[0] > 0f
-        val isMedia = features[1] > 0f
-        val isCacheExt = features[2] > 0f
-        val isTempExt = features[3] > 0f
+    private fun ruleBasedClassification(features: FloatArray, offset: Int = 0): Pair<JunkCategory, Float> {
+        val isDoc = features[offset + 0] > 0f
+        val isMedia = features[offset + 1] > 0f
+        val isCacheExt = features[offset + 2] > 0f
+        val isTempExt = features[offset + 3] > 0f
         
-        val inCacheDir = features[7] > 0f
-        val inTempDir = features[8] > 0f
-        val hasTempExt = features[10] > 0f
-        val hasLogExt = features[11] > 0f
-        val nameHasCache = features[12] > 0f
-        val nameHasTemp = features[13] > 0f
-        val nameHasBackup = features[14] > 0f
+        val inCacheDir = features[offset + 7] > 0f
+        val inTempDir = features[offset + 8] > 0f
+        val hasTempExt = features[offset + 10] > 0f
+        val hasLogExt = features[offset + 11] > 0f
+        val nameHasCache = features[offset + 12] > 0f
+        val nameHasTemp = features[offset + 13] > 0f
+        val nameHasBackup = features[offset + 14] > 0f
         
-        val ageScore = features[6]
-        val sizeScore = features[5]
+        val ageScore = features[offset + 6]
+        val sizeScore = features[offset + 5]
         
         // Priority rules
         return when {
@@ -238,19 +300,43 @@ class JunkClassifier @Inject constructor(
     /**
      * Classify multiple files
      */
-    fun classifyBatch(files: List<File>): List<Pair<File, Pair<JunkCategory, Float>>> {
-        return files.map { file ->
-            val features = extractFeatures(file)
-            val result = classify(features)
-            file to result
+    fun classifyBatch(
+        files: List<File>,
+        extractor: FeatureExtractor = FeatureExtractor()
+    ): List<Pair<File, Pair<JunkCategory, Float>>> {
+        return files.zip(classifyRecords(files.map(FileRecord::of), extractor))
+    }
+    
+    /**
+     * Classify crawler records, [batchSize] records per inference call
+     */
+    fun classifyRecords(
+        records: List<FileRecord>,
+        extractor: FeatureExtractor = FeatureExtractor()
+    ): List<Pair<JunkCategory, Float>> {
+        val results = ArrayList<Pair<JunkCategory, Float>>(records.size)
+        var matrix = FloatArray(0)
+        var start = 0
+        while (start < records.size) {
+            val rows = minOf(batchSize, records.size - start)
+            if (matrix.size < rows * inputSize) matrix = FloatArray(rows * inputSize)
+            for (row in 0 until rows) {
+                extractor.extract(records[start + row], matrix, row * inputSize)
+            }
+            results.addAll(classifyMatrix(matrix, rows))
+            start += rows
         }
+        return results
     }
     
     /**
      * Release resources
      */
     fun release() {
-        interpreter?.close()
-        interpreter = null
+        lock.write {
+            pool?.close()
+            pool = null
+            loadedVariant = ModelVariant.RULES
+        }
     }
 }
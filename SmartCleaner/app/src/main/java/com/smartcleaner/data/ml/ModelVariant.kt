@@ -0,0 +1,17 @@
+package com.smartcleaner.data.ml
+
+/**
+ * Ways [JunkClassifier] can classify
+ *
+ * Model variants are TFLite files in assets, trained together so they
+ * predict the same categories from the same features; the int8 one trades
+ * a little accuracy for size and speed. [version] keys cached results, so
+ * bump it with every model or rule change.
+ *
+ * @param assetName Model file in assets, or null for the built-in rules
+ */
+enum class ModelVariant(val assetName: String?, val version: String) {
+    RULES(null, "rules-1"),
+    FLOAT("junk_classifier.tflite", "1.0.0"),
+    INT8("junk_classifier_int8.tflite", "1.0.0-int8")
+}
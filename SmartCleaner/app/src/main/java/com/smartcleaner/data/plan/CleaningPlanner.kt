@@ -0,0 +1,123 @@
+package com.smartcleaner.data.plan
+
+import com.smartcleaner.domain.model.CleaningPlan
+import com.smartcleaner.domain.model.PlanItem
+import com.smartcleaner.domain.model.SafetyPolicy
+import java.util.TreeMap
+
+/**
+ * Greedy "free N bytes" selection over items that were already scanned
+ *
+ * Risk is counted per item: deleting something wanted is one mistake
+ * whatever its size, so the plan's risk is the sum over its items, and
+ * fewer, bigger deletions are preferred at equal risk.
+ *
+ * Candidates riskier than the policy allows are dropped, and a path
+ * offered by several scans keeps its lowest risk. The rest are taken in
+ * order of bytes per unit of risk. An item that would reach the target is
+ * remembered as a way to finish instead of being taken, and smaller items
+ * keep filling while that is still cheaper than the best finish so far.
+ * A last pass drops the riskiest picks the target doesn't need.
+ *
+ * A directory covers everything below it: items inside a picked directory
+ * are skipped, and picking a directory replaces the picks inside it, so no
+ * byte is counted twice. Whether a directory finishes the plan is judged
+ * by what it adds over those picks.
+ */
+object CleaningPlanner {
+
+    // Keeps bytes per risk finite for items with no risk at all
+    private const val MIN_RISK = 0.01f
+
+    private class Selection {
+        val picked = TreeMap<String, PlanItem>()
+        val directories = HashSet<String>()
+        var bytes = 0L
+        var risk = 0.0
+
+        fun covers(path: String): Boolean {
+            if (directories.isEmpty()) return false
+            var end = path.lastIndexOf('/')
+            while (end > 0) {
+                if (path.substring(0, end) in directories) return true
+                end = path.lastIndexOf('/', end - 1)
+            }
+            return false
+        }
+
+        /**
+         * Picks that [item] would replace
+         */
+        fun inside(item: PlanItem): MutableMap<String, PlanItem> =
+            if (item.isDirectory) picked.subMap(item.path + "/", item.path + "/\uFFFF") else mutableMapOf()
+
+        fun add(item: PlanItem) {
+            if (covers(item.path)) return
+            if (item.isDirectory) {
+                val inside = inside(item)
+                inside.values.forEach { remove(it) }
+                inside.clear()
+                directories.add(item.path)
+            }
+            picked[item.path] = item
+            bytes += item.size
+            risk += item.risk
+        }
+
+        fun remove(item: PlanItem) {
+            bytes -= item.size
+            risk -= item.risk
+            directories.remove(item.path)
+        }
+    }
+
+    fun plan(candidates: List<PlanItem>, targetBytes: Long, policy: SafetyPolicy): CleaningPlan {
+        val start = System.nanoTime()
+        val ranked = candidates
+            .filter { it.path.isNotEmpty() && it.size > 0 && it.risk <= policy.maxRisk }
+            .groupBy { it.path }
+            .map { (_, offers) -> offers.minByOrNull { it.risk }!! }
+            .sortedByDescending { it.size / maxOf(it.risk, MIN_RISK) }
+
+        if (targetBytes <= 0) return CleaningPlan(targetBytes, policy, emptyList(), 0L)
+
+        val fill = Selection()
+        var finish: List<PlanItem>? = null
+        var finishRisk = Double.MAX_VALUE
+        for (item in ranked) {
+            // Filling on can only add risk
+            if (fill.risk >= finishRisk) break
+            if (fill.covers(item.path)) continue
+            val replaced = fill.inside(item).values
+            val bytes = fill.bytes + item.size - replaced.sumOf { it.size }
+            val risk = fill.risk + item.risk - replaced.sumOf { it.risk.toDouble() }
+            if (bytes >= targetBytes) {
+                if (risk < finishRisk) {
+                    finish = fill.picked.values + item
+                    finishRisk = risk
+                }
+                continue
+            }
+            fill.add(item)
+        }
+
+        // Items that fit are taken, so filling alone stays short of the target
+        val selection = finish?.let { items -> Selection().apply { items.forEach { add(it) } } } ?: fill
+
+        // Finishing with a big item can make earlier, riskier picks unneeded
+        selection.picked.values.sortedByDescending { it.risk }.forEach { item ->
+            if (selection.bytes - item.size >= targetBytes) {
+                selection.picked.remove(item.path)
+                selection.remove(item)
+            }
+        }
+
+        return CleaningPlan(
+            targetBytes = targetBytes,
+            policy = policy,
+            items = selection.picked.values.sortedWith(compareBy<PlanItem> { it.risk }.thenByDescending { it.size }),
+            plannedBytes = selection.bytes,
+            planningTimeMs = (System.nanoTime() - start) / 1_000_000
+        )
+    }
+}
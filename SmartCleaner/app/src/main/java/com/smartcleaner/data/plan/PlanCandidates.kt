@@ -0,0 +1,151 @@
+package com.smartcleaner.data.plan
+
+import com.smartcleaner.domain.model.ApkState
+import com.smartcleaner.domain.model.DuplicateFile
+import com.smartcleaner.domain.model.DuplicateScanResult
+import com.smartcleaner.domain.model.DuplicateType
+import com.smartcleaner.domain.model.JunkScanResult
+import com.smartcleaner.domain.model.JunkType
+import com.smartcleaner.domain.model.LeftoverScanResult
+import com.smartcleaner.domain.model.LeftoverType
+import com.smartcleaner.domain.model.MessagingMediaType
+import com.smartcleaner.domain.model.MessagingScanResult
+import com.smartcleaner.domain.model.PlanItem
+import com.smartcleaner.domain.model.PlanSource
+import com.smartcleaner.domain.usecase.duplicate.AutoSelectDuplicatesUseCase
+
+/**
+ * Turns scan results into [PlanItem]s with a risk per item
+ *
+ * Risks are relative: what the system or app regenerates is near 0,
+ * copies of something kept elsewhere are low, and media a user may
+ * remember receiving is high.
+ */
+object PlanCandidates {
+
+    fun fromJunk(result: JunkScanResult): List<PlanItem> = result.groups.flatMap { group ->
+        group.files.mapNotNull { file ->
+            // App cache totals have no path; the system clears them
+            if (file.path.isEmpty()) return@mapNotNull null
+            val risk = when (file.type) {
+                JunkType.APP_CACHE, JunkType.THUMBNAIL_CACHE, JunkType.TEMP_FILES -> 0.05f
+                JunkType.LOG_FILES -> 0.1f
+                JunkType.APK_FILES -> when (file.apkState) {
+                    ApkState.INSTALLED, ApkState.OLDER_VERSION -> 0.1f
+                    ApkState.NOT_INSTALLED -> 0.5f
+                    ApkState.NEWER_VERSION, null -> 0.6f
+                }
+                JunkType.BACKUP_FILES -> 0.4f
+                JunkType.LARGE_FILES -> 0.85f
+            }
+            PlanItem(
+                path = file.path,
+                size = file.size,
+                risk = if (file.isSafe) risk else maxOf(risk, 0.8f),
+                source = PlanSource.JUNK
+            )
+        }
+    }
+
+    /**
+     * Every copy but the one [AutoSelectDuplicatesUseCase] keeps per group
+     */
+    fun fromDuplicates(result: DuplicateScanResult): List<PlanItem> {
+        val selection = AutoSelectDuplicatesUseCase()(result.groups)
+        val groupOf = HashMap<String, Pair<DuplicateType, DuplicateFile>>()
+        result.groups.forEach { group -> group.files.forEach { groupOf[it.filePath] = group.duplicateType to it } }
+
+        return selection.deletePaths.mapNotNull { path ->
+            val (type, file) = groupOf[path] ?: return@mapNotNull null
+            // Another hard link keeps the data on disk
+            if (file.linkCount > 1) return@mapNotNull null
+            val risk = when (type) {
+                DuplicateType.EXACT_MATCH -> 0.15f
+                DuplicateType.IDENTICAL_FOLDER -> 0.2f
+                DuplicateType.BURST_PHOTO -> 0.45f
+                DuplicateType.SIMILAR_IMAGE -> 0.6f
+                DuplicateType.SIMILAR_NAME, DuplicateType.SIMILAR_CONTENT -> 0.75f
+            }
+            PlanItem(
+                path = path,
+                size = file.size,
+                risk = risk,
+                source = PlanSource.DUPLICATE,
+                isDirectory = file.isDirectory
+            )
+        }
+    }
+
+    /**
+     * Copies that other items were judged duplicates of; deleting one would
+     * leave no copy at all, whichever scan offers it
+     */
+    fun keptPaths(duplicates: DuplicateScanResult, messaging: MessagingScanResult): Set<String> {
+        val kept = HashSet(AutoSelectDuplicatesUseCase()(duplicates.groups).keptPaths.values)
+        messaging.appResults.values.forEach { app ->
+            app.groups.forEach { group -> group.files.forEach { media -> media.duplicateOf?.let { kept.add(it) } } }
+        }
+        return kept
+    }
+
+    /**
+     * [candidates] minus the [kept] paths and any directory holding one
+     */
+    fun withoutKept(candidates: List<PlanItem>, kept: Set<String>): List<PlanItem> {
+        if (kept.isEmpty()) return candidates
+        val keptAncestors = HashSet<String>()
+        kept.forEach { path -> keptAncestors.addAll(ancestorsOf(path)) }
+        return candidates.filter { item ->
+            item.path !in kept && !(item.isDirectory && item.path in keptAncestors)
+        }
+    }
+
+    private fun ancestorsOf(path: String): Sequence<String> =
+        generateSequence(path.substringBeforeLast('/', "")) { it.substringBeforeLast('/', "") }
+            .takeWhile { it.isNotEmpty() }
+
+    fun fromLeftovers(result: LeftoverScanResult): List<PlanItem> = result.groups.flatMap { group ->
+        group.files.map { file ->
+            val risk = when (file.type) {
+                LeftoverType.DATA, LeftoverType.MEDIA, LeftoverType.OBB -> 0.3f
+                LeftoverType.OTHER -> 0.5f
+                LeftoverType.DOWNLOAD -> 0.55f
+                LeftoverType.PICTURES, LeftoverType.DCIM, LeftoverType.DOCUMENTS -> 0.7f
+            }
+            PlanItem(
+                path = file.path,
+                size = file.size,
+                risk = risk,
+                source = PlanSource.LEFTOVER,
+                isDirectory = file.isDirectory
+            )
+        }
+    }
+
+    fun fromMessaging(result: MessagingScanResult): List<PlanItem> = result.appResults.values.flatMap { app ->
+        app.groups.flatMap { group ->
+            group.files.map { media ->
+                val risk = when {
+                    // Another chat, app or the camera roll has the same bytes
+                    media.duplicateOf != null -> 0.15f
+                    else -> when (media.mediaType) {
+                        MessagingMediaType.THUMBNAIL -> 0.1f
+                        MessagingMediaType.STATUS -> 0.3f
+                        MessagingMediaType.STICKER -> 0.4f
+                        MessagingMediaType.GIF, MessagingMediaType.PROFILE_PICTURE -> 0.5f
+                        MessagingMediaType.UNKNOWN -> 0.7f
+                        MessagingMediaType.IMAGE, MessagingMediaType.VIDEO,
+                        MessagingMediaType.AUDIO, MessagingMediaType.DOCUMENT -> 0.85f
+                        MessagingMediaType.VOICE_MESSAGE -> 0.9f
+                    }
+                }
+                PlanItem(
+                    path = media.filePath,
+                    size = media.size,
+                    risk = risk,
+                    source = PlanSource.MESSAGING
+                )
+            }
+        }
+    }
+}
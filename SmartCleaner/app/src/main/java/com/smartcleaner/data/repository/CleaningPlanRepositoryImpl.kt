@@ -0,0 +1,71 @@
+package com.smartcleaner.data.repository
+
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.plan.CleaningPlanner
+import com.smartcleaner.data.plan.PlanCandidates
+import com.smartcleaner.domain.model.CleaningPlan
+import com.smartcleaner.domain.model.CleaningPlanResult
+import com.smartcleaner.domain.model.SafetyPolicy
+import com.smartcleaner.domain.repository.CleaningPlanRepository
+import com.smartcleaner.domain.repository.DuplicateFinderRepository
+import com.smartcleaner.domain.repository.JunkRepository
+import com.smartcleaner.domain.repository.LeftoverRepository
+import com.smartcleaner.domain.repository.MessagingCleanerRepository
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import javax.inject.Inject
+import javax.inject.Singleton
+
+@Singleton
+class CleaningPlanRepositoryImpl @Inject constructor(
+    private val junkRepository: JunkRepository,
+    private val duplicateFinderRepository: DuplicateFinderRepository,
+    private val leftoverRepository: LeftoverRepository,
+    private val messagingCleanerRepository: MessagingCleanerRepository,
+    private val batchDeleter: BatchDeleter
+) : CleaningPlanRepository {
+
+    // Deleted by an executed plan but still in the other repositories' results
+    private val deletedPaths = HashSet<String>()
+
+    override suspend fun createPlan(targetBytes: Long, policy: SafetyPolicy): CleaningPlan {
+        return withContext(Dispatchers.Default) {
+            val duplicates = duplicateFinderRepository.getScanResults()
+            val messaging = messagingCleanerRepository.getScanResults()
+            val candidates = PlanCandidates.fromJunk(junkRepository.getScanResults()) +
+                PlanCandidates.fromDuplicates(duplicates) +
+                PlanCandidates.fromLeftovers(leftoverRepository.getScanResults()) +
+                PlanCandidates.fromMessaging(messaging)
+            val kept = PlanCandidates.keptPaths(duplicates, messaging)
+            val deleted = synchronized(deletedPaths) { deletedPaths.toSet() }
+            CleaningPlanner.plan(
+                PlanCandidates.withoutKept(candidates, kept).filter { it.path !in deleted },
+                targetBytes,
+                policy
+            )
+        }
+    }
+
+    override suspend fun executePlan(plan: CleaningPlan): Result<CleaningPlanResult> {
+        return withContext(Dispatchers.IO) {
+            try {
+                // One batch for the whole plan; directories go with their contents
+                val summary = batchDeleter.deleteAll(
+                    plan.items.map { it.path },
+                    recursive = plan.items.any { it.isDirectory },
+                    permanent = true
+                )
+                synchronized(deletedPaths) { deletedPaths.addAll(summary.deletedPaths) }
+                Result.success(
+                    CleaningPlanResult(
+                        deletedCount = summary.deletedCount,
+                        failedCount = summary.failedCount,
+                        freedBytes = summary.freedBytes
+                    )
+                )
+            } catch (e: Exception) {
+                Result.failure(e)
+            }
+        }
+    }
+}
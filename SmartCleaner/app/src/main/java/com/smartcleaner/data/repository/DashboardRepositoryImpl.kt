@@ -3,26 +3,40 @@ package com.smartcleaner.data.repository
 import android.content.Context
 import android.os.Environment
 import android.os.StatFs
+import android.text.format.Formatter
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.DashboardRepository
+import com.smartcleaner.domain.repository.JunkRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.withContext
 import javax.inject.Inject
 import javax.inject.Singleton
 
 @Singleton
 class DashboardRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val junkRepository: JunkRepository
 ) : DashboardRepository {
 
+    companion object {
+        // New junk worth pointing out between two scans
+        private const val JUNK_GROWTH_THRESHOLD = 100L * 1024 * 1024
+    }
+
     private val activities = mutableListOf<CleaningActivity>()
 
     override suspend fun getDashboardData(): DashboardData {
         return withContext(Dispatchers.IO) {
             val storageInfo = getStorageInfo()
             val quickStats = getQuickStats()
-            val recommendations = generateRecommendations(storageInfo, quickStats)
+            val junkGrowth = try {
+                junkRepository.getJunkGrowth().first()
+            } catch (e: Exception) {
+                null
+            }
+            val recommendations = generateRecommendations(storageInfo, quickStats, junkGrowth)
             val recentActivity = activities.takeLast(5).reversed()
             
             DashboardData(
@@ -83,7 +97,8 @@ class DashboardRepositoryImpl @Inject constructor(
 
     private fun generateRecommendations(
         storageInfo: StorageInfo,
-        stats: QuickStats
+        stats: QuickStats,
+        junkGrowth: JunkGrowth?
     ): List<Recommendation> {
         val recommendations = mutableListOf<Recommendation>()
         
@@ -100,6 +115,26 @@ class DashboardRepositoryImpl @Inject constructor(
             )
         }
         
+        junkGrowth?.latest?.takeIf { it.total.newBytes >= JUNK_GROWTH_THRESHOLD }?.let { report ->
+            val newBytes = Formatter.formatShortFileSize(context, report.total.newBytes)
+            val perDay = Formatter.formatShortFileSize(context, junkGrowth?.bytesPerDay ?: 0L)
+            val topApp = report.byPackage.maxByOrNull { it.value.newBytes }?.key
+            recommendations.add(
+                Recommendation(
+                    id = "junk_growth",
+                    type = RecommendationType.CLEAN_JUNK,
+                    title = "$newBytes of new junk since last clean",
+                    description = if (topApp != null) {
+                        "Growing $perDay a day, mostly from $topApp"
+                    } else {
+                        "Growing $perDay a day"
+                    },
+                    potentialSaving = report.total.newBytes,
+                    priority = Priority.MEDIUM
+                )
+            )
+        }
+        
         if (stats.unusedAppsCount > 5) {
             recommendations.add(
                 Recommendation(
@@ -1,25 +1,62 @@
 package com.smartcleaner.data.repository
 
 import android.content.Context
+import com.smartcleaner.data.dedup.BurstDetector
+import com.smartcleaner.data.dedup.DirectoryMerkleIndex
+import com.smartcleaner.data.dedup.DocumentSimilarityIndex
+import com.smartcleaner.data.dedup.DocumentTextExtractor
+import com.smartcleaner.data.dedup.FileNameIndex
+import com.smartcleaner.data.dedup.HardLinkDeduplicator
+import com.smartcleaner.data.dedup.ImageNeighborIndex
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.media.MediaListing
+import com.smartcleaner.data.media.MediaStoreSource
+import com.smartcleaner.data.trash.TrashBin
+import com.smartcleaner.data.util.FileIdentity
 import com.smartcleaner.data.util.HashUtil
+import com.smartcleaner.data.util.ImageAnalysis
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.DuplicateFinderRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ensureActive
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import java.io.File
 import javax.inject.Inject
 import javax.inject.Singleton
+import kotlin.coroutines.CoroutineContext
 
 @Singleton
 class DuplicateFinderRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val hardLinkDeduplicator: HardLinkDeduplicator,
+    private val batchDeleter: BatchDeleter,
+    private val mediaStoreSource: MediaStoreSource
 ) : DuplicateFinderRepository {
 
+    // Scans, deletes, links and reclusters all rewrite the groups; they
+    // take turns through stateMutex (see withState)
+    private val stateMutex = Mutex()
+    @Volatile
     private var cachedResult: DuplicateScanResult? = null
     private val groupsMap = mutableMapOf<String, DuplicateGroup>()
+    
+    // Kept after a scan so the similarity threshold can change without rescanning
+    private class ImageClusterState(
+        val imageHashMap: Map<String, List<DuplicateFile>>,
+        val neighborIndex: ImageNeighborIndex,
+        val burstPaths: Set<String>
+    )
+    private var imageClusterState: ImageClusterState? = null
+    private val removedPaths = HashSet<String>()
+    
+    // Directory path -> IDENTICAL_FOLDER group that reports it
+    private val folderGroupByDir = HashMap<String, String>()
 
     companion object {
         private val IMAGE_EXTENSIONS = setOf("jpg", "jpeg", "png", "gif", "webp", "bmp")
@@ -32,17 +69,37 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
         directories: List<File>,
         options: DuplicateScanOptions
     ): Flow<Int> = flow {
-        withContext(Dispatchers.IO) {
+        withState(Dispatchers.IO) {
             val startTime = System.currentTimeMillis()
             groupsMap.clear()
+            imageClusterState = null
+            removedPaths.clear()
+            folderGroupByDir.clear()
             
             emit(5)
             
             // Step 1: Collect all files (5-20%)
             val allFiles = mutableListOf<File>()
+            val nameIndex = if (options.detectSimilarNames) {
+                FileNameIndex(options.nameSimilarityThreshold, options.nameSizeTolerance)
+            } else {
+                null
+            }
+            val directoryIndex = if (options.detectIdenticalFolders) DirectoryMerkleIndex() else null
             directories.forEach { dir ->
                 if (dir.exists() && dir.isDirectory) {
-                    collectFiles(dir, options, allFiles)
+                    // Folder digests need every file on disk, including ones
+                    // MediaStore hasn't indexed yet, so they always walk
+                    val listing = if (directoryIndex == null) {
+                        mediaStoreSource.list(dir, options.minFileSize, options.maxFileSize)
+                    } else {
+                        null
+                    }
+                    if (listing != null) {
+                        collectListedFiles(dir, listing, options, allFiles, nameIndex)
+                    } else {
+                        collectFiles(dir, options, allFiles, nameIndex, directoryIndex?.addRoot(dir))
+                    }
                 }
             }
             
@@ -57,39 +114,122 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
                     filesScanned = 0
                 )
                 emit(100)
-                return@withContext
+                return@withState
             }
             
             // Step 2: Calculate hashes (20-70%)
             val hashMap = mutableMapOf<String, MutableList<DuplicateFile>>()
             val imageHashMap = mutableMapOf<String, MutableList<DuplicateFile>>()
             
+            // Near-duplicate documents, indexed once per content hash
+            val documentIndex = if (options.detectSimilarContent && options.scanDocuments) {
+                DocumentSimilarityIndex(options.contentSimilarityThreshold)
+            } else {
+                null
+            }
+            
+            // Camera bursts, prefiltered by EXIF capture time
+            val burstDetector = if (options.detectBursts && options.scanImages) {
+                BurstDetector(options.burstWindowMs, options.burstSimilarityThreshold)
+            } else {
+                null
+            }
+            
+            // EXIF headers first: only shots in a capture window need their
+            // pHash, sharpness and exposure for burst detection
+            val captures = HashMap<String, BurstDetector.CaptureInfo>()
+            if (burstDetector != null) {
+                allFiles.forEach { file ->
+                    if (file.extension.lowercase() in IMAGE_EXTENSIONS) {
+                        BurstDetector.readCaptureInfo(file)?.let { captures[file.absolutePath] = it }
+                    }
+                }
+            }
+            val burstCandidates = burstDetector?.candidatePaths(captures).orEmpty()
+            
+            // Hard links share an inode: hash each inode once
+            val hashByInode = mutableMapOf<String, String>()
+            val analysisByInode = mutableMapOf<String, ImageAnalysis?>()
+            
             allFiles.forEachIndexed { index, file ->
                 try {
                     val extension = file.extension.lowercase()
+                    val identity = FileIdentity.of(file)
+                    val inodeKey = identity?.key
                     
                     // Calculate file hash for exact matches
-                    val hash = HashUtil.calculateMD5(file)
+                    val hash = inodeKey?.let { hashByInode[it] }
+                        ?: HashUtil.calculateMD5(file).also { md5 ->
+                            if (inodeKey != null) hashByInode[inodeKey] = md5
+                        }
                     
+                    // One downsampled decode yields pHash and dimensions, and
+                    // sharpness and exposure for burst candidates
+                    val isImage = extension in IMAGE_EXTENSIONS
+                    val burstCandidate = file.absolutePath in burstCandidates
+                    val analysis = if (isImage && (options.usePerceptualHash || burstCandidate)) {
+                        val cached = inodeKey?.let { analysisByInode[it] }
+                        if (cached != null && (!burstCandidate || cached.sharpness != null)) {
+                            cached
+                        } else {
+                            HashUtil.analyzeImage(file, measureQuality = burstCandidate).also { result ->
+                                if (inodeKey != null) analysisByInode[inodeKey] = result
+                            }
+                        }
+                    } else {
+                        null
+                    }
+                    
+                    // Dimensions are used by the keep-policy engine (largest resolution)
+                    val dimensions = when {
+                        analysis != null -> analysis.width to analysis.height
+                        isImage -> HashUtil.readImageSize(file)
+                        else -> null
+                    }
+                    
+                    val size = identity?.size ?: file.length()
                     val duplicateFile = DuplicateFile(
                         filePath = file.absolutePath,
                         fileName = file.name,
-                        size = file.length(),
+                        size = size,
                         hash = hash,
-                        lastModified = file.lastModified(),
-                        groupId = hash
+                        lastModified = identity?.lastModified ?: file.lastModified(),
+                        groupId = hash,
+                        width = dimensions?.first ?: 0,
+                        height = dimensions?.second ?: 0,
+                        inodeKey = inodeKey,
+                        linkCount = identity?.linkCount ?: 1,
+                        allocatedBytes = identity?.allocatedBytes ?: size
                     )
                     
-                    hashMap.getOrPut(hash) { mutableListOf() }.add(duplicateFile)
+                    val sameContent = hashMap.getOrPut(hash) { mutableListOf() }
+                    sameContent.add(duplicateFile)
                     
-                    // Calculate perceptual hash for images
-                    if (options.usePerceptualHash && extension in IMAGE_EXTENSIONS) {
-                        val pHash = HashUtil.calculatePerceptualHash(file)
-                        if (pHash != null) {
-                            imageHashMap.getOrPut(pHash) { mutableListOf() }.add(
-                                duplicateFile.copy(groupId = pHash)
+                    if (documentIndex != null && sameContent.size == 1 &&
+                        extension in DOCUMENT_EXTENSIONS && DocumentTextExtractor.isSupported(extension)
+                    ) {
+                        documentIndex.add(hash, file)
+                    }
+                    
+                    // Perceptual hash for similar images
+                    if (options.usePerceptualHash && analysis != null) {
+                        imageHashMap.getOrPut(analysis.pHash) { mutableListOf() }.add(
+                            duplicateFile.copy(groupId = analysis.pHash)
+                        )
+                    }
+                    
+                    if (burstDetector != null && burstCandidate && analysis != null) {
+                        val capture = captures.getValue(duplicateFile.filePath)
+                        burstDetector.add(
+                            BurstDetector.Shot(
+                                path = duplicateFile.filePath,
+                                captureTime = capture.captureTime,
+                                camera = capture.camera,
+                                pHash = analysis.pHash,
+                                sharpness = analysis.sharpness ?: 0.0,
+                                exposure = analysis.exposure ?: 0f
                             )
-                        }
+                        )
                     }
                 } catch (e: Exception) {
                     // Skip files with errors
@@ -106,16 +246,49 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
             // Step 3: Group duplicates (70-85%)
             val duplicateGroups = mutableListOf<DuplicateGroup>()
             
+            // Identical folders (Merkle digests over the file hashes)
+            if (directoryIndex != null) {
+                val hashByPath = HashMap<String, String>(allFiles.size)
+                hashMap.values.forEach { files -> files.forEach { hashByPath[it.filePath] = it.hash } }
+                
+                directoryIndex.findIdenticalDirectories { hashByPath[it.absolutePath] }.forEach { dirs ->
+                    val groupId = "folder_${dirs.first().digest}"
+                    val files = dirs.sortedBy { it.lastModified }.map { dir ->
+                        DuplicateFile(
+                            filePath = dir.path,
+                            fileName = File(dir.path).name,
+                            size = dir.totalBytes,
+                            hash = dir.digest,
+                            lastModified = dir.lastModified,
+                            groupId = groupId,
+                            isDirectory = true
+                        )
+                    }
+                    val group = DuplicateGroup(
+                        groupId = groupId,
+                        files = files,
+                        duplicateType = DuplicateType.IDENTICAL_FOLDER,
+                        totalSize = files.sumOf { it.size },
+                        wastedSpace = files.sumOf { it.size } - files.maxOf { it.size },
+                        similarity = 1.0f
+                    )
+                    duplicateGroups.add(group)
+                    groupsMap[groupId] = group
+                    dirs.forEach { folderGroupByDir[it.path] = groupId }
+                }
+            }
+            
             // Exact matches
             hashMap.forEach { (hash, files) ->
-                if (files.size > 1) {
+                // Paths that are all hard links to one inode are not duplicates on disk
+                if (files.size > 1 && countDistinctInodes(files) > 1) {
                     val totalSize = files.first().size
                     val group = DuplicateGroup(
                         groupId = hash,
                         files = files.sortedBy { it.lastModified },
                         duplicateType = DuplicateType.EXACT_MATCH,
                         totalSize = totalSize * files.size,
-                        wastedSpace = totalSize * (files.size - 1),
+                        wastedSpace = calculateReclaimableBytes(files),
                         similarity = 1.0f
                     )
                     duplicateGroups.add(group)
@@ -125,49 +298,98 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
             
             emit(80)
             
-            // Similar images (compare perceptual hashes)
+            val filesByPath = HashMap<String, DuplicateFile>(allFiles.size)
+            hashMap.values.forEach { files -> files.forEach { filesByPath[it.filePath] = it } }
+            
+            // Bursts (EXIF time window + pHash), best shot scored
+            val burstPaths = HashSet<String>()
+            burstDetector?.findBursts()?.forEach { burst ->
+                val files = burst.paths.mapNotNull { filesByPath[it] }
+                val alreadyExact = files.all { it.hash == files.first().hash }
+                if (files.size > 1 && !alreadyExact && countDistinctInodes(files) > 1) {
+                    val groupId = "burst_${Integer.toHexString(burst.paths.first().hashCode())}"
+                    val group = DuplicateGroup(
+                        groupId = groupId,
+                        files = files.map {
+                            it.copy(groupId = groupId, qualityScore = burst.scores[it.filePath] ?: 0f)
+                        },
+                        duplicateType = DuplicateType.BURST_PHOTO,
+                        totalSize = files.sumOf { it.size },
+                        wastedSpace = calculateReclaimableBytes(files),
+                        similarity = options.burstSimilarityThreshold,
+                        bestFilePath = burst.bestPath
+                    )
+                    duplicateGroups.add(group)
+                    groupsMap[groupId] = group
+                    burstPaths.addAll(burst.paths)
+                }
+            }
+            
+            // Similar images (compare perceptual hashes), burst frames already grouped
             if (options.usePerceptualHash) {
-                val processedGroups = mutableSetOf<String>()
-                val pHashList = imageHashMap.keys.toList()
-                
-                for (i in pHashList.indices) {
-                    val hash1 = pHashList[i]
-                    if (hash1 in processedGroups) continue
-                    
-                    val similarGroup = mutableListOf(hash1)
-                    
-                    for (j in (i + 1) until pHashList.size) {
-                        val hash2 = pHashList[j]
-                        if (hash2 in processedGroups) continue
-                        
-                        val similarity = HashUtil.calculateSimilarity(hash1, hash2)
-                        if (similarity >= options.imageSimilarityThreshold) {
-                            similarGroup.add(hash2)
-                            processedGroups.add(hash2)
-                        }
+                val state = ImageClusterState(
+                    imageHashMap = imageHashMap,
+                    neighborIndex = ImageNeighborIndex(imageHashMap.keys.toList()),
+                    burstPaths = burstPaths
+                )
+                imageClusterState = state
+                buildSimilarImageGroups(state, options.imageSimilarityThreshold).forEach { group ->
+                    duplicateGroups.add(group)
+                    groupsMap[group.groupId] = group
+                }
+            }
+            
+            // Similar names (copy markers, renamed downloads)
+            if (nameIndex != null) {
+                nameIndex.findClusters().forEach { paths ->
+                    val files = paths.mapNotNull { filesByPath[it] }
+                    // Skip clusters that are already a single exact-match group
+                    val alreadyExact = files.all { it.hash == files.first().hash }
+                    if (files.size > 1 && !alreadyExact && countDistinctInodes(files) > 1) {
+                        val sorted = files.sortedBy { it.lastModified }
+                        val groupId = "name_${Integer.toHexString(sorted.first().filePath.hashCode())}"
+                        val group = DuplicateGroup(
+                            groupId = groupId,
+                            files = sorted.map { it.copy(groupId = groupId) },
+                            duplicateType = DuplicateType.SIMILAR_NAME,
+                            totalSize = files.sumOf { it.size },
+                            wastedSpace = calculateReclaimableBytes(files),
+                            similarity = options.nameSimilarityThreshold
+                        )
+                        duplicateGroups.add(group)
+                        groupsMap[groupId] = group
                     }
-                    
-                    if (similarGroup.size > 1) {
-                        val allFiles = similarGroup.flatMap { imageHashMap[it] ?: emptyList() }
-                        if (allFiles.size > 1) {
-                            val groupId = "similar_$hash1"
-                            val totalSize = allFiles.sumOf { it.size }
-                            val avgSize = totalSize / allFiles.size
-                            
-                            val group = DuplicateGroup(
-                                groupId = groupId,
-                                files = allFiles.sortedBy { it.lastModified },
-                                duplicateType = DuplicateType.SIMILAR_IMAGE,
-                                totalSize = totalSize,
-                                wastedSpace = avgSize * (allFiles.size - 1),
-                                similarity = options.imageSimilarityThreshold
-                            )
-                            duplicateGroups.add(group)
-                            groupsMap[groupId] = group
-                        }
+                }
+            }
+            
+            // Similar documents (edited versions, re-exports)
+            if (documentIndex != null) {
+                documentIndex.findClusters().forEach { hashes ->
+                    val files = hashes.flatMap { hashMap[it] ?: emptyList() }
+                    if (countDistinctInodes(files) > 1) {
+                        val sorted = files.sortedBy { it.lastModified }
+                        val groupId = "content_${hashes.min()}"
+                        val group = DuplicateGroup(
+                            groupId = groupId,
+                            files = sorted.map { it.copy(groupId = groupId) },
+                            duplicateType = DuplicateType.SIMILAR_CONTENT,
+                            totalSize = files.sumOf { it.size },
+                            wastedSpace = calculateReclaimableBytes(files),
+                            similarity = options.contentSimilarityThreshold
+                        )
+                        duplicateGroups.add(group)
+                        groupsMap[groupId] = group
                     }
-                    
-                    processedGroups.add(hash1)
+                }
+            }
+            
+            // Files inside matched folders are already reported by the folder group
+            if (folderGroupByDir.isNotEmpty()) {
+                duplicateGroups.removeAll { group ->
+                    val covered = group.duplicateType != DuplicateType.IDENTICAL_FOLDER &&
+                        isInsideOneFolderGroup(group.files)
+                    if (covered) groupsMap.remove(group.groupId)
+                    covered
                 }
             }
             
@@ -201,28 +423,24 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
     }
 
     override suspend fun getDuplicateGroup(groupId: String): DuplicateGroup? {
-        return groupsMap[groupId]
+        return stateMutex.withLock { groupsMap[groupId] }
     }
 
     override suspend fun deleteFiles(groupId: String, filePaths: List<String>): Result<Int> {
-        return withContext(Dispatchers.IO) {
+        return withState(Dispatchers.IO) {
             try {
                 val group = groupsMap[groupId] 
-                    ?: return@withContext Result.failure(Exception("Group not found"))
+                    ?: return@withState Result.failure(Exception("Group not found"))
                 
                 if (filePaths.size >= group.files.size) {
-                    return@withContext Result.failure(
+                    return@withState Result.failure(
                         IllegalStateException("Must keep at least one file")
                     )
                 }
                 
-                var deletedCount = 0
-                filePaths.forEach { path ->
-                    val file = File(path)
-                    if (file.exists() && file.delete()) {
-                        deletedCount++
-                    }
-                }
+                // IDENTICAL_FOLDER entries are whole trees
+                val summary = batchDeleter.deleteAll(filePaths, recursive = true)
+                removedPaths.addAll(summary.deletedPaths)
                 
                 // Update group
                 val remainingFiles = group.files.filterNot { it.filePath in filePaths }
@@ -232,13 +450,120 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
                     groupsMap.remove(groupId)
                 }
                 
-                Result.success(deletedCount)
+                Result.success(summary.deletedCount)
+            } catch (e: Exception) {
+                Result.failure(e)
+            }
+        }
+    }
+
+    override suspend fun deleteFiles(filePaths: List<String>): Result<Int> {
+        return withState(Dispatchers.IO) {
+            try {
+                val paths = filePaths.toHashSet()
+                val affected = groupsMap.values.filter { group -> group.files.any { it.filePath in paths } }
+                if (affected.any { group -> group.files.all { it.filePath in paths } }) {
+                    return@withState Result.failure(
+                        IllegalStateException("Must keep at least one file")
+                    )
+                }
+                
+                val summary = batchDeleter.deleteAll(paths.toList(), recursive = true)
+                removedPaths.addAll(summary.deletedPaths)
+                
+                affected.forEach { group ->
+                    val remainingFiles = group.files.filterNot { it.filePath in paths }
+                    if (remainingFiles.size > 1) {
+                        groupsMap[group.groupId] = group.copy(files = remainingFiles)
+                    } else {
+                        groupsMap.remove(group.groupId)
+                    }
+                }
+                
+                Result.success(summary.deletedCount)
             } catch (e: Exception) {
                 Result.failure(e)
             }
         }
     }
 
+    override suspend fun linkDuplicates(groupId: String, keepPath: String): Result<LinkResult> {
+        return withState(Dispatchers.IO) {
+            try {
+                val group = groupsMap[groupId]
+                    ?: return@withState Result.failure(Exception("Group not found"))
+                
+                if (group.duplicateType != DuplicateType.EXACT_MATCH) {
+                    return@withState Result.failure(
+                        IllegalStateException("Only exact duplicates can be linked")
+                    )
+                }
+                if (group.files.none { it.filePath == keepPath }) {
+                    return@withState Result.failure(
+                        IllegalArgumentException("Kept file is not part of the group")
+                    )
+                }
+                
+                val targets = group.files.map { it.filePath }.filter { it != keepPath }
+                val result = hardLinkDeduplicator.link(keepPath, targets)
+                
+                // Linked paths now share the kept file's inode and no longer
+                // waste space; copies whose link failed are still duplicates
+                if (result.linkedPaths.isNotEmpty()) {
+                    val remainingFiles = group.files.filterNot { it.filePath in result.linkedPaths }
+                    if (remainingFiles.size > 1) {
+                        groupsMap[groupId] = group.copy(
+                            files = remainingFiles,
+                            totalSize = remainingFiles.sumOf { it.size },
+                            wastedSpace = (group.wastedSpace - result.freedBytes).coerceAtLeast(0L)
+                        )
+                    } else {
+                        groupsMap.remove(groupId)
+                    }
+                    cachedResult = cachedResult?.let { current ->
+                        val groups = current.groups.mapNotNull { groupsMap[it.groupId] }
+                        current.copy(
+                            groups = groups,
+                            totalDuplicates = groups.sumOf { it.files.size - 1 },
+                            totalWastedSpace = groups.sumOf { it.wastedSpace }
+                        )
+                    }
+                }
+                
+                Result.success(result)
+            } catch (e: Exception) {
+                Result.failure(e)
+            }
+        }
+    }
+
+    override suspend fun reclusterSimilarImages(similarityThreshold: Float): Result<DuplicateScanResult> {
+        return withState(Dispatchers.Default) {
+            val state = imageClusterState
+                ?: return@withState Result.failure(
+                    IllegalStateException("No perceptual hashes from a previous scan")
+                )
+            
+            val similarGroups = buildSimilarImageGroups(state, similarityThreshold)
+            // Superseded by a newer threshold: leave the groups to that one
+            ensureActive()
+            
+            groupsMap.values.removeAll { it.duplicateType == DuplicateType.SIMILAR_IMAGE }
+            similarGroups.forEach { group ->
+                groupsMap[group.groupId] = group
+            }
+            
+            val groups = groupsMap.values.sortedByDescending { it.wastedSpace }
+            val result = getScanResults().copy(
+                groups = groups,
+                totalDuplicates = groups.sumOf { it.files.size - 1 },
+                totalWastedSpace = groups.sumOf { it.wastedSpace }
+            )
+            cachedResult = result
+            Result.success(result)
+        }
+    }
+
     override suspend fun calculateFileHash(file: File): String {
         return withContext(Dispatchers.IO) {
             HashUtil.calculateMD5(file)
@@ -264,39 +589,175 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
     }
 
     override suspend fun clearResults() {
-        cachedResult = null
-        groupsMap.clear()
+        stateMutex.withLock {
+            cachedResult = null
+            groupsMap.clear()
+            imageClusterState = null
+            removedPaths.clear()
+        }
     }
 
     // Private helper methods
     
+    /**
+     * Run [block] on [context] holding the lock over the groups and results
+     */
+    private suspend fun <T> withState(context: CoroutineContext, block: suspend CoroutineScope.() -> T): T =
+        stateMutex.withLock { withContext(context, block) }
+    
+    private fun inodeKeyOf(file: DuplicateFile): String = file.inodeKey ?: file.filePath
+    
+    /**
+     * SIMILAR_IMAGE groups at [threshold], from the neighbour index only.
+     * Burst frames and files deleted since the scan are left out.
+     */
+    private fun buildSimilarImageGroups(state: ImageClusterState, threshold: Float): List<DuplicateGroup> {
+        return state.neighborIndex.cluster(threshold).mapNotNull { hashes ->
+            val files = hashes.flatMap { state.imageHashMap[it] ?: emptyList() }
+                .filter { it.filePath !in state.burstPaths && !isRemoved(it.filePath) }
+            if (files.size < 2 || countDistinctInodes(files) < 2) return@mapNotNull null
+            if (isInsideOneFolderGroup(files)) return@mapNotNull null
+            
+            DuplicateGroup(
+                groupId = "similar_${hashes.first()}",
+                files = files.sortedBy { it.lastModified },
+                duplicateType = DuplicateType.SIMILAR_IMAGE,
+                totalSize = files.sumOf { it.size },
+                wastedSpace = calculateReclaimableBytes(files),
+                similarity = threshold
+            )
+        }
+    }
+    
+    /**
+     * True if every file lies under directories of the same IDENTICAL_FOLDER group
+     */
+    private fun isInsideOneFolderGroup(files: List<DuplicateFile>): Boolean {
+        val first = enclosingFolderGroup(files.first().filePath) ?: return false
+        return files.all { enclosingFolderGroup(it.filePath) == first }
+    }
+    
+    private fun enclosingFolderGroup(path: String): String? {
+        var dir = path.substringBeforeLast('/', "")
+        while (dir.isNotEmpty()) {
+            folderGroupByDir[dir]?.let { return it }
+            dir = dir.substringBeforeLast('/', "")
+        }
+        return null
+    }
+    
+    /**
+     * Deleted since the scan, directly or with a deleted folder
+     */
+    private fun isRemoved(path: String): Boolean {
+        var current = path
+        while (current.isNotEmpty()) {
+            if (current in removedPaths) return true
+            current = current.substringBeforeLast('/', "")
+        }
+        return false
+    }
+    
+    private fun countDistinctInodes(files: List<DuplicateFile>): Int {
+        return files.mapTo(HashSet()) { inodeKeyOf(it) }.size
+    }
+    
+    /**
+     * Bytes guaranteed to be freed when all but one copy is deleted.
+     * An inode's blocks are only released once every link to it is gone, so
+     * inodes with links outside the group contribute nothing. The largest
+     * contribution is excluded since whichever copy is kept stays on disk.
+     */
+    private fun calculateReclaimableBytes(files: List<DuplicateFile>): Long {
+        val freedPerInode = files.groupBy { inodeKeyOf(it) }.values.map { links ->
+            val first = links.first()
+            if (first.linkCount <= links.size) first.allocatedBytes else 0L
+        }
+        if (freedPerInode.size < 2) return 0L
+        return freedPerInode.sum() - freedPerInode.max()
+    }
+    
     private fun collectFiles(
         directory: File,
         options: DuplicateScanOptions,
-        output: MutableList<File>
+        output: MutableList<File>,
+        nameIndex: FileNameIndex? = null,
+        node: DirectoryMerkleIndex.Node? = null
     ) {
         try {
-            val files = directory.listFiles() ?: return
+            val files = directory.listFiles()
+            if (files == null) {
+                node?.complete = false
+                return
+            }
             
             for (file in files) {
                 if (file.isDirectory) {
                     if (!shouldExcludePath(file.absolutePath, options)) {
-                        collectFiles(file, options, output)
+                        val child = node?.let { parent ->
+                            DirectoryMerkleIndex.Node(file).also { parent.children.add(it) }
+                        }
+                        collectFiles(file, options, output, nameIndex, child)
+                    } else {
+                        node?.complete = false
                     }
                 } else if (file.isFile) {
-                    if (shouldIncludeFile(file, options)) {
+                    // Every file counts towards the folder digest, scanned or not
+                    node?.files?.add(file)
+                    val size = file.length()
+                    if (shouldIncludeFile(file.absolutePath, size, options)) {
                         output.add(file)
+                        nameIndex?.add(file.absolutePath, file.name, size)
                     }
                 }
             }
         } catch (e: Exception) {
             // Skip directories with permission issues
+            node?.complete = false
+        }
+    }
+    
+    /**
+     * Same as [collectFiles] over a MediaStore listing; unindexed and hidden
+     * subdirectories are walked
+     */
+    private fun collectListedFiles(
+        root: File,
+        listing: MediaListing,
+        options: DuplicateScanOptions,
+        output: MutableList<File>,
+        nameIndex: FileNameIndex?
+    ) {
+        val rootPath = root.absolutePath.trimEnd('/')
+        val excluded = HashMap<String, Boolean>()
+        
+        // A directory is skipped when it or an ancestor below the root is excluded
+        fun isExcluded(path: String): Boolean {
+            if (path == rootPath) return false
+            excluded[path]?.let { return it }
+            val result = isExcluded(path.substringBeforeLast('/')) || shouldExcludePath(path, options)
+            excluded[path] = result
+            return result
+        }
+        
+        for (entry in listing.files) {
+            if (isExcluded(entry.path.substringBeforeLast('/'))) continue
+            if (shouldIncludeFile(entry.path, entry.size, options)) {
+                val file = File(entry.path)
+                output.add(file)
+                nameIndex?.add(entry.path, file.name, entry.size)
+            }
+        }
+        
+        listing.unindexed.forEach { directory ->
+            if (directory.isDirectory && !isExcluded(directory.absolutePath)) {
+                collectFiles(directory, options, output, nameIndex)
+            }
         }
     }
     
-    private fun shouldIncludeFile(file: File, options: DuplicateScanOptions): Boolean {
-        val extension = file.extension.lowercase()
-        val size = file.length()
+    private fun shouldIncludeFile(path: String, size: Long, options: DuplicateScanOptions): Boolean {
+        val extension = path.substringAfterLast('/').substringAfterLast('.', "").lowercase()
         
         // Size filter
         if (size < options.minFileSize || size > options.maxFileSize) {
@@ -315,7 +776,7 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
         if (!matchesType) return false
         
         // Path filter
-        if (shouldExcludePath(file.absolutePath, options)) {
+        if (shouldExcludePath(path, options)) {
             return false
         }
         
@@ -323,6 +784,11 @@ class DuplicateFinderRepositoryImpl @Inject constructor(
     }
     
     private fun shouldExcludePath(path: String, options: DuplicateScanOptions): Boolean {
+        // Trashed items are copies by nature
+        if (path.endsWith("/${TrashBin.DIRECTORY_NAME}") || path.contains("/${TrashBin.DIRECTORY_NAME}/")) {
+            return true
+        }
+        
         // Check exclude paths
         if (options.excludePaths.any { path.startsWith(it) }) {
             return true
@@ -1,15 +1,27 @@
 package com.smartcleaner.data.repository
 
 import android.content.Context
+import com.smartcleaner.data.ml.ClassificationCache
+import com.smartcleaner.data.ml.FeatureExtractor
+import com.smartcleaner.data.ml.FileRecord
 import com.smartcleaner.data.ml.JunkClassifier
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.JunkClassifierRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.joinAll
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import javax.inject.Inject
 import javax.inject.Singleton
 
@@ -19,9 +31,33 @@ class JunkClassifierRepositoryImpl @Inject constructor(
     private val classifier: JunkClassifier
 ) : JunkClassifierRepository {
 
+    companion object {
+        private const val CLASSIFICATION_CACHE_FILE = "classifications.cache"
+        private val CACHE_MAX_AGE_MS = TimeUnit.DAYS.toMillis(7)
+        private val CACHE_MAX_UNUSED_MS = TimeUnit.DAYS.toMillis(30)
+        
+        private const val EXTRACT_WORKERS = 4
+        // Batches waiting between stages
+        private const val PIPELINE_DEPTH = 4
+        
+        private val JUNK_CATEGORIES = setOf(
+            JunkCategory.TEMP_FILE,
+            JunkCategory.CACHE_FILE,
+            JunkCategory.LOG_FILE
+        )
+        private val SAFE_CATEGORIES = setOf(
+            JunkCategory.SAFE_DOCUMENT,
+            JunkCategory.SAFE_MEDIA,
+            JunkCategory.SAFE_APP_DATA
+        )
+    }
+
     private var modelInfo: ModelInfo? = null
     private var cachedResult: ClassificationResult? = null
     private var isInitialized = false
+    // Classifications of earlier runs, for the current model version
+    private var classificationCache: ClassificationCache? = null
+    private val classifyMutex = Mutex()
 
     override suspend fun initializeModel(): Result<ModelInfo> {
         return withContext(Dispatchers.IO) {
@@ -31,7 +67,7 @@ class JunkClassifierRepositoryImpl @Inject constructor(
                 if (initResult.isSuccess) {
                     isInitialized = true
                     modelInfo = ModelInfo(
-                        version = "1.0.0",
+                        version = classifier.modelVersion,
                         accuracyScore = 0.87f,
                         trainingDate = "2025-01-15",
                         supportedCategories = JunkCategory.values().toList()
@@ -61,13 +97,9 @@ class JunkClassifierRepositoryImpl @Inject constructor(
                 val features = classifier.extractFeatures(file)
                 val (category, confidence) = classifier.classify(features)
                 
-                val isJunk = category in listOf(
-                    JunkCategory.TEMP_FILE,
-                    JunkCategory.CACHE_FILE,
-                    JunkCategory.LOG_FILE
-                )
+                val isJunk = category in JUNK_CATEGORIES
                 
-                val recommendations = generateRecommendations(category, confidence, file)
+                val recommendations = generateRecommendations(category, confidence, file.length())
                 
                 JunkClassification(
                     filePath = file.absolutePath,
@@ -82,83 +114,155 @@ class JunkClassifierRepositoryImpl @Inject constructor(
         }
     }
 
-    override suspend fun classifyFiles(files: List<File>): Flow<Int> = flow {
-        withContext(Dispatchers.IO) {
+    /**
+     * Classify [files] in three stages joined by bounded channels:
+     *
+     * 1. IO workers stat each file once, answer unchanged files from the
+     *    cache and extract features of the rest into batch matrices.
+     * 2. One worker per interpreter runs batches on Dispatchers.Default.
+     * 3. This coroutine turns results into classifications, updates the
+     *    summary as they arrive and reports progress after every batch.
+     */
+    override suspend fun classifyFiles(files: List<File>): Flow<Int> = channelFlow {
+        classifyMutex.withLock {
             if (!isInitialized) {
                 initializeModel()
             }
             
-            emit(0)
+            send(0)
             
             val startTime = System.currentTimeMillis()
-            val classifications = mutableListOf<JunkClassification>()
+            val cacheFile = File(context.filesDir, CLASSIFICATION_CACHE_FILE)
+            val modelVersion = classifier.modelVersion
+            val cache = classificationCache?.takeIf { it.modelVersion == modelVersion }
+                ?: ClassificationCache.read(cacheFile, modelVersion, CACHE_MAX_AGE_MS, CACHE_MAX_UNUSED_MS)
+                    .also { classificationCache = it }
+            val now = System.currentTimeMillis()
             
-            files.forEachIndexed { index, file ->
-                try {
-                    val features = classifier.extractFeatures(file)
-                    val (category, confidence) = classifier.classify(features)
-                    
-                    val isJunk = category in listOf(
-                        JunkCategory.TEMP_FILE,
-                        JunkCategory.CACHE_FILE,
-                        JunkCategory.LOG_FILE
-                    )
-                    
-                    val recommendations = generateRecommendations(category, confidence, file)
-                    
-                    classifications.add(
-                        JunkClassification(
-                            filePath = file.absolutePath,
+            val classifications = arrayOfNulls<JunkClassification>(files.size)
+            val summary = SummaryBuilder()
+            // Written to the cache once the pipeline is done, so workers only read it
+            val fresh = ArrayList<Pair<FileRecord, Pair<JunkCategory, Float>>>()
+            val used = ArrayList<String>()
+            
+            coroutineScope {
+                val extracted = Channel<FeatureBatch>(PIPELINE_DEPTH)
+                val classified = Channel<ClassifiedBatch>(PIPELINE_DEPTH)
+                val cursor = AtomicInteger(0)
+                
+                val extractors = List(EXTRACT_WORKERS) {
+                    launch(Dispatchers.IO) {
+                        // Each worker keeps its own directory aggregates
+                        val extractor = FeatureExtractor(now)
+                        while (true) {
+                            val size = classifier.batchSize
+                            val start = cursor.getAndAdd(size)
+                            if (start >= files.size) break
+                            val end = minOf(start + size, files.size)
+                            
+                            val hits = ArrayList<Int>()
+                            val hitRecords = ArrayList<FileRecord>()
+                            val hitResults = ArrayList<Pair<JunkCategory, Float>>()
+                            val misses = ArrayList<Int>()
+                            val missRecords = ArrayList<FileRecord>()
+                            for (index in start until end) {
+                                val record = FileRecord.of(files[index])
+                                val hit = cache.get(record.path, record.size, record.lastModified, now)
+                                if (hit != null) {
+                                    hits.add(index)
+                                    hitRecords.add(record)
+                                    hitResults.add(hit)
+                                } else {
+                                    misses.add(index)
+                                    missRecords.add(record)
+                                }
+                            }
+                            if (hits.isNotEmpty()) {
+                                classified.send(ClassifiedBatch(hits, hitRecords, hitResults, fromCache = true))
+                            }
+                            if (misses.isNotEmpty()) {
+                                val matrix = FloatArray(misses.size * FeatureExtractor.FEATURE_COUNT)
+                                missRecords.forEachIndexed { row, record ->
+                                    extractor.extract(record, matrix, row * FeatureExtractor.FEATURE_COUNT)
+                                }
+                                extracted.send(FeatureBatch(misses, missRecords, matrix))
+                            }
+                        }
+                    }
+                }
+                launch {
+                    extractors.joinAll()
+                    extracted.close()
+                }
+                
+                val inference = List(classifier.parallelism) {
+                    launch(Dispatchers.Default) {
+                        for (batch in extracted) {
+                            val results = try {
+                                classifier.classifyMatrix(batch.features, batch.indices.size)
+                            } catch (e: Exception) {
+                                null // Skip failed classifications
+                            }
+                            classified.send(ClassifiedBatch(batch.indices, batch.records, results, fromCache = false))
+                        }
+                    }
+                }
+                launch {
+                    (extractors + inference).joinAll()
+                    classified.close()
+                }
+                
+                var done = 0
+                var lastProgress = 0
+                for (batch in classified) {
+                    batch.results?.forEachIndexed { row, result ->
+                        val index = batch.indices[row]
+                        val record = batch.records[row]
+                        val (category, confidence) = result
+                        
+                        val classification = JunkClassification(
+                            filePath = record.path,
                             predictedCategory = category,
                             confidence = confidence,
-                            isJunk = isJunk,
-                            recommendations = recommendations
+                            isJunk = category in JUNK_CATEGORIES,
+                            recommendations = generateRecommendations(category, confidence, record.size)
                         )
-                    )
-                } catch (e: Exception) {
-                    // Skip failed classifications
-                }
-                
-                val progress = ((index + 1) * 100 / files.size)
-                if (progress % 5 == 0 || index == files.size - 1) {
-                    emit(progress)
+                        classifications[index] = classification
+                        summary.add(classification, record.size)
+                        if (batch.fromCache) used.add(record.path) else fresh.add(record to result)
+                    }
+                    done += batch.indices.size
+                    
+                    val progress = done * 100 / files.size
+                    if (progress > lastProgress && done < files.size) {
+                        send(progress)
+                        lastProgress = progress
+                    }
                 }
             }
             
-            val processingTime = System.currentTimeMillis() - startTime
-            
-            // Calculate summary
-            val categoryBreakdown = classifications.groupingBy { it.predictedCategory }.eachCount()
-            val safeCount = classifications.count { 
-                it.predictedCategory in listOf(
-                    JunkCategory.SAFE_DOCUMENT,
-                    JunkCategory.SAFE_MEDIA,
-                    JunkCategory.SAFE_APP_DATA
-                )
+            used.forEach { cache.touch(it, now) }
+            fresh.forEach { (record, result) ->
+                cache.put(record.path, record.size, record.lastModified, result, now)
+            }
+            if (cache.changed) {
+                try {
+                    cache.write(cacheFile, now)
+                } catch (e: Exception) {
+                    // Kept in memory; the next run retries the write
+                }
             }
-            val junkCount = classifications.count { it.isJunk }
-            val reviewCount = classifications.size - safeCount - junkCount
-            
-            val totalJunkSize = files.zip(classifications)
-                .filter { (_, classification) -> classification.isJunk }
-                .sumOf { (file, _) -> file.length() }
             
             cachedResult = ClassificationResult(
                 totalFiles = files.size,
-                classifications = classifications,
-                summary = ClassificationSummary(
-                    safeFiles = safeCount,
-                    junkFiles = junkCount,
-                    reviewFiles = reviewCount,
-                    totalJunkSize = totalJunkSize,
-                    categoryBreakdown = categoryBreakdown
-                ),
-                processingTimeMs = processingTime
+                classifications = classifications.filterNotNull(),
+                summary = summary.build(),
+                processingTimeMs = System.currentTimeMillis() - startTime
             )
             
-            emit(100)
+            send(100)
         }
-    }
+    }.flowOn(Dispatchers.IO)
 
     override suspend fun getClassificationResults(): ClassificationResult {
         return cachedResult ?: ClassificationResult(
@@ -176,7 +280,8 @@ class JunkClassifierRepositoryImpl @Inject constructor(
     }
 
     override suspend fun getModelInfo(): ModelInfo? {
-        return modelInfo
+        // The model may have been swapped since initialization
+        return modelInfo?.copy(version = classifier.modelVersion)
     }
 
     override suspend fun extractFeatures(file: File): FloatArray {
@@ -194,10 +299,55 @@ class JunkClassifierRepositoryImpl @Inject constructor(
 
     // Private helper methods
     
+    private class FeatureBatch(
+        val indices: List<Int>,
+        val records: List<FileRecord>,
+        val features: FloatArray
+    )
+    
+    /**
+     * @param results Null when inference failed for the whole batch
+     */
+    private class ClassifiedBatch(
+        val indices: List<Int>,
+        val records: List<FileRecord>,
+        val results: List<Pair<JunkCategory, Float>>?,
+        val fromCache: Boolean
+    )
+    
+    private class SummaryBuilder {
+        private var safeFiles = 0
+        private var junkFiles = 0
+        private var total = 0
+        private var totalJunkSize = 0L
+        private val categoryBreakdown = HashMap<JunkCategory, Int>()
+        
+        fun add(classification: JunkClassification, size: Long) {
+            total++
+            categoryBreakdown[classification.predictedCategory] =
+                (categoryBreakdown[classification.predictedCategory] ?: 0) + 1
+            when {
+                classification.isJunk -> {
+                    junkFiles++
+                    totalJunkSize += size
+                }
+                classification.predictedCategory in SAFE_CATEGORIES -> safeFiles++
+            }
+        }
+        
+        fun build() = ClassificationSummary(
+            safeFiles = safeFiles,
+            junkFiles = junkFiles,
+            reviewFiles = total - safeFiles - junkFiles,
+            totalJunkSize = totalJunkSize,
+            categoryBreakdown = categoryBreakdown.toMap()
+        )
+    }
+    
     private fun generateRecommendations(
         category: JunkCategory,
         confidence: Float,
-        file: File
+        size: Long
     ): List<String> {
         val recommendations = mutableListOf<String>()
         
@@ -210,7 +360,7 @@ class JunkClassifierRepositoryImpl @Inject constructor(
             }
             JunkCategory.SAFE_MEDIA -> {
                 recommendations.add("Keep this media file")
-                if (file.length() > 50 * 1024 * 1024) {
+                if (size > 50 * 1024 * 1024) {
                     recommendations.add("Large file - consider compressing or moving to external storage")
                 }
             }
@@ -220,7 +370,7 @@ class JunkClassifierRepositoryImpl @Inject constructor(
             }
             JunkCategory.TEMP_FILE -> {
                 recommendations.add("Safe to delete - temporary file")
-                recommendations.add("Can free up ${formatSize(file.length())}")
+                recommendations.add("Can free up ${formatSize(size)}")
             }
             JunkCategory.CACHE_FILE -> {
                 recommendations.add("Safe to delete - cache data")
@@ -1,35 +1,68 @@
 package com.smartcleaner.data.repository
 
-import android.app.usage.StorageStatsManager
 import android.content.Context
-import android.content.pm.ApplicationInfo
-import android.content.pm.PackageManager
 import android.os.Build
 import android.os.Environment
-import android.os.storage.StorageManager
 import androidx.annotation.RequiresApi
+import com.smartcleaner.data.apk.ApkInspector
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.junk.AppCacheSignatureDb
+import com.smartcleaner.data.junk.DirectoryIndex
+import com.smartcleaner.data.junk.JunkRuleMatcher
+import com.smartcleaner.data.junk.JunkRuleSet
+import com.smartcleaner.data.junk.JunkScanner
+import com.smartcleaner.data.junk.JunkSnapshot
+import com.smartcleaner.data.media.MediaStoreSource
+import com.smartcleaner.data.stats.PackageStatsCache
+import com.smartcleaner.data.trash.TrashBin
 import com.smartcleaner.domain.model.AppCacheInfo
 import com.smartcleaner.domain.model.JunkFile
 import com.smartcleaner.domain.model.JunkGroup
+import com.smartcleaner.domain.model.JunkGrowth
+import com.smartcleaner.domain.model.JunkGrowthSample
 import com.smartcleaner.domain.model.JunkScanResult
 import com.smartcleaner.domain.model.JunkType
 import com.smartcleaner.domain.repository.JunkRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.filterNotNull
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.onStart
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import java.io.File
+import java.util.concurrent.TimeUnit
 import javax.inject.Inject
 import javax.inject.Singleton
 
 @Singleton
 class JunkRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val packageStatsCache: PackageStatsCache,
+    private val batchDeleter: BatchDeleter,
+    private val apkInspector: ApkInspector,
+    private val mediaStoreSource: MediaStoreSource
 ) : JunkRepository {
 
+    companion object {
+        private const val JUNK_INDEX_FILE = "junk_scan.index"
+        // A full walk at least daily catches in-place writes the index can't see
+        private val INDEX_MAX_AGE_MS = TimeUnit.DAYS.toMillis(1)
+        // Junk as of the last scan or clean, and the scan before it
+        private const val SNAPSHOT_FILE = "junk_snapshot.bin"
+        private const val PREVIOUS_SNAPSHOT_FILE = "junk_snapshot.prev.bin"
+    }
+
     private var cachedScanResult: JunkScanResult? = null
 
+    private val snapshotMutex = Mutex()
+    private var snapshot: JunkSnapshot? = null
+    private var previousSnapshot: JunkSnapshot? = null
+    private val junkGrowth = MutableStateFlow<JunkGrowth?>(null)
+
     override suspend fun scanJunkFiles(largeSizeThresholdMB: Int): Flow<Int> = flow {
         withContext(Dispatchers.IO) {
             val startTime = System.currentTimeMillis()
@@ -47,50 +80,84 @@ class JunkRepositoryImpl @Inject constructor(
             allJunkFiles.addAll(cacheFiles)
             emit(15)
             
-            // Step 2: Scan temp files (15%)
-            val tempFiles = scanFilesByExtensions(
-                listOf(".tmp", ".temp"),
-                JunkType.TEMP_FILES
-            )
-            allJunkFiles.addAll(tempFiles)
-            emit(30)
+            // Step 2: Classify every file against the junk rules and known
+            // app cache paths in one walk (75%)
+            val ruleSet = JunkRuleSet.loadOrDefault(File(context.filesDir, JunkRuleSet.FILE_NAME))
+            val signatureDb = AppCacheSignatureDb.loadOrDefault(File(context.filesDir, AppCacheSignatureDb.FILE_NAME))
+            val rules = ruleSet.rules
+            val matcher = JunkRuleMatcher(rules, signatureDb.signatures)
+            val now = System.currentTimeMillis()
             
-            // Step 3: Scan log files (10%)
-            val logFiles = scanFilesByExtensions(
-                listOf(".log"),
-                JunkType.LOG_FILES
-            )
-            allJunkFiles.addAll(logFiles)
-            emit(40)
+            // Unchanged directories are reused from the last scan with the same rules
+            val indexFile = File(context.filesDir, JUNK_INDEX_FILE)
+            val fingerprint = (rules.toString() + ruleSet.skipPaths + signatureDb.version + thresholdBytes).hashCode()
+            val previous = DirectoryIndex.read(indexFile)
+                ?.takeIf { it.fingerprint == fingerprint && now - it.createdAt < INDEX_MAX_AGE_MS }
             
-            // Step 4: Scan backup files (10%)
-            val backupFiles = scanFilesByExtensions(
-                listOf(".bak", ".backup", ".old"),
-                JunkType.BACKUP_FILES
-            )
-            allJunkFiles.addAll(backupFiles)
-            emit(50)
+            val storageRoot = Environment.getExternalStorageDirectory()
+            val externalCache = context.externalCacheDir
+            // Trashed items are already on their way out
+            val skip = (ruleSet.skipPaths + TrashBin.DIRECTORY_NAME).map { File(storageRoot, it).absolutePath }.toSet() +
+                setOfNotNull(externalCache?.absolutePath)
             
-            // Step 5: Scan APK files in Download (15%)
-            val apkFiles = scanApkFiles()
-            allJunkFiles.addAll(apkFiles)
-            emit(65)
+            // Large files can be anywhere, so looking for them would keep every
+            // directory in the walk; MediaStore lists them in one query instead.
+            // Only what it doesn't index, or everything without it, is walked in full.
+            val largeListing = mediaStoreSource.list(
+                storageRoot,
+                minSize = thresholdBytes,
+                excludePaths = skip.map { "$it/" }
+            )
+            val fullDepthRoots = largeListing?.unindexed?.map { it.absolutePath }
+                ?: listOf(storageRoot.absolutePath)
+            val scanner = JunkScanner(
+                matcher, skip, previous, fingerprint, now, previous?.createdAt ?: now,
+                largeFileBytes = thresholdBytes,
+                fullDepthRoots = fullDepthRoots
+            )
             
-            // Step 6: Scan large files (15%)
-            val largeFiles = scanLargeFiles(thresholdBytes)
-            allJunkFiles.addAll(largeFiles)
+            scanner.scan(storageRoot, matcher.storageRoot(), allJunkFiles)
+            if (largeListing != null) {
+                val walked = allJunkFiles.filter { it.type == JunkType.LARGE_FILES }.mapTo(HashSet()) { it.path }
+                largeListing.files.forEach { entry ->
+                    if (entry.path in walked) return@forEach
+                    allJunkFiles.add(
+                        JunkFile(
+                            path = entry.path,
+                            name = File(entry.path).name,
+                            size = entry.size,
+                            lastModified = entry.lastModified,
+                            type = JunkType.LARGE_FILES
+                        )
+                    )
+                }
+            }
             emit(80)
             
-            // Step 7: Scan thumbnail cache (10%)
-            val thumbnails = scanThumbnailCache()
-            allJunkFiles.addAll(thumbnails)
+            // Our own caches: the external one is walked on its own since
+            // Android/data may not be listable from the storage root
+            if (externalCache != null) {
+                scanner.scan(externalCache, storageStateFor(externalCache, storageRoot, matcher), allJunkFiles)
+            }
+            scanner.scan(context.cacheDir, matcher.otherRoot(), allJunkFiles)
+            try {
+                scanner.index.write(indexFile)
+            } catch (e: Exception) {
+                // Next scan just walks everything
+            }
+            emit(85)
+            
+            // Tell installed and outdated APKs apart by their manifests
+            val labeledFiles = labelApks(allJunkFiles)
             emit(90)
             
             // Group by type
-            val groups = groupByType(allJunkFiles)
+            val groups = groupByType(labeledFiles)
             
-            val totalSize = groups.sumOf { it.totalSize }
-            val totalFiles = groups.sumOf { it.fileCount }
+            // A file can be junk of several types, e.g. a large log
+            val distinctFiles = labeledFiles.distinctBy(::junkKeyOf)
+            val totalSize = distinctFiles.sumOf { it.size }
+            val totalFiles = distinctFiles.size
             val scanDuration = System.currentTimeMillis() - startTime
             
             cachedScanResult = JunkScanResult(
@@ -100,6 +167,9 @@ class JunkRepositoryImpl @Inject constructor(
                 scanDurationMs = scanDuration
             )
             
+            // Compare with the last scan or clean for the growth feed
+            recordScan(labeledFiles, totalSize, startTime)
+            
             emit(100)
         }
     }
@@ -119,15 +189,10 @@ class JunkRepositoryImpl @Inject constructor(
                 val group = cachedScanResult?.groups?.find { it.type == type }
                     ?: return@withContext Result.success(Pair(0, 0L))
                 
-                var deletedCount = 0
-                var freedSpace = 0L
+                val summary = batchDeleter.deleteAll(group.files.map { it.path })
                 
-                group.files.forEach { junkFile ->
-                    val file = File(junkFile.path)
-                    if (file.exists() && file.delete()) {
-                        deletedCount++
-                        freedSpace += junkFile.size
-                    }
+                if (type == JunkType.APP_CACHE) {
+                    group.files.mapNotNull { it.packageName }.forEach { packageStatsCache.invalidate(it) }
                 }
                 
                 // Update cached results
@@ -135,13 +200,20 @@ class JunkRepositoryImpl @Inject constructor(
                     groups = cachedScanResult!!.groups.filter { it.type != type }
                 )
                 
-                Result.success(Pair(deletedCount, freedSpace))
+                // Junk found by the next scan counts from this clean
+                recordClean(type)
+                
+                Result.success(Pair(summary.deletedCount, summary.freedBytes))
             } catch (e: Exception) {
                 Result.failure(e)
             }
         }
     }
 
+    override fun getJunkGrowth(): Flow<JunkGrowth> = junkGrowth
+        .onStart { loadSnapshots() }
+        .filterNotNull()
+
     override suspend fun deleteJunkFile(path: String): Result<Boolean> {
         return withContext(Dispatchers.IO) {
             try {
@@ -157,34 +229,7 @@ class JunkRepositoryImpl @Inject constructor(
         return withContext(Dispatchers.IO) {
             try {
                 if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    val storageStatsManager = context.getSystemService(Context.STORAGE_STATS_SERVICE) 
-                        as StorageStatsManager
-                    val storageManager = context.getSystemService(Context.STORAGE_SERVICE) 
-                        as StorageManager
-                    val uuid = storageManager.getUuidForPath(context.filesDir)
-                    
-                    val pm = context.packageManager
-                    val packages = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                        pm.getInstalledPackages(PackageManager.PackageInfoFlags.of(0))
-                    } else {
-                        @Suppress("DEPRECATION")
-                        pm.getInstalledPackages(0)
-                    }
-                    
-                    var totalCacheSize = 0L
-                    
-                    packages.forEach { packageInfo ->
-                        try {
-                            val stats = storageStatsManager.queryStatsForPackage(
-                                uuid,
-                                packageInfo.packageName,
-                                android.os.Process.myUserHandle()
-                            )
-                            totalCacheSize += stats.cacheBytes
-                        } catch (e: Exception) {
-                            // Permission denied for system apps
-                        }
-                    }
+                    val totalCacheSize = packageStatsCache.getAll().values.sumOf { it.cacheBytes }
                     
                     // Note: Actually clearing cache requires CLEAR_APP_CACHE permission
                     // or root access. This returns estimated size only.
@@ -204,6 +249,7 @@ class JunkRepositoryImpl @Inject constructor(
                 // This requires CLEAR_APP_CACHE permission which is only available
                 // for system apps or via root
                 // Alternative: Use reflection to call PackageManager.deleteApplicationCacheFiles()
+                packageStatsCache.invalidate(packageName)
                 Result.success(false)
             } catch (e: Exception) {
                 Result.failure(e)
@@ -215,42 +261,17 @@ class JunkRepositoryImpl @Inject constructor(
     override suspend fun getAppCacheInfo(): List<AppCacheInfo> {
         return withContext(Dispatchers.IO) {
             try {
-                val storageStatsManager = context.getSystemService(Context.STORAGE_STATS_SERVICE) 
-                    as StorageStatsManager
-                val storageManager = context.getSystemService(Context.STORAGE_SERVICE) 
-                    as StorageManager
-                val uuid = storageManager.getUuidForPath(context.filesDir)
-                
-                val pm = context.packageManager
-                val packages = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                    pm.getInstalledPackages(PackageManager.PackageInfoFlags.of(0))
-                } else {
-                    @Suppress("DEPRECATION")
-                    pm.getInstalledPackages(0)
-                }
-                
-                packages.mapNotNull { packageInfo ->
-                    try {
-                        val stats = storageStatsManager.queryStatsForPackage(
-                            uuid,
-                            packageInfo.packageName,
-                            android.os.Process.myUserHandle()
-                        )
-                        
-                        val appInfo = pm.getApplicationInfo(packageInfo.packageName, 0)
-                        val appName = pm.getApplicationLabel(appInfo).toString()
-                        
+                packageStatsCache.getAll().values
+                    .map { stats ->
                         AppCacheInfo(
-                            packageName = packageInfo.packageName,
-                            appName = appName,
+                            packageName = stats.packageName,
+                            appName = stats.appName,
                             cacheSize = stats.cacheBytes,
                             dataSize = stats.dataBytes,
                             codeSize = stats.appBytes
                         )
-                    } catch (e: Exception) {
-                        null
                     }
-                }.filter { it.cacheSize > 0 }
+                    .filter { it.cacheSize > 0 }
                     .sortedByDescending { it.cacheSize }
             } catch (e: Exception) {
                 emptyList()
@@ -283,150 +304,113 @@ class JunkRepositoryImpl @Inject constructor(
     // Private helper methods
 
     @RequiresApi(Build.VERSION_CODES.O)
-    private fun scanAppCache(): List<JunkFile> {
+    private suspend fun scanAppCache(): List<JunkFile> {
         return try {
-            val storageStatsManager = context.getSystemService(Context.STORAGE_STATS_SERVICE) 
-                as StorageStatsManager
-            val storageManager = context.getSystemService(Context.STORAGE_SERVICE) 
-                as StorageManager
-            val uuid = storageManager.getUuidForPath(context.filesDir)
-            
-            val pm = context.packageManager
-            val packages = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                pm.getInstalledPackages(PackageManager.PackageInfoFlags.of(0))
-            } else {
-                @Suppress("DEPRECATION")
-                pm.getInstalledPackages(0)
-            }
-            
-            packages.mapNotNull { packageInfo ->
-                try {
-                    val stats = storageStatsManager.queryStatsForPackage(
-                        uuid,
-                        packageInfo.packageName,
-                        android.os.Process.myUserHandle()
+            packageStatsCache.getAll().values
+                .filter { it.cacheBytes > 0 }
+                .map { stats ->
+                    JunkFile(
+                        path = "", // Cache path varies by app
+                        name = "${stats.appName} cache",
+                        size = stats.cacheBytes,
+                        lastModified = System.currentTimeMillis(),
+                        type = JunkType.APP_CACHE,
+                        packageName = stats.packageName
                     )
-                    
-                    if (stats.cacheBytes > 0) {
-                        val appInfo = pm.getApplicationInfo(packageInfo.packageName, 0)
-                        val appName = pm.getApplicationLabel(appInfo).toString()
-                        
-                        JunkFile(
-                            path = "", // Cache path varies by app
-                            name = "$appName cache",
-                            size = stats.cacheBytes,
-                            lastModified = System.currentTimeMillis(),
-                            type = JunkType.APP_CACHE,
-                            packageName = packageInfo.packageName
-                        )
-                    } else {
-                        null
-                    }
-                } catch (e: Exception) {
-                    null
                 }
-            }
         } catch (e: Exception) {
             emptyList()
         }
     }
 
-    private fun scanFilesByExtensions(
-        extensions: List<String>,
-        type: JunkType
-    ): List<JunkFile> {
-        val junkFiles = mutableListOf<JunkFile>()
-        val searchDirs = listOf(
-            Environment.getExternalStorageDirectory(),
-            context.cacheDir,
-            context.externalCacheDir
-        ).filterNotNull()
-        
-        searchDirs.forEach { dir ->
-            dir.walkTopDown()
-                .maxDepth(5) // Limit depth for performance
-                .filter { it.isFile }
-                .filter { file -> extensions.any { file.name.endsWith(it, ignoreCase = true) } }
-                .forEach { file ->
-                    junkFiles.add(
-                        JunkFile(
-                            path = file.absolutePath,
-                            name = file.name,
-                            size = file.length(),
-                            lastModified = file.lastModified(),
-                            type = type
-                        )
-                    )
-                }
+    private fun storageStateFor(
+        directory: File,
+        storageRoot: File,
+        matcher: JunkRuleMatcher
+    ): JunkRuleMatcher.DirState {
+        val relative = directory.absolutePath.removePrefix(storageRoot.absolutePath)
+        if (relative == directory.absolutePath) return matcher.otherRoot()
+        return relative.split('/')
+            .filter { it.isNotEmpty() }
+            .fold(matcher.storageRoot()) { state, segment -> matcher.enter(state, segment) }
+    }
+
+    private suspend fun loadSnapshots() = withContext(Dispatchers.IO) {
+        snapshotMutex.withLock {
+            if (junkGrowth.value != null) return@withLock
+            val current = JunkSnapshot.read(File(context.filesDir, SNAPSHOT_FILE))
+            val previous = JunkSnapshot.read(File(context.filesDir, PREVIOUS_SNAPSHOT_FILE))
+            snapshot = current
+            previousSnapshot = previous
+            junkGrowth.value = JunkGrowth(
+                latest = if (current != null && previous != null) JunkSnapshot.diff(previous, current) else null,
+                samples = current?.samples.orEmpty()
+            )
         }
-        
-        return junkFiles
     }
 
-    private fun scanApkFiles(): List<JunkFile> {
-        val downloadDir = File(Environment.getExternalStorageDirectory(), "Download")
-        if (!downloadDir.exists()) return emptyList()
-        
-        return downloadDir.listFiles()
-            ?.filter { it.isFile && it.extension.equals("apk", ignoreCase = true) }
-            ?.map { file ->
-                JunkFile(
-                    path = file.absolutePath,
-                    name = file.name,
-                    size = file.length(),
-                    lastModified = file.lastModified(),
-                    type = JunkType.APK_FILES
-                )
-            } ?: emptyList()
+    private suspend fun recordScan(files: List<JunkFile>, totalSize: Long, scannedAt: Long) {
+        loadSnapshots()
+        snapshotMutex.withLock {
+            val previous = snapshot
+            val scanned = JunkSnapshot.of(files, scannedAt)
+            val report = previous?.let { JunkSnapshot.diff(it, scanned) }
+            val samples = if (previous == null || report == null) {
+                emptyList()
+            } else {
+                (previous.samples + JunkGrowthSample(
+                    scannedAt = scannedAt,
+                    intervalMs = scannedAt - previous.scannedAt,
+                    totalBytes = totalSize,
+                    newBytes = report.total.newBytes
+                )).takeLast(JunkSnapshot.MAX_SAMPLES)
+            }
+            val current = JunkSnapshot(scannedAt, scanned.entries, samples)
+            snapshot = current
+            previousSnapshot = previous
+            junkGrowth.value = JunkGrowth(report, samples)
+            try {
+                val file = File(context.filesDir, SNAPSHOT_FILE)
+                file.renameTo(File(context.filesDir, PREVIOUS_SNAPSHOT_FILE))
+                current.write(file)
+            } catch (e: Exception) {
+                // The next scan is compared with what is still on disk
+            }
+        }
     }
 
-    private fun scanLargeFiles(thresholdBytes: Long): List<JunkFile> {
-        val junkFiles = mutableListOf<JunkFile>()
-        val searchDirs = listOf(
-            Environment.getExternalStorageDirectory()
-        )
-        
-        searchDirs.forEach { dir ->
-            dir.walkTopDown()
-                .maxDepth(4)
-                .filter { it.isFile && it.length() >= thresholdBytes }
-                .forEach { file ->
-                    junkFiles.add(
-                        JunkFile(
-                            path = file.absolutePath,
-                            name = file.name,
-                            size = file.length(),
-                            lastModified = file.lastModified(),
-                            type = JunkType.LARGE_FILES
-                        )
-                    )
-                }
+    private suspend fun recordClean(type: JunkType) {
+        snapshotMutex.withLock {
+            val current = snapshot ?: return@withLock
+            val cleaned = current.without(type)
+            snapshot = cleaned
+            // The latest diff no longer counts what was just cleaned as new junk
+            val previous = previousSnapshot?.without(type)
+            previousSnapshot = previous
+            junkGrowth.value = junkGrowth.value?.copy(latest = previous?.let { JunkSnapshot.diff(it, cleaned) })
+            try {
+                cleaned.write(File(context.filesDir, SNAPSHOT_FILE))
+                previous?.write(File(context.filesDir, PREVIOUS_SNAPSHOT_FILE))
+            } catch (e: Exception) {
+                // Cleaned junk shows up as removed in the next diff
+            }
         }
-        
-        return junkFiles.sortedByDescending { it.size }
     }
 
-    private fun scanThumbnailCache(): List<JunkFile> {
-        val thumbnailDir = File(
-            Environment.getExternalStorageDirectory(),
-            ".thumbnails"
-        )
+    private suspend fun labelApks(files: List<JunkFile>): List<JunkFile> {
+        val apks = files.filter { it.type == JunkType.APK_FILES }
+        if (apks.isEmpty()) return files
         
-        if (!thumbnailDir.exists()) return emptyList()
-        
-        return thumbnailDir.walkTopDown()
-            .filter { it.isFile }
-            .map { file ->
-                JunkFile(
-                    path = file.absolutePath,
-                    name = file.name,
-                    size = file.length(),
-                    lastModified = file.lastModified(),
-                    type = JunkType.THUMBNAIL_CACHE
-                )
-            }.toList()
+        val infos = apkInspector.inspect(apks.map { ApkInspector.Target(it.path, it.size, it.lastModified) })
+        return files.map { file ->
+            val info = if (file.type == JunkType.APK_FILES) infos[file.path] else null
+            if (info == null) file else file.copy(packageName = info.packageName, apkState = apkInspector.stateOf(info))
+        }
     }
-
+    
+    // App cache totals have no path
+    private fun junkKeyOf(file: JunkFile): String = file.path.ifEmpty { "package:${file.packageName.orEmpty()}" }
+    
     private fun groupByType(files: List<JunkFile>): List<JunkGroup> {
         return files.groupBy { it.type }
             .map { (type, groupFiles) ->
@@ -4,6 +4,8 @@ import android.content.Context
 import android.content.pm.PackageManager
 import android.os.Build
 import android.os.Environment
+import com.smartcleaner.data.apk.ApkInspector
+import com.smartcleaner.data.delete.BatchDeleter
 import com.smartcleaner.domain.model.LeftoverFile
 import com.smartcleaner.domain.model.LeftoverGroup
 import com.smartcleaner.domain.model.LeftoverScanResult
@@ -20,7 +22,9 @@ import javax.inject.Singleton
 
 @Singleton
 class LeftoverRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val batchDeleter: BatchDeleter,
+    private val apkInspector: ApkInspector
 ) : LeftoverRepository {
 
     private var cachedScanResult: LeftoverScanResult? = null
@@ -107,19 +111,10 @@ class LeftoverRepositoryImpl @Inject constructor(
                 val group = cachedScanResult?.groups?.find { it.packageName == packageName }
                     ?: return@withContext Result.failure(Exception("Package not found"))
                 
-                var deletedCount = 0
-                
-                group.files.forEach { leftoverFile ->
-                    val file = File(leftoverFile.path)
-                    if (file.exists()) {
-                        val deleted = if (file.isDirectory) {
-                            file.deleteRecursively()
-                        } else {
-                            file.delete()
-                        }
-                        if (deleted) deletedCount++
-                    }
-                }
+                val deletedCount = batchDeleter.deleteAll(
+                    group.files.map { it.path },
+                    recursive = true
+                ).deletedCount
                 
                 // Update cached results
                 cachedScanResult = cachedScanResult?.copy(
@@ -242,30 +237,29 @@ class LeftoverRepositoryImpl @Inject constructor(
         return leftoverFiles
     }
 
-    private fun scanDownloadFolder(): List<LeftoverFile> {
+    private suspend fun scanDownloadFolder(): List<LeftoverFile> {
         val downloadDir = getExternalStorageDirectory("Download")
         if (downloadDir == null || !downloadDir.exists()) return emptyList()
         
         val leftoverFiles = mutableListOf<LeftoverFile>()
         
         // Look for APK files and app-specific folders
-        downloadDir.listFiles()?.forEach { file ->
-            if (file.isFile && file.extension == "apk") {
-                // Try to extract package name from APK
-                val packageName = extractPackageFromApk(file)
-                if (packageName != null && !installedPackages.contains(packageName)) {
-                    leftoverFiles.add(
-                        LeftoverFile(
-                            path = file.absolutePath,
-                            packageName = packageName,
-                            appName = file.nameWithoutExtension,
-                            size = file.length(),
-                            lastModified = file.lastModified(),
-                            type = LeftoverType.DOWNLOAD,
-                            isDirectory = false
-                        )
+        val apkFiles = downloadDir.listFiles()?.filter { it.isFile && it.extension == "apk" }.orEmpty()
+        val infos = apkInspector.inspectFiles(apkFiles)
+        apkFiles.forEach { file ->
+            val packageName = infos[file.absolutePath]?.packageName
+            if (packageName != null && !installedPackages.contains(packageName)) {
+                leftoverFiles.add(
+                    LeftoverFile(
+                        path = file.absolutePath,
+                        packageName = packageName,
+                        appName = file.nameWithoutExtension,
+                        size = file.length(),
+                        lastModified = file.lastModified(),
+                        type = LeftoverType.DOWNLOAD,
+                        isDirectory = false
                     )
-                }
+                )
             }
         }
         
@@ -341,17 +335,6 @@ class LeftoverRepositoryImpl @Inject constructor(
             }?.absolutePath
     }
 
-    private fun extractPackageFromApk(apkFile: File): String? {
-        // Simplified - real implementation would use PackageManager
-        return try {
-            val pm = context.packageManager
-            val packageInfo = pm.getPackageArchiveInfo(apkFile.absolutePath, 0)
-            packageInfo?.packageName
-        } catch (e: Exception) {
-            null
-        }
-    }
-
     private fun getExternalStorageDirectory(relativePath: String): File? {
         return if (Environment.getExternalStorageState() == Environment.MEDIA_MOUNTED) {
             File(Environment.getExternalStorageDirectory(), relativePath)
@@ -3,6 +3,9 @@ package com.smartcleaner.data.repository
 import android.content.Context
 import android.content.pm.PackageManager
 import android.os.Environment
+import com.smartcleaner.data.dedup.ContentHashIndex
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.media.MediaStoreSource
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.MessagingCleanerRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
@@ -17,7 +20,9 @@ import javax.inject.Singleton
 
 @Singleton
 class MessagingCleanerRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val batchDeleter: BatchDeleter,
+    private val mediaStoreSource: MediaStoreSource
 ) : MessagingCleanerRepository {
 
     private var cachedResult: MessagingScanResult? = null
@@ -79,16 +84,23 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
                 return@withContext
             }
             
-            val appResults = mutableMapOf<MessagingApp, AppMediaResult>()
+            var mediaByApp = mutableMapOf<MessagingApp, List<MessagingMedia>>()
             
             installedApps.forEachIndexed { index, app ->
-                val appResult = scanApp(app, options)
-                appResults[app] = appResult
+                mediaByApp[app] = collectAppMedia(app, options)
                 
-                val progress = 5 + ((index + 1) * 90 / installedApps.size)
+                val progress = 5 + ((index + 1) * 65 / installedApps.size)
                 emit(progress)
             }
             
+            // Same media forwarded to several chats, or saved from the camera
+            if (options.detectDuplicates) {
+                mediaByApp = markDuplicates(mediaByApp, options)
+            }
+            
+            emit(95)
+            
+            val appResults = mediaByApp.mapValues { (app, media) -> buildAppResult(app, media) }
             val totalSize = appResults.values.sumOf { it.totalSize }
             val totalFiles = appResults.values.sumOf { it.totalFiles }
             
@@ -96,7 +108,8 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
                 appResults = appResults,
                 totalSize = totalSize,
                 totalFiles = totalFiles,
-                scanDurationMs = System.currentTimeMillis() - startTime
+                scanDurationMs = System.currentTimeMillis() - startTime,
+                totalReclaimable = appResults.values.sumOf { it.reclaimableSize }
             )
             
             emit(100)
@@ -115,14 +128,7 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
     override suspend fun deleteMedia(filePaths: List<String>): Result<Int> {
         return withContext(Dispatchers.IO) {
             try {
-                var deletedCount = 0
-                filePaths.forEach { path ->
-                    val file = File(path)
-                    if (file.exists() && file.delete()) {
-                        deletedCount++
-                    }
-                }
-                Result.success(deletedCount)
+                Result.success(batchDeleter.deleteAll(filePaths).deletedCount)
             } catch (e: Exception) {
                 Result.failure(e)
             }
@@ -152,7 +158,7 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
 
     // Private helper methods
     
-    private fun scanApp(app: MessagingApp, options: MessagingScanOptions): AppMediaResult {
+    private suspend fun collectAppMedia(app: MessagingApp, options: MessagingScanOptions): List<MessagingMedia> {
         val allMedia = mutableListOf<MessagingMedia>()
         val storage = Environment.getExternalStorageDirectory()
         
@@ -203,6 +209,10 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
             }
         }
         
+        return allMedia
+    }
+    
+    private fun buildAppResult(app: MessagingApp, allMedia: List<MessagingMedia>): AppMediaResult {
         // Group media by type
         val groups = groupMedia(allMedia)
         
@@ -221,11 +231,107 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
             groups = groups,
             totalSize = allMedia.sumOf { it.size },
             totalFiles = allMedia.size,
-            breakdown = breakdown
+            breakdown = breakdown,
+            reclaimableSize = groups.sumOf { it.reclaimableSize }
         )
     }
     
-    private fun scanDirectory(
+    /**
+     * Mark media whose exact content is kept elsewhere (another chat, another
+     * app or DCIM). Only files with a same-size twin are ever read.
+     * The DCIM copy is kept when there is one, otherwise the oldest copy.
+     */
+    private suspend fun markDuplicates(
+        mediaByApp: Map<MessagingApp, List<MessagingMedia>>,
+        options: MessagingScanOptions
+    ): MutableMap<MessagingApp, List<MessagingMedia>> {
+        val index = ContentHashIndex()
+        val mediaByPath = HashMap<String, MessagingMedia>()
+        mediaByApp.values.forEach { media ->
+            media.forEach {
+                index.add(it.filePath, it.size)
+                mediaByPath[it.filePath] = it
+            }
+        }
+        
+        if (options.includeDcim) {
+            val dcim = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DCIM)
+            collectCameraOriginals(dcim, index)
+        }
+        
+        val keptByCopy = HashMap<String, String>()
+        index.findDuplicates().forEach { paths ->
+            val keep = paths.firstOrNull { it !in mediaByPath }
+                ?: paths.minWith(compareBy({ mediaByPath.getValue(it).dateModified }, { it }))
+            paths.forEach { path ->
+                if (path != keep && path in mediaByPath) keptByCopy[path] = keep
+            }
+        }
+        
+        return mediaByApp.mapValuesTo(mutableMapOf()) { (_, media) ->
+            media.map { item -> keptByCopy[item.filePath]?.let { item.copy(duplicateOf = it) } ?: item }
+        }
+    }
+    
+    /**
+     * Add DCIM files whose size matches some messaging media; others can't be copies
+     */
+    private suspend fun collectCameraOriginals(directory: File, index: ContentHashIndex) {
+        val listing = mediaStoreSource.list(directory)
+        if (listing == null) {
+            walkCameraOriginals(directory, index)
+            return
+        }
+        val prefix = directory.absolutePath.trimEnd('/') + "/"
+        listing.files.forEach { entry ->
+            val inHiddenDirectory = entry.path.removePrefix(prefix).split('/').dropLast(1).any { it.startsWith(".") }
+            if (!inHiddenDirectory && index.hasSize(entry.size)) index.add(entry.path, entry.size)
+        }
+    }
+    
+    private fun walkCameraOriginals(directory: File, index: ContentHashIndex) {
+        try {
+            val files = directory.listFiles() ?: return
+            for (file in files) {
+                if (file.isDirectory) {
+                    // .thumbnails and other hidden caches are not originals
+                    if (!file.name.startsWith(".")) walkCameraOriginals(file, index)
+                } else if (file.isFile) {
+                    val size = file.length()
+                    if (index.hasSize(size)) index.add(file.absolutePath, size)
+                }
+            }
+        } catch (e: Exception) {
+            // Skip directories with permission issues
+        }
+    }
+    
+    /**
+     * Media below [directory], listed from MediaStore where it can be
+     */
+    private suspend fun scanDirectory(
+        directory: File,
+        app: MessagingApp,
+        mediaType: MessagingMediaType,
+        output: MutableList<MessagingMedia>,
+        options: MessagingScanOptions
+    ) {
+        if (!directory.exists() || !directory.isDirectory) return
+        
+        val listing = mediaStoreSource.list(directory, minSize = options.minFileSize)
+        if (listing == null) {
+            walkDirectory(directory, app, mediaType, output, options)
+            return
+        }
+        listing.files.forEach { entry ->
+            if (shouldIncludeFile(entry.size, entry.lastModified, options)) {
+                output.add(createMedia(File(entry.path), entry.size, entry.lastModified, app, mediaType))
+            }
+        }
+        listing.unindexed.forEach { walkDirectory(it, app, mediaType, output, options) }
+    }
+    
+    private fun walkDirectory(
         directory: File,
         app: MessagingApp,
         mediaType: MessagingMediaType,
@@ -239,21 +345,12 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
             
             for (file in files) {
                 if (file.isDirectory) {
-                    scanDirectory(file, app, mediaType, output, options)
+                    walkDirectory(file, app, mediaType, output, options)
                 } else if (file.isFile) {
-                    if (shouldIncludeFile(file, options)) {
-                        output.add(
-                            MessagingMedia(
-                                filePath = file.absolutePath,
-                                fileName = file.name,
-                                app = app,
-                                mediaType = determineMediaType(file, mediaType),
-                                size = file.length(),
-                                dateModified = file.lastModified(),
-                                isFromGroup = file.parent?.contains("Group") == true,
-                                chatName = extractChatName(file)
-                            )
-                        )
+                    val size = file.length()
+                    val lastModified = file.lastModified()
+                    if (shouldIncludeFile(size, lastModified, options)) {
+                        output.add(createMedia(file, size, lastModified, app, mediaType))
                     }
                 }
             }
@@ -262,9 +359,27 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
         }
     }
     
-    private fun shouldIncludeFile(file: File, options: MessagingScanOptions): Boolean {
-        val size = file.length()
-        val age = System.currentTimeMillis() - file.lastModified()
+    private fun createMedia(
+        file: File,
+        size: Long,
+        lastModified: Long,
+        app: MessagingApp,
+        mediaType: MessagingMediaType
+    ): MessagingMedia {
+        return MessagingMedia(
+            filePath = file.absolutePath,
+            fileName = file.name,
+            app = app,
+            mediaType = determineMediaType(file, mediaType),
+            size = size,
+            dateModified = lastModified,
+            isFromGroup = file.parent?.contains("Group") == true,
+            chatName = extractChatName(file)
+        )
+    }
+    
+    private fun shouldIncludeFile(size: Long, lastModified: Long, options: MessagingScanOptions): Boolean {
+        val age = System.currentTimeMillis() - lastModified
         val ageInDays = TimeUnit.MILLISECONDS.toDays(age)
         
         if (size < options.minFileSize) return false
@@ -300,6 +415,7 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
     private fun groupMedia(media: List<MessagingMedia>): List<MessagingMediaGroup> {
         return media.groupBy { "${it.app}_${it.mediaType}_${it.chatName ?: "unknown"}" }
             .map { (groupId, files) ->
+                val duplicates = files.filter { it.duplicateOf != null }
                 MessagingMediaGroup(
                     groupId = groupId,
                     app = files.first().app,
@@ -308,7 +424,9 @@ class MessagingCleanerRepositoryImpl @Inject constructor(
                     files = files.sortedBy { it.dateModified },
                     totalSize = files.sumOf { it.size },
                     oldestDate = files.minOfOrNull { it.dateModified } ?: 0,
-                    newestDate = files.maxOfOrNull { it.dateModified } ?: 0
+                    newestDate = files.maxOfOrNull { it.dateModified } ?: 0,
+                    duplicateCount = duplicates.size,
+                    reclaimableSize = duplicates.sumOf { it.size }
                 )
             }
             .sortedByDescending { it.totalSize }
@@ -27,6 +27,8 @@ class PreferencesRepositoryImpl @Inject constructor(
         val NOTIFICATIONS_ENABLED = booleanPreferencesKey("notifications_enabled")
         val STORAGE_ALERT_THRESHOLD = intPreferencesKey("storage_threshold")
         val ROOT_MODE_ENABLED = booleanPreferencesKey("root_mode")
+        val FAST_SCAN_ENABLED = booleanPreferencesKey("fast_scan")
+        val USE_TRASH = booleanPreferencesKey("use_trash")
         val CLOUD_BACKUP_ENABLED = booleanPreferencesKey("cloud_backup")
         val CLOUD_PROVIDER = stringPreferencesKey("cloud_provider")
     }
@@ -38,7 +40,9 @@ class PreferencesRepositoryImpl @Inject constructor(
                 useDynamicColors = prefs[DYNAMIC_COLORS] ?: true,
                 notificationsEnabled = prefs[NOTIFICATIONS_ENABLED] ?: true,
                 storageAlertThreshold = prefs[STORAGE_ALERT_THRESHOLD] ?: 90,
-                rootModeEnabled = prefs[ROOT_MODE_ENABLED] ?: false
+                rootModeEnabled = prefs[ROOT_MODE_ENABLED] ?: false,
+                fastScanEnabled = prefs[FAST_SCAN_ENABLED] ?: true,
+                useTrash = prefs[USE_TRASH] ?: false
             )
         }
     }
@@ -50,6 +54,8 @@ class PreferencesRepositoryImpl @Inject constructor(
             prefs[NOTIFICATIONS_ENABLED] = preferences.notificationsEnabled
             prefs[STORAGE_ALERT_THRESHOLD] = preferences.storageAlertThreshold
             prefs[ROOT_MODE_ENABLED] = preferences.rootModeEnabled
+            prefs[FAST_SCAN_ENABLED] = preferences.fastScanEnabled
+            prefs[USE_TRASH] = preferences.useTrash
         }
     }
 
@@ -3,6 +3,10 @@ package com.smartcleaner.data.repository
 import android.content.Context
 import android.os.Environment
 import android.os.StatFs
+import android.webkit.MimeTypeMap
+import com.smartcleaner.data.media.MediaEntry
+import com.smartcleaner.data.media.MediaStoreSource
+import com.smartcleaner.data.stats.StorageTreeBuilder
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.StorageAnalyzerRepository
 import dagger.hilt.android.qualifiers.ApplicationContext
@@ -16,7 +20,8 @@ import javax.inject.Singleton
 
 @Singleton
 class StorageAnalyzerRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val mediaStoreSource: MediaStoreSource
 ) : StorageAnalyzerRepository {
 
     private var cachedAnalysis: StorageAnalysis? = null
@@ -43,54 +48,70 @@ class StorageAnalyzerRepositoryImpl @Inject constructor(
             
             emit(10)
             
-            // Analyze root directory
+            // One listing feeds the tree, the largest files and the breakdown
             val rootPath = Environment.getExternalStorageDirectory()
-            val rootNode = analyzeDirectory(
-                directory = rootPath,
-                depth = 0,
-                maxDepth = options.maxDepth,
-                minSize = options.minNodeSize,
-                excludePaths = options.excludePaths,
-                progressCallback = { progress ->
-                    // Report 10-80%
-                    val adjustedProgress = 10 + (progress * 70 / 100)
-                    // emit(adjustedProgress) - Can't emit inside callback easily, handle externally
-                }
-            )
+            val listing = mediaStoreSource.list(rootPath, excludePaths = options.excludePaths)
+            // MediaProvider sums its part of the breakdown with GROUP BY
+            val mimeTotals = listing?.let { mediaStoreSource.sizeByMimeType(rootPath, options.excludePaths) }
+            
+            val treeBuilder = StorageTreeBuilder(rootPath, options.maxDepth, options.minNodeSize)
+            val categoryTotals = mutableMapOf<FileCategory, CategoryTotals>()
+            fun add(extension: String, fileCount: Int, bytes: Long) {
+                categoryTotals.getOrPut(FileCategory.fromExtension(extension)) { CategoryTotals() }
+                    .add(extension, fileCount, bytes)
+            }
+            // Only files that can make the largest-files list are kept
+            val largeEntries = mutableListOf<MediaEntry>()
+            fun addFile(entry: MediaEntry, countType: Boolean) {
+                treeBuilder.add(entry.path, entry.size)
+                if (countType) add(File(entry.path).extension.lowercase(), 1, entry.size)
+                if (entry.size >= options.minNodeSize) largeEntries.add(entry)
+            }
             
-            emit(80)
+            if (listing != null) {
+                listing.files.forEach { addFile(it, countType = mimeTotals == null) }
+                listing.unindexed.forEach { directory ->
+                    walkFiles(directory, options.excludePaths) { addFile(it, countType = true) }
+                }
+            } else {
+                walkFiles(rootPath, options.excludePaths) { addFile(it, countType = true) }
+            }
+            mimeTotals?.forEach { add(extensionOf(it.mimeType), it.fileCount, it.totalBytes) }
             
-            // Flatten tree for file type analysis
-            val allFiles = mutableListOf<LargeFile>()
-            collectAllFiles(rootPath, allFiles, options)
+            emit(60)
             
-            emit(85)
+            val rootNode = treeBuilder.build()
             
-            // Calculate file type breakdown
-            val fileTypeMap = mutableMapOf<FileCategory, MutableList<LargeFile>>()
-            allFiles.forEach { file ->
-                fileTypeMap.getOrPut(file.category) { mutableListOf() }.add(file)
-            }
+            emit(80)
             
-            val fileTypeBreakdown = fileTypeMap.mapValues { (category, files) ->
-                val extensionMap = files.groupBy { it.extension }
-                    .mapValues { (_, extFiles) -> extFiles.sumOf { it.size } }
-                
+            val fileTypeBreakdown = categoryTotals.mapValues { (category, totals) ->
                 FileTypeStats(
                     category = category,
-                    totalSize = files.sumOf { it.size },
-                    fileCount = files.size,
-                    percentage = (files.sumOf { it.size }.toFloat() / usedSize) * 100,
-                    extensions = extensionMap
+                    totalSize = totals.size,
+                    fileCount = totals.fileCount,
+                    percentage = (totals.size.toFloat() / usedSize) * 100,
+                    extensions = totals.extensions
                 )
             }
             
             emit(90)
             
             // Get largest files
-            val largestFiles = allFiles
+            val largestFiles = largeEntries
                 .sortedByDescending { it.size }
                 .take(options.includeLargestFiles)
+                .map { entry ->
+                    val file = File(entry.path)
+                    LargeFile(
+                        path = entry.path,
+                        name = file.name,
+                        size = entry.size,
+                        extension = file.extension,
+                        category = FileCategory.fromExtension(file.extension),
+                        lastModified = entry.lastModified,
+                        lastAccessed = null // Android doesn't expose this easily
+                    )
+                }
             
             emit(95)
             
@@ -175,114 +196,42 @@ class StorageAnalyzerRepositoryImpl @Inject constructor(
 
     // Private helper methods
     
-    private fun analyzeDirectory(
-        directory: File,
-        depth: Int,
-        maxDepth: Int,
-        minSize: Long,
-        excludePaths: List<String>,
-        progressCallback: ((Int) -> Unit)? = null
-    ): StorageNode? {
-        if (depth > maxDepth) return null
-        if (!directory.exists() || !directory.isDirectory) return null
-        if (shouldExclude(directory.absolutePath, excludePaths)) return null
+    private class CategoryTotals {
+        var size = 0L
+        var fileCount = 0
+        val extensions = mutableMapOf<String, Long>()
         
-        try {
-            val files = directory.listFiles() ?: return null
-            val children = mutableListOf<StorageNode>()
-            var totalSize = 0L
-            var fileCount = 0
-            
-            for (file in files) {
-                if (file.isDirectory) {
-                    val childNode = analyzeDirectory(
-                        directory = file,
-                        depth = depth + 1,
-                        maxDepth = maxDepth,
-                        minSize = minSize,
-                        excludePaths = excludePaths,
-                        progressCallback = progressCallback
-                    )
-                    if (childNode != null && childNode.size >= minSize) {
-                        children.add(childNode)
-                        totalSize += childNode.size
-                    }
-                } else if (file.isFile) {
-                    val size = file.length()
-                    totalSize += size
-                    fileCount++
-                    
-                    // Add as child node if large enough and at leaf level
-                    if (size >= minSize && depth == maxDepth) {
-                        children.add(
-                            StorageNode(
-                                path = file.absolutePath,
-                                name = file.name,
-                                size = size,
-                                percentage = 0f, // Will calculate later
-                                depth = depth + 1,
-                                children = emptyList(),
-                                fileCount = 1,
-                                category = FileCategory.fromExtension(file.extension)
-                            )
-                        )
-                    }
-                }
-            }
-            
-            if (totalSize == 0L) return null
-            
-            // Calculate percentages
-            val childrenWithPercentage = children.map { child ->
-                child.copy(percentage = (child.size.toFloat() / totalSize) * 100)
-            }.sortedByDescending { it.size }
-            
-            return StorageNode(
-                path = directory.absolutePath,
-                name = directory.name,
-                size = totalSize,
-                percentage = 0f, // Will be calculated by parent
-                depth = depth,
-                children = childrenWithPercentage,
-                fileCount = fileCount,
-                category = inferCategory(directory)
-            )
-        } catch (e: Exception) {
-            return null
+        fun add(extension: String, count: Int, bytes: Long) {
+            size += bytes
+            fileCount += count
+            extensions[extension] = (extensions[extension] ?: 0L) + bytes
         }
     }
     
-    private fun collectAllFiles(
+    private fun extensionOf(mimeType: String?): String {
+        if (mimeType == null) return ""
+        return MimeTypeMap.getSingleton().getExtensionFromMimeType(mimeType) ?: ""
+    }
+    
+    /**
+     * Walk [directory] and hand each file to [visit] as it is found
+     */
+    private fun walkFiles(
         directory: File,
-        output: MutableList<LargeFile>,
-        options: StorageAnalysisOptions,
-        currentDepth: Int = 0
+        excludePaths: List<String>,
+        visit: (MediaEntry) -> Unit
     ) {
-        if (currentDepth > options.maxDepth) return
         if (!directory.exists() || !directory.isDirectory) return
-        if (shouldExclude(directory.absolutePath, options.excludePaths)) return
+        if (shouldExclude(directory.absolutePath, excludePaths)) return
         
         try {
             val files = directory.listFiles() ?: return
             
             for (file in files) {
                 if (file.isDirectory) {
-                    collectAllFiles(file, output, options, currentDepth + 1)
+                    walkFiles(file, excludePaths, visit)
                 } else if (file.isFile) {
-                    val size = file.length()
-                    if (size >= options.minNodeSize) {
-                        output.add(
-                            LargeFile(
-                                path = file.absolutePath,
-                                name = file.name,
-                                size = size,
-                                extension = file.extension,
-                                category = FileCategory.fromExtension(file.extension),
-                                lastModified = file.lastModified(),
-                                lastAccessed = null // Android doesn't expose this easily
-                            )
-                        )
-                    }
+                    visit(MediaEntry(file.absolutePath, file.length(), file.lastModified(), null))
                 }
             }
         } catch (e: Exception) {
@@ -294,18 +243,4 @@ class StorageAnalyzerRepositoryImpl @Inject constructor(
         if (SYSTEM_PATHS.any { path.startsWith(it) }) return true
         return excludePaths.any { path.startsWith(it) }
     }
-    
-    private fun inferCategory(directory: File): FileCategory {
-        val name = directory.name.lowercase()
-        return when {
-            name.contains("download") -> FileCategory.DOWNLOADS
-            name.contains("dcim") || name.contains("pictures") || name.contains("images") -> FileCategory.IMAGES
-            name.contains("video") || name.contains("movies") -> FileCategory.VIDEOS
-            name.contains("music") || name.contains("audio") || name.contains("sounds") -> FileCategory.AUDIO
-            name.contains("documents") -> FileCategory.DOCUMENTS
-            name.contains("cache") -> FileCategory.CACHE
-            name.contains("android") -> FileCategory.SYSTEM
-            else -> FileCategory.OTHER
-        }
-    }
 }
@@ -0,0 +1,51 @@
+package com.smartcleaner.data.repository
+
+import com.smartcleaner.data.trash.TrashBin
+import com.smartcleaner.domain.model.TrashedItem
+import com.smartcleaner.domain.repository.TrashRepository
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import javax.inject.Inject
+import javax.inject.Singleton
+
+@Singleton
+class TrashRepositoryImpl @Inject constructor(
+    private val trashBin: TrashBin
+) : TrashRepository {
+
+    override suspend fun getTrashedItems(): List<TrashedItem> {
+        return withContext(Dispatchers.IO) {
+            trashBin.entries()
+                .sortedByDescending { it.trashedAt }
+                .map { entry ->
+                    TrashedItem(
+                        originalPath = entry.originalPath,
+                        trashedAt = entry.trashedAt,
+                        purgeAt = trashBin.purgeTimeOf(entry),
+                        size = entry.size.takeIf { !entry.isDirectory },
+                        isDirectory = entry.isDirectory
+                    )
+                }
+        }
+    }
+
+    override suspend fun restore(originalPaths: List<String>): Result<Int> {
+        return withContext(Dispatchers.IO) {
+            try {
+                Result.success(trashBin.restore(originalPaths).size)
+            } catch (e: Exception) {
+                Result.failure(e)
+            }
+        }
+    }
+
+    override suspend fun emptyTrash(): Result<Int> {
+        return withContext(Dispatchers.IO) {
+            try {
+                Result.success(trashBin.purgeAll().purgedCount)
+            } catch (e: Exception) {
+                Result.failure(e)
+            }
+        }
+    }
+}
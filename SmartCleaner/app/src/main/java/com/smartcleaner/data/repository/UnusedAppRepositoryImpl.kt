@@ -1,7 +1,6 @@
 package com.smartcleaner.data.repository
 
 import android.app.AppOpsManager
-import android.app.usage.StorageStatsManager
 import android.app.usage.UsageStats
 import android.app.usage.UsageStatsManager
 import android.content.Context
@@ -15,9 +14,8 @@ import android.graphics.drawable.Drawable
 import android.net.Uri
 import android.os.Build
 import android.os.Process
-import android.os.storage.StorageManager
 import android.provider.Settings
-import androidx.annotation.RequiresApi
+import com.smartcleaner.data.stats.PackageStatsCache
 import com.smartcleaner.domain.model.*
 import com.smartcleaner.domain.repository.AppUsageDetails
 import com.smartcleaner.domain.repository.UnusedAppRepository
@@ -35,7 +33,8 @@ import javax.inject.Singleton
 
 @Singleton
 class UnusedAppRepositoryImpl @Inject constructor(
-    @ApplicationContext private val context: Context
+    @ApplicationContext private val context: Context,
+    private val packageStatsCache: PackageStatsCache
 ) : UnusedAppRepository {
 
     private var cachedAnalysisResult: UnusedAppAnalysisResult? = null
@@ -103,6 +102,9 @@ class UnusedAppRepositoryImpl @Inject constructor(
             // Create map for quick lookup
             val usageMap = usageStats.associateBy { it.packageName }
             
+            // Sizes and labels, shared with the junk scan
+            val packageStats = packageStatsCache.getAll()
+            
             emit(40)
             
             // Analyze each package (40%)
@@ -139,14 +141,14 @@ class UnusedAppRepositoryImpl @Inject constructor(
                     
                     if (category != null) {
                         // Get app size
-                        val (totalSize, cacheSize, dataSize) = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                            getAppSize(packageInfo.packageName)
-                        } else {
-                            Triple(0L, 0L, 0L)
-                        }
+                        val stats = packageStats[packageInfo.packageName]
+                        val totalSize = stats?.totalBytes ?: 0L
+                        val cacheSize = stats?.cacheBytes ?: 0L
+                        val dataSize = stats?.dataBytes ?: 0L
                         
                         // Get app name and icon
-                        val appName = if (appInfo != null) pm.getApplicationLabel(appInfo).toString() else packageInfo.packageName
+                        val appName = stats?.appName
+                            ?: if (appInfo != null) pm.getApplicationLabel(appInfo).toString() else packageInfo.packageName
                         val appIcon = if (appInfo != null) getAppIconBytes(appInfo) else ByteArray(0)
                         
                         val isSystemApp = if (appInfo != null) (appInfo.flags and ApplicationInfo.FLAG_SYSTEM) != 0 else false
@@ -300,32 +302,6 @@ class UnusedAppRepositoryImpl @Inject constructor(
 
     // Private helper methods
 
-    @RequiresApi(Build.VERSION_CODES.O)
-    private fun getAppSize(packageName: String): Triple<Long, Long, Long> {
-        return try {
-            val storageStatsManager = context.getSystemService(Context.STORAGE_STATS_SERVICE) 
-                as StorageStatsManager
-            val storageManager = context.getSystemService(Context.STORAGE_SERVICE) 
-                as StorageManager
-            
-            val uuid = storageManager.getUuidForPath(context.filesDir)
-            
-            val stats = storageStatsManager.queryStatsForPackage(
-                uuid,
-                packageName,
-                Process.myUserHandle()
-            )
-            
-            val totalSize = stats.appBytes + stats.dataBytes + stats.cacheBytes
-            val cacheSize = stats.cacheBytes
-            val dataSize = stats.dataBytes
-            
-            Triple(totalSize, cacheSize, dataSize)
-        } catch (e: Exception) {
-            Triple(0L, 0L, 0L)
-        }
-    }
-
     private fun getAppIconBytes(appInfo: ApplicationInfo): ByteArray? {
         return try {
             val pm = context.packageManager
@@ -0,0 +1,228 @@
+package com.smartcleaner.data.stats
+
+import android.app.usage.StorageStatsManager
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.ApplicationInfo
+import android.content.pm.PackageInfo
+import android.content.pm.PackageManager
+import android.os.Build
+import android.os.Process
+import android.os.storage.StorageManager
+import androidx.core.content.ContextCompat
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Storage stats and label of an installed package
+ */
+data class PackageStats(
+    val packageName: String,
+    val appName: String,
+    val appBytes: Long,
+    val dataBytes: Long,
+    val cacheBytes: Long,
+    val isSystemApp: Boolean
+) {
+    val totalBytes: Long
+        get() = appBytes + dataBytes + cacheBytes
+}
+
+/**
+ * Process-wide cache of per-package storage stats
+ *
+ * Every queryStatsForPackage call is a binder transaction, so the junk scan,
+ * the app cache list and the unused-app analysis share one dataset instead
+ * of querying each package again per screen. Missing entries are fetched in
+ * parallel with at most [BINDER_CONCURRENCY] calls in flight.
+ *
+ * Entries are dropped when their package is added, removed, changed or has
+ * its data cleared (while the process runs), and through [invalidate] when
+ * the app clears a cache itself. A fetch that overlaps an invalidation still
+ * returns its values but does not store them.
+ */
+@Singleton
+class PackageStatsCache @Inject constructor(
+    @ApplicationContext private val context: Context
+) {
+
+    companion object {
+        private const val BINDER_CONCURRENCY = 4
+    }
+
+    private val stats = ConcurrentHashMap<String, PackageStats>()
+    private val unreadable: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    private val binderPermits = Semaphore(BINDER_CONCURRENCY)
+    private val fetchMutex = Mutex()
+    private val version = AtomicLong()
+
+    @Volatile
+    private var installedPackages: List<PackageInfo>? = null
+
+    private val packageReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            when (intent.action) {
+                Intent.ACTION_PACKAGE_ADDED, Intent.ACTION_PACKAGE_REMOVED -> {
+                    installedPackages = null
+                    invalidate(packageName)
+                }
+                else -> invalidate(packageName)
+            }
+        }
+    }
+
+    init {
+        val filter = IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addAction(Intent.ACTION_PACKAGE_CHANGED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addAction(Intent.ACTION_PACKAGE_DATA_CLEARED)
+            addDataScheme("package")
+        }
+        // Package broadcasts come from the system, so the receiver need not be exported
+        ContextCompat.registerReceiver(
+            context,
+            packageReceiver,
+            filter,
+            ContextCompat.RECEIVER_NOT_EXPORTED
+        )
+    }
+
+    /**
+     * Stats of every installed package whose stats can be read
+     */
+    suspend fun getAll(): Map<String, PackageStats> {
+        val packages = withContext(Dispatchers.IO) { loadInstalledPackages() }
+        val fetched = fetchMissing(packages)
+        return packages.mapNotNull { info ->
+            (stats[info.packageName] ?: fetched[info.packageName])?.let { info.packageName to it }
+        }.toMap()
+    }
+
+    suspend fun get(packageName: String): PackageStats? {
+        stats[packageName]?.let { return it }
+        val info = withContext(Dispatchers.IO) {
+            installedPackages?.find { it.packageName == packageName }
+                ?: runCatching { getPackageInfo(packageName) }.getOrNull()
+        } ?: return null
+        return stats[packageName] ?: fetchMissing(listOf(info))[packageName]
+    }
+
+    /**
+     * Drop one package, e.g. after its cache was cleared
+     */
+    fun invalidate(packageName: String) {
+        version.incrementAndGet()
+        stats.remove(packageName)
+        unreadable.remove(packageName)
+    }
+
+    fun invalidateAll() {
+        version.incrementAndGet()
+        installedPackages = null
+        stats.clear()
+        unreadable.clear()
+    }
+
+    /**
+     * @return Stats fetched by this call, by package name
+     */
+    private suspend fun fetchMissing(packages: List<PackageInfo>): Map<String, PackageStats> {
+        // One fetch at a time, so concurrent screens don't query the same packages twice
+        return fetchMutex.withLock {
+            val missing = packages.filter { it.packageName !in stats && it.packageName !in unreadable }
+            if (missing.isEmpty()) return@withLock emptyMap()
+
+            val startVersion = version.get()
+            val storageStatsManager = context.getSystemService(Context.STORAGE_STATS_SERVICE)
+                as StorageStatsManager
+            val storageManager = context.getSystemService(Context.STORAGE_SERVICE)
+                as StorageManager
+            val uuid = withContext(Dispatchers.IO) { storageManager.getUuidForPath(context.filesDir) }
+
+            val results = coroutineScope {
+                missing.map { info ->
+                    async(Dispatchers.IO) {
+                        binderPermits.withPermit { query(storageStatsManager, uuid, info) }
+                    }
+                }.awaitAll()
+            }
+
+            val fetched = HashMap<String, PackageStats>(results.size)
+            missing.forEachIndexed { index, info ->
+                val result = results[index]
+                if (result != null) fetched[info.packageName] = result else unreadable.add(info.packageName)
+            }
+            // Invalidated mid-fetch: return the values but don't keep what may be stale
+            if (version.get() == startVersion) stats.putAll(fetched)
+            fetched
+        }
+    }
+
+    private fun query(
+        storageStatsManager: StorageStatsManager,
+        uuid: UUID,
+        info: PackageInfo
+    ): PackageStats? {
+        return try {
+            val result = storageStatsManager.queryStatsForPackage(
+                uuid,
+                info.packageName,
+                Process.myUserHandle()
+            )
+            val appInfo = info.applicationInfo
+            PackageStats(
+                packageName = info.packageName,
+                appName = appInfo?.let { context.packageManager.getApplicationLabel(it).toString() }
+                    ?: info.packageName,
+                appBytes = result.appBytes,
+                dataBytes = result.dataBytes,
+                cacheBytes = result.cacheBytes,
+                isSystemApp = appInfo != null && (appInfo.flags and ApplicationInfo.FLAG_SYSTEM) != 0
+            )
+        } catch (e: Exception) {
+            // Permission denied for system apps
+            null
+        }
+    }
+
+    private fun loadInstalledPackages(): List<PackageInfo> {
+        installedPackages?.let { return it }
+        val pm = context.packageManager
+        val packages = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            pm.getInstalledPackages(PackageManager.PackageInfoFlags.of(0))
+        } else {
+            @Suppress("DEPRECATION")
+            pm.getInstalledPackages(0)
+        }
+        installedPackages = packages
+        return packages
+    }
+
+    private fun getPackageInfo(packageName: String): PackageInfo {
+        val pm = context.packageManager
+        return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            pm.getPackageInfo(packageName, PackageManager.PackageInfoFlags.of(0))
+        } else {
+            @Suppress("DEPRECATION")
+            pm.getPackageInfo(packageName, 0)
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartcleaner.data.stats
+
+import com.smartcleaner.domain.model.FileCategory
+import com.smartcleaner.domain.model.StorageNode
+import java.io.File
+
+/**
+ * Builds the storage tree from a flat list of files
+ *
+ * Every file counts towards the size of each of its ancestors however deep
+ * it sits, but only directories down to [maxDepth] get a node. Directories
+ * smaller than [minSize] are left out of their parent's children (their
+ * bytes still count), and files of at least [minSize] directly inside a
+ * [maxDepth] directory become leaf nodes.
+ */
+class StorageTreeBuilder(root: File, private val maxDepth: Int, private val minSize: Long) {
+
+    companion object {
+        fun categoryOf(directoryName: String): FileCategory {
+            val name = directoryName.lowercase()
+            return when {
+                name.contains("download") -> FileCategory.DOWNLOADS
+                name.contains("dcim") || name.contains("pictures") || name.contains("images") -> FileCategory.IMAGES
+                name.contains("video") || name.contains("movies") -> FileCategory.VIDEOS
+                name.contains("music") || name.contains("audio") || name.contains("sounds") -> FileCategory.AUDIO
+                name.contains("documents") -> FileCategory.DOCUMENTS
+                name.contains("cache") -> FileCategory.CACHE
+                name.contains("android") -> FileCategory.SYSTEM
+                else -> FileCategory.OTHER
+            }
+        }
+    }
+
+    private class Directory(val path: String, val name: String, val depth: Int) {
+        var size = 0L
+        var fileCount = 0
+        val children = HashMap<String, Directory>()
+        val largeFiles = ArrayList<StorageNode>()
+    }
+
+    private val rootPath = root.absolutePath.trimEnd('/')
+    private val root = Directory(rootPath, root.name, 0)
+
+    /**
+     * @param path Absolute path of a file below the root; others are ignored
+     */
+    fun add(path: String, size: Long) {
+        if (!path.startsWith("$rootPath/")) return
+        val segments = path.substring(rootPath.length + 1).split('/')
+
+        var directory = root
+        directory.size += size
+        for (i in 0 until segments.size - 1) {
+            if (directory.depth == maxDepth) break
+            val parent = directory
+            directory = parent.children.getOrPut(segments[i]) {
+                Directory("${parent.path}/${segments[i]}", segments[i], parent.depth + 1)
+            }
+            directory.size += size
+        }
+
+        // Only files directly inside a directory count towards its file count
+        if (directory.depth != segments.size - 1) return
+        directory.fileCount++
+        if (directory.depth == maxDepth && size >= minSize) {
+            val name = segments.last()
+            directory.largeFiles.add(
+                StorageNode(
+                    path = path,
+                    name = name,
+                    size = size,
+                    percentage = 0f,
+                    depth = maxDepth + 1,
+                    fileCount = 1,
+                    category = FileCategory.fromExtension(name.substringAfterLast('.', ""))
+                )
+            )
+        }
+    }
+
+    /**
+     * @return The root node, or null if no bytes were added
+     */
+    fun build(): StorageNode? = if (root.size == 0L) null else toNode(root)
+
+    private fun toNode(directory: Directory): StorageNode {
+        val children = directory.children.values
+            .filter { it.size > 0 && it.size >= minSize }
+            .map { toNode(it) } + directory.largeFiles
+
+        return StorageNode(
+            path = directory.path,
+            name = directory.name,
+            size = directory.size,
+            percentage = 0f, // Set by the parent
+            depth = directory.depth,
+            children = children
+                .map { it.copy(percentage = (it.size.toFloat() / directory.size) * 100) }
+                .sortedByDescending { it.size },
+            fileCount = directory.fileCount,
+            category = categoryOf(directory.name)
+        )
+    }
+}
@@ -0,0 +1,244 @@
+package com.smartcleaner.data.trash
+
+import android.content.Context
+import android.os.Environment
+import dagger.hilt.android.qualifiers.ApplicationContext
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.json.Json
+import java.io.File
+import java.util.concurrent.TimeUnit
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Deletion by rename into a trash directory on the item's own volume
+ *
+ * Moving a top-level item is one rename, however big its tree is, so
+ * deleting returns at once. Items stay restorable until they are purged,
+ * which [purgeExpired] does after [retentionMs] from a background worker.
+ *
+ * The journal is written before items are moved (and again after, without
+ * the moves that failed), so after a crash every trashed item is either
+ * in the journal or still in place. Entries whose trashed copy is gone are
+ * dropped when the journal is next loaded.
+ */
+@Singleton
+class TrashBin internal constructor(
+    private val journalFile: File,
+    private val volumeRoots: () -> List<File>,
+    private val retentionMs: Long
+) {
+
+    @Inject
+    constructor(@ApplicationContext context: Context) : this(
+        File(context.filesDir, JOURNAL_FILE),
+        { volumeRootsOf(context) },
+        TimeUnit.DAYS.toMillis(RETENTION_DAYS)
+    )
+
+    @Serializable
+    data class Entry(
+        val id: String,
+        val originalPath: String,
+        val trashPath: String,
+        val trashedAt: Long,
+        val size: Long,        // -1 for directories, which aren't walked
+        val isDirectory: Boolean
+    )
+
+    @Serializable
+    private data class Journal(val entries: List<Entry>)
+
+    data class PurgeSummary(val purgedCount: Int, val failedCount: Int)
+
+    companion object {
+        const val DIRECTORY_NAME = ".smartcleaner-trash"
+        private const val JOURNAL_FILE = "trash_journal.json"
+        private const val RETENTION_DAYS = 7L
+
+        private val json = Json { ignoreUnknownKeys = true }
+
+        private fun volumeRootsOf(context: Context): List<File> {
+            // App-specific dirs are <volume>/Android/data/<package>/files
+            val volumes = context.getExternalFilesDirs(null).filterNotNull().mapNotNull { dir ->
+                dir.absolutePath.substringBefore("/Android/data/", "").takeIf { it.isNotEmpty() }?.let(::File)
+            }
+            return (listOf(Environment.getExternalStorageDirectory()) + volumes).distinctBy { it.absolutePath }
+        }
+    }
+
+    private val mutex = Mutex()
+    private var entries: MutableList<Entry>? = null
+    private var lastId = 0L
+
+    /**
+     * Move each path into the trash of its volume
+     *
+     * @param recursive Also move non-empty directories
+     * @return Trash entries by original path, for the paths that were moved
+     */
+    suspend fun moveToTrash(
+        paths: List<String>,
+        recursive: Boolean,
+        now: Long = System.currentTimeMillis()
+    ): Map<String, Entry> = mutex.withLock {
+        val journal = load()
+        val roots = volumeRoots()
+        val planned = paths.mapNotNull { path ->
+            val file = File(path)
+            if (!file.exists()) return@mapNotNull null
+            val isDirectory = file.isDirectory
+            if (isDirectory && !recursive && !file.list().isNullOrEmpty()) return@mapNotNull null
+            val trashDir = trashDirFor(file, roots) ?: return@mapNotNull null
+            val id = nextId(now)
+            Entry(
+                id = id,
+                originalPath = file.absolutePath,
+                trashPath = File(trashDir, id).absolutePath,
+                trashedAt = now,
+                size = if (isDirectory) -1L else file.length(),
+                isDirectory = isDirectory
+            )
+        }
+        if (planned.isEmpty()) return@withLock emptyMap()
+
+        journal.addAll(planned)
+        save(journal)
+
+        val moved = planned.filter { entry ->
+            val trashDir = File(entry.trashPath).parentFile!!
+            prepare(trashDir) && File(entry.originalPath).renameTo(File(entry.trashPath))
+        }
+        if (moved.size != planned.size) {
+            journal.removeAll((planned - moved.toSet()).toSet())
+            save(journal)
+        }
+        moved.associateBy { it.originalPath }
+    }
+
+    suspend fun entries(): List<Entry> = mutex.withLock { load().toList() }
+
+    fun purgeTimeOf(entry: Entry): Long = entry.trashedAt + retentionMs
+
+    /**
+     * Move trashed items back, newest first per original path
+     *
+     * An item isn't restored over something that took its place.
+     *
+     * @return The entries that were restored
+     */
+    suspend fun restore(originalPaths: Collection<String>): List<Entry> = mutex.withLock {
+        val journal = load()
+        val wanted = originalPaths.toSet()
+        val restored = journal
+            .filter { it.originalPath in wanted }
+            .sortedByDescending { it.trashedAt }
+            .distinctBy { it.originalPath }
+            .filter { entry ->
+                val original = File(entry.originalPath)
+                !original.exists() &&
+                    (original.parentFile?.let { it.isDirectory || it.mkdirs() } ?: false) &&
+                    File(entry.trashPath).renameTo(original)
+            }
+        if (restored.isNotEmpty()) {
+            journal.removeAll(restored.toSet())
+            save(journal)
+        }
+        restored
+    }
+
+    /**
+     * Delete items trashed more than the retention period ago, and anything
+     * in a trash directory the journal doesn't know (left by a crash mid-purge)
+     */
+    suspend fun purgeExpired(now: Long = System.currentTimeMillis()): PurgeSummary {
+        val orphans = mutex.withLock {
+            val known = load().mapTo(HashSet()) { File(it.trashPath).name }
+            volumeRoots().flatMap { root ->
+                File(root, DIRECTORY_NAME).listFiles()?.filter { it.name != ".nomedia" && it.name !in known }.orEmpty()
+            }
+        }
+        orphans.forEach { it.deleteRecursively() }
+        return purge { now - it.trashedAt >= retentionMs }
+    }
+
+    suspend fun purgeAll(): PurgeSummary = purge { true }
+
+    private suspend fun purge(selector: (Entry) -> Boolean): PurgeSummary {
+        // Entries leave the journal first so nothing restores a half-deleted
+        // item; deleting can take long, so it runs without the lock
+        val expired = mutex.withLock {
+            val journal = load()
+            journal.filter(selector).also { selected ->
+                if (selected.isNotEmpty()) {
+                    journal.removeAll(selected.toSet())
+                    save(journal)
+                }
+            }
+        }
+        val failed = expired.filter { entry ->
+            val file = File(entry.trashPath)
+            file.exists() && !file.deleteRecursively()
+        }
+        if (failed.isNotEmpty()) {
+            mutex.withLock {
+                val journal = load()
+                journal.addAll(failed.filter { File(it.trashPath).exists() })
+                save(journal)
+            }
+        }
+        return PurgeSummary(expired.size - failed.size, failed.size)
+    }
+
+    private fun trashDirFor(file: File, roots: List<File>): File? {
+        val path = file.absolutePath
+        val root = roots.firstOrNull { path.startsWith(it.absolutePath.trimEnd('/') + "/") } ?: return null
+        val trashDir = File(root, DIRECTORY_NAME)
+        // Nothing inside the trash is trashed again
+        if (path == trashDir.absolutePath || path.startsWith(trashDir.absolutePath + "/")) return null
+        return trashDir
+    }
+
+    private fun prepare(trashDir: File): Boolean {
+        if (trashDir.isDirectory) return true
+        if (!trashDir.mkdirs()) return false
+        // Keep trashed media out of galleries
+        try {
+            File(trashDir, ".nomedia").createNewFile()
+        } catch (e: Exception) {
+            // Hidden directory name is enough for most indexers
+        }
+        return true
+    }
+
+    private fun nextId(now: Long): String {
+        lastId = maxOf(lastId + 1, now * 1000)
+        return lastId.toString()
+    }
+
+    private fun load(): MutableList<Entry> {
+        entries?.let { return it }
+        val loaded = try {
+            if (journalFile.isFile) {
+                json.decodeFromString(Journal.serializer(), journalFile.readText()).entries
+            } else {
+                emptyList()
+            }
+        } catch (e: Exception) {
+            emptyList()
+        }
+        // Moves that never happened, or trash emptied outside the app
+        return loaded.filter { File(it.trashPath).exists() }.toMutableList().also {
+            entries = it
+            lastId = it.maxOfOrNull { entry -> entry.id.toLongOrNull() ?: 0L } ?: 0L
+        }
+    }
+
+    private fun save(journal: List<Entry>) {
+        val temp = File(journalFile.path + ".tmp")
+        temp.writeText(json.encodeToString(Journal.serializer(), Journal(journal)))
+        temp.renameTo(journalFile)
+    }
+}
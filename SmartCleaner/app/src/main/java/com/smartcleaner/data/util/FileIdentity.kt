@@ -0,0 +1,79 @@
+package com.smartcleaner.data.util
+
+import android.os.Build
+import android.system.ErrnoException
+import android.system.Os
+import java.io.File
+
+/**
+ * Inode-level identity of a file, read with a single lstat() call
+ *
+ * Hard links share (device, inode), so two paths with the same key
+ * have the same content and occupy the same blocks on disk.
+ * [lastModified] has the millisecond precision of File.lastModified(),
+ * so both can key the same caches.
+ */
+data class FileIdentity(
+    val device: Long,
+    val inode: Long,
+    val linkCount: Long,
+    val size: Long,
+    val allocatedBytes: Long,  // st_blocks * 512, what deleting the last link frees
+    val lastModified: Long
+) {
+    val key: String
+        get() = "$device:$inode"
+
+    companion object {
+        private const val BLOCK_UNIT = 512L
+        private const val NANOS_PER_MILLI = 1_000_000L
+
+        /**
+         * Stat a file without following symlinks
+         * @return Identity, or null if the file cannot be stat'ed
+         */
+        fun of(file: File): FileIdentity? {
+            return try {
+                val stat = Os.lstat(file.absolutePath)
+                // st_mtim arrived in API 27; before that only whole seconds
+                // are exposed, so ask File for the milliseconds
+                val lastModified = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                    toMillis(stat.st_mtim.tv_sec, stat.st_mtim.tv_nsec)
+                } else {
+                    file.lastModified()
+                }
+                fromStat(
+                    device = stat.st_dev,
+                    inode = stat.st_ino,
+                    linkCount = stat.st_nlink,
+                    size = stat.st_size,
+                    blocks = stat.st_blocks,
+                    lastModified = lastModified
+                )
+            } catch (e: ErrnoException) {
+                null
+            }
+        }
+
+        fun fromStat(
+            device: Long,
+            inode: Long,
+            linkCount: Long,
+            size: Long,
+            blocks: Long,
+            lastModified: Long
+        ) = FileIdentity(
+            device = device,
+            inode = inode,
+            linkCount = linkCount,
+            size = size,
+            allocatedBytes = blocks * BLOCK_UNIT,
+            lastModified = lastModified
+        )
+
+        /**
+         * A stat timespec in milliseconds, truncated as File.lastModified() does
+         */
+        fun toMillis(seconds: Long, nanos: Long): Long = seconds * 1000 + nanos / NANOS_PER_MILLI
+    }
+}
@@ -4,6 +4,7 @@ import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.graphics.Color
 import java.io.File
+import java.io.InputStream
 import java.security.MessageDigest
 import kotlin.math.abs
 
@@ -12,6 +13,11 @@ import kotlin.math.abs
  */
 object HashUtil {
     
+    // Shorter side of the downsampled bitmap used for image analysis
+    private const val ANALYSIS_SIZE = 256
+    private const val CLIP_LOW = 5
+    private const val CLIP_HIGH = 250
+    
     /**
      * Calculate MD5 hash of a file
      */
@@ -42,74 +48,210 @@ object HashUtil {
         return digest.digest().joinToString("") { "%02x".format(it) }
     }
     
+    /**
+     * Compare two files byte by byte
+     * Used to confirm a hash match before an irreversible operation
+     */
+    fun contentEquals(file1: File, file2: File): Boolean {
+        if (file1.length() != file2.length()) return false
+        file1.inputStream().use { in1 ->
+            file2.inputStream().use { in2 ->
+                val buffer1 = ByteArray(65536)
+                val buffer2 = ByteArray(65536)
+                while (true) {
+                    val read1 = readFully(in1, buffer1)
+                    val read2 = readFully(in2, buffer2)
+                    if (read1 != read2) return false
+                    if (read1 == 0) return true
+                    for (i in 0 until read1) {
+                        if (buffer1[i] != buffer2[i]) return false
+                    }
+                }
+            }
+        }
+    }
+    
+    private fun readFully(input: InputStream, buffer: ByteArray): Int {
+        var total = 0
+        while (total < buffer.size) {
+            val read = input.read(buffer, total, buffer.size - total)
+            if (read == -1) break
+            total += read
+        }
+        return total
+    }
+    
     /**
      * Calculate perceptual hash (pHash) for image
-     * Uses Discrete Cosine Transform (DCT) for image similarity
+     */
+    fun calculatePerceptualHash(file: File): String? = analyzeImage(file, measureQuality = false)?.pHash
+    
+    /**
+     * Decode an image once, downsampled, and derive everything the duplicate
+     * finder needs from that single bitmap: pHash, sharpness and exposure
      * 
-     * Algorithm:
-     * 1. Resize image to 32x32
-     * 2. Convert to grayscale
-     * 3. Apply DCT
-     * 4. Get top-left 8x8 frequencies
-     * 5. Calculate median
-     * 6. Generate 64-bit hash
+     * The decode uses inSampleSize so the shorter side is at least
+     * [ANALYSIS_SIZE] px, which is far cheaper than a full-resolution decode.
+     * Sharpness and exposure take another pass over every pixel, so they are
+     * only measured when [measureQuality] is set.
      */
-    fun calculatePerceptualHash(file: File): String? {
+    fun analyzeImage(file: File, measureQuality: Boolean = true): ImageAnalysis? {
         return try {
-            // Decode image
+            val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+            BitmapFactory.decodeFile(file.absolutePath, bounds)
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null
+            
             val options = BitmapFactory.Options().apply {
                 inPreferredConfig = Bitmap.Config.ARGB_8888
+                inSampleSize = sampleSizeFor(bounds.outWidth, bounds.outHeight)
             }
             val bitmap = BitmapFactory.decodeFile(file.absolutePath, options) ?: return null
             
-            // Resize to 32x32
-            val resized = Bitmap.createScaledBitmap(bitmap, 32, 32, false)
-            
-            // Convert to grayscale
-            val grayscale = Array(32) { DoubleArray(32) }
-            for (y in 0 until 32) {
-                for (x in 0 until 32) {
-                    val pixel = resized.getPixel(x, y)
-                    val r = Color.red(pixel)
-                    val g = Color.green(pixel)
-                    val b = Color.blue(pixel)
-                    // Standard grayscale conversion
-                    grayscale[y][x] = (0.299 * r + 0.587 * g + 0.114 * b)
+            val width = bitmap.width
+            val height = bitmap.height
+            val luma = if (measureQuality) {
+                val pixels = IntArray(width * height)
+                bitmap.getPixels(pixels, 0, width, 0, 0, width, height)
+                IntArray(pixels.size) { i ->
+                    val pixel = pixels[i]
+                    (299 * Color.red(pixel) + 587 * Color.green(pixel) + 114 * Color.blue(pixel)) / 1000
                 }
+            } else {
+                null
             }
             
-            // Apply DCT
-            val dct = applyDCT(grayscale)
+            val resized = Bitmap.createScaledBitmap(bitmap, 32, 32, true)
+            val pHash = perceptualHashOf(resized)
             
-            // Get top-left 8x8 (low frequencies)
-            val lowFreq = Array(8) { DoubleArray(8) }
-            for (y in 0 until 8) {
-                for (x in 0 until 8) {
-                    lowFreq[y][x] = dct[y][x]
-                }
-            }
-            
-            // Calculate median
-            val values = lowFreq.flatMap { it.toList() }
-            val median = values.sorted()[values.size / 2]
+            if (resized !== bitmap) resized.recycle()
+            bitmap.recycle()
             
-            // Generate hash (64 bits)
-            val hash = StringBuilder()
-            for (y in 0 until 8) {
-                for (x in 0 until 8) {
-                    hash.append(if (lowFreq[y][x] > median) '1' else '0')
-                }
+            ImageAnalysis(
+                pHash = pHash,
+                width = bounds.outWidth,
+                height = bounds.outHeight,
+                sharpness = luma?.let { laplacianVariance(it, width, height) },
+                exposure = luma?.let { exposureScore(it) }
+            )
+        } catch (e: Exception) {
+            null
+        }
+    }
+    
+    /**
+     * pHash of a 32x32 bitmap
+     * 
+     * Algorithm:
+     * 1. Convert to grayscale
+     * 2. Apply DCT
+     * 3. Get top-left 8x8 frequencies
+     * 4. Calculate median
+     * 5. Generate 64-bit hash
+     */
+    private fun perceptualHashOf(resized: Bitmap): String {
+        // Convert to grayscale
+        val grayscale = Array(32) { DoubleArray(32) }
+        for (y in 0 until 32) {
+            for (x in 0 until 32) {
+                val pixel = resized.getPixel(x, y)
+                val r = Color.red(pixel)
+                val g = Color.green(pixel)
+                val b = Color.blue(pixel)
+                // Standard grayscale conversion
+                grayscale[y][x] = (0.299 * r + 0.587 * g + 0.114 * b)
             }
-            
-            // Convert binary to hex
-            val hexHash = hash.toString().chunked(4).joinToString("") {
-                it.toInt(2).toString(16)
+        }
+        
+        // Apply DCT
+        val dct = applyDCT(grayscale)
+        
+        // Get top-left 8x8 (low frequencies)
+        val lowFreq = Array(8) { DoubleArray(8) }
+        for (y in 0 until 8) {
+            for (x in 0 until 8) {
+                lowFreq[y][x] = dct[y][x]
+            }
+        }
+        
+        // Calculate median
+        val values = lowFreq.flatMap { it.toList() }
+        val median = values.sorted()[values.size / 2]
+        
+        // Generate hash (64 bits)
+        val hash = StringBuilder()
+        for (y in 0 until 8) {
+            for (x in 0 until 8) {
+                hash.append(if (lowFreq[y][x] > median) '1' else '0')
+            }
+        }
+        
+        // Convert binary to hex
+        return hash.toString().chunked(4).joinToString("") {
+            it.toInt(2).toString(16)
+        }
+    }
+    
+    private fun sampleSizeFor(width: Int, height: Int): Int {
+        var sampleSize = 1
+        while (minOf(width, height) / (sampleSize * 2) >= ANALYSIS_SIZE) {
+            sampleSize *= 2
+        }
+        return sampleSize
+    }
+    
+    /**
+     * Variance of the 4-neighbour Laplacian; higher means sharper edges
+     */
+    fun laplacianVariance(luma: IntArray, width: Int, height: Int): Double {
+        if (width < 3 || height < 3) return 0.0
+        var sum = 0.0
+        var sumSquares = 0.0
+        var count = 0
+        for (y in 1 until height - 1) {
+            val row = y * width
+            for (x in 1 until width - 1) {
+                val i = row + x
+                val laplacian = luma[i - width] + luma[i + width] + luma[i - 1] + luma[i + 1] - 4 * luma[i]
+                sum += laplacian
+                sumSquares += laplacian.toDouble() * laplacian
+                count++
+            }
+        }
+        val mean = sum / count
+        return sumSquares / count - mean * mean
+    }
+    
+    /**
+     * 1.0 for a mid-grey mean with no clipping, towards 0.0 for dark,
+     * blown-out or heavily clipped frames
+     */
+    fun exposureScore(luma: IntArray): Float {
+        if (luma.isEmpty()) return 0f
+        var sum = 0L
+        var clipped = 0
+        for (value in luma) {
+            sum += value
+            if (value <= CLIP_LOW || value >= CLIP_HIGH) clipped++
+        }
+        val mean = sum.toFloat() / luma.size / 255f
+        val balance = 1f - abs(mean - 0.5f) * 2f
+        val clippedFraction = clipped.toFloat() / luma.size
+        return (balance * (1f - clippedFraction)).coerceIn(0f, 1f)
+    }
+    
+    /**
+     * Read image dimensions from the file header without decoding pixels
+     * @return (width, height), or null if the file is not a decodable image
+     */
+    fun readImageSize(file: File): Pair<Int, Int>? {
+        return try {
+            val options = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+            BitmapFactory.decodeFile(file.absolutePath, options)
+            if (options.outWidth > 0 && options.outHeight > 0) {
+                options.outWidth to options.outHeight
+            } else {
+                null
             }
-            
-            bitmap.recycle()
-            resized.recycle()
-            
-            hexHash
         } catch (e: Exception) {
             null
         }
@@ -123,9 +265,16 @@ object HashUtil {
     fun hammingDistance(hash1: String, hash2: String): Int {
         if (hash1.length != hash2.length) return Int.MAX_VALUE
         
+        // Hashes are hex, so count differing bits per nibble rather than differing chars
         var distance = 0
         for (i in hash1.indices) {
-            if (hash1[i] != hash2[i]) distance++
+            val a = Character.digit(hash1[i], 16)
+            val b = Character.digit(hash2[i], 16)
+            distance += if (a < 0 || b < 0) {
+                if (hash1[i] != hash2[i]) 4 else 0
+            } else {
+                Integer.bitCount(a xor b)
+            }
         }
         return distance
     }
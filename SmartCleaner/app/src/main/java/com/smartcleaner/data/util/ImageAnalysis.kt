@@ -0,0 +1,12 @@
+package com.smartcleaner.data.util
+
+/**
+ * Everything derived from one downsampled decode of an image
+ */
+data class ImageAnalysis(
+    val pHash: String,
+    val width: Int,            // Original dimensions, from the header
+    val height: Int,
+    val sharpness: Double?,    // Laplacian variance of the downsampled luma, null if not measured
+    val exposure: Float?       // 0.0 (dark/blown out) to 1.0 (balanced), null if not measured
+)
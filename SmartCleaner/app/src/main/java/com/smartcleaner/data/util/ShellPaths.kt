@@ -0,0 +1,23 @@
+package com.smartcleaner.data.util
+
+/**
+ * Path helpers for commands run through the root shell
+ */
+object ShellPaths {
+
+    private val EMULATED_STORAGE = Regex("^/storage/emulated/(\\d+)/")
+
+    fun isEmulatedStorage(path: String): Boolean = EMULATED_STORAGE.containsMatchIn(path)
+
+    /**
+     * Backing path of shared storage, which bypasses the FUSE daemon
+     */
+    fun toDataMediaPath(path: String): String {
+        return EMULATED_STORAGE.replace(path) { "/data/media/${it.groupValues[1]}/" }
+    }
+
+    /**
+     * Single-quote [path] for sh
+     */
+    fun quote(path: String): String = "'" + path.replace("'", "'\\''") + "'"
+}
@@ -7,7 +7,7 @@ import com.smartcleaner.domain.model.AutoCleanResult
 import com.smartcleaner.domain.repository.*
 import dagger.assisted.Assisted
 import dagger.assisted.AssistedInject
-import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.last
 import java.util.concurrent.TimeUnit
 
 @HiltWorker
@@ -34,20 +34,20 @@ class AutoCleanWorker @AssistedInject constructor(
             // Clean junk if enabled
             if (schedule.cleanJunk) {
                 try {
-                    junkRepository.scanJunkFiles().first()
+                    junkRepository.scanJunkFiles().last()
                     val result = junkRepository.getScanResults()
                     var deletedCount = 0
                     var deletedSize = 0L
-                    result.groups.flatMap { it.files }.forEach { f ->
-                         val res = junkRepository.deleteJunkFile(f.path)
-                         if (res.isSuccess) {
-                             deletedCount++
-                             deletedSize += f.size
-                         }
+                    // One batch per type instead of a call per file
+                    result.groups.map { it.type }.forEach { type ->
+                        junkRepository.deleteJunkByType(type).getOrNull()?.let { (count, size) ->
+                            deletedCount += count
+                            deletedSize += size
+                        }
                     }
                     if (deletedCount > 0) {
                         totalCleaned += deletedCount
-                        totalSpace += result.totalSize
+                        totalSpace += deletedSize
                         tasksCompleted.add("Junk cleaned")
                     }
                 } catch (e: Exception) {
@@ -0,0 +1,59 @@
+package com.smartcleaner.data.worker
+
+import android.content.Context
+import androidx.hilt.work.HiltWorker
+import androidx.work.*
+import com.smartcleaner.data.trash.TrashBin
+import dagger.assisted.Assisted
+import dagger.assisted.AssistedInject
+import java.util.concurrent.TimeUnit
+
+/**
+ * Deletes trashed items once their retention period is over
+ *
+ * Runs daily and only while the device is idle and the battery isn't low,
+ * so purging large trees never competes with the user.
+ */
+@HiltWorker
+class TrashPurgeWorker @AssistedInject constructor(
+    @Assisted context: Context,
+    @Assisted workerParams: WorkerParameters,
+    private val trashBin: TrashBin
+) : CoroutineWorker(context, workerParams) {
+
+    override suspend fun doWork(): Result {
+        return try {
+            val summary = trashBin.purgeExpired()
+            Result.success(
+                workDataOf(
+                    "items_purged" to summary.purgedCount,
+                    "items_failed" to summary.failedCount
+                )
+            )
+        } catch (e: Exception) {
+            Result.retry()
+        }
+    }
+
+    companion object {
+        const val WORK_NAME = "trash_purge_work"
+        
+        fun scheduleWork(context: Context) {
+            val constraints = Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresDeviceIdle(true)
+                .build()
+            
+            val workRequest = PeriodicWorkRequestBuilder<TrashPurgeWorker>(1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build()
+            
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(
+                    WORK_NAME,
+                    ExistingPeriodicWorkPolicy.KEEP,
+                    workRequest
+                )
+        }
+    }
+}
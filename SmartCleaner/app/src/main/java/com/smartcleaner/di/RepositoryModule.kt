@@ -1,8 +1,14 @@
 package com.smartcleaner.di
 
 import android.content.Context
+import com.smartcleaner.data.apk.ApkInspector
+import com.smartcleaner.data.dedup.HardLinkDeduplicator
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.media.MediaStoreSource
 import com.smartcleaner.data.ml.JunkClassifier
 import com.smartcleaner.data.repository.*
+import com.smartcleaner.data.stats.PackageStatsCache
+import com.smartcleaner.data.trash.TrashBin
 import com.smartcleaner.domain.repository.*
 import dagger.Module
 import dagger.Provides
@@ -18,17 +24,23 @@ object RepositoryModule {
     @Provides
     @Singleton
     fun provideLeftoverRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        batchDeleter: BatchDeleter,
+        apkInspector: ApkInspector
     ): LeftoverRepository {
-        return LeftoverRepositoryImpl(context)
+        return LeftoverRepositoryImpl(context, batchDeleter, apkInspector)
     }
 
     @Provides
     @Singleton
     fun provideJunkRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        packageStatsCache: PackageStatsCache,
+        batchDeleter: BatchDeleter,
+        apkInspector: ApkInspector,
+        mediaStoreSource: MediaStoreSource
     ): JunkRepository {
-        return JunkRepositoryImpl(context)
+        return JunkRepositoryImpl(context, packageStatsCache, batchDeleter, apkInspector, mediaStoreSource)
     }
 
     @Provides
@@ -42,9 +54,10 @@ object RepositoryModule {
     @Provides
     @Singleton
     fun provideUnusedAppRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        packageStatsCache: PackageStatsCache
     ): UnusedAppRepository {
-        return UnusedAppRepositoryImpl(context)
+        return UnusedAppRepositoryImpl(context, packageStatsCache)
     }
 
     @Provides
@@ -59,25 +72,31 @@ object RepositoryModule {
     @Provides
     @Singleton
     fun provideDuplicateFinderRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        hardLinkDeduplicator: HardLinkDeduplicator,
+        batchDeleter: BatchDeleter,
+        mediaStoreSource: MediaStoreSource
     ): DuplicateFinderRepository {
-        return DuplicateFinderRepositoryImpl(context)
+        return DuplicateFinderRepositoryImpl(context, hardLinkDeduplicator, batchDeleter, mediaStoreSource)
     }
 
     @Provides
     @Singleton
     fun provideMessagingCleanerRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        batchDeleter: BatchDeleter,
+        mediaStoreSource: MediaStoreSource
     ): MessagingCleanerRepository {
-        return MessagingCleanerRepositoryImpl(context)
+        return MessagingCleanerRepositoryImpl(context, batchDeleter, mediaStoreSource)
     }
 
     @Provides
     @Singleton
     fun provideStorageAnalyzerRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        mediaStoreSource: MediaStoreSource
     ): StorageAnalyzerRepository {
-        return StorageAnalyzerRepositoryImpl(context)
+        return StorageAnalyzerRepositoryImpl(context, mediaStoreSource)
     }
 
     @Provides
@@ -91,9 +110,36 @@ object RepositoryModule {
     @Provides
     @Singleton
     fun provideDashboardRepository(
-        @ApplicationContext context: Context
+        @ApplicationContext context: Context,
+        junkRepository: JunkRepository
     ): DashboardRepository {
-        return DashboardRepositoryImpl(context)
+        return DashboardRepositoryImpl(context, junkRepository)
+    }
+
+    @Provides
+    @Singleton
+    fun provideCleaningPlanRepository(
+        junkRepository: JunkRepository,
+        duplicateFinderRepository: DuplicateFinderRepository,
+        leftoverRepository: LeftoverRepository,
+        messagingCleanerRepository: MessagingCleanerRepository,
+        batchDeleter: BatchDeleter
+    ): CleaningPlanRepository {
+        return CleaningPlanRepositoryImpl(
+            junkRepository,
+            duplicateFinderRepository,
+            leftoverRepository,
+            messagingCleanerRepository,
+            batchDeleter
+        )
+    }
+
+    @Provides
+    @Singleton
+    fun provideTrashRepository(
+        trashBin: TrashBin
+    ): TrashRepository {
+        return TrashRepositoryImpl(trashBin)
     }
 
     @Provides
@@ -0,0 +1,59 @@
+package com.smartcleaner.domain.model
+
+/**
+ * How much risk a cleaning plan may take per item
+ *
+ * Risk runs from 0 (regenerated on demand, like caches) to 1 (the only
+ * copy of something the user made).
+ */
+enum class SafetyPolicy(val maxRisk: Float) {
+    SAFE(0.25f),        // Caches, temp files, exact copies
+    BALANCED(0.55f),    // Plus leftovers, old APKs and burst frames
+    AGGRESSIVE(0.9f)    // Plus large files and messaging media
+}
+
+/**
+ * Scan result an item of a plan comes from
+ */
+enum class PlanSource {
+    JUNK,
+    DUPLICATE,
+    LEFTOVER,
+    MESSAGING
+}
+
+/**
+ * One path a plan deletes
+ */
+data class PlanItem(
+    val path: String,
+    val size: Long,
+    val risk: Float,
+    val source: PlanSource,
+    val isDirectory: Boolean = false
+)
+
+/**
+ * Items chosen to free [targetBytes] at the least risk
+ */
+data class CleaningPlan(
+    val targetBytes: Long,
+    val policy: SafetyPolicy,
+    val items: List<PlanItem>,
+    val plannedBytes: Long,
+    val planningTimeMs: Long = 0
+) {
+    /**
+     * False when everything the policy allows is still short of the target
+     */
+    val reachesTarget: Boolean get() = plannedBytes >= targetBytes
+}
+
+/**
+ * Result of executing a [CleaningPlan]
+ */
+data class CleaningPlanResult(
+    val deletedCount: Int,
+    val failedCount: Int,
+    val freedBytes: Long
+)
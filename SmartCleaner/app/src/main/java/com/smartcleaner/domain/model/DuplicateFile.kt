@@ -9,7 +9,14 @@ data class DuplicateFile(
     val size: Long,
     val hash: String,
     val lastModified: Long,
-    val groupId: String  // Hash or perceptual hash for grouping
+    val groupId: String,  // Hash or perceptual hash for grouping
+    val width: Int = 0,   // Image dimensions, 0 when unknown
+    val height: Int = 0,
+    val inodeKey: String? = null,      // "dev:ino", shared by hard links
+    val linkCount: Long = 1,           // Hard links to the same inode
+    val allocatedBytes: Long = size,   // Blocks on disk, may differ from size
+    val qualityScore: Float = 0f,      // Burst frames: sharpness/exposure score, 0 when unknown
+    val isDirectory: Boolean = false   // IDENTICAL_FOLDER entries; size is the tree's total
 )
 
 /**
@@ -20,8 +27,9 @@ data class DuplicateGroup(
     val files: List<DuplicateFile>,
     val duplicateType: DuplicateType,
     val totalSize: Long,
-    val wastedSpace: Long,  // (count - 1) * size
-    val similarity: Float = 1.0f  // 1.0 for exact match, <1.0 for similar images
+    val wastedSpace: Long,  // Bytes actually freed by keeping one copy (hard links excluded)
+    val similarity: Float = 1.0f,  // 1.0 for exact match, <1.0 for similar images
+    val bestFilePath: String? = null  // Best shot of a burst
 )
 
 /**
@@ -30,8 +38,10 @@ data class DuplicateGroup(
 enum class DuplicateType {
     EXACT_MATCH,        // Same MD5/SHA-256 hash
     SIMILAR_IMAGE,      // Similar perceptual hash (images only)
-    SIMILAR_NAME,       // Same name, similar size
-    SIMILAR_CONTENT     // Content-based similarity (future)
+    SIMILAR_NAME,       // Similar name (copy markers ignored), similar size
+    SIMILAR_CONTENT,    // Near-duplicate documents (text shingle similarity)
+    BURST_PHOTO,        // Camera shots taken seconds apart, confirmed by pHash
+    IDENTICAL_FOLDER    // Whole directory trees with the same Merkle digest
 }
 
 /**
@@ -57,10 +67,54 @@ data class DuplicateScanOptions(
     val maxFileSize: Long = Long.MAX_VALUE,
     val imageSimilarityThreshold: Float = 0.95f, // 95% similarity for images
     val usePerceptualHash: Boolean = true,
+    val detectSimilarNames: Boolean = true,
+    val nameSimilarityThreshold: Float = 0.8f, // Trigram similarity of canonical names
+    val nameSizeTolerance: Float = 0.1f,       // Max relative size difference for name matches
+    val detectSimilarContent: Boolean = true,
+    val contentSimilarityThreshold: Float = 0.8f, // Word-shingle similarity of document text
+    val detectBursts: Boolean = true,
+    val burstWindowMs: Long = 2_000L,             // Max EXIF capture gap between burst frames
+    val burstSimilarityThreshold: Float = 0.85f,
+    val detectIdenticalFolders: Boolean = true,
     val includePaths: List<String> = emptyList(),
     val excludePaths: List<String> = emptyList()
 )
 
+/**
+ * Policy used to decide which file of a duplicate group is kept.
+ * Policies are applied in order; later ones only break ties of earlier ones.
+ */
+enum class KeepPolicy {
+    OLDEST,                 // Earliest last-modified time
+    NEWEST,                 // Latest last-modified time
+    IN_DCIM,                // Prefer files under DCIM/
+    LARGEST_RESOLUTION,     // Most pixels (images only)
+    NOT_IN_WHATSAPP_SENT,   // Avoid WhatsApp "Sent" copies
+    SHORTEST_PATH,          // Fewest characters in the path
+    BEST_SHOT               // Highest sharpness/exposure score (bursts)
+}
+
+/**
+ * Bulk keep/delete plan for all duplicate groups
+ */
+data class SelectionPlan(
+    val policies: List<KeepPolicy>,
+    val keptPaths: Map<String, String>,  // groupId -> path kept
+    val deletePaths: Set<String>,
+    val reclaimableBytes: Long
+)
+
+/**
+ * Result of replacing duplicate copies with hard links
+ */
+data class LinkResult(
+    val linkedCount: Int,
+    val skippedCount: Int,  // Already linked, not byte-identical or on another filesystem
+    val failedCount: Int,
+    val freedBytes: Long,
+    val linkedPaths: Set<String> = emptySet()  // Targets now sharing the kept file's inode
+)
+
 /**
  * Perceptual hash for image similarity
  */
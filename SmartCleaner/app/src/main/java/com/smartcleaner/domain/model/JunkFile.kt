@@ -22,10 +22,21 @@ data class JunkFile(
     val size: Long,
     val lastModified: Long,
     val type: JunkType,
-    val packageName: String? = null, // For app cache
-    val isSafe: Boolean = true // ML prediction
+    val packageName: String? = null, // For app cache and APKs
+    val isSafe: Boolean = true, // ML prediction
+    val apkState: ApkState? = null // For APKs whose manifest could be read
 )
 
+/**
+ * How an APK file compares with the installed app of its package
+ */
+enum class ApkState {
+    NOT_INSTALLED,
+    INSTALLED,      // Same version is installed
+    OLDER_VERSION,  // A newer version is installed
+    NEWER_VERSION   // An update to the installed app
+}
+
 /**
  * Grouped junk files by type
  */
@@ -0,0 +1,69 @@
+package com.smartcleaner.domain.model
+
+/**
+ * How junk changed between two scans, overall or for one type or package
+ *
+ * A file present in both scans counts as grown when it got bigger;
+ * shrinking files are not counted.
+ */
+data class JunkDelta(
+    val addedCount: Int = 0,
+    val addedBytes: Long = 0,
+    val removedCount: Int = 0,
+    val removedBytes: Long = 0,
+    val grownCount: Int = 0,
+    val grownBytes: Long = 0
+) {
+    /**
+     * Junk that appeared since the previous scan
+     */
+    val newBytes: Long get() = addedBytes + grownBytes
+
+    val netBytes: Long get() = newBytes - removedBytes
+}
+
+/**
+ * Junk found since the previous scan or clean
+ */
+data class JunkDiffReport(
+    val previousScanAt: Long,
+    val scannedAt: Long,
+    val total: JunkDelta,
+    val byType: Map<JunkType, JunkDelta>,
+    val byPackage: Map<String, JunkDelta> // Only junk attributed to an app
+)
+
+/**
+ * New junk found by one scan, over the time since the one before
+ */
+data class JunkGrowthSample(
+    val scannedAt: Long,
+    val intervalMs: Long,
+    val totalBytes: Long,
+    val newBytes: Long
+) {
+    val bytesPerDay: Long get() = ratePerDay(newBytes, intervalMs)
+}
+
+/**
+ * Latest diff and recent history of junk growth, oldest sample first
+ */
+data class JunkGrowth(
+    val latest: JunkDiffReport?,
+    val samples: List<JunkGrowthSample>
+) {
+    /**
+     * New junk per day over the whole history, 0 without samples
+     */
+    val bytesPerDay: Long
+        get() = ratePerDay(samples.sumOf { it.newBytes }, samples.sumOf { it.intervalMs })
+}
+
+private const val DAY_MS = 24 * 60 * 60 * 1000L
+// Scans minutes apart would extrapolate wildly
+private const val MIN_INTERVAL_MS = 60 * 60 * 1000L
+
+private fun ratePerDay(bytes: Long, intervalMs: Long): Long {
+    if (intervalMs <= 0) return 0
+    return (bytes.toDouble() * DAY_MS / intervalMs.coerceAtLeast(MIN_INTERVAL_MS)).toLong()
+}
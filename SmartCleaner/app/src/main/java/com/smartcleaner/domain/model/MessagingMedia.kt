@@ -49,7 +49,8 @@ data class MessagingMedia(
     val dateModified: Long,
     val isFromGroup: Boolean = false,
     val chatName: String? = null,
-    val thumbnailPath: String? = null
+    val thumbnailPath: String? = null,
+    val duplicateOf: String? = null  // Kept copy with identical content (other chat, app or DCIM)
 )
 
 /**
@@ -63,7 +64,9 @@ data class MessagingMediaGroup(
     val files: List<MessagingMedia>,
     val totalSize: Long,
     val oldestDate: Long,
-    val newestDate: Long
+    val newestDate: Long,
+    val duplicateCount: Int = 0,     // Files that are copies of media kept elsewhere
+    val reclaimableSize: Long = 0
 )
 
 /**
@@ -73,7 +76,8 @@ data class MessagingScanResult(
     val appResults: Map<MessagingApp, AppMediaResult>,
     val totalSize: Long,
     val totalFiles: Int,
-    val scanDurationMs: Long
+    val scanDurationMs: Long,
+    val totalReclaimable: Long = 0  // Forwarded/saved copies across chats, apps and DCIM
 )
 
 /**
@@ -85,7 +89,8 @@ data class AppMediaResult(
     val groups: List<MessagingMediaGroup>,
     val totalSize: Long,
     val totalFiles: Int,
-    val breakdown: Map<MessagingMediaType, MediaTypeStats>
+    val breakdown: Map<MessagingMediaType, MediaTypeStats>,
+    val reclaimableSize: Long = 0
 )
 
 /**
@@ -109,5 +114,7 @@ data class MessagingScanOptions(
     val scanThumbnails: Boolean = true,
     val minFileAge: Long = 0,  // Only scan files older than X days
     val minFileSize: Long = 0,
-    val selectedApps: Set<MessagingApp> = MessagingApp.values().toSet()
+    val selectedApps: Set<MessagingApp> = MessagingApp.values().toSet(),
+    val detectDuplicates: Boolean = true,  // Same media saved in several chats/apps
+    val includeDcim: Boolean = true        // Treat camera copies as the originals
 )
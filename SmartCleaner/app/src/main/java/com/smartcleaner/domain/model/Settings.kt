@@ -25,7 +25,9 @@ data class AppPreferences(
     // Advanced
     val rootModeEnabled: Boolean = false,
     val aggressiveCleaning: Boolean = false,
-    val showHiddenFiles: Boolean = false
+    val showHiddenFiles: Boolean = false,
+    val fastScanEnabled: Boolean = true,  // List shared storage from MediaStore
+    val useTrash: Boolean = false         // Deleted items stay restorable for a week
 )
 
 enum class AppTheme {
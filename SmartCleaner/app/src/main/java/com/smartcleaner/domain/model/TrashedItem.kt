@@ -0,0 +1,12 @@
+package com.smartcleaner.domain.model
+
+/**
+ * An item moved to the trash, restorable until it is purged
+ */
+data class TrashedItem(
+    val originalPath: String,
+    val trashedAt: Long,
+    val purgeAt: Long,
+    val size: Long?, // Null for directories
+    val isDirectory: Boolean
+)
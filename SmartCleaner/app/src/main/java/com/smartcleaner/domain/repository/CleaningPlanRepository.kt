@@ -0,0 +1,21 @@
+package com.smartcleaner.domain.repository
+
+import com.smartcleaner.domain.model.CleaningPlan
+import com.smartcleaner.domain.model.CleaningPlanResult
+import com.smartcleaner.domain.model.SafetyPolicy
+
+/**
+ * Repository for goal-directed cleaning ("free N GB")
+ */
+interface CleaningPlanRepository {
+    /**
+     * Pick the least risky items that free at least [targetBytes]
+     * Uses the latest junk, duplicate, leftover and messaging results; nothing is scanned
+     */
+    suspend fun createPlan(targetBytes: Long, policy: SafetyPolicy): CleaningPlan
+    
+    /**
+     * Delete every item of the plan, bypassing the trash so the space is freed now
+     */
+    suspend fun executePlan(plan: CleaningPlan): Result<CleaningPlanResult>
+}
@@ -3,6 +3,7 @@ package com.smartcleaner.domain.repository
 import com.smartcleaner.domain.model.DuplicateGroup
 import com.smartcleaner.domain.model.DuplicateScanOptions
 import com.smartcleaner.domain.model.DuplicateScanResult
+import com.smartcleaner.domain.model.LinkResult
 import kotlinx.coroutines.flow.Flow
 import java.io.File
 
@@ -38,6 +39,28 @@ interface DuplicateFinderRepository {
      */
     suspend fun deleteFiles(groupId: String, filePaths: List<String>): Result<Int>
     
+    /**
+     * Delete files from any groups in one batch; each path is deleted once
+     * @param filePaths Files to delete (every group keeps at least one)
+     */
+    suspend fun deleteFiles(filePaths: List<String>): Result<Int>
+    
+    /**
+     * Replace the other files of an exact-match group with hard links to one file
+     * Every path stays intact; uses root for shared storage (/data/media)
+     * @param groupId The group ID
+     * @param keepPath File whose content all other paths will share
+     */
+    suspend fun linkDuplicates(groupId: String, keepPath: String): Result<LinkResult>
+    
+    /**
+     * Regroup similar images of the last scan at a new threshold
+     * Uses the pHashes kept in memory; no file is read or hashed again
+     * @param similarityThreshold Minimum pHash similarity (0.7 to 1.0)
+     * @return Updated scan result, or failure if the last scan computed no pHashes
+     */
+    suspend fun reclusterSimilarImages(similarityThreshold: Float): Result<DuplicateScanResult>
+    
     /**
      * Calculate MD5 hash of a file
      */
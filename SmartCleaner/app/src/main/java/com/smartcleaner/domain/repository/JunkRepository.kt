@@ -2,6 +2,7 @@ package com.smartcleaner.domain.repository
 
 import com.smartcleaner.domain.model.AppCacheInfo
 import com.smartcleaner.domain.model.JunkGroup
+import com.smartcleaner.domain.model.JunkGrowth
 import com.smartcleaner.domain.model.JunkScanResult
 import com.smartcleaner.domain.model.JunkType
 import kotlinx.coroutines.flow.Flow
@@ -22,6 +23,13 @@ interface JunkRepository {
      */
     suspend fun getScanResults(): JunkScanResult
     
+    /**
+     * Junk found by each scan compared with the previous scan or clean,
+     * with the growth rate over recent scans
+     * Emits the stored history first, then after every scan
+     */
+    fun getJunkGrowth(): Flow<JunkGrowth>
+    
     /**
      * Delete junk files by type
      * @param type The junk type to delete
@@ -0,0 +1,26 @@
+package com.smartcleaner.domain.repository
+
+import com.smartcleaner.domain.model.TrashedItem
+
+/**
+ * Repository interface for items deleted into the trash
+ */
+interface TrashRepository {
+    /**
+     * Items currently in the trash, newest first
+     */
+    suspend fun getTrashedItems(): List<TrashedItem>
+    
+    /**
+     * Move trashed items back to where they were
+     * @param originalPaths Paths the items were deleted from
+     * @return Number of items restored
+     */
+    suspend fun restore(originalPaths: List<String>): Result<Int>
+    
+    /**
+     * Delete everything in the trash now
+     * @return Number of items purged
+     */
+    suspend fun emptyTrash(): Result<Int>
+}
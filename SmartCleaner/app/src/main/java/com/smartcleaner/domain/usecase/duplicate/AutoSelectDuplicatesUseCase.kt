@@ -0,0 +1,129 @@
+package com.smartcleaner.domain.usecase.duplicate
+
+import com.smartcleaner.domain.model.DuplicateFile
+import com.smartcleaner.domain.model.DuplicateGroup
+import com.smartcleaner.domain.model.KeepPolicy
+import com.smartcleaner.domain.model.SelectionPlan
+import javax.inject.Inject
+
+/**
+ * Use case: Auto-select files to delete across all duplicate groups
+ *
+ * Input: List<DuplicateGroup>, ordered List<KeepPolicy>
+ * Output: SelectionPlan
+ *
+ * Process:
+ * 1. Compose the policies into a single comparator (first policy wins, later ones break ties)
+ * 2. Single pass over the groups: keep the best file, mark the rest for deletion
+ * 3. Files kept by any group are never deleted, so a plan can never empty a group
+ * 4. Folders (IDENTICAL_FOLDER) holding a kept file are never deleted either
+ */
+class AutoSelectDuplicatesUseCase @Inject constructor() {
+
+    operator fun invoke(
+        groups: List<DuplicateGroup>,
+        policies: List<KeepPolicy> = DEFAULT_POLICIES
+    ): SelectionPlan {
+        val comparator = buildComparator(policies)
+        val keptPaths = HashMap<String, String>(groups.size)
+        val candidates = HashMap<String, Long>()  // path -> size
+
+        for (group in groups) {
+            if (group.files.size < 2) continue
+
+            val keep = group.files.minWithOrNull(comparator) ?: continue
+            keptPaths[group.groupId] = keep.filePath
+
+            for (file in group.files) {
+                if (file.filePath != keep.filePath) {
+                    candidates[file.filePath] = file.size
+                }
+            }
+        }
+
+        // A file kept by one group (e.g. exact match) must not be deleted via another (similar image)
+        keptPaths.values.forEach { candidates.remove(it) }
+
+        // ...nor together with a folder being deleted
+        val keptAncestors = HashSet<String>()
+        keptPaths.values.forEach { path -> keptAncestors.addAll(ancestorsOf(path)) }
+        candidates.keys.removeAll { it in keptAncestors }
+
+        // Files inside a folder that is deleted anyway are already counted with it
+        candidates.keys.removeAll { path -> ancestorsOf(path).any { it in candidates } }
+
+        val deletePaths = candidates.keys.toSet()
+        val reclaimableBytes = candidates.values.sum()
+
+        return SelectionPlan(
+            policies = policies,
+            keptPaths = keptPaths,
+            deletePaths = deletePaths,
+            reclaimableBytes = reclaimableBytes
+        )
+    }
+
+    /**
+     * Returns a copy of [selected] where no group has all of its files selected.
+     * For a fully selected group the file preferred by [policies] is deselected.
+     */
+    fun enforceKeepOne(
+        groups: List<DuplicateGroup>,
+        selected: Set<String>,
+        policies: List<KeepPolicy> = DEFAULT_POLICIES
+    ): Set<String> {
+        val comparator = buildComparator(policies)
+        val result = selected.toMutableSet()
+
+        for (group in groups) {
+            if (group.files.isEmpty() || !group.files.all { isSelected(it.filePath, result) }) continue
+
+            val keep = group.files.minWith(comparator).filePath
+            result.remove(keep)
+            // A selected folder would still take the kept file with it
+            ancestorsOf(keep).forEach { result.remove(it) }
+        }
+
+        return result
+    }
+
+    private fun isSelected(path: String, selected: Set<String>): Boolean =
+        path in selected || ancestorsOf(path).any { it in selected }
+
+    private fun ancestorsOf(path: String): Sequence<String> =
+        generateSequence(path.substringBeforeLast('/', "")) { it.substringBeforeLast('/', "") }
+            .takeWhile { it.isNotEmpty() }
+
+    private fun buildComparator(policies: List<KeepPolicy>): Comparator<DuplicateFile> {
+        val chained = policies.distinct()
+            .map { comparatorFor(it) }
+            .reduceOrNull { acc, next -> acc.then(next) }
+        // Path is the deterministic final tie-breaker
+        return chained?.thenBy { it.filePath } ?: compareBy { it.filePath }
+    }
+
+    private fun comparatorFor(policy: KeepPolicy): Comparator<DuplicateFile> = when (policy) {
+        KeepPolicy.OLDEST -> compareBy { it.lastModified }
+        KeepPolicy.NEWEST -> compareByDescending { it.lastModified }
+        KeepPolicy.IN_DCIM -> compareBy { if (isInDcim(it.filePath)) 0 else 1 }
+        KeepPolicy.LARGEST_RESOLUTION -> compareByDescending { it.width.toLong() * it.height }
+        KeepPolicy.NOT_IN_WHATSAPP_SENT -> compareBy { if (isWhatsAppSent(it.filePath)) 1 else 0 }
+        KeepPolicy.SHORTEST_PATH -> compareBy { it.filePath.length }
+        KeepPolicy.BEST_SHOT -> compareByDescending { it.qualityScore }
+    }
+
+    private fun isInDcim(path: String): Boolean = path.contains("/DCIM/", ignoreCase = true)
+
+    private fun isWhatsAppSent(path: String): Boolean =
+        path.contains("/WhatsApp", ignoreCase = true) && path.contains("/Sent/", ignoreCase = true)
+
+    companion object {
+        val DEFAULT_POLICIES = listOf(
+            KeepPolicy.NOT_IN_WHATSAPP_SENT,
+            KeepPolicy.IN_DCIM,
+            KeepPolicy.BEST_SHOT,
+            KeepPolicy.LARGEST_RESOLUTION,
+            KeepPolicy.OLDEST
+        )
+    }
+}
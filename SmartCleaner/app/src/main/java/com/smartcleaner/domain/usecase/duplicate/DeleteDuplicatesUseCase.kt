@@ -25,4 +25,16 @@ class DeleteDuplicatesUseCase @Inject constructor(
         
         return repository.deleteFiles(groupId, filePaths)
     }
+    
+    /**
+     * Delete a selection spanning several groups; a path in more than one
+     * group is deleted once
+     */
+    suspend operator fun invoke(filePaths: Collection<String>): Result<Int> {
+        if (filePaths.isEmpty()) {
+            return Result.failure(IllegalArgumentException("No files specified"))
+        }
+        
+        return repository.deleteFiles(filePaths.distinct())
+    }
 }
@@ -0,0 +1,30 @@
+package com.smartcleaner.domain.usecase.duplicate
+
+import com.smartcleaner.domain.model.DuplicateType
+import com.smartcleaner.domain.model.LinkResult
+import com.smartcleaner.domain.repository.DuplicateFinderRepository
+import javax.inject.Inject
+
+/**
+ * Use case: Deduplicate by hard-linking instead of deleting
+ * 
+ * Input: groupId, keepPath
+ * Output: Result<LinkResult>
+ * 
+ * Every path of the group stays readable, so apps that expect their
+ * media folders intact keep working. Only exact matches can be linked.
+ */
+class LinkDuplicatesUseCase @Inject constructor(
+    private val repository: DuplicateFinderRepository
+) {
+    suspend operator fun invoke(groupId: String, keepPath: String): Result<LinkResult> {
+        val group = repository.getDuplicateGroup(groupId)
+            ?: return Result.failure(IllegalArgumentException("Group not found"))
+        
+        if (group.duplicateType != DuplicateType.EXACT_MATCH) {
+            return Result.failure(IllegalStateException("Only exact duplicates can be linked"))
+        }
+        
+        return repository.linkDuplicates(groupId, keepPath)
+    }
+}
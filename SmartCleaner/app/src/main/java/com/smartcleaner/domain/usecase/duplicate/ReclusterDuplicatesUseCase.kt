@@ -0,0 +1,26 @@
+package com.smartcleaner.domain.usecase.duplicate
+
+import com.smartcleaner.domain.model.DuplicateScanResult
+import com.smartcleaner.domain.repository.DuplicateFinderRepository
+import javax.inject.Inject
+
+/**
+ * Use case: Apply a new image similarity threshold to the last scan
+ * 
+ * Input: similarityThreshold
+ * Output: Result<DuplicateScanResult>
+ * 
+ * Only similar-image groups are rebuilt, from the pHashes kept by the last
+ * scan. Fails when there is nothing to re-cluster; callers rescan instead.
+ */
+class ReclusterDuplicatesUseCase @Inject constructor(
+    private val repository: DuplicateFinderRepository
+) {
+    suspend operator fun invoke(similarityThreshold: Float): Result<DuplicateScanResult> {
+        if (similarityThreshold !in 0f..1f) {
+            return Result.failure(IllegalArgumentException("Threshold must be between 0 and 1"))
+        }
+        
+        return repository.reclusterSimilarImages(similarityThreshold)
+    }
+}
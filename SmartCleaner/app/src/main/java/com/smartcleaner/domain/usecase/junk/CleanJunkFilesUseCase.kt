@@ -12,7 +12,8 @@ import javax.inject.Inject
  * 
  * Process:
  * 1. For each junk type selected:
- *    - APP_CACHE: Call clearAllAppCache()
+ *    - APP_CACHE: Call clearAllAppCache(), then delete the cache files
+ *      found on known app cache paths
  *    - Others: Delete files via deleteJunkByType()
  * 2. Return total files deleted and space freed
  */
@@ -30,11 +31,22 @@ class CleanJunkFilesUseCase @Inject constructor(
             
             types.forEach { type ->
                 if (type == JunkType.APP_CACHE && clearAppCache) {
+                    var freed = 0L
+                    var deleted = 0 // Unknown for the cache cleared by the system
                     val cacheResult = repository.clearAllAppCache()
                     if (cacheResult.isSuccess) {
-                        val freed = cacheResult.getOrThrow()
+                        freed += cacheResult.getOrThrow()
+                    }
+                    val fileResult = repository.deleteJunkByType(type)
+                    if (fileResult.isSuccess) {
+                        val (fileCount, fileBytes) = fileResult.getOrThrow()
+                        deleted += fileCount
+                        freed += fileBytes
+                    }
+                    if (cacheResult.isSuccess || fileResult.isSuccess) {
+                        totalDeleted += deleted
                         totalFreed += freed
-                        results[type] = Pair(0, freed) // Unknown file count
+                        results[type] = Pair(deleted, freed)
                     }
                 } else {
                     val deleteResult = repository.deleteJunkByType(type)
@@ -0,0 +1,25 @@
+package com.smartcleaner.domain.usecase.planner
+
+import com.smartcleaner.domain.model.CleaningPlan
+import com.smartcleaner.domain.model.CleaningPlanResult
+import com.smartcleaner.domain.repository.CleaningPlanRepository
+import javax.inject.Inject
+
+/**
+ * Use case: Delete the items of a cleaning plan
+ * 
+ * Input: CleaningPlan
+ * Output: Result<CleaningPlanResult>
+ * 
+ * Process:
+ * 1. Delete every planned path in one batch, permanently
+ * 2. Return counts and bytes actually freed
+ */
+class ExecuteCleaningPlanUseCase @Inject constructor(
+    private val repository: CleaningPlanRepository
+) {
+    suspend operator fun invoke(plan: CleaningPlan): Result<CleaningPlanResult> {
+        if (plan.items.isEmpty()) return Result.success(CleaningPlanResult(0, 0, 0L))
+        return repository.executePlan(plan)
+    }
+}
@@ -0,0 +1,28 @@
+package com.smartcleaner.domain.usecase.planner
+
+import com.smartcleaner.domain.model.CleaningPlan
+import com.smartcleaner.domain.model.SafetyPolicy
+import com.smartcleaner.domain.repository.CleaningPlanRepository
+import javax.inject.Inject
+
+/**
+ * Use case: Plan how to free a number of bytes
+ * 
+ * Input: Target bytes, SafetyPolicy
+ * Output: CleaningPlan (check reachesTarget)
+ * 
+ * Process:
+ * 1. Collect items from the latest junk, duplicate, leftover and messaging results
+ * 2. Drop items riskier than the policy allows
+ * 3. Pick greedily by bytes per risk until the target is met
+ */
+class PlanCleaningUseCase @Inject constructor(
+    private val repository: CleaningPlanRepository
+) {
+    suspend operator fun invoke(
+        targetBytes: Long,
+        policy: SafetyPolicy = SafetyPolicy.SAFE
+    ): CleaningPlan {
+        return repository.createPlan(targetBytes.coerceAtLeast(0L), policy)
+    }
+}
@@ -0,0 +1,32 @@
+package com.smartcleaner.domain.usecase.trash
+
+import com.smartcleaner.domain.repository.TrashRepository
+import javax.inject.Inject
+
+/**
+ * Use case: Undo a delete by restoring its items from the trash
+ * 
+ * Input: Paths that were deleted
+ * Output: Result<Int> -> number of items restored
+ * 
+ * Process:
+ * 1. canUndo(): check whether any of the paths went to the trash
+ *    (nothing does with the trash disabled)
+ * 2. invoke(): move the trashed items back to their paths
+ */
+class UndoDeleteUseCase @Inject constructor(
+    private val repository: TrashRepository
+) {
+    suspend fun canUndo(paths: List<String>): Boolean {
+        val wanted = paths.toSet()
+        return try {
+            repository.getTrashedItems().any { it.originalPath in wanted }
+        } catch (e: Exception) {
+            false
+        }
+    }
+
+    suspend operator fun invoke(paths: List<String>): Result<Int> {
+        return repository.restore(paths)
+    }
+}
@@ -15,6 +15,7 @@ import androidx.compose.ui.unit.dp
 import androidx.hilt.navigation.compose.hiltViewModel
 import com.smartcleaner.domain.model.DuplicateFile
 import com.smartcleaner.domain.model.DuplicateGroup
+import com.smartcleaner.domain.model.DuplicateType
 import java.io.File
 import java.text.DecimalFormat
 import java.text.SimpleDateFormat
@@ -38,6 +39,11 @@ fun DuplicateScreen(
             TopAppBar(
                 title = { Text("Duplicate Finder") },
                 actions = {
+                    if (uiState is DuplicateUiState.Success) {
+                        IconButton(onClick = { viewModel.autoSelect() }) {
+                            Icon(Icons.Default.AutoFixHigh, "Auto select")
+                        }
+                    }
                     IconButton(onClick = { showSettingsDialog = true }) {
                         Icon(Icons.Default.Settings, "Settings")
                     }
@@ -84,6 +90,7 @@ fun DuplicateScreen(
                         onFileClick = { viewModel.toggleFileSelection(it.absolutePath) },
                         onSelectGroupKeepFirst = { viewModel.selectGroupKeepFirst(it) },
                         onSelectGroupKeepLargest = { viewModel.selectGroupKeepLargest(it) },
+                        onLinkGroup = { viewModel.linkGroup(it) },
                         onClearSelection = { viewModel.clearSelection() }
                     )
                 }
@@ -97,7 +104,10 @@ fun DuplicateScreen(
             includeImages = includeImages,
             similarityThreshold = similarityThreshold,
             onIncludeImagesChange = { includeImages = it },
-            onThresholdChange = { similarityThreshold = it },
+            onThresholdChange = {
+                similarityThreshold = it
+                viewModel.updateSimilarityThreshold(it)
+            },
             onDismiss = { showSettingsDialog = false }
         )
     }
@@ -173,6 +183,7 @@ private fun DuplicateResultView(
     onFileClick: (File) -> Unit,
     onSelectGroupKeepFirst: (com.smartcleaner.domain.model.DuplicateGroup) -> Unit,
     onSelectGroupKeepLargest: (com.smartcleaner.domain.model.DuplicateGroup) -> Unit,
+    onLinkGroup: (com.smartcleaner.domain.model.DuplicateGroup) -> Unit,
     onClearSelection: () -> Unit
 ) {
     LazyColumn(
@@ -222,7 +233,8 @@ private fun DuplicateResultView(
                 selectedFiles = selectedFiles,
                 onFileClick = { onFileClick(it) },
                 onSelectGroupKeepFirst = { onSelectGroupKeepFirst(group) },
-                onSelectGroupKeepLargest = { onSelectGroupKeepLargest(group) }
+                onSelectGroupKeepLargest = { onSelectGroupKeepLargest(group) },
+                onLinkGroup = { onLinkGroup(group) }
             )
         }
     }
@@ -300,7 +312,8 @@ private fun DuplicateGroupCard(
     selectedFiles: Set<String>,
     onFileClick: (File) -> Unit,
     onSelectGroupKeepFirst: () -> Unit,
-    onSelectGroupKeepLargest: () -> Unit
+    onSelectGroupKeepLargest: () -> Unit,
+    onLinkGroup: () -> Unit
 ) {
     var expanded by remember { mutableStateOf(false) }
 
@@ -367,6 +380,16 @@ private fun DuplicateGroupCard(
                         Spacer(modifier = Modifier.width(4.dp))
                         Text("Keep Largest", style = MaterialTheme.typography.labelSmall)
                     }
+                    if (group.duplicateType == DuplicateType.EXACT_MATCH) {
+                        OutlinedButton(
+                            onClick = onLinkGroup,
+                            modifier = Modifier.weight(1f)
+                        ) {
+                            Icon(Icons.Default.Link, null, modifier = Modifier.size(18.dp))
+                            Spacer(modifier = Modifier.width(4.dp))
+                            Text("Link All", style = MaterialTheme.typography.labelSmall)
+                        }
+                    }
                 }
             }
 
@@ -378,7 +401,8 @@ private fun DuplicateGroupCard(
                         duplicateFile = duplicateFile,
                         isSelected = selectedFiles.contains(duplicateFile.filePath),
                         onClick = { onFileClick(File(duplicateFile.filePath)) },
-                        index = index + 1
+                        index = index + 1,
+                        isBestShot = duplicateFile.filePath == group.bestFilePath
                     )
                     if (index < group.files.size - 1) {
                         Spacer(modifier = Modifier.height(4.dp))
@@ -394,7 +418,8 @@ private fun DuplicateFileItem(
     duplicateFile: com.smartcleaner.domain.model.DuplicateFile,
     isSelected: Boolean,
     onClick: () -> Unit,
-    index: Int
+    index: Int,
+    isBestShot: Boolean = false
 ) {
     Row(
         modifier = Modifier
@@ -411,11 +436,23 @@ private fun DuplicateFileItem(
             style = MaterialTheme.typography.labelSmall,
             modifier = Modifier.width(32.dp)
         )
+        if (duplicateFile.isDirectory) {
+            Icon(Icons.Default.Folder, null, modifier = Modifier.size(18.dp))
+            Spacer(modifier = Modifier.width(4.dp))
+        }
         Column(modifier = Modifier.weight(1f)) {
             Text(
                 duplicateFile.fileName,
                 style = MaterialTheme.typography.bodySmall
             )
+            if (isBestShot) {
+                Text(
+                    "Best shot",
+                    style = MaterialTheme.typography.labelSmall,
+                    color = MaterialTheme.colorScheme.primary,
+                    fontWeight = FontWeight.Bold
+                )
+            }
             Text(
                 duplicateFile.filePath.substringBeforeLast('/'),
                 style = MaterialTheme.typography.labelSmall,
@@ -4,10 +4,17 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.smartcleaner.domain.model.DuplicateGroup
 import com.smartcleaner.domain.model.DuplicateScanOptions
+import com.smartcleaner.domain.model.KeepPolicy
+import com.smartcleaner.domain.model.SelectionPlan
+import com.smartcleaner.domain.usecase.duplicate.AutoSelectDuplicatesUseCase
 import com.smartcleaner.domain.usecase.duplicate.DeleteDuplicatesUseCase
 import com.smartcleaner.domain.usecase.duplicate.FindDuplicatesUseCase
+import com.smartcleaner.domain.usecase.duplicate.LinkDuplicatesUseCase
+import com.smartcleaner.domain.usecase.duplicate.ReclusterDuplicatesUseCase
 import com.smartcleaner.domain.usecase.duplicate.ScanProgress
 import dagger.hilt.android.lifecycle.HiltViewModel
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -18,7 +25,10 @@ import javax.inject.Inject
 @HiltViewModel
 class DuplicateViewModel @Inject constructor(
     private val findDuplicatesUseCase: FindDuplicatesUseCase,
-    private val deleteDuplicatesUseCase: DeleteDuplicatesUseCase
+    private val deleteDuplicatesUseCase: DeleteDuplicatesUseCase,
+    private val autoSelectDuplicatesUseCase: AutoSelectDuplicatesUseCase,
+    private val linkDuplicatesUseCase: LinkDuplicatesUseCase,
+    private val reclusterDuplicatesUseCase: ReclusterDuplicatesUseCase
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow<DuplicateUiState>(DuplicateUiState.Idle)
@@ -30,11 +40,31 @@ class DuplicateViewModel @Inject constructor(
     private val _scanProgress = MutableStateFlow(0f)
     val scanProgress: StateFlow<Float> = _scanProgress.asStateFlow()
 
+    private val _selectionPlan = MutableStateFlow<SelectionPlan?>(null)
+    val selectionPlan: StateFlow<SelectionPlan?> = _selectionPlan.asStateFlow()
+
+    // filePath -> every group it is in, rebuilt whenever results change;
+    // a file can be both an exact and a similar-name duplicate
+    private var groupsByPath: Map<String, List<DuplicateGroup>> = emptyMap()
+
+    // Settings of the last scan, reused by rescans after delete/link
+    private var includeImages = true
+    private var similarityThreshold = 0.95f
+    private var reclusterJob: Job? = null
+
+    companion object {
+        // A slider drag only reclusters once it rests this long
+        private const val RECLUSTER_DEBOUNCE_MS = 200L
+    }
+
     fun scanDuplicates() {
-        scanForDuplicates()
+        scanForDuplicates(includeImages, similarityThreshold)
     }
 
     fun scanForDuplicates(includeImages: Boolean = true, similarityThreshold: Float = 0.95f) {
+        this.includeImages = includeImages
+        this.similarityThreshold = similarityThreshold
+        reclusterJob?.cancel()
         viewModelScope.launch {
             _uiState.value = DuplicateUiState.Scanning
             try {
@@ -53,6 +83,8 @@ class DuplicateViewModel @Inject constructor(
                             _scanProgress.value = progress.progress / 100f
                         }
                         is ScanProgress.Completed -> {
+                            indexGroups(progress.result.groups)
+                            _selectionPlan.value = null
                             _uiState.value = DuplicateUiState.Success(progress.result.groups)
                             _scanProgress.value = 1f
                         }
@@ -71,23 +103,19 @@ class DuplicateViewModel @Inject constructor(
         val state = _uiState.value
         if (state !is DuplicateUiState.Success) return
         
-        val filePaths = _selectedFiles.value.toList()
+        val filePaths = autoSelectDuplicatesUseCase.enforceKeepOne(state.duplicates, _selectedFiles.value)
         if (filePaths.isEmpty()) return
 
         viewModelScope.launch {
             _uiState.value = DuplicateUiState.Deleting
             try {
-                val currentDuplicates = (_uiState.value as? DuplicateUiState.Success)?.duplicates ?: emptyList()
-                var deletedCount = 0
-                
-                currentDuplicates.forEach { group ->
-                    val filesToDeleteInGroup = group.files.filter { it.filePath in filePaths }
-                    if (filesToDeleteInGroup.isNotEmpty()) {
-                         val result = deleteDuplicatesUseCase(group.groupId, filesToDeleteInGroup.map { it.filePath })
-                         if (result.isSuccess) {
-                             deletedCount += result.getOrDefault(0)
-                         }
-                    }
+                // One batch: a path in several groups must not be deleted twice
+                val result = deleteDuplicatesUseCase(filePaths)
+                if (result.isFailure) {
+                    _uiState.value = DuplicateUiState.Error(
+                        result.exceptionOrNull()?.message ?: "Delete failed"
+                    )
+                    return@launch
                 }
                 
                 // Rescan after deletion
@@ -100,19 +128,88 @@ class DuplicateViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Keep every path of the group but make them share the first file's data
+     */
+    fun linkGroup(group: DuplicateGroup) {
+        val keepPath = group.files.firstOrNull()?.filePath ?: return
+
+        viewModelScope.launch {
+            _uiState.value = DuplicateUiState.Deleting
+            try {
+                val result = linkDuplicatesUseCase(group.groupId, keepPath)
+                if (result.isFailure) {
+                    _uiState.value = DuplicateUiState.Error(
+                        result.exceptionOrNull()?.message ?: "Link failed"
+                    )
+                    return@launch
+                }
+                
+                _selectedFiles.value = _selectedFiles.value - group.files.map { it.filePath }.toSet()
+                scanDuplicates()
+            } catch (e: Exception) {
+                _uiState.value = DuplicateUiState.Error(e.message ?: "Link failed")
+            }
+        }
+    }
+
+    /**
+     * Regroup similar images of the current results at a new threshold.
+     * No rescan: the last scan's pHashes are reused. Calls are debounced,
+     * so a dragged slider reclusters at the value it settles on.
+     */
+    fun updateSimilarityThreshold(threshold: Float) {
+        similarityThreshold = threshold
+        if (_uiState.value !is DuplicateUiState.Success) return
+
+        reclusterJob?.cancel()
+        reclusterJob = viewModelScope.launch {
+            delay(RECLUSTER_DEBOUNCE_MS)
+            reclusterDuplicatesUseCase(threshold).onSuccess { result ->
+                indexGroups(result.groups)
+                // Drop selections whose group dissolved at the new threshold
+                _selectedFiles.value = _selectedFiles.value.filterTo(HashSet()) { it in groupsByPath }
+                _selectionPlan.value = null
+                _uiState.value = DuplicateUiState.Success(result.groups)
+            }
+        }
+    }
+
     fun toggleFileSelection(filePath: String) {
-        val current = _selectedFiles.value.toMutableSet()
-        if (current.contains(filePath)) {
-            current.remove(filePath)
-        } else {
-            current.add(filePath)
+        val current = _selectedFiles.value
+        if (filePath in current) {
+            _selectedFiles.value = current - filePath
+        } else if (!selectsWholeGroup(filePath, current)) {
+            _selectedFiles.value = current + filePath
         }
-        _selectedFiles.value = current
+    }
+
+    /**
+     * Whether selecting [filePath] would select every file of one of its groups;
+     * checked against [selected] as is, so a refused tap copies nothing
+     */
+    private fun selectsWholeGroup(filePath: String, selected: Set<String>): Boolean =
+        groupsByPath[filePath].orEmpty().any { group ->
+            group.files.all { it.filePath == filePath || it.filePath in selected }
+        }
+
+    /**
+     * Select files for deletion across all groups using the keep-policy engine.
+     * The resulting selection can still be tweaked with [toggleFileSelection].
+     */
+    fun autoSelect(policies: List<KeepPolicy> = AutoSelectDuplicatesUseCase.DEFAULT_POLICIES) {
+        val state = _uiState.value
+        if (state !is DuplicateUiState.Success) return
+
+        val plan = autoSelectDuplicatesUseCase(state.duplicates, policies)
+        _selectionPlan.value = plan
+        _selectedFiles.value = plan.deletePaths
     }
 
     fun selectGroupKeepFirst(group: DuplicateGroup) {
         val current = _selectedFiles.value.toMutableSet()
         // Keep first file, select rest for deletion
+        group.files.firstOrNull()?.let { current.remove(it.filePath) }
         group.files.drop(1).forEach { duplicateFile ->
             current.add(duplicateFile.filePath)
         }
@@ -125,6 +222,8 @@ class DuplicateViewModel @Inject constructor(
         group.files.forEach { duplicateFile ->
             if (duplicateFile != largest) {
                 current.add(duplicateFile.filePath)
+            } else {
+                current.remove(duplicateFile.filePath)
             }
         }
         _selectedFiles.value = current
@@ -132,6 +231,7 @@ class DuplicateViewModel @Inject constructor(
 
     fun clearSelection() {
         _selectedFiles.value = emptySet()
+        _selectionPlan.value = null
     }
 
     fun getStatistics(): DuplicateStatistics? {
@@ -141,10 +241,7 @@ class DuplicateViewModel @Inject constructor(
             val totalFiles = state.duplicates.sumOf { it.files.size }
             val wastedSpace = state.duplicates.sumOf { it.wastedSpace }
             val selectedSize = _selectedFiles.value.sumOf { path ->
-                state.duplicates
-                    .flatMap { it.files }
-                    .find { it.filePath == path }
-                    ?.size ?: 0L
+                groupsByPath[path]?.firstOrNull()?.files?.find { it.filePath == path }?.size ?: 0L
             }
 
             DuplicateStatistics(
@@ -158,6 +255,14 @@ class DuplicateViewModel @Inject constructor(
             null
         }
     }
+
+    private fun indexGroups(groups: List<DuplicateGroup>) {
+        val index = HashMap<String, MutableList<DuplicateGroup>>()
+        groups.forEach { group ->
+            group.files.forEach { index.getOrPut(it.filePath) { ArrayList(1) }.add(group) }
+        }
+        groupsByPath = index
+    }
 }
 
 sealed class DuplicateUiState {
@@ -26,8 +26,10 @@ fun LeftoverScreen(
     viewModel: LeftoverViewModel = hiltViewModel()
 ) {
     val uiState by viewModel.uiState.collectAsState()
+    val snackbarHostState = remember { SnackbarHostState() }
 
     Scaffold(
+        snackbarHost = { SnackbarHost(snackbarHostState) },
         topBar = {
             TopAppBar(
                 title = { Text("Leftover Files") },
@@ -64,7 +66,14 @@ fun LeftoverScreen(
                     // Show success snackbar
                     state.deleteSuccess?.let { success ->
                         LaunchedEffect(success) {
-                            // Show snackbar notification
+                            val result = snackbarHostState.showSnackbar(
+                                message = "Deleted ${success.appName} leftovers",
+                                actionLabel = if (success.canUndo) "Undo" else null,
+                                duration = SnackbarDuration.Long
+                            )
+                            if (result == SnackbarResult.ActionPerformed) {
+                                viewModel.undoDelete(success)
+                            }
                             viewModel.clearDeleteSuccess()
                         }
                     }
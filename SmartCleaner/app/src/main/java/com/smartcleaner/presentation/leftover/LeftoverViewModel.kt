@@ -6,6 +6,7 @@ import com.smartcleaner.domain.model.LeftoverGroup
 import com.smartcleaner.domain.usecase.leftover.DeleteLeftoverFilesUseCase
 import com.smartcleaner.domain.usecase.leftover.ScanLeftoverFilesUseCase
 import com.smartcleaner.domain.usecase.leftover.ScanProgress
+import com.smartcleaner.domain.usecase.trash.UndoDeleteUseCase
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
@@ -17,7 +18,8 @@ import javax.inject.Inject
 @HiltViewModel
 class LeftoverViewModel @Inject constructor(
     private val scanLeftoverFilesUseCase: ScanLeftoverFilesUseCase,
-    private val deleteLeftoverFilesUseCase: DeleteLeftoverFilesUseCase
+    private val deleteLeftoverFilesUseCase: DeleteLeftoverFilesUseCase,
+    private val undoDeleteUseCase: UndoDeleteUseCase
 ) : ViewModel() {
 
     private val _uiState = MutableStateFlow<LeftoverUiState>(LeftoverUiState.Idle)
@@ -64,6 +66,7 @@ class LeftoverViewModel @Inject constructor(
                 
                 if (result.isSuccess) {
                     val deleteResult = result.getOrNull()!!
+                    val canUndo = undoDeleteUseCase.canUndo(group.files.map { it.path })
                     
                     // Remove deleted group from list
                     _uiState.update { state ->
@@ -77,7 +80,9 @@ class LeftoverViewModel @Inject constructor(
                                 deleteSuccess = DeleteSuccess(
                                     appName = group.appName,
                                     freedSpace = deleteResult.freedSpace,
-                                    deletedFiles = deleteResult.deletedFiles
+                                    deletedFiles = deleteResult.deletedFiles,
+                                    group = group,
+                                    canUndo = canUndo
                                 )
                             )
                         } else {
@@ -100,6 +105,28 @@ class LeftoverViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Restore a deleted group from the trash and list it again
+     */
+    fun undoDelete(success: DeleteSuccess) {
+        viewModelScope.launch {
+            val restored = undoDeleteUseCase(success.group.files.map { it.path }).getOrDefault(0)
+            if (restored == 0) return@launch
+
+            _uiState.update { state ->
+                if (state is LeftoverUiState.Success && state.groups.none { it.packageName == success.group.packageName }) {
+                    state.copy(
+                        groups = (state.groups + success.group).sortedByDescending { it.totalSize },
+                        totalSize = state.totalSize + success.freedSpace,
+                        totalFiles = state.totalFiles + success.deletedFiles
+                    )
+                } else {
+                    state
+                }
+            }
+        }
+    }
+
     fun clearDeleteSuccess() {
         _uiState.update { state ->
             if (state is LeftoverUiState.Success) {
@@ -139,5 +166,7 @@ sealed class LeftoverUiState {
 data class DeleteSuccess(
     val appName: String,
     val freedSpace: Long,
-    val deletedFiles: Int
+    val deletedFiles: Int,
+    val group: LeftoverGroup,
+    val canUndo: Boolean = false
 )
@@ -92,6 +92,7 @@ fun MessagingCleanerScreen(
                         onMediaClick = { viewModel.toggleMediaSelection(it.filePath) },
                         onSelectAllByApp = { viewModel.selectAllByApp(it) },
                         onSelectAllByType = { viewModel.selectAllByType(it) },
+                        onSelectDuplicates = { viewModel.selectDuplicates() },
                         onClearSelection = { viewModel.clearSelection() }
                     )
                 }
@@ -172,6 +173,7 @@ private fun MessagingResultView(
     onMediaClick: (MessagingMedia) -> Unit,
     onSelectAllByApp: (MessagingApp) -> Unit,
     onSelectAllByType: (MessagingMediaType) -> Unit,
+    onSelectDuplicates: () -> Unit,
     onClearSelection: () -> Unit
 ) {
     LazyColumn(
@@ -185,7 +187,8 @@ private fun MessagingResultView(
                 StatisticsCard(
                     statistics = statistics,
                     onSelectAllByApp = onSelectAllByApp,
-                    onSelectAllByType = onSelectAllByType
+                    onSelectAllByType = onSelectAllByType,
+                    onSelectDuplicates = onSelectDuplicates
                 )
             }
         }
@@ -236,7 +239,8 @@ private fun MessagingResultView(
 private fun StatisticsCard(
     statistics: MessagingStatistics,
     onSelectAllByApp: (MessagingApp) -> Unit,
-    onSelectAllByType: (MessagingMediaType) -> Unit
+    onSelectAllByType: (MessagingMediaType) -> Unit,
+    onSelectDuplicates: () -> Unit
 ) {
     Card(
         modifier = Modifier.fillMaxWidth(),
@@ -265,6 +269,24 @@ private fun StatisticsCard(
                 )
             }
             
+            if (statistics.duplicateFiles > 0) {
+                Spacer(modifier = Modifier.height(8.dp))
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    horizontalArrangement = Arrangement.SpaceBetween,
+                    verticalAlignment = Alignment.CenterVertically
+                ) {
+                    Text(
+                        "${statistics.duplicateFiles} copies • ${formatSize(statistics.reclaimableSize)} reclaimable",
+                        style = MaterialTheme.typography.bodyMedium,
+                        fontWeight = FontWeight.SemiBold
+                    )
+                    TextButton(onClick = onSelectDuplicates) {
+                        Text("Select copies")
+                    }
+                }
+            }
+            
             if (statistics.selectedFiles > 0) {
                 Spacer(modifier = Modifier.height(8.dp))
                 Divider()
@@ -405,6 +427,13 @@ private fun MediaItem(
                 media.fileName,
                 style = MaterialTheme.typography.bodySmall
             )
+            if (media.duplicateOf != null) {
+                Text(
+                    "Copy of ${media.duplicateOf.substringAfterLast('/')}",
+                    style = MaterialTheme.typography.labelSmall,
+                    color = MaterialTheme.colorScheme.primary
+                )
+            }
         }
         Text(
             formatSize(media.size),
@@ -132,6 +132,20 @@ class MessagingCleanerViewModel @Inject constructor(
         }
     }
 
+    /**
+     * Select every copy whose content is kept in another chat, app or DCIM
+     */
+    fun selectDuplicates() {
+        val state = _uiState.value
+        if (state is MessagingCleanerUiState.Success) {
+            val current = _selectedMedia.value.toMutableSet()
+            state.media
+                .filter { it.duplicateOf != null }
+                .forEach { current.add(it.filePath) }
+            _selectedMedia.value = current
+        }
+    }
+
     fun clearSelection() {
         _selectedMedia.value = emptySet()
     }
@@ -151,13 +165,17 @@ class MessagingCleanerViewModel @Inject constructor(
             val typeBreakdown = state.media.groupBy { it.mediaType }
                 .mapValues { it.value.size to it.value.sumOf { media -> media.size } }
 
+            val duplicates = state.media.filter { it.duplicateOf != null }
+
             MessagingStatistics(
                 totalFiles = totalFiles,
                 totalSize = totalSize,
                 selectedFiles = _selectedMedia.value.size,
                 selectedSize = selectedSize,
                 appBreakdown = appBreakdown,
-                typeBreakdown = typeBreakdown
+                typeBreakdown = typeBreakdown,
+                duplicateFiles = duplicates.size,
+                reclaimableSize = duplicates.sumOf { it.size }
             )
         } else {
             null
@@ -179,5 +197,7 @@ data class MessagingStatistics(
     val selectedFiles: Int,
     val selectedSize: Long,
     val appBreakdown: Map<MessagingApp, Pair<Int, Long>>, // app -> (count, size)
-    val typeBreakdown: Map<MessagingMediaType, Pair<Int, Long>>  // mediaType -> (count, size)
+    val typeBreakdown: Map<MessagingMediaType, Pair<Int, Long>>,  // mediaType -> (count, size)
+    val duplicateFiles: Int = 0,
+    val reclaimableSize: Long = 0
 )
@@ -20,6 +20,8 @@ import kotlinx.coroutines.withContext
 fun SettingsScreen(
     viewModel: SettingsViewModel = hiltViewModel()
 ) {
+    val preferences by viewModel.preferences.collectAsState()
+    
     Scaffold(
         topBar = {
             TopAppBar(
@@ -45,12 +47,22 @@ fun SettingsScreen(
                 SettingsSection("Cleaning")
                 SettingsSwitch("Auto Clean", Icons.Default.Schedule, false) {}
                 SettingsSwitch("Confirm Before Delete", Icons.Default.Warning, true) {}
+                SettingsSwitch(
+                    "Keep Deleted Items for a Week",
+                    Icons.Default.RestoreFromTrash,
+                    preferences?.useTrash ?: false
+                ) { enabled ->
+                    preferences?.let { viewModel.updatePreferences(it.copy(useTrash = enabled)) }
+                }
                 
                 Divider(modifier = Modifier.padding(vertical = 8.dp))
                 
                 SettingsSection("Advanced")
                 SettingsSwitch("Root Mode", Icons.Default.Security, false) {}
                 SettingsSwitch("Show Hidden Files", Icons.Default.Visibility, false) {}
+                SettingsSwitch("Fast Scan", Icons.Default.Speed, preferences?.fastScanEnabled ?: true) { enabled ->
+                    preferences?.let { viewModel.updatePreferences(it.copy(fastScanEnabled = enabled)) }
+                }
                 
                 Divider(modifier = Modifier.padding(vertical = 8.dp))
                 
@@ -0,0 +1,61 @@
+package com.example.smartcleaner.data.apk
+
+import com.smartcleaner.data.apk.ApkInfo
+import com.smartcleaner.data.apk.ApkManifestCache
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for ApkManifestCache
+ * Tests (path, size, mtime) keys, persistence and expiry of unused entries
+ */
+class ApkManifestCacheTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val info = ApkInfo("com.example.app", 3)
+
+    @Test
+    fun `hits need the same size and mtime`() {
+        val cache = ApkManifestCache(maxUnusedMs = 1_000)
+        cache.put("/d/app.apk", 100, 5, info, now = 0)
+
+        assertEquals(info, cache.get("/d/app.apk", 100, 5, now = 0)?.info)
+        assertNull(cache.get("/d/app.apk", 100, 6, now = 0))
+        assertNull(cache.get("/d/app.apk", 101, 5, now = 0))
+    }
+
+    @Test
+    fun `survives a round trip with unreadable entries`() {
+        val file = File(tempFolder.root, "apk.cache")
+        val cache = ApkManifestCache(maxUnusedMs = 1_000)
+        cache.put("/d/app.apk", 100, 5, info, now = 0)
+        cache.put("/d/broken.apk", 10, 5, null, now = 0)
+        cache.write(file, now = 0)
+
+        val read = ApkManifestCache.read(file, maxUnusedMs = 1_000)
+
+        assertEquals(info, read.get("/d/app.apk", 100, 5, now = 0)?.info)
+        val broken = read.get("/d/broken.apk", 10, 5, now = 0)
+        assertNotNull(broken)
+        assertNull(broken!!.info)
+    }
+
+    @Test
+    fun `unused entries are dropped on write`() {
+        val file = File(tempFolder.root, "apk.cache")
+        val cache = ApkManifestCache(maxUnusedMs = 1_000)
+        cache.put("/d/old.apk", 1, 1, info, now = 0)
+        cache.put("/d/new.apk", 2, 2, info, now = 1_500)
+        cache.write(file, now = 2_000)
+
+        val read = ApkManifestCache.read(file, maxUnusedMs = 1_000)
+
+        assertNull(read.get("/d/old.apk", 1, 1, now = 2_000))
+        assertNotNull(read.get("/d/new.apk", 2, 2, now = 2_000))
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.smartcleaner.data.apk
+
+import com.smartcleaner.data.apk.ApkInfo
+import com.smartcleaner.data.apk.ApkManifestReader
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Unit tests for ApkManifestReader
+ * Tests reading package and version from the binary manifest of a ZIP
+ */
+class ApkManifestReaderTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    /**
+     * Minimal binary XML: <manifest android:versionCode=".." package="..">
+     */
+    private fun binaryManifest(packageName: String, versionCode: Int): ByteArray {
+        val strings = listOf("versionCode", "package", "manifest", "http://schemas.android.com/apk/res/android", packageName)
+
+        val stringData = java.io.ByteArrayOutputStream()
+        val offsets = strings.map { string ->
+            val offset = stringData.size()
+            val bytes = ByteBuffer.allocate(4 + string.length * 2).order(ByteOrder.LITTLE_ENDIAN)
+            bytes.putShort(string.length.toShort())
+            string.forEach { bytes.putChar(it) }
+            bytes.putShort(0)
+            stringData.write(bytes.array())
+            offset
+        }
+        while (stringData.size() % 4 != 0) stringData.write(0)
+        val poolHeader = 28
+        val poolSize = poolHeader + strings.size * 4 + stringData.size()
+        val resourceMapSize = 8 + 4
+        val elementSize = 16 + 20 + 2 * 20
+
+        val xml = ByteBuffer.allocate(8 + poolSize + resourceMapSize + elementSize).order(ByteOrder.LITTLE_ENDIAN)
+        xml.putShort(0x0003).putShort(8).putInt(xml.capacity())
+
+        xml.putShort(0x0001).putShort(poolHeader.toShort()).putInt(poolSize)
+        xml.putInt(strings.size).putInt(0).putInt(0).putInt(poolHeader + strings.size * 4).putInt(0)
+        offsets.forEach { xml.putInt(it) }
+        xml.put(stringData.toByteArray())
+
+        xml.putShort(0x0180).putShort(8).putInt(resourceMapSize)
+        xml.putInt(0x0101021b)  // string 0 is android:versionCode
+
+        xml.putShort(0x0102).putShort(16).putInt(elementSize).putInt(1).putInt(-1)
+        xml.putInt(-1).putInt(2).putShort(20).putShort(20).putShort(2).putShort(0).putShort(0).putShort(0)
+        // android:versionCode, an int
+        xml.putInt(3).putInt(0).putInt(-1).putShort(8).put(0).put(0x10).putInt(versionCode)
+        // package, a string
+        xml.putInt(-1).putInt(1).putInt(4).putShort(8).put(0).put(0x03).putInt(4)
+        return xml.array()
+    }
+
+    private fun apk(name: String, manifest: ByteArray, stored: Boolean = false): File {
+        val file = File(tempFolder.root, name)
+        ZipOutputStream(file.outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("classes.dex"))
+            zip.write(ByteArray(5000) { it.toByte() })
+            zip.closeEntry()
+
+            val entry = ZipEntry("AndroidManifest.xml")
+            if (stored) {
+                entry.method = ZipEntry.STORED
+                entry.size = manifest.size.toLong()
+                entry.crc = CRC32().apply { update(manifest) }.value
+            }
+            zip.putNextEntry(entry)
+            zip.write(manifest)
+            zip.closeEntry()
+        }
+        return file
+    }
+
+    @Test
+    fun `reads package and version from a deflated manifest`() {
+        val file = apk("app.apk", binaryManifest("com.example.app", 42))
+
+        assertEquals(ApkInfo("com.example.app", 42), ApkManifestReader.read(file))
+    }
+
+    @Test
+    fun `reads a stored manifest`() {
+        val file = apk("stored.apk", binaryManifest("org.sample", 7), stored = true)
+
+        assertEquals(ApkInfo("org.sample", 7), ApkManifestReader.read(file))
+    }
+
+    @Test
+    fun `files that are not APKs give null`() {
+        val text = File(tempFolder.root, "fake.apk").apply { writeText("not a zip") }
+        val noManifest = File(tempFolder.root, "other.zip")
+        ZipOutputStream(noManifest.outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("readme.txt"))
+            zip.write("hello".toByteArray())
+            zip.closeEntry()
+        }
+
+        assertNull(ApkManifestReader.read(text))
+        assertNull(ApkManifestReader.read(noManifest))
+    }
+}
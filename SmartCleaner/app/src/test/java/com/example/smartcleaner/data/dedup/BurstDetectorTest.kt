@@ -0,0 +1,80 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.BurstDetector
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for BurstDetector
+ * Tests time-window prefiltering, pHash confirmation and best-shot scoring
+ */
+class BurstDetectorTest {
+
+    private fun shot(
+        path: String,
+        time: Long,
+        pHash: String = "ffffffffffffffff",
+        camera: String = "Pixel 8",
+        sharpness: Double = 100.0,
+        exposure: Float = 0.8f
+    ) = BurstDetector.Shot(path, time, camera, pHash, sharpness, exposure)
+
+    @Test
+    fun `frames within the window are one burst`() {
+        val detector = BurstDetector(windowMs = 2_000)
+        detector.add(shot("/DCIM/1.jpg", 10_000))
+        detector.add(shot("/DCIM/2.jpg", 10_300, pHash = "fffffffffffffffe"))
+        detector.add(shot("/DCIM/3.jpg", 11_000))
+        detector.add(shot("/DCIM/later.jpg", 60_000))
+
+        val bursts = detector.findBursts()
+
+        assertEquals(1, bursts.size)
+        assertEquals(listOf("/DCIM/1.jpg", "/DCIM/2.jpg", "/DCIM/3.jpg"), bursts.first().paths)
+    }
+
+    @Test
+    fun `different scenes in the window are not a burst`() {
+        val detector = BurstDetector()
+        detector.add(shot("/DCIM/a.jpg", 10_000, pHash = "ffffffffffffffff"))
+        detector.add(shot("/DCIM/b.jpg", 10_500, pHash = "0000000000000000"))
+
+        assertTrue(detector.findBursts().isEmpty())
+    }
+
+    @Test
+    fun `different cameras are not a burst`() {
+        val detector = BurstDetector()
+        detector.add(shot("/DCIM/a.jpg", 10_000, camera = "Pixel 8"))
+        detector.add(shot("/DCIM/b.jpg", 10_100, camera = "Galaxy S23"))
+
+        assertTrue(detector.findBursts().isEmpty())
+    }
+
+    @Test
+    fun `sharpest well exposed frame is the best shot`() {
+        val detector = BurstDetector()
+        detector.add(shot("/DCIM/blurry.jpg", 10_000, sharpness = 20.0))
+        detector.add(shot("/DCIM/sharp.jpg", 10_200, sharpness = 180.0))
+        detector.add(shot("/DCIM/dark.jpg", 10_400, sharpness = 200.0, exposure = 0.05f))
+
+        val burst = detector.findBursts().single()
+
+        assertEquals("/DCIM/sharp.jpg", burst.bestPath)
+        assertTrue(burst.scores.getValue("/DCIM/sharp.jpg") > burst.scores.getValue("/DCIM/blurry.jpg"))
+    }
+
+    @Test
+    fun `only shots sharing a capture window are candidates`() {
+        val detector = BurstDetector(windowMs = 2_000)
+        val captures = mapOf(
+            "/DCIM/1.jpg" to BurstDetector.CaptureInfo(10_000, "Pixel 8"),
+            "/DCIM/2.jpg" to BurstDetector.CaptureInfo(11_500, "Pixel 8"),
+            "/DCIM/3.jpg" to BurstDetector.CaptureInfo(13_000, "Pixel 8"),
+            "/DCIM/alone.jpg" to BurstDetector.CaptureInfo(60_000, "Pixel 8"),
+            "/DCIM/other.jpg" to BurstDetector.CaptureInfo(10_100, "Galaxy S23")
+        )
+
+        assertEquals(setOf("/DCIM/1.jpg", "/DCIM/2.jpg", "/DCIM/3.jpg"), detector.candidatePaths(captures))
+    }
+}
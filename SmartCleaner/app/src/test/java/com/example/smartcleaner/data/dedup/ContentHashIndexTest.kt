@@ -0,0 +1,67 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.ContentHashIndex
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for ContentHashIndex
+ * Tests the size prefilter, partial hashing and full-hash confirmation
+ */
+class ContentHashIndexTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private fun file(name: String, content: ByteArray): File =
+        tempFolder.newFile(name).apply { writeBytes(content) }
+
+    private fun ContentHashIndex.add(file: File) = add(file.absolutePath, file.length())
+
+    @Test
+    fun `identical files across chats are grouped`() {
+        val index = ContentHashIndex(identityOf = { null })
+        val a = file("chat1.jpg", "forwarded photo".toByteArray())
+        val b = file("chat2.jpg", "forwarded photo".toByteArray())
+        val c = file("other.jpg", "another photo!!".toByteArray())
+        listOf(a, b, c).forEach { index.add(it) }
+
+        val groups = index.findDuplicates()
+
+        assertEquals(1, groups.size)
+        assertEquals(setOf(a.absolutePath, b.absolutePath), groups.first().toSet())
+    }
+
+    @Test
+    fun `files without a size twin are never read`() {
+        val index = ContentHashIndex(identityOf = { null })
+        index.add(file("a.jpg", ByteArray(10)))
+        index.add(file("b.jpg", ByteArray(20)))
+        index.add(file("c.jpg", ByteArray(30)))
+
+        assertTrue(index.findDuplicates().isEmpty())
+        assertEquals(0, index.filesRead)
+    }
+
+    @Test
+    fun `matching samples with a different middle are not duplicates`() {
+        val index = ContentHashIndex(sampleBytes = 4, identityOf = { null })
+        index.add(file("a.mp4", "HEAD-aaaa-TAIL".toByteArray()))
+        index.add(file("b.mp4", "HEAD-bbbb-TAIL".toByteArray()))
+
+        assertTrue(index.findDuplicates().isEmpty())
+        assertEquals(2, index.filesRead)
+    }
+
+    @Test
+    fun `hard links count as one file`() {
+        val index = ContentHashIndex(identityOf = { "inode:42" })
+        index.add(file("a.jpg", "same".toByteArray()))
+        index.add(file("b.jpg", "same".toByteArray()))
+
+        assertTrue(index.findDuplicates().isEmpty())
+    }
+}
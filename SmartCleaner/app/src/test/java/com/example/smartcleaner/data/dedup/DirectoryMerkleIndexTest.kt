@@ -0,0 +1,97 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.DirectoryMerkleIndex
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for DirectoryMerkleIndex
+ * Tests bottom-up digests and maximal identical-folder groups
+ */
+class DirectoryMerkleIndexTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private fun write(root: File, relative: String, content: String) {
+        File(root, relative).apply { parentFile?.mkdirs() }.writeText(content)
+    }
+
+    private fun record(node: DirectoryMerkleIndex.Node) {
+        node.directory.listFiles()?.sortedBy { it.name }?.forEach { file ->
+            if (file.isDirectory) {
+                record(DirectoryMerkleIndex.Node(file).also { node.children.add(it) })
+            } else {
+                node.files.add(file)
+            }
+        }
+    }
+
+    private fun index(root: File) = DirectoryMerkleIndex().apply { record(addRoot(root)) }
+
+    @Test
+    fun `copied tree is one group regardless of folder name`() {
+        val root = tempFolder.root
+        listOf("DCIM", "DCIM backup").forEach { dir ->
+            write(root, "$dir/Camera/a.jpg", "aaa")
+            write(root, "$dir/Camera/b.jpg", "bbb")
+            write(root, "$dir/notes.txt", "n")
+        }
+        write(root, "Other/a.jpg", "aaa")
+
+        val groups = index(root).findIdenticalDirectories { null }
+
+        assertEquals(1, groups.size)
+        assertEquals(
+            setOf(File(root, "DCIM").absolutePath, File(root, "DCIM backup").absolutePath),
+            groups.first().map { it.path }.toSet()
+        )
+        assertEquals(3, groups.first().first().fileCount)
+    }
+
+    @Test
+    fun `one differing byte breaks the match`() {
+        val root = tempFolder.root
+        write(root, "A/x.txt", "same")
+        write(root, "A/y.txt", "same too")
+        write(root, "B/x.txt", "same")
+        write(root, "B/y.txt", "same to0")
+
+        assertTrue(index(root).findIdenticalDirectories { null }.isEmpty())
+    }
+
+    @Test
+    fun `unhashed large file leaves folder without digest`() {
+        val root = tempFolder.root
+        listOf("A", "B").forEach { dir ->
+            write(root, "$dir/x.txt", "x")
+            write(root, "$dir/y.txt", "y")
+        }
+        val merkle = DirectoryMerkleIndex(smallFileLimit = 0)
+        record(merkle.addRoot(root))
+
+        assertTrue(merkle.findIdenticalDirectories { null }.isEmpty())
+        assertEquals(1, merkle.findIdenticalDirectories { "h:" + it.name }.size)
+    }
+
+    @Test
+    fun `identical siblings inside matched folders are still reported`() {
+        val root = tempFolder.root
+        listOf("X", "Y").forEach { dir ->
+            listOf("sub1", "sub2").forEach { sub ->
+                write(root, "$dir/$sub/a.txt", "a")
+                write(root, "$dir/$sub/b.txt", "b")
+            }
+        }
+
+        val groups = index(root).findIdenticalDirectories { null }
+            .map { group -> group.map { File(it.path).relativeTo(root).path }.toSet() }
+
+        assertEquals(2, groups.size)
+        assertTrue(setOf("X", "Y") in groups)
+        assertTrue(setOf("X/sub1", "X/sub2", "Y/sub1", "Y/sub2") in groups)
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.DocumentSimilarityIndex
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Unit tests for DocumentSimilarityIndex
+ * Tests text extraction and shingle/LSH clustering
+ */
+class DocumentSimilarityIndexTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val words = ("the quarterly report covers revenue growth across all regions and " +
+        "highlights the main risks identified by the finance team during the review period " +
+        "including currency exposure supplier delays and rising logistics costs in the north").split(' ')
+
+    private fun text(vararg replacements: Pair<Int, String>): String {
+        val copy = words.toMutableList()
+        replacements.forEach { (index, word) -> copy[index] = word }
+        return copy.joinToString(" ")
+    }
+
+    private fun writeText(name: String, content: String): File =
+        tempFolder.newFile(name).apply { writeText(content) }
+
+    private fun writeDocx(name: String, content: String): File {
+        val file = tempFolder.newFile(name)
+        ZipOutputStream(file.outputStream()).use { zip ->
+            zip.putNextEntry(ZipEntry("word/document.xml"))
+            // Runs split mid-word, as Word does
+            val half = content.length / 2
+            val xml = "<w:document><w:body><w:p><w:r><w:t>${content.substring(0, half)}</w:t></w:r>" +
+                "<w:r><w:t>${content.substring(half)}</w:t></w:r></w:p></w:body></w:document>"
+            zip.write(xml.toByteArray())
+            zip.closeEntry()
+        }
+        return file
+    }
+
+    @Test
+    fun `lightly edited documents are clustered`() {
+        val index = DocumentSimilarityIndex(similarityThreshold = 0.7f)
+        assertTrue(index.add("a", writeText("a.txt", text())))
+        assertTrue(index.add("b", writeText("b.txt", text(34 to "south"))))
+
+        val clusters = index.findClusters()
+
+        assertEquals(1, clusters.size)
+        assertEquals(setOf("a", "b"), clusters.first().toSet())
+    }
+
+    @Test
+    fun `docx text matches its plain text export`() {
+        val index = DocumentSimilarityIndex()
+        index.add("txt", writeText("report.txt", text()))
+        index.add("docx", writeDocx("report.docx", text()))
+
+        assertEquals(1, index.findClusters().size)
+    }
+
+    @Test
+    fun `unrelated documents are not clustered`() {
+        val index = DocumentSimilarityIndex()
+        index.add("a", writeText("a.txt", text()))
+        index.add("b", writeText("b.txt", words.reversed().joinToString(" ")))
+
+        assertTrue(index.findClusters().isEmpty())
+    }
+
+    @Test
+    fun `documents with too little text are ignored`() {
+        val index = DocumentSimilarityIndex()
+
+        assertFalse(index.add("short", writeText("short.txt", "just a few words here")))
+        assertEquals(0, index.size)
+    }
+}
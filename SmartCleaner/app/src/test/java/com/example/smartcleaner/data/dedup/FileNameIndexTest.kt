@@ -0,0 +1,75 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.FileNameIndex
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for FileNameIndex
+ * Tests name canonicalization and trigram/LSH clustering
+ */
+class FileNameIndexTest {
+
+    @Test
+    fun `canonicalName strips copy markers and extension`() {
+        assertEquals("img_1234", FileNameIndex.canonicalName("IMG_1234 (1).jpg"))
+        assertEquals("img_1234", FileNameIndex.canonicalName("IMG_1234-copy.jpg"))
+        assertEquals("document", FileNameIndex.canonicalName("Document (3).pdf"))
+        assertEquals("report", FileNameIndex.canonicalName("Copy of Report.docx"))
+    }
+
+    @Test
+    fun `copies with similar sizes are clustered`() {
+        val index = FileNameIndex()
+        index.add("/a/IMG_1234.jpg", "IMG_1234.jpg", 1_000_000)
+        index.add("/b/IMG_1234 (1).jpg", "IMG_1234 (1).jpg", 1_020_000)
+        index.add("/c/IMG_1234-copy.jpg", "IMG_1234-copy.jpg", 990_000)
+
+        val clusters = index.findClusters()
+
+        assertEquals(1, clusters.size)
+        assertEquals(3, clusters.first().size)
+    }
+
+    @Test
+    fun `different numbers are never clustered`() {
+        val index = FileNameIndex()
+        index.add("/a/IMG_1234.jpg", "IMG_1234.jpg", 1_000_000)
+        index.add("/a/IMG_1235.jpg", "IMG_1235.jpg", 1_000_000)
+
+        assertTrue(index.findClusters().isEmpty())
+    }
+
+    @Test
+    fun `size difference beyond tolerance is not clustered`() {
+        val index = FileNameIndex(sizeTolerance = 0.1f)
+        index.add("/a/Document.pdf", "Document.pdf", 100_000)
+        index.add("/a/Document (3).pdf", "Document (3).pdf", 500_000)
+
+        assertTrue(index.findClusters().isEmpty())
+    }
+
+    @Test
+    fun `oversized buckets are still compared`() {
+        val index = FileNameIndex(sizeTolerance = 0.1f)
+        repeat(300) { n ->
+            // Two series of copies with one canonical name, far apart in size
+            val size = if (n % 2 == 0) 100_000L + n else 1_000_000L + n
+            index.add("/a/Report ($n).pdf", "Report ($n).pdf", size)
+        }
+
+        val clusters = index.findClusters()
+
+        assertEquals(2, clusters.size)
+        assertTrue(clusters.all { it.size == 150 })
+    }
+
+    @Test
+    fun `different extensions are not clustered`() {
+        val index = FileNameIndex()
+        index.add("/a/Document.pdf", "Document.pdf", 100_000)
+        index.add("/a/Document.docx", "Document.docx", 100_000)
+
+        assertTrue(index.findClusters().isEmpty())
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.HardLinkDeduplicator
+import com.smartcleaner.data.util.FileIdentity
+import com.smartcleaner.domain.model.RootOperationResult
+import com.smartcleaner.domain.model.RootStatus
+import com.smartcleaner.domain.model.SystemApp
+import com.smartcleaner.domain.model.SystemPartitionInfo
+import com.smartcleaner.domain.repository.RootRepository
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.nio.file.Files
+import java.nio.file.LinkOption
+
+/**
+ * Unit tests for HardLinkDeduplicator
+ * Tests in-process linking, prepare failure, partial apply through the root
+ * shell and journal roll-forward/rollback
+ */
+class HardLinkDeduplicatorTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val journalDir by lazy { tempFolder.newFolder("files") }
+    private val journal get() = File(journalDir, "hardlink.journal")
+
+    /**
+     * Answers shell commands with [respond], recording each one
+     */
+    private class FakeRoot(
+        private val status: RootStatus,
+        private val respond: (String) -> RootOperationResult = { ok("") }
+    ) : RootRepository {
+        val commands = mutableListOf<String>()
+
+        override suspend fun checkRootAccess(): RootStatus = status
+        override suspend fun requestRootPermission(): RootStatus = status
+        override suspend fun cleanSystemCache(): RootOperationResult = TODO()
+        override suspend fun cleanDalvikCache(): RootOperationResult = TODO()
+        override suspend fun getSystemPartitionInfo(): List<SystemPartitionInfo> = emptyList()
+        override suspend fun getSystemApps(): List<SystemApp> = emptyList()
+        override suspend fun disableSystemApp(packageName: String): RootOperationResult = TODO()
+
+        override suspend fun executeCommand(command: String): RootOperationResult {
+            commands.add(command)
+            return respond(command)
+        }
+    }
+
+    private companion object {
+        fun ok(output: String) = RootOperationResult(success = true, message = "", output = output)
+        val DEAD_SHELL = RootOperationResult(success = false, message = "Error: shell died", output = null)
+
+        const val SHARED = "/storage/emulated/0/Download"
+        const val BACKING = "/data/media/0/Download"
+    }
+
+    private fun identityOf(file: File): FileIdentity? {
+        if (!file.exists()) return null
+        val stat = Files.readAttributes(file.toPath(), "unix:*", LinkOption.NOFOLLOW_LINKS)
+        return FileIdentity.fromStat(
+            device = stat["dev"] as Long,
+            inode = stat["ino"] as Long,
+            linkCount = (stat["nlink"] as Int).toLong(),
+            size = stat["size"] as Long,
+            blocks = 8L,
+            lastModified = file.lastModified()
+        )
+    }
+
+    private fun inodeOf(file: File) = identityOf(file)!!.key
+
+    private fun local() = HardLinkDeduplicator(journalDir, FakeRoot(RootStatus.NOT_ROOTED), ::identityOf)
+
+    /**
+     * Shared-storage files that don't exist here: each has its own inode
+     * and matches the kept file
+     */
+    private fun rooted(root: FakeRoot) = HardLinkDeduplicator(
+        journalDir,
+        root,
+        identityOf = { file ->
+            FileIdentity.fromStat(1L, file.name.hashCode().toLong(), 1L, 100L, 8L, 0L)
+        },
+        contentEquals = { _, _ -> true }
+    )
+
+    private fun file(name: String, content: String = "same bytes"): File =
+        tempFolder.newFile(name).apply { writeText(content) }
+
+    private fun tempLinks() = tempFolder.root.walk().filter { it.name.endsWith(".sclink") }.toList()
+
+    @Test
+    fun `confirmed copies share the kept file's inode`() = runTest {
+        val keep = file("keep.jpg")
+        val a = file("a.jpg")
+        val b = file("b.jpg")
+        val other = file("other.jpg", "other bytes")
+
+        val result = local().link(keep.absolutePath, listOf(a, b, other).map { it.absolutePath })
+
+        assertEquals(setOf(a.absolutePath, b.absolutePath), result.linkedPaths)
+        assertEquals(2, result.linkedCount)
+        assertEquals(1, result.skippedCount)
+        assertEquals(0, result.failedCount)
+        assertEquals(2 * 8L * 512, result.freedBytes)
+        assertEquals(inodeOf(keep), inodeOf(a))
+        assertEquals(inodeOf(keep), inodeOf(b))
+        assertNotEquals(inodeOf(keep), inodeOf(other))
+        assertTrue(tempLinks().isEmpty())
+        assertFalse(journal.exists())
+    }
+
+    @Test
+    fun `failed prepare leaves every target untouched`() = runTest {
+        val keep = file("keep.jpg")
+        val a = file("a.jpg")
+        val b = file("b.jpg")
+        // Something already holds b's temp name, so its link can't be made
+        File(tempFolder.root, "b.jpg.sclink").mkdir()
+        val before = listOf(a, b).map { inodeOf(it) }
+
+        val result = local().link(keep.absolutePath, listOf(a, b).map { it.absolutePath })
+
+        assertTrue(result.linkedPaths.isEmpty())
+        assertEquals(2, result.failedCount)
+        assertEquals(0L, result.freedBytes)
+        assertEquals(before, listOf(a, b).map { inodeOf(it) })
+        assertEquals("same bytes", a.readText())
+        assertTrue(tempLinks().isEmpty())
+        assertFalse(journal.exists())
+    }
+
+    @Test
+    fun `partial apply reports only the renamed targets and removes the rest`() = runTest {
+        val root = FakeRoot(RootStatus.ROOTED_GRANTED) { command ->
+            // b's rename fails, the script carries on
+            if (command.startsWith("mv")) ok("$BACKING/b.jpg.sclink\nsclink-applied") else ok("")
+        }
+
+        val result = rooted(root).link("$SHARED/keep.jpg", listOf("$SHARED/a.jpg", "$SHARED/b.jpg"))
+
+        assertEquals(setOf("$SHARED/a.jpg"), result.linkedPaths)
+        assertEquals(1, result.failedCount)
+        assertEquals(8L * 512, result.freedBytes)
+        assertTrue(root.commands.first().startsWith("ln '$BACKING/keep.jpg' '$BACKING/a.jpg.sclink'"))
+        assertEquals("rm -f '$BACKING/b.jpg.sclink'", root.commands.last())
+        assertFalse(journal.exists())
+    }
+
+    @Test
+    fun `batch cut off mid-apply is kept and rolled forward`() = runTest {
+        var shellAlive = true
+        val root = FakeRoot(RootStatus.ROOTED_GRANTED) { command ->
+            when {
+                !command.startsWith("mv") -> ok("")
+                shellAlive -> ok("sclink-applied")
+                else -> DEAD_SHELL
+            }
+        }
+        val deduplicator = rooted(root)
+
+        shellAlive = false
+        val result = deduplicator.link("$SHARED/keep.jpg", listOf("$SHARED/a.jpg", "$SHARED/b.jpg"))
+
+        assertTrue(result.linkedPaths.isEmpty())
+        assertEquals(2, result.failedCount)
+        assertTrue(journal.exists())
+        // While the batch is unsettled no other may overwrite its journal
+        assertEquals(0, deduplicator.link("$SHARED/keep.jpg", listOf("$SHARED/c.jpg")).linkedCount)
+        assertTrue(root.commands.none { it.contains("c.jpg") })
+
+        shellAlive = true
+        root.commands.clear()
+        assertTrue(deduplicator.recover())
+
+        assertEquals(1, root.commands.size)
+        assertTrue(root.commands.single().contains("mv -f '$BACKING/a.jpg.sclink' '$BACKING/a.jpg'"))
+        assertTrue(root.commands.single().contains("mv -f '$BACKING/b.jpg.sclink' '$BACKING/b.jpg'"))
+        assertFalse(journal.exists())
+    }
+
+    @Test
+    fun `committed journal is rolled forward`() = runTest {
+        val keep = file("keep.jpg")
+        val done = file("done.jpg")
+        val pending = file("pending.jpg")
+        // Crashed after done.jpg was renamed but before pending.jpg was
+        val doneTemp = File(tempFolder.root, "done.jpg.sclink")
+        val pendingTemp = File(tempFolder.root, "pending.jpg.sclink")
+        Files.delete(done.toPath())
+        Files.createLink(done.toPath(), keep.toPath())
+        Files.createLink(pendingTemp.toPath(), keep.toPath())
+        journal.writeText(
+            "mode=local\n" +
+                "${doneTemp.absolutePath}\t${done.absolutePath}\n" +
+                "${pendingTemp.absolutePath}\t${pending.absolutePath}\n" +
+                "commit\n"
+        )
+
+        assertTrue(local().recover())
+
+        assertEquals(inodeOf(keep), inodeOf(done))
+        assertEquals(inodeOf(keep), inodeOf(pending))
+        assertTrue(tempLinks().isEmpty())
+        assertFalse(journal.exists())
+    }
+
+    @Test
+    fun `uncommitted journal is rolled back`() = runTest {
+        val keep = file("keep.jpg")
+        val target = file("target.jpg")
+        val temp = File(tempFolder.root, "target.jpg.sclink")
+        Files.createLink(temp.toPath(), keep.toPath())
+        val before = inodeOf(target)
+        journal.writeText("mode=local\n${temp.absolutePath}\t${target.absolutePath}\n")
+
+        assertTrue(local().recover())
+
+        assertEquals(before, inodeOf(target))
+        assertNotEquals(inodeOf(keep), inodeOf(target))
+        assertTrue(tempLinks().isEmpty())
+        assertFalse(journal.exists())
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smartcleaner.data.dedup
+
+import com.smartcleaner.data.dedup.ImageNeighborIndex
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for ImageNeighborIndex
+ * Tests re-clustering at different thresholds from one index
+ */
+class ImageNeighborIndexTest {
+
+    // Distances from base: near = 2 bits, far = 8 bits; other is unrelated
+    private val base = "ffffffffffffffff"
+    private val near = "fffffffffffffffc"
+    private val far = "ffffffffffffff00"
+    private val other = "0000000000000000"
+
+    @Test
+    fun `strict threshold keeps only close hashes together`() {
+        val index = ImageNeighborIndex(listOf(base, near, far, other))
+
+        val clusters = index.cluster(0.95f)
+
+        assertEquals(listOf(listOf(base, near)), clusters)
+    }
+
+    @Test
+    fun `lower threshold merges more without rebuilding`() {
+        val index = ImageNeighborIndex(listOf(base, near, far, other))
+
+        assertEquals(1, index.cluster(0.95f).size)
+        assertEquals(listOf(listOf(base, near, far)), index.cluster(0.85f))
+        assertEquals(listOf(listOf(base, near)), index.cluster(0.95f))
+    }
+
+    @Test
+    fun `threshold below the index floor is clamped`() {
+        val index = ImageNeighborIndex(listOf(base, other))
+
+        assertTrue(index.cluster(0.0f).isEmpty())
+    }
+
+    @Test
+    fun `max distance follows 64-bit similarity`() {
+        assertEquals(3, ImageNeighborIndex.maxDistance(0.95f))
+        assertEquals(0, ImageNeighborIndex.maxDistance(1.0f))
+        assertEquals(19, ImageNeighborIndex.maxDistance(0.7f))
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.smartcleaner.data.delete
+
+import com.smartcleaner.data.delete.BatchDeleter
+import com.smartcleaner.data.trash.TrashBin
+import com.smartcleaner.domain.model.AppPreferences
+import com.smartcleaner.domain.model.AutoCleanSchedule
+import com.smartcleaner.domain.model.CloudBackupConfig
+import com.smartcleaner.domain.model.RootOperationResult
+import com.smartcleaner.domain.model.RootStatus
+import com.smartcleaner.domain.model.SystemApp
+import com.smartcleaner.domain.model.SystemPartitionInfo
+import com.smartcleaner.domain.repository.PreferencesRepository
+import com.smartcleaner.domain.repository.RootRepository
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for BatchDeleter
+ * Tests local parallel deletion, per-item outcomes, the trash and the root shell path
+ */
+class BatchDeleterTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private class FakePreferences(
+        private val rootMode: Boolean,
+        private val useTrash: Boolean = false
+    ) : PreferencesRepository {
+        override fun getPreferences(): Flow<AppPreferences> =
+            flowOf(AppPreferences(rootModeEnabled = rootMode, useTrash = useTrash))
+        override suspend fun updatePreferences(preferences: AppPreferences) = Unit
+        override suspend fun getAutoCleanSchedule(): AutoCleanSchedule = TODO()
+        override suspend fun updateAutoCleanSchedule(schedule: AutoCleanSchedule) = Unit
+        override suspend fun getCloudBackupConfig(): CloudBackupConfig = TODO()
+        override suspend fun updateCloudBackupConfig(config: CloudBackupConfig) = Unit
+    }
+
+    /**
+     * Runs rm by deleting every quoted argument
+     */
+    private class FakeRoot(private val status: RootStatus) : RootRepository {
+        val commands = mutableListOf<String>()
+
+        override suspend fun checkRootAccess(): RootStatus = status
+        override suspend fun requestRootPermission(): RootStatus = status
+        override suspend fun cleanSystemCache(): RootOperationResult = TODO()
+        override suspend fun cleanDalvikCache(): RootOperationResult = TODO()
+        override suspend fun getSystemPartitionInfo(): List<SystemPartitionInfo> = emptyList()
+        override suspend fun getSystemApps(): List<SystemApp> = emptyList()
+        override suspend fun disableSystemApp(packageName: String): RootOperationResult = TODO()
+
+        override suspend fun executeCommand(command: String): RootOperationResult {
+            commands.add(command)
+            Regex("'([^']*)'").findAll(command).forEach { File(it.groupValues[1]).deleteRecursively() }
+            return RootOperationResult(success = true, message = "", output = "")
+        }
+    }
+
+    /**
+     * A trash with no volumes, so nothing is trashed, or one on [volume]
+     */
+    private fun trash(volume: File? = null) =
+        TrashBin(File(tempFolder.root, "trash_journal.json"), { listOfNotNull(volume) }, 0L)
+
+    private fun file(path: String, bytes: Int): File =
+        File(tempFolder.root, path).apply { parentFile?.mkdirs(); writeBytes(ByteArray(bytes)) }
+
+    @Test
+    fun `deletes files across directories and reports each one`() = runTest {
+        val deleter = BatchDeleter(FakeRoot(RootStatus.NOT_ROOTED), FakePreferences(rootMode = false), trash())
+        val a = file("one/a.tmp", 100)
+        val b = file("one/b.tmp", 50)
+        val c = file("two/c.tmp", 25)
+        val missing = File(tempFolder.root, "two/missing.tmp")
+
+        val outcomes = deleter.delete(listOf(a, b, c, missing).map { it.absolutePath }).toList()
+
+        assertEquals(4, outcomes.size)
+        assertEquals(setOf(a, b, c).map { it.absolutePath }.toSet(), outcomes.filter { it.deleted }.map { it.path }.toSet())
+        assertEquals(175L, outcomes.sumOf { it.freedBytes })
+        assertFalse(a.exists() || b.exists() || c.exists())
+    }
+
+    @Test
+    fun `directories need recursive mode`() = runTest {
+        val deleter = BatchDeleter(FakeRoot(RootStatus.NOT_ROOTED), FakePreferences(rootMode = false), trash())
+        file("leftover/x/1.dat", 10)
+        file("leftover/2.dat", 20)
+        val directory = File(tempFolder.root, "leftover")
+
+        assertEquals(0, deleter.deleteAll(listOf(directory.absolutePath)).deletedCount)
+        val summary = deleter.deleteAll(listOf(directory.absolutePath), recursive = true)
+
+        assertEquals(1, summary.deletedCount)
+        assertEquals(30L, summary.freedBytes)
+        assertFalse(directory.exists())
+    }
+
+    @Test
+    fun `root mode removes the batch through the shell`() = runTest {
+        val root = FakeRoot(RootStatus.ROOTED_GRANTED)
+        val deleter = BatchDeleter(root, FakePreferences(rootMode = true), trash())
+        val files = (1..20).map { file("media/$it.jpg", 10) }
+
+        val summary = deleter.deleteAll(files.map { it.absolutePath })
+
+        assertEquals(1, root.commands.size)
+        assertTrue(root.commands.single().startsWith("rm -f "))
+        assertEquals(20, summary.deletedCount)
+        assertEquals(200L, summary.freedBytes)
+    }
+
+    @Test
+    fun `root mode is only used when granted`() = runTest {
+        val root = FakeRoot(RootStatus.ROOTED_DENIED)
+        val deleter = BatchDeleter(root, FakePreferences(rootMode = true), trash())
+        val target = file("a.tmp", 1)
+
+        assertEquals(1, deleter.deleteAll(listOf(target.absolutePath)).deletedCount)
+        assertTrue(root.commands.isEmpty())
+    }
+
+    @Test
+    fun `trash takes whole directories with one rename`() = runTest {
+        val volume = tempFolder.newFolder("volume")
+        val trash = trash(volume)
+        val deleter = BatchDeleter(
+            FakeRoot(RootStatus.NOT_ROOTED),
+            FakePreferences(rootMode = false, useTrash = true),
+            trash
+        )
+        file("volume/leftover/x/1.dat", 10)
+        val loose = file("volume/a.tmp", 5)
+        val outside = file("elsewhere/b.tmp", 7)
+        val directory = File(volume, "leftover")
+
+        val summary = deleter.deleteAll(
+            listOf(directory, loose, outside).map { it.absolutePath },
+            recursive = true
+        )
+
+        assertEquals(3, summary.deletedCount)
+        // Only what is off the trash volume is freed; the trashed directory isn't walked
+        assertEquals(7L, summary.freedBytes)
+        assertEquals(5L, summary.trashedBytes)
+        assertFalse(directory.exists() || loose.exists() || outside.exists())
+        assertEquals(
+            setOf(directory, loose).map { it.absolutePath }.toSet(),
+            trash.entries().map { it.originalPath }.toSet()
+        )
+        assertTrue(File(volume, "${TrashBin.DIRECTORY_NAME}/.nomedia").exists())
+    }
+}
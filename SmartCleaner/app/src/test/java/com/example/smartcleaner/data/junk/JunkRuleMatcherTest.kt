@@ -0,0 +1,140 @@
+package com.example.smartcleaner.data.junk
+
+import com.smartcleaner.data.junk.AppCacheSignature
+import com.smartcleaner.data.junk.AppCacheSignatureDb
+import com.smartcleaner.data.junk.JunkRule
+import com.smartcleaner.data.junk.JunkRuleMatcher
+import com.smartcleaner.data.junk.JunkRuleSet
+import com.smartcleaner.domain.model.JunkType
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+/**
+ * Unit tests for JunkRuleMatcher
+ * Tests suffix and path-glob matching, conditions, app cache signatures
+ * and rule-set parsing
+ */
+class JunkRuleMatcherTest {
+
+    private val now = System.currentTimeMillis()
+    private val matcher = JunkRuleMatcher(JunkRuleSet.DEFAULT.rules)
+
+    private fun JunkRuleMatcher.stateFor(path: String): JunkRuleMatcher.DirState =
+        path.split('/').filter { it.isNotEmpty() }.fold(storageRoot()) { state, segment -> enter(state, segment) }
+
+    private fun JunkRuleMatcher.typesOf(path: String, size: Long = 10, lastModified: Long = now): List<JunkType> =
+        classify(stateFor(path.substringBeforeLast('/', "")), path.substringAfterLast('/'), size, lastModified, now)
+
+    @Test
+    fun `suffix rules match case-insensitively anywhere`() {
+        assertEquals(listOf(JunkType.TEMP_FILES), matcher.typesOf("a/b/c/upload.TMP"))
+        assertEquals(listOf(JunkType.LOG_FILES), matcher.typesOf("crash.log"))
+        assertEquals(listOf(JunkType.BACKUP_FILES), matcher.typesOf("Documents/notes.backup"))
+        assertTrue(matcher.typesOf("Documents/notes.txt").isEmpty())
+    }
+
+    @Test
+    fun `path globs restrict suffix rules`() {
+        assertEquals(listOf(JunkType.APK_FILES), matcher.typesOf("Download/app.apk"))
+        assertTrue(matcher.typesOf("Download/sub/app.apk").isEmpty())
+        assertTrue(matcher.typesOf("Documents/app.apk").isEmpty())
+    }
+
+    @Test
+    fun `globstar matches any depth`() {
+        assertEquals(listOf(JunkType.THUMBNAIL_CACHE), matcher.typesOf(".thumbnails/1.jpg"))
+        assertEquals(listOf(JunkType.THUMBNAIL_CACHE), matcher.typesOf(".thumbnails/a/b/2.jpg"))
+        assertTrue(matcher.typesOf("DCIM/1.jpg").isEmpty())
+    }
+
+    @Test
+    fun `a file matches every applicable type`() {
+        val withLarge = JunkRuleMatcher(
+            JunkRuleSet.DEFAULT.rules + JunkRule(JunkType.LARGE_FILES, paths = listOf("**"), minSizeBytes = 1000)
+        )
+
+        assertEquals(
+            listOf(JunkType.TEMP_FILES, JunkType.LARGE_FILES),
+            withLarge.typesOf("Movies/render.tmp", size = 5000)
+        )
+        assertEquals(listOf(JunkType.TEMP_FILES), withLarge.typesOf("Movies/render.tmp", size = 10))
+    }
+
+    @Test
+    fun `path rules never match outside shared storage`() {
+        val withLarge = JunkRuleMatcher(listOf(JunkRule(JunkType.LARGE_FILES, paths = listOf("**"))))
+
+        assertTrue(withLarge.classify(withLarge.otherRoot(), "big.bin", 1L shl 30, now, now).isEmpty())
+    }
+
+    @Test
+    fun `age and owning package conditions`() {
+        val rules = JunkRuleMatcher(
+            listOf(
+                JunkRule(JunkType.BACKUP_FILES, suffixes = listOf(".old"), minAgeDays = 30),
+                JunkRule(JunkType.APP_CACHE, paths = listOf("Android/data/*/files/**"), packages = listOf("com.example"))
+            )
+        )
+        val old = now - TimeUnit.DAYS.toMillis(31)
+
+        assertTrue(rules.typesOf("x.old").isEmpty())
+        assertEquals(listOf(JunkType.BACKUP_FILES), rules.typesOf("x.old", lastModified = old))
+        assertEquals(listOf(JunkType.APP_CACHE), rules.typesOf("Android/data/com.example/files/a.bin"))
+        assertTrue(rules.typesOf("Android/data/com.other/files/a.bin").isEmpty())
+    }
+
+    @Test
+    fun `rule sets parse from json`() {
+        val set = JunkRuleSet.parse(
+            """{"version": 2, "rules": [{"type": "LOG_FILES", "suffixes": [".trace"], "unknown": 1}]}"""
+        )
+
+        assertEquals(2, set.version)
+        assertEquals(listOf(JunkType.LOG_FILES), JunkRuleMatcher(set.rules).typesOf("app.trace"))
+    }
+
+    @Test
+    fun `signatures attribute files to their app`() {
+        val signatures = JunkRuleMatcher(JunkRuleSet.DEFAULT.rules, AppCacheSignatureDb.DEFAULT.signatures)
+        fun signatureOf(path: String): AppCacheSignature? = signatures.signatureOf(
+            signatures.stateFor(path.substringBeforeLast('/')),
+            path.substringAfterLast('/')
+        )
+
+        assertEquals("com.whatsapp", signatureOf("Android/media/com.whatsapp/WhatsApp/.Shared/tmp/a.jpg")?.packageName)
+        assertEquals(JunkType.THUMBNAIL_CACHE, signatureOf("DCIM/.thumbnails/123.jpg")?.type)
+        assertNull(signatureOf("Android/media/com.whatsapp/WhatsApp/Media/a.jpg"))
+        assertNull(signatureOf("DCIM/Camera/a.jpg"))
+
+        // Generic signatures take the package from the directory
+        val state = signatures.stateFor("Android/media/com.example/cache/img")
+        assertNull(signatures.signatureOf(state, "a.bin")?.packageName)
+        assertEquals("com.example", state.owner)
+    }
+
+    @Test
+    fun `the first matching signature wins`() {
+        val signatures = JunkRuleMatcher(
+            emptyList(),
+            listOf(
+                AppCacheSignature("com.specific", listOf("Android/media/com.specific/cache/**")),
+                AppCacheSignature(paths = listOf("Android/media/*/cache/**"))
+            )
+        )
+        val state = signatures.stateFor("Android/media/com.specific/cache")
+
+        assertEquals("com.specific", signatures.signatureOf(state, "a.bin")?.packageName)
+        assertFalse(signatures.canPrune(state))
+    }
+
+    @Test
+    fun `signature databases parse from json`() {
+        val db = AppCacheSignatureDb.parse(
+            """{"version": 3, "signatures": [{"packageName": "org.app", "paths": ["App/.cache/**"]}]}"""
+        )
+
+        assertEquals(3, db.version)
+        assertEquals(JunkType.APP_CACHE, db.signatures.single().type)
+    }
+}
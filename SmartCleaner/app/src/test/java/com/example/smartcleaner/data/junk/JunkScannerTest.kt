@@ -0,0 +1,167 @@
+package com.example.smartcleaner.data.junk
+
+import com.smartcleaner.data.junk.AppCacheSignatureDb
+import com.smartcleaner.data.junk.DirectoryIndex
+import com.smartcleaner.data.junk.JunkRule
+import com.smartcleaner.data.junk.JunkRuleMatcher
+import com.smartcleaner.data.junk.JunkRuleSet
+import com.smartcleaner.data.junk.JunkScanner
+import com.smartcleaner.domain.model.JunkFile
+import com.smartcleaner.domain.model.JunkType
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for JunkScanner
+ * Tests full-depth walking, pruning and reuse of unchanged directories
+ */
+class JunkScannerTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val matcher = JunkRuleMatcher(JunkRuleSet.DEFAULT.rules)
+
+    private fun file(path: String, content: String = "x"): File =
+        File(tempFolder.root, path).apply { parentFile?.mkdirs(); writeText(content) }
+
+    private fun scan(
+        scanner: JunkScanner,
+        rules: JunkRuleMatcher = matcher
+    ): List<JunkFile> = mutableListOf<JunkFile>().also { scanner.scan(tempFolder.root, rules.storageRoot(), it) }
+
+    @Test
+    fun `junk below the old depth limit is found`() {
+        val deep = file("Android/media/com.app/a/b/c/cache/x.tmp")
+
+        val found = scan(JunkScanner(matcher, emptySet(), null, 0))
+
+        assertEquals(listOf(deep.absolutePath), found.map { it.path })
+        assertEquals(JunkType.TEMP_FILES, found.single().type)
+    }
+
+    @Test
+    fun `skipped directories are not entered`() {
+        file("Android/obb/com.game/patch.tmp")
+        val kept = file("Documents/a.log")
+        val skip = setOf(File(tempFolder.root, "Android/obb").absolutePath)
+
+        val found = scan(JunkScanner(matcher, skip, null, 0))
+
+        assertEquals(listOf(kept.absolutePath), found.map { it.path })
+    }
+
+    @Test
+    fun `subtrees no rule can match are pruned`() {
+        val apksOnly = JunkRuleMatcher(
+            listOf(JunkRule(JunkType.APK_FILES, suffixes = listOf(".apk"), paths = listOf("Download/*")))
+        )
+        val apk = file("Download/app.apk")
+        file("DCIM/Camera/a/b/app.apk")
+        file("Music/x/y.apk")
+
+        val scanner = JunkScanner(apksOnly, emptySet(), null, 0)
+        val found = scan(scanner, apksOnly)
+
+        assertEquals(listOf(apk.absolutePath), found.map { it.path })
+        assertEquals(2, scanner.directoriesListed)  // root and Download
+    }
+
+    @Test
+    fun `large files are found without keeping every subtree`() {
+        val apksOnly = JunkRuleMatcher(
+            listOf(JunkRule(JunkType.APK_FILES, suffixes = listOf(".apk"), paths = listOf("Download/*")))
+        )
+        val bigApk = file("Download/app.apk", "x".repeat(100))
+        val bigVideo = file("Download/clip.mp4", "x".repeat(100))
+        file("Download/small.mp4")
+        val hidden = file("Android/obb/com.game/main.obb", "x".repeat(100))
+        file("Movies/a/b/film.mp4", "x".repeat(100))
+
+        val scanner = JunkScanner(
+            apksOnly, emptySet(), null, 0,
+            largeFileBytes = 100,
+            fullDepthRoots = listOf(File(tempFolder.root, "Android/obb").absolutePath)
+        )
+        val found = scan(scanner, apksOnly)
+
+        assertEquals(
+            setOf(
+                bigApk.absolutePath to JunkType.APK_FILES,
+                bigApk.absolutePath to JunkType.LARGE_FILES,
+                bigVideo.absolutePath to JunkType.LARGE_FILES,
+                hidden.absolutePath to JunkType.LARGE_FILES
+            ),
+            found.map { it.path to it.type }.toSet()
+        )
+        // root, Download, Android, Android/obb, Android/obb/com.game; Movies is pruned
+        assertEquals(5, scanner.directoriesListed)
+    }
+
+    @Test
+    fun `unchanged directories are reused from the previous index`() {
+        file("a/one.log")
+        file("b/c/two.tmp")
+        val first = JunkScanner(matcher, emptySet(), null, 7)
+        val firstFound = scan(first)
+
+        val second = JunkScanner(matcher, emptySet(), first.index, 7)
+        val secondFound = scan(second)
+
+        assertEquals(firstFound.map { it.path }.toSet(), secondFound.map { it.path }.toSet())
+        assertEquals(0, second.directoriesListed)
+        assertEquals(first.directoriesListed, second.directoriesReused)
+    }
+
+    @Test
+    fun `a changed directory is listed again`() {
+        file("a/one.log")
+        val first = JunkScanner(matcher, emptySet(), null, 0)
+        scan(first)
+
+        val added = file("a/new.tmp")
+        val directory = added.parentFile!!
+        directory.setLastModified(directory.lastModified() + 10_000)
+        val second = JunkScanner(matcher, emptySet(), first.index, 0)
+        val found = scan(second)
+
+        assertTrue(found.any { it.path == added.absolutePath })
+        assertEquals(1, second.directoriesListed)
+    }
+
+    @Test
+    fun `index survives a round trip`() {
+        file("a/one.log")
+        val scanner = JunkScanner(matcher, emptySet(), null, 42, now = 1_000L)
+        scan(scanner)
+        val indexFile = File(tempFolder.newFolder("state"), "junk.index")
+
+        scanner.index.write(indexFile)
+        val read = DirectoryIndex.read(indexFile)!!
+
+        assertEquals(42, read.fingerprint)
+        assertEquals(1_000L, read.createdAt)
+        val entry = read.entries.getValue(File(tempFolder.root, "a").absolutePath)
+        assertEquals(listOf("one.log"), entry.files.map { it.name })
+    }
+
+    @Test
+    fun `app cache paths are found in the same walk`() {
+        val signatures = JunkRuleMatcher(JunkRuleSet.DEFAULT.rules, AppCacheSignatureDb.DEFAULT.signatures)
+        val shared = file("Android/media/com.whatsapp/WhatsApp/.Shared/a.jpg")
+        val cached = file("Android/media/com.example/cache/b.tmp")
+        file("Android/media/com.whatsapp/WhatsApp/Media/c.jpg")
+
+        val found = scan(JunkScanner(signatures, emptySet(), null, 0), signatures)
+
+        assertEquals(
+            setOf(shared.absolutePath to "com.whatsapp", cached.absolutePath to "com.example"),
+            found.filter { it.type == JunkType.APP_CACHE }.map { it.path to it.packageName }.toSet()
+        )
+        // A signature match doesn't hide the file's other types
+        assertEquals(listOf(JunkType.TEMP_FILES), found.filter { it.path == cached.absolutePath && it.type != JunkType.APP_CACHE }.map { it.type })
+    }
+}
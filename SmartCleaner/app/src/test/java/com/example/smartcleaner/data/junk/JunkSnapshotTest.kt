@@ -0,0 +1,167 @@
+package com.example.smartcleaner.data.junk
+
+import com.smartcleaner.data.junk.JunkSnapshot
+import com.smartcleaner.domain.model.JunkDelta
+import com.smartcleaner.domain.model.JunkFile
+import com.smartcleaner.domain.model.JunkGrowth
+import com.smartcleaner.domain.model.JunkGrowthSample
+import com.smartcleaner.domain.model.JunkType
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for JunkSnapshot
+ * Tests the merge-join diff, persistence and growth rates
+ */
+class JunkSnapshotTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val day = 24 * 60 * 60 * 1000L
+
+    private fun junk(path: String, size: Long, type: JunkType = JunkType.TEMP_FILES, packageName: String? = null) =
+        JunkFile(path, path.substringAfterLast('/'), size, 0L, type, packageName)
+
+    @Test
+    fun `diff finds added, removed and grown junk`() {
+        val previous = JunkSnapshot.of(
+            listOf(
+                junk("/s/b.tmp", 100),
+                junk("/s/a.log", 50, JunkType.LOG_FILES),
+                junk("/s/gone.tmp", 30),
+                junk("/s/shrunk.tmp", 40)
+            ),
+            scannedAt = 0L
+        )
+        val current = JunkSnapshot.of(
+            listOf(
+                junk("/s/shrunk.tmp", 10),
+                junk("/s/new.tmp", 20),
+                junk("/s/a.log", 80, JunkType.LOG_FILES),
+                junk("/s/b.tmp", 100)
+            ),
+            scannedAt = day
+        )
+
+        val report = JunkSnapshot.diff(previous, current)
+
+        assertEquals(JunkDelta(1, 20, 1, 30, 1, 30), report.total)
+        assertEquals(JunkDelta(1, 20, 1, 30, 0, 0), report.byType[JunkType.TEMP_FILES])
+        assertEquals(JunkDelta(grownCount = 1, grownBytes = 30), report.byType[JunkType.LOG_FILES])
+        assertEquals(50L, report.total.newBytes)
+        assertEquals(0L, report.previousScanAt)
+        assertEquals(day, report.scannedAt)
+    }
+
+    @Test
+    fun `the same path under another type is different junk`() {
+        val previous = JunkSnapshot.of(listOf(junk("/s/big.log", 500, JunkType.LOG_FILES)), 0L)
+        val current = JunkSnapshot.of(
+            listOf(junk("/s/big.log", 500, JunkType.LARGE_FILES), junk("/s/big.log", 500, JunkType.LOG_FILES)),
+            day
+        )
+
+        val report = JunkSnapshot.diff(previous, current)
+
+        assertEquals(JunkDelta(addedCount = 1, addedBytes = 500), report.byType[JunkType.LARGE_FILES])
+        assertNull(report.byType[JunkType.LOG_FILES])
+        // Still the same file, and no bigger
+        assertEquals(JunkDelta(), report.total)
+    }
+
+    @Test
+    fun `a file of several types counts once in the total`() {
+        val previous = JunkSnapshot.of(listOf(junk("/s/old.log", 100, JunkType.LOG_FILES)), 0L)
+        val current = JunkSnapshot.of(
+            listOf(
+                junk("/s/big.log", 500, JunkType.LARGE_FILES),
+                junk("/s/big.log", 500, JunkType.LOG_FILES),
+                junk("/s/old.log", 300, JunkType.LARGE_FILES),
+                junk("/s/old.log", 300, JunkType.LOG_FILES)
+            ),
+            day
+        )
+
+        val report = JunkSnapshot.diff(previous, current)
+
+        assertEquals(JunkDelta(addedCount = 1, addedBytes = 500, grownCount = 1, grownBytes = 200), report.total)
+        assertEquals(700L, report.total.newBytes)
+        assertEquals(JunkDelta(addedCount = 1, addedBytes = 500, grownCount = 1, grownBytes = 200), report.byType[JunkType.LOG_FILES])
+        assertEquals(JunkDelta(addedCount = 2, addedBytes = 800), report.byType[JunkType.LARGE_FILES])
+    }
+
+    @Test
+    fun `cleaned type drops out of the diff`() {
+        val previous = JunkSnapshot.of(listOf(junk("/s/a.tmp", 10)), 0L)
+        val current = JunkSnapshot.of(
+            listOf(
+                junk("/s/a.tmp", 10),
+                junk("/s/b.tmp", 20),
+                junk("/s/c.log", 40, JunkType.LOG_FILES, "com.app")
+            ),
+            day
+        )
+
+        val report = JunkSnapshot.diff(previous.without(JunkType.LOG_FILES), current.without(JunkType.LOG_FILES))
+
+        assertEquals(JunkDelta(addedCount = 1, addedBytes = 20), report.total)
+        assertNull(report.byType[JunkType.LOG_FILES])
+        assertTrue(report.byPackage.isEmpty())
+    }
+
+    @Test
+    fun `junk is attributed to packages, app cache totals included`() {
+        val previous = JunkSnapshot.of(listOf(junk("", 100, JunkType.APP_CACHE, "com.chat")), 0L)
+        val current = JunkSnapshot.of(
+            listOf(
+                junk("", 300, JunkType.APP_CACHE, "com.chat"),
+                junk("/s/Android/media/com.chat/cache/x", 70, JunkType.APP_CACHE, "com.chat"),
+                junk("/s/Android/media/com.news/cache/y", 5, JunkType.APP_CACHE, "com.news")
+            ),
+            day
+        )
+
+        val report = JunkSnapshot.diff(previous, current)
+
+        assertEquals(JunkDelta(1, 70, 0, 0, 1, 200), report.byPackage["com.chat"])
+        assertEquals(5L, report.byPackage.getValue("com.news").newBytes)
+    }
+
+    @Test
+    fun `snapshot survives a round trip`() {
+        val file = File(tempFolder.root, "snapshot.bin")
+        val samples = listOf(JunkGrowthSample(day, day, 1000, 100))
+        JunkSnapshot.of(
+            listOf(junk("/s/a.tmp", 1), junk("", 2, JunkType.APP_CACHE, "com.app")),
+            scannedAt = day,
+            samples = samples
+        ).write(file)
+
+        val read = JunkSnapshot.read(file)!!
+
+        assertEquals(day, read.scannedAt)
+        assertEquals(samples, read.samples)
+        assertEquals(listOf("/s/a.tmp", "package:com.app"), read.entries.map { it.key })
+        assertEquals("com.app", read.entries.last().packageName)
+        assertNull(JunkSnapshot.read(File(tempFolder.root, "missing.bin")))
+    }
+
+    @Test
+    fun `growth rate spans the whole history`() {
+        val growth = JunkGrowth(
+            latest = null,
+            samples = listOf(
+                JunkGrowthSample(scannedAt = day, intervalMs = day, totalBytes = 0, newBytes = 100),
+                JunkGrowthSample(scannedAt = 4 * day, intervalMs = 3 * day, totalBytes = 0, newBytes = 300)
+            )
+        )
+
+        assertEquals(100L, growth.bytesPerDay)
+        assertEquals(100L, growth.samples.last().bytesPerDay)
+        assertEquals(0L, JunkGrowth(null, emptyList()).bytesPerDay)
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.smartcleaner.data.media
+
+import com.smartcleaner.data.media.MediaStoreSource
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for MediaStoreSource
+ * Tests which directories are listed from MediaStore and which are walked
+ */
+class MediaStoreSourceTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val volume = File("/storage/emulated/0")
+
+    private fun unindexedIn(relative: String) =
+        MediaStoreSource.unindexedIn(volume, if (relative.isEmpty()) volume else File(volume, relative))
+
+    @Test
+    fun `volume root walks android data and obb`() {
+        assertEquals(
+            listOf(File(volume, "Android/data"), File(volume, "Android/obb")),
+            unindexedIn("")
+        )
+        assertEquals(2, unindexedIn("Android")!!.size)
+    }
+
+    @Test
+    fun `ordinary directories are fully indexed`() {
+        assertEquals(emptyList<File>(), unindexedIn("DCIM/Camera"))
+        assertEquals(emptyList<File>(), unindexedIn("Android/media/com.whatsapp"))
+    }
+
+    @Test
+    fun `unindexed and hidden directories are not listed`() {
+        assertNull(unindexedIn("Android/data/com.app/cache"))
+        assertNull(unindexedIn("Android/obb"))
+        assertNull(unindexedIn("WhatsApp/Media/.Statuses"))
+        assertNull(MediaStoreSource.unindexedIn(volume, File("/storage/1234-ABCD/DCIM")))
+    }
+
+    @Test
+    fun `hidden subdirectories of indexed ones are walked`() {
+        val root = tempFolder.root
+        listOf("WhatsApp/Media/.Statuses", "WhatsApp/.Shared", "DCIM/.thumbnails", "DCIM/Camera").forEach {
+            File(root, it).mkdirs()
+        }
+        File(root, "DCIM/.nomedia").writeText("")
+        val indexed = listOf("", "WhatsApp", "WhatsApp/Media", "DCIM", "DCIM/Camera")
+            .map { File(root, it).absolutePath.trimEnd('/') }
+
+        val hidden = MediaStoreSource.hiddenIn(indexed, listOf(File(root, "WhatsApp/.Shared").absolutePath + "/"))
+
+        assertEquals(
+            setOf("WhatsApp/Media/.Statuses", "DCIM/.thumbnails").map { File(root, it) }.toSet(),
+            hidden.toSet()
+        )
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.smartcleaner.data.ml
+
+import com.smartcleaner.data.ml.BatchSizeTuner
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class BatchSizeTunerTest {
+
+    private val micros = TimeUnit.MICROSECONDS::toNanos
+
+    // Runs batches whose time follows [cost] and returns where the tuner ends up
+    private fun tune(tuner: BatchSizeTuner, cost: (Int) -> Long): Int {
+        repeat(100) {
+            val size = tuner.batchSize
+            tuner.record(size, cost(size))
+        }
+        return tuner.batchSize
+    }
+
+    @Test
+    fun `grows to the largest size while per-call overhead dominates`() {
+        val tuner = BatchSizeTuner(minSize = 16, maxSize = 512)
+
+        // 1 ms per call plus 10 µs per item: each doubling still pays
+        assertEquals(512, tune(tuner) { size -> micros(1000L + 10L * size) })
+    }
+
+    @Test
+    fun `goes back when doubling no longer cuts the time per item`() {
+        val tuner = BatchSizeTuner(minSize = 16, maxSize = 512)
+
+        // No per-call overhead, so bigger batches only add latency
+        assertEquals(16, tune(tuner) { size -> micros(10L * size) })
+    }
+
+    @Test
+    fun `stays under the latency budget`() {
+        val tuner = BatchSizeTuner(
+            minSize = 16,
+            maxSize = 1024,
+            latencyBudgetNanos = TimeUnit.MILLISECONDS.toNanos(50)
+        )
+
+        // 256 files take 30.6 ms, 512 take 56.2 ms
+        assertEquals(256, tune(tuner) { size -> micros(5000L + 100L * size) })
+    }
+
+    @Test
+    fun `partial batches are not measured`() {
+        val tuner = BatchSizeTuner(minSize = 16, maxSize = 512)
+
+        repeat(10) { tuner.record(5, TimeUnit.SECONDS.toNanos(1)) }
+
+        assertEquals(16, tuner.batchSize)
+    }
+
+    @Test
+    fun `first batch at a size is not counted`() {
+        val tuner = BatchSizeTuner(minSize = 16, maxSize = 512)
+
+        // A slow first batch would otherwise make 16 look expensive
+        tuner.record(16, TimeUnit.SECONDS.toNanos(1))
+        repeat(2) { tuner.record(16, micros(160)) }
+        assertEquals(32, tuner.batchSize)
+        tuner.record(32, TimeUnit.SECONDS.toNanos(1))
+        repeat(2) { tuner.record(32, micros(160)) }
+
+        assertEquals(64, tuner.batchSize)
+    }
+}
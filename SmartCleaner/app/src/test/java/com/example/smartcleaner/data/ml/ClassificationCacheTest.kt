@@ -0,0 +1,105 @@
+package com.example.smartcleaner.data.ml
+
+import com.smartcleaner.data.ml.ClassificationCache
+import com.smartcleaner.domain.model.JunkCategory
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for ClassificationCache
+ * Tests (path, size, mtime) keys, model version invalidation and expiry
+ */
+class ClassificationCacheTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val cacheResult = JunkCategory.CACHE_FILE to 0.9f
+
+    private fun cache(version: String = "1.0.0") =
+        ClassificationCache(version, maxAgeMs = 10_000, maxUnusedMs = 1_000)
+
+    private fun read(file: File, version: String = "1.0.0") =
+        ClassificationCache.read(file, version, maxAgeMs = 10_000, maxUnusedMs = 1_000)
+
+    @Test
+    fun `hits need the same size and mtime`() {
+        val cache = cache()
+        cache.put("/d/a.tmp", 100, 5, cacheResult, now = 0)
+
+        assertEquals(cacheResult, cache.get("/d/a.tmp", 100, 5, now = 0))
+        assertNull(cache.get("/d/a.tmp", 100, 6, now = 0))
+        assertNull(cache.get("/d/a.tmp", 101, 5, now = 0))
+    }
+
+    @Test
+    fun `survives a round trip`() {
+        val file = File(tempFolder.root, "classifications.cache")
+        val cache = cache()
+        cache.put("/d/a.tmp", 100, 5, cacheResult, now = 0)
+        cache.put("/d/b.log", 10, 5, JunkCategory.LOG_FILE to 0.95f, now = 0)
+        cache.write(file, now = 0)
+
+        val read = read(file)
+
+        assertEquals(2, read.size)
+        assertEquals(cacheResult, read.get("/d/a.tmp", 100, 5, now = 0))
+        assertEquals(JunkCategory.LOG_FILE to 0.95f, read.get("/d/b.log", 10, 5, now = 0))
+    }
+
+    @Test
+    fun `another model version starts empty`() {
+        val file = File(tempFolder.root, "classifications.cache")
+        val cache = cache("1.0.0")
+        cache.put("/d/a.tmp", 100, 5, cacheResult, now = 0)
+        cache.write(file, now = 0)
+
+        val read = read(file, "1.1.0")
+
+        assertEquals(0, read.size)
+        assertNull(read.get("/d/a.tmp", 100, 5, now = 0))
+    }
+
+    @Test
+    fun `results are redone once too old`() {
+        val cache = cache()
+        cache.put("/d/a.tmp", 100, 5, cacheResult, now = 0)
+
+        assertNotNull(cache.get("/d/a.tmp", 100, 5, now = 10_000))
+        assertNull(cache.get("/d/a.tmp", 100, 5, now = 10_001))
+    }
+
+    @Test
+    fun `unused entries are dropped on write`() {
+        val file = File(tempFolder.root, "classifications.cache")
+        val cache = cache()
+        cache.put("/d/old.tmp", 1, 1, cacheResult, now = 0)
+        cache.put("/d/new.tmp", 2, 2, cacheResult, now = 1_500)
+        cache.write(file, now = 2_000)
+
+        val read = read(file)
+
+        assertNull(read.get("/d/old.tmp", 1, 1, now = 2_000))
+        assertNotNull(read.get("/d/new.tmp", 2, 2, now = 2_000))
+    }
+
+    @Test
+    fun `only touched hits count as used`() {
+        val file = File(tempFolder.root, "classifications.cache")
+        val cache = cache()
+        cache.put("/d/looked.tmp", 1, 1, cacheResult, now = 0)
+        cache.put("/d/touched.tmp", 2, 2, cacheResult, now = 0)
+        assertNotNull(cache.get("/d/looked.tmp", 1, 1, now = 1_500))
+        assertNotNull(cache.get("/d/touched.tmp", 2, 2, now = 1_500))
+        cache.touch("/d/touched.tmp", now = 1_500)
+        cache.write(file, now = 2_000)
+
+        val read = read(file)
+
+        assertNull(read.get("/d/looked.tmp", 1, 1, now = 2_000))
+        assertNotNull(read.get("/d/touched.tmp", 2, 2, now = 2_000))
+    }
+}
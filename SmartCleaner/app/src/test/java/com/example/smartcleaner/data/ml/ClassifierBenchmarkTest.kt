@@ -0,0 +1,89 @@
+package com.example.smartcleaner.data.ml
+
+import com.smartcleaner.data.ml.ClassifierBenchmark
+import com.smartcleaner.data.ml.FeatureExtractor
+import com.smartcleaner.data.ml.FixtureCorpus
+import com.smartcleaner.domain.model.JunkCategory
+import org.junit.Assert.*
+import org.junit.Test
+
+class ClassifierBenchmarkTest {
+
+    private val corpus = FixtureCorpus.standard(size = 700)
+
+    // Reads the rule label back from a row's extension flags
+    private fun byExtension(features: FloatArray, rows: Int): List<Pair<JunkCategory, Float>> =
+        List(rows) { row ->
+            val offset = row * FeatureExtractor.FEATURE_COUNT
+            val category = when {
+                features[offset + 11] > 0f -> JunkCategory.LOG_FILE
+                features[offset + 2] > 0f -> JunkCategory.CACHE_FILE
+                features[offset + 3] > 0f -> JunkCategory.TEMP_FILE
+                features[offset + 0] > 0f -> JunkCategory.SAFE_DOCUMENT
+                else -> JunkCategory.UNKNOWN
+            }
+            category to 1f
+        }
+
+    @Test
+    fun `standard corpus is the same every time`() {
+        val again = FixtureCorpus.standard(size = 700)
+
+        assertEquals(corpus.records.map { it.path }, again.records.map { it.path })
+        assertEquals(corpus.records.map { it.size }, again.records.map { it.size })
+        assertEquals(corpus.records.map { it.lastModified }, again.records.map { it.lastModified })
+        assertArrayEquals(corpus.features, again.features, 0f)
+    }
+
+    @Test
+    fun `standard corpus covers each category evenly`() {
+        val counts = corpus.ruleLabels.groupingBy { it }.eachCount()
+
+        assertEquals(7, counts.size)
+        assertTrue(counts.values.all { it == 100 })
+    }
+
+    @Test
+    fun `rule agreement is the share of files given their rule label`() {
+        val report = ClassifierBenchmark.run("extension", corpus, batchSize = 64, classify = ::byExtension)
+
+        // Log, cache, temp and document files, 4 of the 7 kinds
+        assertEquals(4f / 7f, report.ruleAgreement, 0.001f)
+        assertEquals(700, report.files)
+    }
+
+    @Test
+    fun `every file is classified alone and in batches`() {
+        val calls = mutableListOf<Int>()
+        ClassifierBenchmark.run("counting", corpus, batchSize = 64, classify = { features, rows ->
+            calls.add(rows)
+            byExtension(features, rows)
+        })
+
+        // Warm-up and throughput passes in batches, latency pass one by one
+        val batches = List(10) { 64 } + 60
+        assertEquals(batches + List(700) { 1 } + batches, calls)
+    }
+
+    @Test
+    fun `report orders percentiles and measures memory above the baseline`() {
+        var used = 1_000L
+        val report = ClassifierBenchmark.run(
+            "growing",
+            corpus,
+            batchSize = 64,
+            classify = { features, rows ->
+                used += 10
+                byExtension(features, rows)
+            },
+            memoryUsed = { used },
+            memoryBaseline = 500L
+        )
+
+        assertTrue(report.p50Micros <= report.p99Micros)
+        assertTrue(report.filesPerSecond > 0)
+        // 22 batched and 700 single calls of 10 bytes each; the last
+        // sample is taken after the final batch
+        assertEquals(1_000L + 10 * (11 + 700 + 11) - 500L, report.peakMemoryBytes)
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.smartcleaner.data.ml
+
+import com.smartcleaner.data.ml.FeatureExtractor
+import com.smartcleaner.data.ml.FileRecord
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.util.concurrent.TimeUnit
+
+class FeatureExtractorTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val now = 1_700_000_000_000L
+    private val day = TimeUnit.DAYS.toMillis(1)
+
+    private fun features(extractor: FeatureExtractor, path: String, size: Long = 0L, age: Long = 0L) =
+        FloatArray(FeatureExtractor.FEATURE_COUNT).also {
+            extractor.extract(FileRecord(path, size, now - age), it, 0)
+        }
+
+    @Test
+    fun `features come from the record without touching disk`() {
+        val extractor = FeatureExtractor(now) { 40 }
+        val features = features(extractor, "/sdcard/Download/app/cache/.report_20240101123.log", age = 73 * day)
+
+        assertEquals(1f, features[4])   // "log" is in no extension category
+        assertEquals(0.2f, features[6], 0.001f)
+        assertEquals(0.2f, features[16], 0.001f)
+        assertEquals(1f, features[7])
+        assertEquals(0f, features[8])
+        assertEquals(1f, features[9])
+        assertEquals(1f, features[11])
+        assertEquals(0f, features[12])
+        assertEquals(1f, features[15])
+        assertEquals(1f, features[17])
+        assertEquals(1f, features[18])
+        assertEquals(0.4f, features[19], 0.001f)
+    }
+
+    @Test
+    fun `path flags count the file name as well as its directory`() {
+        val extractor = FeatureExtractor(now) { 0 }
+        val features = features(extractor, "/sdcard/Music/song_temp.tmp")
+
+        assertEquals(1f, features[3])
+        assertEquals(1f, features[8])
+        assertEquals(1f, features[10])
+        assertEquals(1f, features[13])
+        assertEquals(0f, features[18])
+    }
+
+    @Test
+    fun `short digit runs are not timestamps`() {
+        val extractor = FeatureExtractor(now) { 0 }
+
+        assertEquals(0f, features(extractor, "/sdcard/IMG_1234567.jpg")[15])
+        assertEquals(1f, features(extractor, "/sdcard/IMG_12345678.jpg")[15])
+    }
+
+    @Test
+    fun `each directory is counted once`() {
+        val counted = mutableListOf<String>()
+        val extractor = FeatureExtractor(now) { counted.add(it); 250 }
+
+        features(extractor, "/sdcard/a/one.txt")
+        features(extractor, "/sdcard/a/two.txt")
+        features(extractor, "/sdcard/b/three.txt")
+        val back = features(extractor, "/sdcard/a/four.txt")
+
+        assertEquals(listOf("/sdcard/a", "/sdcard/b"), counted)
+        assertEquals(1f, back[19])
+    }
+
+    @Test
+    fun `a reused row is cleared first`() {
+        val extractor = FeatureExtractor(now) { 0 }
+        val row = FloatArray(FeatureExtractor.FEATURE_COUNT)
+        extractor.extract(FileRecord("/sdcard/cache/old.bak", 0L, now), row, 0)
+        extractor.extract(FileRecord("/sdcard/Documents/notes.pdf", 0L, now), row, 0)
+
+        assertEquals(1f, row[0])
+        assertEquals(0f, row[3])
+        assertEquals(0f, row[7])
+        assertEquals(0f, row[10])
+    }
+
+    @Test
+    fun `record of a real file takes its size and time`() {
+        val file = tempFolder.newFile("data.bin")
+        file.writeBytes(ByteArray(1234))
+        file.setLastModified(now)
+
+        val record = FileRecord.of(file)
+
+        assertEquals(file.absolutePath, record.path)
+        assertEquals(1234L, record.size)
+        assertEquals(now, record.lastModified)
+    }
+
+    @Test
+    fun `record of a missing file is empty`() {
+        val record = FileRecord.of(tempFolder.root.resolve("missing"))
+
+        assertEquals(0L, record.size)
+        assertEquals(0L, record.lastModified)
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.smartcleaner.data.plan
+
+import com.smartcleaner.data.plan.CleaningPlanner
+import com.smartcleaner.data.plan.PlanCandidates
+import com.smartcleaner.domain.model.AppMediaResult
+import com.smartcleaner.domain.model.DuplicateFile
+import com.smartcleaner.domain.model.DuplicateGroup
+import com.smartcleaner.domain.model.DuplicateScanResult
+import com.smartcleaner.domain.model.DuplicateType
+import com.smartcleaner.domain.model.MessagingApp
+import com.smartcleaner.domain.model.MessagingMedia
+import com.smartcleaner.domain.model.MessagingMediaGroup
+import com.smartcleaner.domain.model.MessagingMediaType
+import com.smartcleaner.domain.model.MessagingScanResult
+import com.smartcleaner.domain.model.PlanItem
+import com.smartcleaner.domain.model.PlanSource
+import com.smartcleaner.domain.model.SafetyPolicy
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for CleaningPlanner
+ * Tests greedy selection by bytes per risk, policies and overlapping paths
+ */
+class CleaningPlannerTest {
+
+    private fun item(path: String, size: Long, risk: Float, isDirectory: Boolean = false) =
+        PlanItem(path, size, risk, PlanSource.JUNK, isDirectory)
+
+    @Test
+    fun `safest bytes are taken first until the target is met`() {
+        val plan = CleaningPlanner.plan(
+            listOf(
+                item("/s/cache.bin", 500, 0.05f),
+                item("/s/video.mp4", 2000, 0.85f),
+                item("/s/copy.jpg", 300, 0.15f),
+                item("/s/tmp.tmp", 100, 0.05f)
+            ),
+            targetBytes = 700,
+            policy = SafetyPolicy.AGGRESSIVE
+        )
+
+        assertEquals(listOf("/s/cache.bin", "/s/copy.jpg"), plan.items.map { it.path })
+        assertEquals(800L, plan.plannedBytes)
+        assertTrue(plan.reachesTarget)
+    }
+
+    @Test
+    fun `policy caps the risk of every item`() {
+        val plan = CleaningPlanner.plan(
+            listOf(item("/s/cache.bin", 100, 0.05f), item("/s/video.mp4", 5000, 0.85f)),
+            targetBytes = 1000,
+            policy = SafetyPolicy.SAFE
+        )
+
+        assertEquals(listOf("/s/cache.bin"), plan.items.map { it.path })
+        assertFalse(plan.reachesTarget)
+    }
+
+    @Test
+    fun `picks the target turns out not to need are dropped`() {
+        // Ranked by bytes per risk: small (1000/unit) before big (900/unit)
+        val plan = CleaningPlanner.plan(
+            listOf(item("/s/small.tmp", 10, 0.01f), item("/s/big.bak", 450, 0.5f)),
+            targetBytes = 400,
+            policy = SafetyPolicy.BALANCED
+        )
+
+        assertEquals(listOf("/s/big.bak"), plan.items.map { it.path })
+    }
+
+    @Test
+    fun `a path offered twice keeps its lowest risk`() {
+        val plan = CleaningPlanner.plan(
+            listOf(item("/s/a.jpg", 100, 0.85f), item("/s/a.jpg", 100, 0.15f)),
+            targetBytes = 100,
+            policy = SafetyPolicy.SAFE
+        )
+
+        assertEquals(0.15f, plan.items.single().risk)
+    }
+
+    @Test
+    fun `directories cover the items inside them`() {
+        val plan = CleaningPlanner.plan(
+            listOf(
+                item("/s/Android/data/gone/cache/a.tmp", 100, 0.05f),
+                item("/s/Android/data/gone", 1000, 0.3f, isDirectory = true),
+                item("/s/Android/data/gone/files/b.log", 50, 0.1f),
+                item("/s/Download/x.tmp", 10, 0.05f)
+            ),
+            targetBytes = 1010,
+            policy = SafetyPolicy.BALANCED
+        )
+
+        assertEquals(setOf("/s/Android/data/gone", "/s/Download/x.tmp"), plan.items.map { it.path }.toSet())
+        assertEquals(1010L, plan.plannedBytes)
+    }
+
+    @Test
+    fun `a directory only finishes with the bytes it adds`() {
+        val gb = 1024L * 1024 * 1024
+        val plan = CleaningPlanner.plan(
+            listOf(
+                item("/a/x", gb, 0.1f),
+                item("/a", 2 * gb, 0.5f, isDirectory = true),
+                item("/b", gb, 0.6f)
+            ),
+            targetBytes = 5 * gb / 2,
+            policy = SafetyPolicy.AGGRESSIVE
+        )
+
+        // /a replaces /a/x and is still short, so /b is needed too
+        assertEquals(setOf("/a", "/b"), plan.items.map { it.path }.toSet())
+        assertEquals(3 * gb, plan.plannedBytes)
+        assertTrue(plan.reachesTarget)
+    }
+
+    @Test
+    fun `kept copies are never offered`() {
+        val duplicates = DuplicateScanResult(
+            groups = listOf(
+                DuplicateGroup(
+                    groupId = "g",
+                    files = listOf(
+                        DuplicateFile("/s/DCIM/a.jpg", "a.jpg", 100, "h", 1L, "g"),
+                        DuplicateFile("/s/WhatsApp/Sent/a.jpg", "a.jpg", 100, "h", 2L, "g")
+                    ),
+                    duplicateType = DuplicateType.EXACT_MATCH,
+                    totalSize = 200,
+                    wastedSpace = 100
+                )
+            ),
+            totalDuplicates = 1,
+            totalWastedSpace = 100,
+            scanDurationMs = 0,
+            filesScanned = 2
+        )
+        val media = MessagingMedia(
+            filePath = "/s/WhatsApp/Media/b.jpg",
+            fileName = "b.jpg",
+            app = MessagingApp.WHATSAPP,
+            mediaType = MessagingMediaType.IMAGE,
+            size = 50,
+            dateModified = 0L,
+            duplicateOf = "/s/WhatsApp/Media/original.jpg"
+        )
+        val messaging = MessagingScanResult(
+            appResults = mapOf(
+                MessagingApp.WHATSAPP to AppMediaResult(
+                    app = MessagingApp.WHATSAPP,
+                    isInstalled = true,
+                    groups = listOf(
+                        MessagingMediaGroup("m", MessagingApp.WHATSAPP, null, MessagingMediaType.IMAGE, listOf(media), 50, 0L, 0L)
+                    ),
+                    totalSize = 50,
+                    totalFiles = 1,
+                    breakdown = emptyMap()
+                )
+            ),
+            totalSize = 50,
+            totalFiles = 1,
+            scanDurationMs = 0
+        )
+
+        assertEquals(listOf("/s/WhatsApp/Sent/a.jpg"), PlanCandidates.fromDuplicates(duplicates).map { it.path })
+        assertEquals(0.15f, PlanCandidates.fromMessaging(messaging).single().risk)
+        assertEquals(
+            setOf("/s/DCIM/a.jpg", "/s/WhatsApp/Media/original.jpg"),
+            PlanCandidates.keptPaths(duplicates, messaging)
+        )
+    }
+
+    @Test
+    fun `a folder holding a kept copy is never planned`() {
+        val candidates = listOf(
+            item("/s/Pictures/OldApp", 5000, 0.7f, isDirectory = true),
+            item("/s/WhatsApp/Sent/a.jpg", 100, 0.15f),
+            item("/s/Download/OldApp", 800, 0.55f, isDirectory = true)
+        )
+
+        val plan = CleaningPlanner.plan(
+            PlanCandidates.withoutKept(candidates, setOf("/s/Pictures/OldApp/a.jpg")),
+            targetBytes = 5000,
+            policy = SafetyPolicy.AGGRESSIVE
+        )
+
+        assertEquals(setOf("/s/WhatsApp/Sent/a.jpg", "/s/Download/OldApp"), plan.items.map { it.path }.toSet())
+        assertFalse(plan.reachesTarget)
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.smartcleaner.data.stats
+
+import com.smartcleaner.data.stats.StorageTreeBuilder
+import com.smartcleaner.domain.model.FileCategory
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+
+/**
+ * Unit tests for StorageTreeBuilder
+ * Tests sizes, depth limit and leaf nodes of the storage tree
+ */
+class StorageTreeBuilderTest {
+
+    private val root = File("/storage/emulated/0")
+
+    private fun path(relative: String) = "${root.path}/$relative"
+
+    @Test
+    fun `files below the depth limit count towards their ancestors`() {
+        val builder = StorageTreeBuilder(root, maxDepth = 1, minSize = 1)
+        builder.add(path("DCIM/a.jpg"), 100)
+        builder.add(path("DCIM/Camera/deep/b.jpg"), 50)
+        builder.add(path("c.txt"), 10)
+
+        val tree = builder.build()!!
+
+        assertEquals(160L, tree.size)
+        assertEquals(1, tree.fileCount)
+        val dcim = tree.children.single { it.name == "DCIM" }
+        assertEquals(150L, dcim.size)
+        assertEquals(FileCategory.IMAGES, dcim.category)
+        // Camera is below the depth limit
+        assertTrue(dcim.children.none { it.name == "Camera" })
+    }
+
+    @Test
+    fun `small directories are left out but still counted`() {
+        val builder = StorageTreeBuilder(root, maxDepth = 3, minSize = 100)
+        builder.add(path("Music/big.mp3"), 500)
+        builder.add(path("Notes/small.txt"), 20)
+
+        val tree = builder.build()!!
+
+        assertEquals(520L, tree.size)
+        assertEquals(listOf("Music"), tree.children.map { it.name })
+        assertEquals(500f / 520f * 100, tree.children.single().percentage, 0.01f)
+    }
+
+    @Test
+    fun `large files at the depth limit become leaves`() {
+        val builder = StorageTreeBuilder(root, maxDepth = 1, minSize = 100)
+        builder.add(path("Download/movie.mp4"), 300)
+        builder.add(path("Download/note.txt"), 5)
+
+        val download = builder.build()!!.children.single()
+
+        assertEquals(2, download.fileCount)
+        val leaf = download.children.single()
+        assertEquals("movie.mp4", leaf.name)
+        assertEquals(FileCategory.VIDEOS, leaf.category)
+        assertEquals(2, leaf.depth)
+    }
+
+    @Test
+    fun `paths outside the root are ignored`() {
+        val builder = StorageTreeBuilder(root, maxDepth = 2, minSize = 1)
+        builder.add("/storage/emulated/01/x.bin", 10)
+
+        assertNull(builder.build())
+    }
+}
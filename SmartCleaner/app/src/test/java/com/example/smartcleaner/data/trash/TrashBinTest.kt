@@ -0,0 +1,136 @@
+package com.example.smartcleaner.data.trash
+
+import com.smartcleaner.data.trash.TrashBin
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.*
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Unit tests for TrashBin
+ * Tests moving, the journal, restore and purging
+ */
+class TrashBinTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val day = 24 * 60 * 60 * 1000L
+
+    private val volume by lazy { tempFolder.newFolder("volume") }
+    private val journal by lazy { File(tempFolder.root, "journal.json") }
+
+    private fun trash() = TrashBin(journal, { listOf(volume) }, 7 * day)
+
+    private fun file(path: String, content: String = "data"): File =
+        File(volume, path).apply { parentFile?.mkdirs(); writeText(content) }
+
+    @Test
+    fun `moves items into the trash and remembers them across instances`() = runTest {
+        val photo = file("DCIM/photo.jpg", "12345")
+        file("leftover/a/b/c.dat")
+        val directory = File(volume, "leftover")
+
+        val moved = trash().moveToTrash(listOf(photo.absolutePath, directory.absolutePath), recursive = true, now = 1000L)
+
+        assertEquals(2, moved.size)
+        assertFalse(photo.exists() || directory.exists())
+        assertEquals(5L, moved.getValue(photo.absolutePath).size)
+        assertEquals(-1L, moved.getValue(directory.absolutePath).size)
+        assertTrue(File(moved.getValue(directory.absolutePath).trashPath, "a/b/c.dat").exists())
+
+        val reloaded = trash().entries()
+        assertEquals(moved.values.toSet(), reloaded.toSet())
+    }
+
+    @Test
+    fun `restore puts the newest copy back`() = runTest {
+        val bin = trash()
+        val note = file("Documents/note.txt", "old")
+        bin.moveToTrash(listOf(note.absolutePath), recursive = false, now = 1000L)
+        file("Documents/note.txt", "new")
+        bin.moveToTrash(listOf(note.absolutePath), recursive = false, now = 2000L)
+        File(volume, "Documents").delete()
+
+        val restored = bin.restore(listOf(note.absolutePath))
+
+        assertEquals(1, restored.size)
+        assertEquals("new", note.readText())
+        assertEquals(1, bin.entries().size)
+    }
+
+    @Test
+    fun `restore never overwrites what took the item's place`() = runTest {
+        val bin = trash()
+        val note = file("note.txt", "trashed")
+        bin.moveToTrash(listOf(note.absolutePath), recursive = false)
+        file("note.txt", "replacement")
+
+        assertTrue(bin.restore(listOf(note.absolutePath)).isEmpty())
+        assertEquals("replacement", note.readText())
+        assertEquals(1, bin.entries().size)
+    }
+
+    @Test
+    fun `non-empty directories need recursive mode`() = runTest {
+        val bin = trash()
+        file("full/a.dat")
+        val empty = File(volume, "empty").apply { mkdirs() }
+
+        val moved = bin.moveToTrash(listOf(File(volume, "full").absolutePath, empty.absolutePath), recursive = false)
+
+        assertEquals(setOf(empty.absolutePath), moved.keys)
+        assertTrue(File(volume, "full/a.dat").exists())
+    }
+
+    @Test
+    fun `items outside the volumes or inside the trash stay put`() = runTest {
+        val bin = trash()
+        val outside = File(tempFolder.root, "outside.dat").apply { writeText("x") }
+        val photo = file("photo.jpg")
+        val entry = bin.moveToTrash(listOf(photo.absolutePath), recursive = false).getValue(photo.absolutePath)
+
+        val moved = bin.moveToTrash(listOf(outside.absolutePath, entry.trashPath), recursive = true)
+
+        assertTrue(moved.isEmpty())
+        assertTrue(outside.exists())
+        assertTrue(File(entry.trashPath).exists())
+    }
+
+    @Test
+    fun `purge removes only expired items`() = runTest {
+        val bin = trash()
+        val old = file("old.dat")
+        val recent = file("recent.dat")
+        bin.moveToTrash(listOf(old.absolutePath), recursive = false, now = 0L)
+        bin.moveToTrash(listOf(recent.absolutePath), recursive = false, now = 5 * day)
+
+        val summary = bin.purgeExpired(now = 8 * day)
+
+        assertEquals(TrashBin.PurgeSummary(purgedCount = 1, failedCount = 0), summary)
+        assertEquals(listOf(recent.absolutePath), bin.entries().map { it.originalPath })
+        assertEquals(12 * day, bin.purgeTimeOf(bin.entries().single()))
+    }
+
+    @Test
+    fun `purge sweeps trashed items the journal lost`() = runTest {
+        val orphan = File(volume, "${TrashBin.DIRECTORY_NAME}/123").apply { mkdirs() }
+        File(orphan, "left.dat").writeText("x")
+        val bin = trash()
+
+        bin.purgeExpired(now = 0L)
+
+        assertFalse(orphan.exists())
+    }
+
+    @Test
+    fun `entries whose trashed copy is gone are dropped`() = runTest {
+        val photo = file("photo.jpg")
+        val entry = trash().moveToTrash(listOf(photo.absolutePath), recursive = false).getValue(photo.absolutePath)
+        File(entry.trashPath).delete()
+
+        assertTrue(trash().entries().isEmpty())
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.smartcleaner.data.util
+
+import com.smartcleaner.data.util.FileIdentity
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for FileIdentity
+ * Tests the stat conversions; FileIdentity.of needs Os.lstat, see androidTest
+ */
+class FileIdentityTest {
+
+    @Test
+    fun `sub-millisecond nanos are truncated`() {
+        assertEquals(1_700_000_000_999L, FileIdentity.toMillis(1_700_000_000L, 999_999_999L))
+        assertEquals(1_700_000_000_000L, FileIdentity.toMillis(1_700_000_000L, 999_999L))
+    }
+
+    @Test
+    fun `allocated bytes count 512 byte blocks`() {
+        val identity = FileIdentity.fromStat(
+            device = 1L, inode = 2L, linkCount = 1L, size = 100L, blocks = 8L, lastModified = 0L
+        )
+
+        assertEquals(4096L, identity.allocatedBytes)
+        assertEquals("1:2", identity.key)
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.smartcleaner.domain.usecase
+
+import com.smartcleaner.domain.model.DuplicateFile
+import com.smartcleaner.domain.model.DuplicateGroup
+import com.smartcleaner.domain.model.DuplicateType
+import com.smartcleaner.domain.model.KeepPolicy
+import com.smartcleaner.domain.usecase.duplicate.AutoSelectDuplicatesUseCase
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * Unit tests for AutoSelectDuplicatesUseCase
+ */
+class AutoSelectDuplicatesUseCaseTest {
+
+    private val useCase = AutoSelectDuplicatesUseCase()
+
+    private fun file(path: String, modified: Long, size: Long = 100, width: Int = 0, height: Int = 0) =
+        DuplicateFile(
+            filePath = path,
+            fileName = path.substringAfterLast('/'),
+            size = size,
+            hash = "h",
+            lastModified = modified,
+            groupId = "g",
+            width = width,
+            height = height
+        )
+
+    private fun group(id: String, vararg files: DuplicateFile, type: DuplicateType = DuplicateType.EXACT_MATCH) =
+        DuplicateGroup(
+            groupId = id,
+            files = files.toList(),
+            duplicateType = type,
+            totalSize = files.sumOf { it.size },
+            wastedSpace = files.drop(1).sumOf { it.size }
+        )
+
+    @Test
+    fun `oldest policy keeps earliest file`() {
+        val groups = listOf(
+            group("g1", file("/a/new.jpg", 300), file("/a/old.jpg", 100), file("/a/mid.jpg", 200))
+        )
+
+        val plan = useCase(groups, listOf(KeepPolicy.OLDEST))
+
+        assertEquals("/a/old.jpg", plan.keptPaths["g1"])
+        assertEquals(setOf("/a/new.jpg", "/a/mid.jpg"), plan.deletePaths)
+        assertEquals(200L, plan.reclaimableBytes)
+    }
+
+    @Test
+    fun `later policies only break ties`() {
+        val groups = listOf(
+            group(
+                "g1",
+                file("/storage/WhatsApp/Media/WhatsApp Images/Sent/x.jpg", 100),
+                file("/storage/DCIM/Camera/x.jpg", 200),
+                file("/storage/Pictures/x.jpg", 50)
+            )
+        )
+
+        val plan = useCase(groups, listOf(KeepPolicy.IN_DCIM, KeepPolicy.OLDEST))
+
+        assertEquals("/storage/DCIM/Camera/x.jpg", plan.keptPaths["g1"])
+    }
+
+    @Test
+    fun `largest resolution prefers more pixels`() {
+        val groups = listOf(
+            group(
+                "g1",
+                file("/p/small.jpg", 100, width = 640, height = 480),
+                file("/p/large.jpg", 200, width = 4000, height = 3000),
+                type = DuplicateType.SIMILAR_IMAGE
+            )
+        )
+
+        val plan = useCase(groups, listOf(KeepPolicy.LARGEST_RESOLUTION))
+
+        assertEquals("/p/large.jpg", plan.keptPaths["g1"])
+    }
+
+    @Test
+    fun `file kept by one group is never deleted via another`() {
+        val a = file("/d/a.jpg", 100)
+        val b = file("/d/b.jpg", 200)
+        val c = file("/d/c.jpg", 50)
+        val groups = listOf(
+            group("exact", a, b),
+            group("similar", b, c, type = DuplicateType.SIMILAR_IMAGE)
+        )
+
+        val plan = useCase(groups, listOf(KeepPolicy.OLDEST))
+
+        groups.forEach { g ->
+            assertTrue(g.files.any { it.filePath !in plan.deletePaths })
+        }
+    }
+
+    @Test
+    fun `folder holding a kept file is not deleted`() {
+        val folderA = file("/s/A", 200).copy(isDirectory = true)
+        val folderB = file("/s/B", 100).copy(isDirectory = true)
+        val inA = file("/s/A/x.jpg", 10)
+        val elsewhere = file("/s/C/x.jpg", 50)
+        val groups = listOf(
+            group("folder", folderA, folderB, type = DuplicateType.IDENTICAL_FOLDER),
+            group("exact", inA, elsewhere)
+        )
+
+        // OLDEST keeps folder B and A/x.jpg, so folder A must stay
+        val plan = useCase(groups, listOf(KeepPolicy.OLDEST))
+
+        assertEquals(setOf("/s/C/x.jpg"), plan.deletePaths)
+    }
+
+    @Test
+    fun `enforceKeepOne treats files in a selected folder as selected`() {
+        val groups = listOf(group("g1", file("/s/A/x.jpg", 100), file("/s/C/x.jpg", 200)))
+
+        val result = useCase.enforceKeepOne(groups, setOf("/s/A", "/s/C/x.jpg"), listOf(KeepPolicy.OLDEST))
+
+        assertEquals(setOf("/s/C/x.jpg"), result)
+    }
+
+    @Test
+    fun `enforceKeepOne deselects one file of fully selected group`() {
+        val groups = listOf(group("g1", file("/a/1", 100), file("/a/2", 200)))
+
+        val result = useCase.enforceKeepOne(groups, setOf("/a/1", "/a/2"), listOf(KeepPolicy.NEWEST))
+
+        assertEquals(setOf("/a/1"), result)
+    }
+}
@@ -4,6 +4,9 @@ import androidx.arch.core.executor.testing.InstantTaskExecutorRule
 import com.example.smartcleaner.domain.model.DuplicateFile
 import com.example.smartcleaner.domain.usecase.DeleteDuplicatesUseCase
 import com.example.smartcleaner.domain.usecase.FindDuplicatesUseCase
+import com.smartcleaner.domain.usecase.duplicate.AutoSelectDuplicatesUseCase
+import com.smartcleaner.domain.usecase.duplicate.LinkDuplicatesUseCase
+import com.smartcleaner.domain.usecase.duplicate.ReclusterDuplicatesUseCase
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.flowOf
@@ -35,13 +38,19 @@ class DuplicateViewModelTest {
     @Mock
     private lateinit var deleteUseCase: DeleteDuplicatesUseCase
 
+    @Mock
+    private lateinit var linkUseCase: LinkDuplicatesUseCase
+
+    @Mock
+    private lateinit var reclusterUseCase: ReclusterDuplicatesUseCase
+
     private lateinit var viewModel: DuplicateViewModel
 
     @Before
     fun setup() {
         MockitoAnnotations.openMocks(this)
         Dispatchers.setMain(testDispatcher)
-        viewModel = DuplicateViewModel(findUseCase, deleteUseCase)
+        viewModel = DuplicateViewModel(findUseCase, deleteUseCase, AutoSelectDuplicatesUseCase(), linkUseCase, reclusterUseCase)
     }
 
     @After